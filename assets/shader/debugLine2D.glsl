@@ -5,8 +5,11 @@ layout (location=1) in vec3 aColor;
 
 out vec3 fColor;
 
-uniform mat4 uView;
-uniform mat4 uProjection;
+// Camera matrices shared by every shader, see CameraUniformBuffer
+layout (std140) uniform Camera {
+    mat4 uProjection;
+    mat4 uView;
+};
 
 void main() {
     fColor = aColor;
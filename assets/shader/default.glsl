@@ -5,8 +5,11 @@ layout (location=1) in vec4 aColor;
 layout (location=2) in vec2 aTexCoords;
 layout (location=3) in float aTexId;
 
-uniform mat4 uProjection;
-uniform mat4 uView;
+// Camera matrices shared by every shader, see CameraUniformBuffer
+layout (std140) uniform Camera {
+    mat4 uProjection;
+    mat4 uView;
+};
 
 out vec4 fColor;
 out vec2 fTexCoords;
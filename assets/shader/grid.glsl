@@ -0,0 +1,38 @@
+#type vertex
+#version 330 core
+
+// Camera matrices shared by every shader, see CameraUniformBuffer
+layout (std140) uniform Camera {
+    mat4 uProjection;
+    mat4 uView;
+};
+
+out vec2 fWorldPos;
+
+void main() {
+    // A triangle strip covering the viewport, built from the vertex index so no vertex buffer is needed
+    vec2 ndc = vec2(gl_VertexID & 1, gl_VertexID >> 1) * 2.0 - 1.0;
+    fWorldPos = (inverse(uProjection * uView) * vec4(ndc, 0.0, 1.0)).xy;
+    gl_Position = vec4(ndc, 0.0, 1.0);
+}
+
+#type fragment
+#version 330 core
+
+in vec2 fWorldPos;
+
+uniform vec2 uGridSize;
+uniform vec3 uColor;
+uniform float uLineWidth;
+
+out vec4 color;
+
+void main() {
+    vec2 cell = fWorldPos / uGridSize;
+    // Distance to the nearest grid line in pixels, whatever the zoom level
+    vec2 pixels = abs(fract(cell - 0.5) - 0.5) / fwidth(cell);
+    if (min(pixels.x, pixels.y) >= uLineWidth * 0.5) {
+        discard;
+    }
+    color = vec4(uColor, 1);
+}
@@ -0,0 +1,49 @@
+#type vertex
+#version 460 core
+// Unit quad corner, shared by every instance
+layout (location=0) in vec2 aCorner;
+// Per instance sprite record
+layout (location=1) in vec2 aPos;
+layout (location=2) in vec2 aScale;
+layout (location=3) in vec4 aColor;
+layout (location=4) in vec4 aUvRect;
+layout (location=5) in float aTexId;
+
+// Camera matrices shared by every shader, see CameraUniformBuffer
+layout (std140) uniform Camera {
+    mat4 uProjection;
+    mat4 uView;
+};
+
+out vec4 fColor;
+out vec2 fTexCoords;
+out float fTexId;
+
+void main() {
+    fColor = aColor;
+    // Stretch the corner across the sprite's UV rectangle (min in xy, max in zw)
+    fTexCoords = mix(aUvRect.xy, aUvRect.zw, aCorner);
+    fTexId = aTexId;
+    // Place the corner in the world and adjust it by the Camera Projection and View.
+    gl_Position = uProjection * uView * vec4(aPos + aCorner * aScale, 0.0, 1.0);
+}
+
+#type fragment
+#version 460 core
+
+in vec4 fColor;
+in vec2 fTexCoords;
+in float fTexId;
+
+uniform sampler2D uTextures[8];
+
+out vec4 color;
+
+void main() {
+    if (fTexId > 0) {
+        int id = int(fTexId);
+        color = fColor * texture(uTextures[id], fTexCoords);
+    } else {
+        color = fColor;
+    }
+}
@@ -0,0 +1,45 @@
+#type vertex
+#version 460 core
+layout (location=0) in vec2 aPos;
+// Normalized by the vertex fetch, arrives as 0..1
+layout (location=1) in vec4 aColor;
+layout (location=2) in vec2 aTexCoords;
+// Integer attribute, no float conversion
+layout (location=3) in uint aTexId;
+
+// Camera matrices shared by every shader, see CameraUniformBuffer
+layout (std140) uniform Camera {
+    mat4 uProjection;
+    mat4 uView;
+};
+
+out vec4 fColor;
+out vec2 fTexCoords;
+flat out uint fTexId;
+
+void main() {
+    fColor = aColor;
+    fTexCoords = aTexCoords;
+    fTexId = aTexId;
+    // Adjust the positional data to be reflected by the Camera Projection and View.
+    gl_Position = uProjection * uView * vec4(aPos, 0.0, 1.0);
+}
+
+#type fragment
+#version 460 core
+
+in vec4 fColor;
+in vec2 fTexCoords;
+flat in uint fTexId;
+
+uniform sampler2D uTextures[8];
+
+out vec4 color;
+
+void main() {
+    if (fTexId > 0u) {
+        color = fColor * texture(uTextures[fTexId], fTexCoords);
+    } else {
+        color = fColor;
+    }
+}
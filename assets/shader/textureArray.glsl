@@ -0,0 +1,45 @@
+#type vertex
+#version 460 core
+layout (location=0) in vec3 aPos;
+layout (location=1) in vec4 aColor;
+layout (location=2) in vec2 aTexCoords;
+// 1 based layer of the texture array, 0 for untextured sprites
+layout (location=3) in float aTexId;
+
+// Camera matrices shared by every shader, see CameraUniformBuffer
+layout (std140) uniform Camera {
+    mat4 uProjection;
+    mat4 uView;
+};
+
+out vec4 fColor;
+out vec2 fTexCoords;
+out float fTexId;
+
+void main() {
+    fColor = aColor;
+    fTexCoords = aTexCoords;
+    fTexId = aTexId;
+    // Adjust the positional data to be reflected by the Camera Projection and View.
+    gl_Position = uProjection * uView * vec4(aPos, 1.0);
+}
+
+#type fragment
+#version 460 core
+
+in vec4 fColor;
+in vec2 fTexCoords;
+in float fTexId;
+
+uniform sampler2DArray uTextureArray;
+
+out vec4 color;
+
+void main() {
+    if (fTexId > 0) {
+        float layer = round(fTexId) - 1.0;
+        color = fColor * texture(uTextureArray, vec3(fTexCoords, layer));
+    } else {
+        color = fColor;
+    }
+}
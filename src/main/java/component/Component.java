@@ -80,6 +80,13 @@ public abstract class Component implements Serializable {
         //Not implemented
     }
 
+    /**
+     * Optional lifecycle hook to release resources once the component is removed or its scene is torn down.
+     */
+    public void destroy() {
+        //Not implemented
+    }
+
     /**
      * Hook for a component to render its own ImGui overlay
      * By default leverages reflection to inspect fields on class and builds a generic ImGui window for those.
@@ -1,8 +1,13 @@
 package component;
 
+import com.google.gson.annotations.JsonAdapter;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import org.joml.Vector2f;
 import render.Texture;
+import render.TextureArray;
 
 import java.io.Serializable;
 
@@ -11,25 +16,40 @@ import java.io.Serializable;
  * Author: rapto
  * CreatedDate: 1/22/2025 : 4:20 PM
  * Project: GameEngine
- * Description: Manages an individual sprite resource
+ * Description: Manages an individual sprite resource.  Sprites cut from a SpriteSheet don't own their texture
+ * coordinates, they hold their index into the sheet's flat UV table instead.
  */
 @Data
+@JsonAdapter(SpriteSerializer.class)
 public class Sprite implements Serializable {
+    //Floats of texture coordinates per sprite, u and v for each of the 4 corners
+    public static final    int          TEX_COORD_FLOATS = 8;
     //Default Texture Coordinate vector to use if not provided.
-    protected static final Vector2f[] DEF_VECTOR = new Vector2f[]{
+    protected static final Vector2f[]   DEF_VECTOR   = new Vector2f[]{
             new Vector2f(1, 1),
             new Vector2f(1, 0),
             new Vector2f(0, 0),
             new Vector2f(0, 1)
     };
     //Width of the Sprite
-    private                float      width;
+    private                float        width;
     //Height of the Sprite
-    private                float      height;
+    private                float        height;
     //The texture containing the sprite
-    private                Texture    texture    = null;
-    //The bounding box of the sprite
-    private                Vector2f[] texCoords  = DEF_VECTOR;
+    private                Texture      texture      = null;
+    //The bounding box of the sprite, null while the coordinates live in a SpriteSheet's table
+    private                Vector2f[]   texCoords    = DEF_VECTOR;
+    //UV table of the SpriteSheet the sprite was cut from
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient      float[]      uvTable      = null;
+    //Index of the sprite within uvTable, -1 if the sprite owns its texCoords
+    @Setter(AccessLevel.NONE)
+    private                int          uvIndex      = -1;
+    //Texture array holding the sprite as a whole layer, null if the sprite is only in its texture
+    private transient      TextureArray textureArray = null;
+    //Layer of the sprite within the textureArray
+    private transient      int          layer        = -1;
 
     /**
      * Return the TextureId
@@ -39,4 +59,61 @@ public class Sprite implements Serializable {
     public int getTexId() {
         return texture != null ? texture.getTextureId() : -1;
     }
+
+    /**
+     * Return the texture coordinates of the 4 corners.  Sprites of a SpriteSheet build a new array on every call, so
+     * use copyTexCoords where it runs often.
+     *
+     * @return TexCoords Array
+     */
+    public Vector2f[] getTexCoords() {
+        if (uvTable == null) {
+            return texCoords;
+        }
+        int offset = uvIndex * TEX_COORD_FLOATS;
+        Vector2f[] coords = new Vector2f[4];
+        for (int i = 0; i < coords.length; i++) {
+            coords[i] = new Vector2f(uvTable[offset + 2 * i], uvTable[offset + 2 * i + 1]);
+        }
+        return coords;
+    }
+
+    /**
+     * Give the sprite its own texture coordinates, detaching it from any SpriteSheet table.
+     *
+     * @param texCoords coordinates of the 4 corners
+     */
+    public void setTexCoords(Vector2f[] texCoords) {
+        this.texCoords = texCoords;
+        this.uvTable = null;
+        this.uvIndex = -1;
+    }
+
+    /**
+     * Point the sprite at its entry in a SpriteSheet's UV table.
+     *
+     * @param uvTable TEX_COORD_FLOATS floats per sprite
+     * @param uvIndex index of the sprite within the table
+     */
+    void setUVs(float[] uvTable, int uvIndex) {
+        this.texCoords = null;
+        this.uvTable = uvTable;
+        this.uvIndex = uvIndex;
+    }
+
+    /**
+     * Write the u and v of each corner into dst, without allocating.
+     *
+     * @param dst array of at least TEX_COORD_FLOATS floats
+     */
+    public void copyTexCoords(float[] dst) {
+        if (uvTable != null) {
+            System.arraycopy(uvTable, uvIndex * TEX_COORD_FLOATS, dst, 0, TEX_COORD_FLOATS);
+            return;
+        }
+        for (int i = 0; i < 4; i++) {
+            dst[2 * i] = texCoords[i].x;
+            dst[2 * i + 1] = texCoords[i].y;
+        }
+    }
 }
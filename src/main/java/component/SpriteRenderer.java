@@ -6,8 +6,11 @@ import lombok.NoArgsConstructor;
 import org.joml.Vector2f;
 import org.joml.Vector4f;
 import render.Texture;
+import render.TextureArray;
 import rubicon.Transform;
 
+import java.util.function.Consumer;
+
 
 /**
  * Class: SpriteRenderer
@@ -19,16 +22,18 @@ import rubicon.Transform;
 @NoArgsConstructor
 public class SpriteRenderer extends Component {
     // Default Color for use with SpriteRenderer
-    public static final Vector4f  DEF_COLOR = new Vector4f(1, 1, 1, 1);
+    public static final Vector4f                 DEF_COLOR = new Vector4f(1, 1, 1, 1);
     // 4 bit Color variable (RGBA)
     @Getter
-    private final       Vector4f  color     = new Vector4f(1, 1, 1, 1);
+    private final       Vector4f                 color     = new Vector4f(1, 1, 1, 1);
     // Stores the previous transformer state
-    protected transient Transform lastTransform;
+    protected transient Transform                lastTransform;
     //Sprite containing texture data
-    private             Sprite    sprite    = new Sprite();
+    private             Sprite                   sprite    = new Sprite();
     //State value for tracking if we need to re-render.
-    private transient   boolean   isDirty   = true;
+    private transient   boolean                  isDirty   = true;
+    //Told each time the SpriteRenderer turns dirty, null if nothing is listening
+    private transient   Consumer<SpriteRenderer> dirtyListener;
 
     /**
      * {@inheritDoc}
@@ -51,7 +56,7 @@ public class SpriteRenderer extends Component {
     public void update(float dt) {
         if (!this.lastTransform.equals(this.gameObject.transform)) {
             this.gameObject.transform.copyTo(lastTransform);
-            this.isDirty = true;
+            markDirty();
         }
     }
 
@@ -63,7 +68,7 @@ public class SpriteRenderer extends Component {
     public void setColor(Vector4f color) {
         if (!this.color.equals(color)) {
             this.color.set(color);
-            this.isDirty = true;
+            markDirty();
         }
     }
 
@@ -86,6 +91,26 @@ public class SpriteRenderer extends Component {
         this.sprite.setTexture(t);
     }
 
+    /**
+     * Return the texture array holding the sprite as a layer
+     *
+     * @return texture array, null if the sprite only lives in its texture
+     */
+    public TextureArray getTextureArray() {
+        assert this.sprite != null : "Error: SpriteRenderer: Attempted to access TextureArray on a null Sprite";
+        return this.sprite.getTextureArray();
+    }
+
+    /**
+     * Return the layer of the sprite within its texture array
+     *
+     * @return layer, -1 if the sprite is not in a texture array
+     */
+    public int getLayer() {
+        assert this.sprite != null : "Error: SpriteRenderer: Attempted to access Layer on a null Sprite";
+        return this.sprite.getLayer();
+    }
+
     /**
      * Retrieve the texCoords of the sprite
      *
@@ -96,6 +121,16 @@ public class SpriteRenderer extends Component {
         return this.sprite.getTexCoords();
     }
 
+    /**
+     * Write the texCoords of the sprite into dst without allocating.
+     *
+     * @param dst array of at least Sprite.TEX_COORD_FLOATS floats
+     */
+    public void copyTexCoords(float[] dst) {
+        assert this.sprite != null : "Error: SpriteRenderer: Attempted to access Texture Coordinates on a null Sprite";
+        this.sprite.copyTexCoords(dst);
+    }
+
     /**
      * Set the sprite on the spriteRenderer and flag dirty.
      *
@@ -103,7 +138,28 @@ public class SpriteRenderer extends Component {
      */
     public void setSprite(Sprite sprite) {
         this.sprite = sprite;
-        this.isDirty = true;
+        markDirty();
+    }
+
+    /**
+     * Flag the SpriteRenderer dirty, telling the listener if it was clean.
+     */
+    private void markDirty() {
+        if (!this.isDirty) {
+            this.isDirty = true;
+            if (this.dirtyListener != null) {
+                this.dirtyListener.accept(this);
+            }
+        }
+    }
+
+    /**
+     * Set who is told each time the SpriteRenderer turns dirty.  Only one listener is kept.
+     *
+     * @param dirtyListener called with this SpriteRenderer, null to stop telling anyone
+     */
+    public void setDirtyListener(Consumer<SpriteRenderer> dirtyListener) {
+        this.dirtyListener = dirtyListener;
     }
 
     /**
@@ -130,7 +186,7 @@ public class SpriteRenderer extends Component {
         float[] imColor = {color.x, color.y, color.z, color.w};
         if (ImGui.colorPicker4("Color Picker", imColor)) {
             this.color.set(imColor[0], imColor[1], imColor[2], imColor[3]);
-            this.isDirty = true;
+            markDirty();
         }
 
     }
@@ -0,0 +1,40 @@
+package component;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import render.Texture;
+
+import java.lang.reflect.Type;
+
+/**
+ * Class: SpriteSerializer
+ * Author: rapto
+ * CreatedDate: 3/29/2025 : 9:40 AM
+ * Project: GameEngine
+ * Description: Custom GSON Serializer for Sprites.  Sprites of a SpriteSheet keep their texture coordinates in the
+ * sheet's table, so they are written out as coordinates and load back as plain Sprites.
+ */
+public class SpriteSerializer implements JsonSerializer<Sprite> {
+    /**
+     * Custom serializer for Sprite Class
+     *
+     * @param src     Sprite to be serialized
+     * @param type    Type of src
+     * @param context Serialization Context
+     * @return JsonElement representing a Sprite
+     */
+    @Override
+    public JsonElement serialize(Sprite src, Type type, JsonSerializationContext context) {
+        JsonObject res = new JsonObject();
+        res.add("width", new JsonPrimitive(src.getWidth()));
+        res.add("height", new JsonPrimitive(src.getHeight()));
+        if (src.getTexture() != null) {
+            res.add("texture", context.serialize(src.getTexture(), Texture.class));
+        }
+        res.add("texCoords", context.serialize(src.getTexCoords()));
+        return res;
+    }
+}
@@ -1,6 +1,5 @@
 package component;
 
-import org.joml.Vector2f;
 import render.Texture;
 
 import java.util.ArrayList;
@@ -11,13 +10,18 @@ import java.util.List;
  * Author: rapto
  * CreatedDate: 1/22/2025 : 4:24 PM
  * Project: GameEngine
- * Description: Manages a collection of sprites from a tiled uniform sprite sheet
+ * Description: Manages a collection of sprites from a tiled uniform sprite sheet.  The texture coordinates of every
+ * sprite are kept in one flat table indexed by sprite id.
  */
 public class SpriteSheet {
     //Texture containing all the sprites
     private final Texture      texture;
     //Collection of manages sprites
     private final List<Sprite> sprites;
+    //Sprite.TEX_COORD_FLOATS texture coordinates per sprite, in sprite order
+    private final float[]      uvs;
+    //Coordinates within the sheet's own texture, uvs is derived from these when the sheet is packed into an atlas
+    private final float[]      sourceUVs;
 
     /**
      * Constructor that generates individual sprites from a texture.
@@ -29,8 +33,9 @@ public class SpriteSheet {
      * @param spaceBuffer  Spacing border around tiles
      */
     public SpriteSheet(Texture texture, int spriteWidth, int spriteHeight, int numSprites, int spaceBuffer) {
-        this.sprites = new ArrayList<>();
+        this.sprites = new ArrayList<>(numSprites);
         this.texture = texture;
+        this.uvs = new float[numSprites * Sprite.TEX_COORD_FLOATS];
 
         //Initialize the Start coordinates to traverse left to right, top to bottom
         int currentX = 0;
@@ -44,17 +49,20 @@ public class SpriteSheet {
             float leftX = currentX / (float) texture.getWidth();
             float bottomY = currentY / (float) texture.getHeight();
 
-            //Build texture coordinates for the tile
-            Vector2f[] texCoords = new Vector2f[]{
-                    new Vector2f(rightX, topY),
-                    new Vector2f(rightX, bottomY),
-                    new Vector2f(leftX, bottomY),
-                    new Vector2f(leftX, topY)
-            };
+            //Store texture coordinates for the tile, corners ordered top right, bottom right, bottom left, top left
+            int uv = i * Sprite.TEX_COORD_FLOATS;
+            uvs[uv] = rightX;
+            uvs[uv + 1] = topY;
+            uvs[uv + 2] = rightX;
+            uvs[uv + 3] = bottomY;
+            uvs[uv + 4] = leftX;
+            uvs[uv + 5] = bottomY;
+            uvs[uv + 6] = leftX;
+            uvs[uv + 7] = topY;
             //Build and store the Sprite
             Sprite sprite = new Sprite();
             sprite.setTexture(this.texture);
-            sprite.setTexCoords(texCoords);
+            sprite.setUVs(uvs, i);
             sprite.setWidth(spriteWidth);
             sprite.setHeight(spriteHeight);
             sprites.add(sprite);
@@ -67,6 +75,7 @@ public class SpriteSheet {
                 currentY -= (spriteHeight + spaceBuffer);
             }
         }
+        this.sourceUVs = uvs.clone();
     }
 
     /**
@@ -79,6 +88,33 @@ public class SpriteSheet {
         return this.sprites.get(index);
     }
 
+    /**
+     * Retrieve the texture the sheet was cut from
+     *
+     * @return source texture
+     */
+    public Texture getTexture() {
+        return this.texture;
+    }
+
+    /**
+     * Retrieve the texture coordinates of every sprite.  Writes are seen by all the sheet's sprites.
+     *
+     * @return Sprite.TEX_COORD_FLOATS floats per sprite, in sprite order
+     */
+    public float[] getUVs() {
+        return this.uvs;
+    }
+
+    /**
+     * Retrieve the texture coordinates of every sprite within the sheet's own texture, unaffected by atlas packing.
+     *
+     * @return Sprite.TEX_COORD_FLOATS floats per sprite, in sprite order
+     */
+    public float[] getSourceUVs() {
+        return this.sourceUVs;
+    }
+
     /**
      * Return the number of sprites in spritesheet
      *
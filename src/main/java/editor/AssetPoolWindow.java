@@ -0,0 +1,67 @@
+package editor;
+
+import imgui.ImGui;
+import imgui.flag.ImGuiTableFlags;
+import render.Texture;
+import render.TextureLoader;
+import scene.Settings;
+import util.AssetPool;
+
+import java.util.Map;
+
+/**
+ * Class: AssetPoolWindow
+ * Author: rapto
+ * CreatedDate: 3/26/2025 : 3:20 PM
+ * Project: GameEngine
+ * Description: Panel listing the AssetPool's textures with their memory size, references and residency against the
+ * texture memory budget.
+ */
+public class AssetPoolWindow {
+    private static final float MEGABYTE = 1024 * 1024;
+
+    private AssetPoolWindow() {
+        //Hide Static Class Constructor
+    }
+
+    /**
+     * Draws the panel.
+     */
+    public static void imgui() {
+        ImGui.begin("Assets");
+        long resident = AssetPool.getResidentTextureBytes();
+        ImGui.text(String.format("Texture memory: %.1f / %.1f MB", resident / MEGABYTE,
+                                 Settings.textureMemoryBudget / MEGABYTE));
+        ImGui.progressBar(Math.min(1.0f, resident / (float) Settings.textureMemoryBudget));
+        ImGui.text(String.format("Evictions: %d  Shaders: %d  SpriteSheets: %d", AssetPool.getEvictionCount(),
+                                 AssetPool.getShaderCount(), AssetPool.getSpriteSheetCount()));
+        TextureLoader loader = AssetPool.getTextureLoader();
+        ImGui.text(String.format("Duplicates shared: %d, %.1f MB saved", loader.getDedupedCount(),
+                                 loader.getDedupedBytes() / MEGABYTE));
+
+        if (ImGui.beginTable("AssetPoolTextures", 4,
+                             ImGuiTableFlags.Borders | ImGuiTableFlags.RowBg | ImGuiTableFlags.Resizable)) {
+            ImGui.tableSetupColumn("Texture");
+            ImGui.tableSetupColumn("Size");
+            ImGui.tableSetupColumn("Refs");
+            ImGui.tableSetupColumn("State");
+            ImGui.tableHeadersRow();
+            for (Map.Entry<String, Texture> entry : AssetPool.getTextures()
+                                                             .entrySet()) {
+                Texture texture = entry.getValue();
+                ImGui.tableNextRow();
+                ImGui.tableSetColumnIndex(0);
+                ImGui.text(texture.getFilePath());
+                ImGui.tableSetColumnIndex(1);
+                ImGui.text(String.format("%dx%d, %d KB", texture.getWidth(), texture.getHeight(),
+                                         texture.getMemorySize() / 1024));
+                ImGui.tableSetColumnIndex(2);
+                ImGui.text(Integer.toString(AssetPool.getReferenceCount(entry.getKey())));
+                ImGui.tableSetColumnIndex(3);
+                ImGui.text(texture.isResident() ? "Resident" : "Evicted");
+            }
+            ImGui.endTable();
+        }
+        ImGui.end();
+    }
+}
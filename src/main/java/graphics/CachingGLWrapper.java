@@ -0,0 +1,706 @@
+package graphics;
+
+import lombok.Getter;
+import org.lwjgl.glfw.*;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL15C.GL_ELEMENT_ARRAY_BUFFER;
+
+/**
+ * Class: CachingGLWrapper
+ * Author: rapto
+ * CreatedDate: 3/20/2025 : 7:14 PM
+ * Project: GameEngine
+ * Description: GLWrapper decorator that remembers the bound program, vertex array, buffers, active texture unit,
+ * per-unit textures and enabled vertex attributes, dropping calls that would leave that state unchanged.  Everything
+ * else is passed straight to the wrapped implementation.
+ */
+public class CachingGLWrapper implements GLWrapper {
+    //Marks state we have not observed since the last invalidate
+    private static final int                   UNKNOWN       = -1;
+
+    private final        GLWrapper             delegate;
+    private              int                   program       = UNKNOWN;
+    private              int                   vertexArray   = UNKNOWN;
+    private              int                   activeTexture = UNKNOWN;
+    //Buffer bound to each target
+    private final        Map<Integer, Integer> buffers       = new HashMap<>();
+    //Texture bound to each (unit, target) pair
+    private final        Map<Long, Integer>    textures      = new HashMap<>();
+    //Enabled attributes of each vertex array created through this wrapper
+    private final        Map<Integer, BitSet>  attributes    = new HashMap<>();
+    //Cached calls seen so far this frame
+    private              int                   issued;
+    private              int                   elided;
+    //Cached calls seen during the last completed frame
+    @Getter
+    private              int                   lastIssuedCalls;
+    @Getter
+    private              int                   lastElidedCalls;
+
+    /**
+     * Constructor wrapping the implementation that receives the remaining calls.
+     *
+     * @param delegate implementation issuing the actual GL calls
+     */
+    public CachingGLWrapper(GLWrapper delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Forget all cached bindings, so the next call of each kind is issued.  Needed whenever something outside this
+     * wrapper may have changed GL state.  Attribute state is kept as it belongs to vertex arrays only we modify.
+     */
+    public void invalidate() {
+        program = UNKNOWN;
+        vertexArray = UNKNOWN;
+        activeTexture = UNKNOWN;
+        buffers.clear();
+        textures.clear();
+    }
+
+    /**
+     * Publish this frame's counters and start a new frame.  State is invalidated as other libraries such as ImGui
+     * issue GL calls directly between frames.
+     */
+    public void endFrame() {
+        lastIssuedCalls = issued;
+        lastElidedCalls = elided;
+        issued = 0;
+        elided = 0;
+        invalidate();
+    }
+
+    /**
+     * Count a cached call.
+     *
+     * @param changed true if the call changes state and was issued
+     * @return changed
+     */
+    private boolean record(boolean changed) {
+        if (changed) {
+            issued++;
+        } else {
+            elided++;
+        }
+        return changed;
+    }
+
+    @Override
+    public void glUseProgram(int program) {
+        if (record(this.program != program)) {
+            delegate.glUseProgram(program);
+            this.program = program;
+        }
+    }
+
+    @Override
+    public int glGenVertexArrays() {
+        int id = delegate.glGenVertexArrays();
+        //New vertex arrays start with every attribute disabled
+        attributes.put(id, new BitSet());
+        return id;
+    }
+
+    @Override
+    public void glBindVertexArray(int i) {
+        if (record(vertexArray != i)) {
+            delegate.glBindVertexArray(i);
+            vertexArray = i;
+            //The element buffer binding belongs to the vertex array
+            buffers.remove(GL_ELEMENT_ARRAY_BUFFER);
+        }
+    }
+
+    @Override
+    public void glDeleteVertexArrays(int array) {
+        delegate.glDeleteVertexArrays(array);
+        attributes.remove(array);
+        if (vertexArray == array) {
+            vertexArray = 0;
+        }
+    }
+
+    @Override
+    public void glBindBuffer(int i, int i1) {
+        Integer bound = buffers.get(i);
+        if (record(bound == null || bound != i1)) {
+            delegate.glBindBuffer(i, i1);
+            buffers.put(i, i1);
+        }
+    }
+
+    @Override
+    public void glBindBufferBase(int target, int index, int buffer) {
+        //Indexed binding points aren't tracked, but this also binds the buffer to the generic target
+        record(true);
+        delegate.glBindBufferBase(target, index, buffer);
+        buffers.put(target, buffer);
+    }
+
+    @Override
+    public void glDeleteBuffers(int buffer) {
+        delegate.glDeleteBuffers(buffer);
+        //Deleting a bound buffer resets the binding to 0
+        buffers.replaceAll((target, bound) -> bound == buffer ? 0 : bound);
+    }
+
+    @Override
+    public void glActiveTexture(int i) {
+        if (record(activeTexture != i)) {
+            delegate.glActiveTexture(i);
+            activeTexture = i;
+        }
+    }
+
+    @Override
+    public void glBindTexture(int target, int texture) {
+        if (activeTexture == UNKNOWN) {
+            //Can't tell which unit the texture lands on
+            record(true);
+            delegate.glBindTexture(target, texture);
+            return;
+        }
+        long key = ((long) activeTexture << 32) | (target & 0xFFFFFFFFL);
+        Integer bound = textures.get(key);
+        if (record(bound == null || bound != texture)) {
+            delegate.glBindTexture(target, texture);
+            textures.put(key, texture);
+        }
+    }
+
+    @Override
+    public void glEnableVertexAttribArray(int i) {
+        BitSet enabled = vertexArray != UNKNOWN ? attributes.get(vertexArray) : null;
+        if (record(enabled == null || !enabled.get(i))) {
+            delegate.glEnableVertexAttribArray(i);
+            if (enabled != null) {
+                enabled.set(i);
+            }
+        }
+    }
+
+    @Override
+    public void glDisableVertexAttribArray(int i) {
+        BitSet enabled = vertexArray != UNKNOWN ? attributes.get(vertexArray) : null;
+        if (record(enabled == null || enabled.get(i))) {
+            delegate.glDisableVertexAttribArray(i);
+            if (enabled != null) {
+                enabled.clear(i);
+            }
+        }
+    }
+
+    @Override
+    public void glTexParameteri(int target, int pName, int pVal) {
+        delegate.glTexParameteri(target, pName, pVal);
+    }
+
+    @Override
+    public void stbiSetFlipVerticallyOnLoad(boolean shouldFlip) {
+        delegate.stbiSetFlipVerticallyOnLoad(shouldFlip);
+    }
+
+    @Override
+    public ByteBuffer stbiLoad(String fileName, IntBuffer x, IntBuffer y, IntBuffer channels, int channelCount) {
+        return delegate.stbiLoad(fileName, x, y, channels, channelCount);
+    }
+
+    @Override
+    public ByteBuffer stbiLoadFromMemory(ByteBuffer buffer, IntBuffer x, IntBuffer y, IntBuffer channels, int channelCount) {
+        return delegate.stbiLoadFromMemory(buffer, x, y, channels, channelCount);
+    }
+
+    @Override
+    public void glTexImage2D(int target, int level, int internalFormat, int width, int height, int border, int format, int type, ByteBuffer pixels) {
+        delegate.glTexImage2D(target, level, internalFormat, width, height, border, format, type, pixels);
+    }
+
+    @Override
+    public void glTexImage2D(int target, int level, int internalFormat, int width, int height, int border, int format, int type, long pixels) {
+        delegate.glTexImage2D(target, level, internalFormat, width, height, border, format, type, pixels);
+    }
+
+    @Override
+    public void glTexSubImage2D(int target, int level, int xOffset, int yOffset, int width, int height, int format, int type, ByteBuffer pixels) {
+        delegate.glTexSubImage2D(target, level, xOffset, yOffset, width, height, format, type, pixels);
+    }
+
+    @Override
+    public void glTexImage3D(int target, int level, int internalFormat, int width, int height, int depth, int border, int format, int type, ByteBuffer pixels) {
+        delegate.glTexImage3D(target, level, internalFormat, width, height, depth, border, format, type, pixels);
+    }
+
+    @Override
+    public void glTexSubImage3D(int target, int level, int xOffset, int yOffset, int zOffset, int width, int height, int depth, int format, int type, ByteBuffer pixels) {
+        delegate.glTexSubImage3D(target, level, xOffset, yOffset, zOffset, width, height, depth, format, type, pixels);
+    }
+
+    @Override
+    public int glGetInteger(int pname) {
+        return delegate.glGetInteger(pname);
+    }
+
+    @Override
+    public void stbiImageFree(ByteBuffer image) {
+        delegate.stbiImageFree(image);
+    }
+
+    @Override
+    public int glGenTextures() {
+        return delegate.glGenTextures();
+    }
+
+    @Override
+    public void glDeleteTextures(int texture) {
+        delegate.glDeleteTextures(texture);
+        //Deleting a bound texture resets the binding to 0 on every unit
+        textures.replaceAll((unitTarget, bound) -> bound == texture ? 0 : bound);
+    }
+
+    @Override
+    public void glShaderSource(int shader, String string) {
+        delegate.glShaderSource(shader, string);
+    }
+
+    @Override
+    public void glCompileShader(int shader) {
+        delegate.glCompileShader(shader);
+    }
+
+    @Override
+    public int glGetShaderi(int shader, int pname) {
+        return delegate.glGetShaderi(shader, pname);
+    }
+
+    @Override
+    public String glGetShaderInfoLog(int shader, int maxLength) {
+        return delegate.glGetShaderInfoLog(shader, maxLength);
+    }
+
+    @Override
+    public int glCreateShader(int type) {
+        return delegate.glCreateShader(type);
+    }
+
+    @Override
+    public int glCreateProgram() {
+        return delegate.glCreateProgram();
+    }
+
+    @Override
+    public void glAttachShader(int program, int shader) {
+        delegate.glAttachShader(program, shader);
+    }
+
+    @Override
+    public void glLinkProgram(int program) {
+        delegate.glLinkProgram(program);
+    }
+
+    @Override
+    public int glGetProgrami(int program, int pName) {
+        return delegate.glGetProgrami(program, pName);
+    }
+
+    @Override
+    public String glGetProgramInfoLog(int program, int maxLength) {
+        return delegate.glGetProgramInfoLog(program, maxLength);
+    }
+
+    @Override
+    public void glProgramParameteri(int program, int pname, int value) {
+        delegate.glProgramParameteri(program, pname, value);
+    }
+
+    @Override
+    public void glGetProgramBinary(int program, IntBuffer length, IntBuffer binaryFormat, ByteBuffer binary) {
+        delegate.glGetProgramBinary(program, length, binaryFormat, binary);
+    }
+
+    @Override
+    public void glProgramBinary(int program, int binaryFormat, ByteBuffer binary) {
+        delegate.glProgramBinary(program, binaryFormat, binary);
+    }
+
+    @Override
+    public String glGetString(int name) {
+        return delegate.glGetString(name);
+    }
+
+    @Override
+    public int glGetUniformLocation(int program, String name) {
+        return delegate.glGetUniformLocation(program, name);
+    }
+
+    @Override
+    public String glGetActiveUniform(int program, int index, IntBuffer size, IntBuffer type) {
+        return delegate.glGetActiveUniform(program, index, size, type);
+    }
+
+    @Override
+    public int glGetUniformBlockIndex(int program, String uniformBlockName) {
+        return delegate.glGetUniformBlockIndex(program, uniformBlockName);
+    }
+
+    @Override
+    public void glUniformBlockBinding(int program, int uniformBlockIndex, int uniformBlockBinding) {
+        delegate.glUniformBlockBinding(program, uniformBlockIndex, uniformBlockBinding);
+    }
+
+    @Override
+    public void glUniformMatrix4fv(int location, boolean transpose, FloatBuffer buffer) {
+        delegate.glUniformMatrix4fv(location, transpose, buffer);
+    }
+
+    @Override
+    public void glUniformMatrix3fv(int location, boolean transpose, FloatBuffer value) {
+        delegate.glUniformMatrix3fv(location, transpose, value);
+    }
+
+    @Override
+    public void glUniform4f(int location, float v0, float v1, float v2, float v3) {
+        delegate.glUniform4f(location, v0, v1, v2, v3);
+    }
+
+    @Override
+    public void glUniform3f(int location, float v0, float v1, float v2) {
+        delegate.glUniform3f(location, v0, v1, v2);
+    }
+
+    @Override
+    public void glUniform2f(int location, float v0, float v1) {
+        delegate.glUniform2f(location, v0, v1);
+    }
+
+    @Override
+    public void glUniform1f(int location, float v0) {
+        delegate.glUniform1f(location, v0);
+    }
+
+    @Override
+    public void glUniform1i(int location, int v0) {
+        delegate.glUniform1i(location, v0);
+    }
+
+    @Override
+    public void glUniform1iv(int location, int[] value) {
+        delegate.glUniform1iv(location, value);
+    }
+
+    @Override
+    public int glGenBuffers() {
+        return delegate.glGenBuffers();
+    }
+
+    @Override
+    public void glBufferData(int target, long size, int usage) {
+        delegate.glBufferData(target, size, usage);
+    }
+
+    @Override
+    public void glBufferData(int target, int[] data, int usage) {
+        delegate.glBufferData(target, data, usage);
+    }
+
+    @Override
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int pointer) {
+        delegate.glVertexAttribPointer(index, size, type, normalized, stride, pointer);
+    }
+
+    @Override
+    public void glVertexAttribIPointer(int index, int size, int type, int stride, int pointer) {
+        delegate.glVertexAttribIPointer(index, size, type, stride, pointer);
+    }
+
+    @Override
+    public void glBufferSubData(int target, int offset, float[] data) {
+        delegate.glBufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void glBufferSubData(int target, long offset, FloatBuffer data) {
+        delegate.glBufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void glBufferSubData(int target, long offset, ByteBuffer data) {
+        delegate.glBufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, long indices) {
+        delegate.glDrawElements(mode, count, type, indices);
+    }
+
+    @Override
+    public void glBufferStorage(int target, long size, int flags) {
+        delegate.glBufferStorage(target, size, flags);
+    }
+
+    @Override
+    public ByteBuffer glMapBufferRange(int target, long offset, long length, int access) {
+        return delegate.glMapBufferRange(target, offset, length, access);
+    }
+
+    @Override
+    public long glFenceSync(int condition, int flags) {
+        return delegate.glFenceSync(condition, flags);
+    }
+
+    @Override
+    public int glClientWaitSync(long sync, int flags, long timeout) {
+        return delegate.glClientWaitSync(sync, flags, timeout);
+    }
+
+    @Override
+    public void glDeleteSync(long sync) {
+        delegate.glDeleteSync(sync);
+    }
+
+    @Override
+    public void glDrawElementsBaseVertex(int mode, int count, int type, long indices, int baseVertex) {
+        delegate.glDrawElementsBaseVertex(mode, count, type, indices, baseVertex);
+    }
+
+    @Override
+    public void glMultiDrawElementsIndirect(int mode, int type, long indirect, int drawCount, int stride) {
+        delegate.glMultiDrawElementsIndirect(mode, type, indirect, drawCount, stride);
+    }
+
+    @Override
+    public void glBufferData(int target, float[] data, int usage) {
+        delegate.glBufferData(target, data, usage);
+    }
+
+    @Override
+    public void glVertexAttribDivisor(int index, int divisor) {
+        delegate.glVertexAttribDivisor(index, divisor);
+    }
+
+    @Override
+    public void glDrawArraysInstanced(int mode, int first, int count, int instanceCount) {
+        delegate.glDrawArraysInstanced(mode, first, count, instanceCount);
+    }
+
+    @Override
+    public void glDrawArraysInstancedBaseInstance(int mode, int first, int count, int instanceCount, int baseInstance) {
+        delegate.glDrawArraysInstancedBaseInstance(mode, first, count, instanceCount, baseInstance);
+    }
+
+    @Override
+    public boolean glfwInit() {
+        return delegate.glfwInit();
+    }
+
+    @Override
+    public void glfwWindowHint(int hint, int value) {
+        delegate.glfwWindowHint(hint, value);
+    }
+
+    @Override
+    public long glfwCreateWindow(int width, int height, String title, long monitor, long share) {
+        return delegate.glfwCreateWindow(width, height, title, monitor, share);
+    }
+
+    @Override
+    public void glfwDefaultWindowHints() {
+        delegate.glfwDefaultWindowHints();
+    }
+
+    @Override
+    public void glfwSetWindowPos(long window, int xPos, int yPos) {
+        delegate.glfwSetWindowPos(window, xPos, yPos);
+    }
+
+    @Override
+    public void glfwGetWindowSize(long window, IntBuffer width, IntBuffer height) {
+        delegate.glfwGetWindowSize(window, width, height);
+    }
+
+    @Override
+    public void glfwMakeContextCurrent(long window) {
+        delegate.glfwMakeContextCurrent(window);
+    }
+
+    @Override
+    public void createCapabilities() {
+        delegate.createCapabilities();
+    }
+
+    @Override
+    public void glfwSwapInterval(int interval) {
+        delegate.glfwSwapInterval(interval);
+    }
+
+    @Override
+    public void glfwShowWindow(long window) {
+        delegate.glfwShowWindow(window);
+    }
+
+    @Override
+    public void glfwMaximizeWindow(long window) {
+        delegate.glfwMaximizeWindow(window);
+    }
+
+    @Override
+    public GLFWWindowSizeCallback glfwSetWindowSizeCallback(long window, GLFWWindowSizeCallbackI cbFun) {
+        return delegate.glfwSetWindowSizeCallback(window, cbFun);
+    }
+
+    @Override
+    public void glEnable(int target) {
+        delegate.glEnable(target);
+    }
+
+    @Override
+    public void glBlendFunc(int sFactor, int dFactor) {
+        delegate.glBlendFunc(sFactor, dFactor);
+    }
+
+    @Override
+    public GLFWErrorCallback enableErrors() {
+        return delegate.enableErrors();
+    }
+
+    @Override
+    public void glClearColor(float red, float green, float blue, float alpha) {
+        delegate.glClearColor(red, green, blue, alpha);
+    }
+
+    @Override
+    public void glClear(int mask) {
+        delegate.glClear(mask);
+    }
+
+    @Override
+    public void glfwSwapBuffers(long window) {
+        delegate.glfwSwapBuffers(window);
+    }
+
+    @Override
+    public void glfwPollEvents() {
+        delegate.glfwPollEvents();
+    }
+
+    @Override
+    public void freeCallbacks(long window) {
+        delegate.freeCallbacks(window);
+    }
+
+    @Override
+    public void disableErrors() {
+        delegate.disableErrors();
+    }
+
+    @Override
+    public void glfwDestroyWindow(long window) {
+        delegate.glfwDestroyWindow(window);
+    }
+
+    @Override
+    public void glfwTerminate() {
+        delegate.glfwTerminate();
+    }
+
+    @Override
+    public GLFWCursorPosCallback glfwSetCursorPosCallback(long window, GLFWCursorPosCallbackI cbfun) {
+        return delegate.glfwSetCursorPosCallback(window, cbfun);
+    }
+
+    @Override
+    public GLFWMouseButtonCallback glfwSetMouseButtonCallback(long window, GLFWMouseButtonCallbackI cbfun) {
+        return delegate.glfwSetMouseButtonCallback(window, cbfun);
+    }
+
+    @Override
+    public GLFWScrollCallback glfwSetScrollCallback(long window, GLFWScrollCallbackI cbfun) {
+        return delegate.glfwSetScrollCallback(window, cbfun);
+    }
+
+    @Override
+    public GLFWKeyCallback glfwSetKeyCallback(long window, GLFWKeyCallbackI cbfun) {
+        return delegate.glfwSetKeyCallback(window, cbfun);
+    }
+
+    @Override
+    public boolean glfwWindowShouldClose(long window) {
+        return delegate.glfwWindowShouldClose(window);
+    }
+
+    @Override
+    public double glfwGetTime() {
+        return delegate.glfwGetTime();
+    }
+
+    @Override
+    public long glfwGetPrimaryMonitor() {
+        return delegate.glfwGetPrimaryMonitor();
+    }
+
+    @Override
+    public GLFWVidMode glfwGetVideoMode(long monitor) {
+        return delegate.glfwGetVideoMode(monitor);
+    }
+
+    @Override
+    public void glDrawArrays(int mode, int first, int count) {
+        delegate.glDrawArrays(mode, first, count);
+    }
+
+    @Override
+    public void glLineWidth(float width) {
+        delegate.glLineWidth(width);
+    }
+
+    @Override
+    public int glGenFramebuffers() {
+        return delegate.glGenFramebuffers();
+    }
+
+    @Override
+    public void glBindFramebuffer(int target, int frameBuffer) {
+        delegate.glBindFramebuffer(target, frameBuffer);
+    }
+
+    @Override
+    public void glFramebufferTexture2D(int target, int attachment, int texTarget, int texture, int level) {
+        delegate.glFramebufferTexture2D(target, attachment, texTarget, texture, level);
+    }
+
+    @Override
+    public void glBindRenderbuffer(int target, int renderBuffer) {
+        delegate.glBindRenderbuffer(target, renderBuffer);
+    }
+
+    @Override
+    public void glRenderbufferStorage(int target, int internalFormat, int width, int height) {
+        delegate.glRenderbufferStorage(target, internalFormat, width, height);
+    }
+
+    @Override
+    public void glFramebufferRenderbuffer(int target, int attachment, int renderBufferTarget, int renderBuffer) {
+        delegate.glFramebufferRenderbuffer(target, attachment, renderBufferTarget, renderBuffer);
+    }
+
+    @Override
+    public int glCheckFramebufferStatus(int target) {
+        return delegate.glCheckFramebufferStatus(target);
+    }
+
+    @Override
+    public void glViewport(int x, int y, int w, int h) {
+        delegate.glViewport(x, y, w, h);
+    }
+
+    @Override
+    public boolean tracksState() {
+        return true;
+    }
+}
@@ -23,12 +23,26 @@ public interface GLWrapper {
 
     ByteBuffer stbiLoad(String fileName, IntBuffer x, IntBuffer y, IntBuffer channels, int channelCount);
 
+    ByteBuffer stbiLoadFromMemory(ByteBuffer buffer, IntBuffer x, IntBuffer y, IntBuffer channels, int channelCount);
+
     void glTexImage2D(int target, int level, int internalFormat, int width, int height, int border, int format, int type, ByteBuffer pixels);
 
+    void glTexImage2D(int target, int level, int internalFormat, int width, int height, int border, int format, int type, long pixels);
+
+    void glTexSubImage2D(int target, int level, int xOffset, int yOffset, int width, int height, int format, int type, ByteBuffer pixels);
+
+    void glTexImage3D(int target, int level, int internalFormat, int width, int height, int depth, int border, int format, int type, ByteBuffer pixels);
+
+    void glTexSubImage3D(int target, int level, int xOffset, int yOffset, int zOffset, int width, int height, int depth, int format, int type, ByteBuffer pixels);
+
+    int glGetInteger(int pname);
+
     void stbiImageFree(ByteBuffer image);
 
     int glGenTextures();
 
+    void glDeleteTextures(int texture);
+
     void glShaderSource(int shader, String string);
 
     void glCompileShader(int shader);
@@ -49,10 +63,26 @@ public interface GLWrapper {
 
     String glGetProgramInfoLog(int program, int maxLength);
 
+    void glProgramParameteri(int program, int pname, int value);
+
+    void glGetProgramBinary(int program, IntBuffer length, IntBuffer binaryFormat, ByteBuffer binary);
+
+    void glProgramBinary(int program, int binaryFormat, ByteBuffer binary);
+
+    String glGetString(int name);
+
     void glUseProgram(int program);
 
     int glGetUniformLocation(int program, String name);
 
+    String glGetActiveUniform(int program, int index, IntBuffer size, IntBuffer type);
+
+    int glGetUniformBlockIndex(int program, String uniformBlockName);
+
+    void glUniformBlockBinding(int program, int uniformBlockIndex, int uniformBlockBinding);
+
+    void glBindBufferBase(int target, int index, int buffer);
+
     void glUniformMatrix4fv(int location, boolean transpose, FloatBuffer buffer);
 
     void glUniformMatrix3fv(int location, boolean transpose, FloatBuffer value);
@@ -77,22 +107,54 @@ public interface GLWrapper {
 
     void glBindBuffer(int i, int i1);
 
+    void glDeleteBuffers(int buffer);
+
+    void glDeleteVertexArrays(int array);
+
     void glBufferData(int target, long size, int usage);
 
     void glBufferData(int target, int[] data, int usage);
 
     void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int pointer);
 
+    void glVertexAttribIPointer(int index, int size, int type, int stride, int pointer);
+
     void glEnableVertexAttribArray(int i);
 
     void glBufferSubData(int target, int offset, float[] data);
 
+    void glBufferSubData(int target, long offset, FloatBuffer data);
+
+    void glBufferSubData(int target, long offset, ByteBuffer data);
+
     void glActiveTexture(int i);
 
     void glDrawElements(int mode, int count, int type, long indices);
 
     void glDisableVertexAttribArray(int i);
 
+    void glBufferStorage(int target, long size, int flags);
+
+    ByteBuffer glMapBufferRange(int target, long offset, long length, int access);
+
+    long glFenceSync(int condition, int flags);
+
+    int glClientWaitSync(long sync, int flags, long timeout);
+
+    void glDeleteSync(long sync);
+
+    void glDrawElementsBaseVertex(int mode, int count, int type, long indices, int baseVertex);
+
+    void glMultiDrawElementsIndirect(int mode, int type, long indirect, int drawCount, int stride);
+
+    void glBufferData(int target, float[] data, int usage);
+
+    void glVertexAttribDivisor(int index, int divisor);
+
+    void glDrawArraysInstanced(int mode, int first, int count, int instanceCount);
+
+    void glDrawArraysInstancedBaseInstance(int mode, int first, int count, int instanceCount, int baseInstance);
+
     boolean glfwInit();
 
     void glfwWindowHint(int hint, int value);
@@ -174,4 +236,7 @@ public interface GLWrapper {
     int glCheckFramebufferStatus(int target);
 
     void glViewport(int x, int y, int w, int h);
+
+    //True if binds that would not change the bound state are dropped, so callers may leave state bound between draws
+    boolean tracksState();
 }
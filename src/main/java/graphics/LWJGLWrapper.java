@@ -50,11 +50,41 @@ public class LWJGLWrapper implements GLWrapper {
         return org.lwjgl.stb.STBImage.stbi_load(fileName, x, y, channels, channelCount);
     }
 
+    @Override
+    public ByteBuffer stbiLoadFromMemory(ByteBuffer buffer, IntBuffer x, IntBuffer y, IntBuffer channels, int channelCount) {
+        return org.lwjgl.stb.STBImage.stbi_load_from_memory(buffer, x, y, channels, channelCount);
+    }
+
     @Override
     public void glTexImage2D(int target, int level, int internalFormat, int width, int height, int border, int format, int type, ByteBuffer pixels) {
         GL11.glTexImage2D(target, level, internalFormat, width, height, border, format, type, pixels);
     }
 
+    @Override
+    public void glTexImage2D(int target, int level, int internalFormat, int width, int height, int border, int format, int type, long pixels) {
+        GL11C.glTexImage2D(target, level, internalFormat, width, height, border, format, type, pixels);
+    }
+
+    @Override
+    public void glTexSubImage2D(int target, int level, int xOffset, int yOffset, int width, int height, int format, int type, ByteBuffer pixels) {
+        GL11.glTexSubImage2D(target, level, xOffset, yOffset, width, height, format, type, pixels);
+    }
+
+    @Override
+    public void glTexImage3D(int target, int level, int internalFormat, int width, int height, int depth, int border, int format, int type, ByteBuffer pixels) {
+        GL12C.glTexImage3D(target, level, internalFormat, width, height, depth, border, format, type, pixels);
+    }
+
+    @Override
+    public void glTexSubImage3D(int target, int level, int xOffset, int yOffset, int zOffset, int width, int height, int depth, int format, int type, ByteBuffer pixels) {
+        GL12C.glTexSubImage3D(target, level, xOffset, yOffset, zOffset, width, height, depth, format, type, pixels);
+    }
+
+    @Override
+    public int glGetInteger(int pname) {
+        return GL11C.glGetInteger(pname);
+    }
+
     @Override
     public void stbiImageFree(ByteBuffer image) {
         org.lwjgl.stb.STBImage.stbi_image_free(image);
@@ -65,6 +95,11 @@ public class LWJGLWrapper implements GLWrapper {
         return GL11.glGenTextures();
     }
 
+    @Override
+    public void glDeleteTextures(int texture) {
+        GL11.glDeleteTextures(texture);
+    }
+
     @Override
     public void glShaderSource(int shader, String string) {
         GL20.glShaderSource(shader, string);
@@ -115,6 +150,26 @@ public class LWJGLWrapper implements GLWrapper {
         return GL20.glGetProgramInfoLog(program, maxLength);
     }
 
+    @Override
+    public void glProgramParameteri(int program, int pname, int value) {
+        GL41C.glProgramParameteri(program, pname, value);
+    }
+
+    @Override
+    public void glGetProgramBinary(int program, IntBuffer length, IntBuffer binaryFormat, ByteBuffer binary) {
+        GL41C.glGetProgramBinary(program, length, binaryFormat, binary);
+    }
+
+    @Override
+    public void glProgramBinary(int program, int binaryFormat, ByteBuffer binary) {
+        GL41C.glProgramBinary(program, binaryFormat, binary);
+    }
+
+    @Override
+    public String glGetString(int name) {
+        return GL11C.glGetString(name);
+    }
+
     @Override
     public void glUseProgram(int program) {
         GL20.glUseProgram(program);
@@ -125,6 +180,26 @@ public class LWJGLWrapper implements GLWrapper {
         return GL20.glGetUniformLocation(program, name);
     }
 
+    @Override
+    public String glGetActiveUniform(int program, int index, IntBuffer size, IntBuffer type) {
+        return GL20C.glGetActiveUniform(program, index, size, type);
+    }
+
+    @Override
+    public int glGetUniformBlockIndex(int program, String uniformBlockName) {
+        return GL31C.glGetUniformBlockIndex(program, uniformBlockName);
+    }
+
+    @Override
+    public void glUniformBlockBinding(int program, int uniformBlockIndex, int uniformBlockBinding) {
+        GL31C.glUniformBlockBinding(program, uniformBlockIndex, uniformBlockBinding);
+    }
+
+    @Override
+    public void glBindBufferBase(int target, int index, int buffer) {
+        GL30C.glBindBufferBase(target, index, buffer);
+    }
+
     @Override
     public void glUniformMatrix4fv(int location, boolean transpose, FloatBuffer buffer) {
         GL20.glUniformMatrix4fv(location, transpose, buffer);
@@ -185,6 +260,16 @@ public class LWJGLWrapper implements GLWrapper {
         GL15C.glBindBuffer(i, i1);
     }
 
+    @Override
+    public void glDeleteBuffers(int buffer) {
+        GL15C.glDeleteBuffers(buffer);
+    }
+
+    @Override
+    public void glDeleteVertexArrays(int array) {
+        GL30C.glDeleteVertexArrays(array);
+    }
+
     @Override
     public void glBufferData(int target, long size, int usage) {
         GL15C.glBufferData(target, size, usage);
@@ -200,6 +285,11 @@ public class LWJGLWrapper implements GLWrapper {
         GL20C.glVertexAttribPointer(index, size, type, normalized, stride, pointer);
     }
 
+    @Override
+    public void glVertexAttribIPointer(int index, int size, int type, int stride, int pointer) {
+        GL30C.glVertexAttribIPointer(index, size, type, stride, pointer);
+    }
+
     @Override
     public void glEnableVertexAttribArray(int i) {
         GL20C.glEnableVertexAttribArray(i);
@@ -210,6 +300,16 @@ public class LWJGLWrapper implements GLWrapper {
         GL15C.glBufferSubData(target, offset, data);
     }
 
+    @Override
+    public void glBufferSubData(int target, long offset, FloatBuffer data) {
+        GL15C.glBufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void glBufferSubData(int target, long offset, ByteBuffer data) {
+        GL15C.glBufferSubData(target, offset, data);
+    }
+
     @Override
     public void glActiveTexture(int i) {
         GL13C.glActiveTexture(i);
@@ -225,6 +325,61 @@ public class LWJGLWrapper implements GLWrapper {
         GL20C.glDisableVertexAttribArray(i);
     }
 
+    @Override
+    public void glBufferStorage(int target, long size, int flags) {
+        GL44C.glBufferStorage(target, size, flags);
+    }
+
+    @Override
+    public ByteBuffer glMapBufferRange(int target, long offset, long length, int access) {
+        return GL30C.glMapBufferRange(target, offset, length, access);
+    }
+
+    @Override
+    public long glFenceSync(int condition, int flags) {
+        return GL32C.glFenceSync(condition, flags);
+    }
+
+    @Override
+    public int glClientWaitSync(long sync, int flags, long timeout) {
+        return GL32C.glClientWaitSync(sync, flags, timeout);
+    }
+
+    @Override
+    public void glDeleteSync(long sync) {
+        GL32C.glDeleteSync(sync);
+    }
+
+    @Override
+    public void glDrawElementsBaseVertex(int mode, int count, int type, long indices, int baseVertex) {
+        GL32C.glDrawElementsBaseVertex(mode, count, type, indices, baseVertex);
+    }
+
+    @Override
+    public void glMultiDrawElementsIndirect(int mode, int type, long indirect, int drawCount, int stride) {
+        GL43C.glMultiDrawElementsIndirect(mode, type, indirect, drawCount, stride);
+    }
+
+    @Override
+    public void glBufferData(int target, float[] data, int usage) {
+        GL15C.glBufferData(target, data, usage);
+    }
+
+    @Override
+    public void glVertexAttribDivisor(int index, int divisor) {
+        GL33C.glVertexAttribDivisor(index, divisor);
+    }
+
+    @Override
+    public void glDrawArraysInstanced(int mode, int first, int count, int instanceCount) {
+        GL31C.glDrawArraysInstanced(mode, first, count, instanceCount);
+    }
+
+    @Override
+    public void glDrawArraysInstancedBaseInstance(int mode, int first, int count, int instanceCount, int baseInstance) {
+        GL42C.glDrawArraysInstancedBaseInstance(mode, first, count, instanceCount, baseInstance);
+    }
+
     @Override
     public boolean glfwInit() {
         return GLFW.glfwInit();
@@ -431,4 +586,9 @@ public class LWJGLWrapper implements GLWrapper {
     public void glViewport(int x, int y, int w, int h) {
         GL11.glViewport(x, y, w, h);
     }
+
+    @Override
+    public boolean tracksState() {
+        return false;
+    }
 }
@@ -0,0 +1,97 @@
+package render;
+
+import component.SpriteRenderer;
+import lombok.Getter;
+
+import static org.lwjgl.opengl.GL13C.GL_TEXTURE0;
+
+/**
+ * Class: ArrayRenderBatch
+ * Author: rapto
+ * CreatedDate: 3/16/2025 : 3:02 PM
+ * Project: GameEngine
+ * Description: RenderBatch sampling a single TextureArray.  The texture id of each vertex carries the sprite's layer
+ * instead of a sampler slot, so the batch is not limited to 8 textures.
+ */
+public class ArrayRenderBatch extends RenderBatch {
+    //Array layers are always sampled whole
+    private static final float[]      LAYER_TEX_COORDS = {1, 1, 1, 0, 0, 0, 0, 1};
+
+    @Getter
+    private final        TextureArray textureArray;
+
+    /**
+     * Constructor initializes a renderBatch drawing from a texture array
+     *
+     * @param maxBatchSize max number of renders per batch
+     * @param zIndex       zIndex layer to render on
+     * @param textureArray array holding the layers of every textured sprite in the batch
+     * @param streaming    true to write vertices straight into a mapped, triple-buffered vertex buffer
+     */
+    public ArrayRenderBatch(int maxBatchSize, int zIndex, TextureArray textureArray, boolean streaming) {
+        super(maxBatchSize, zIndex, streaming, "assets/shader/textureArray.glsl", QUAD_SIZE_BYTES);
+        this.textureArray = textureArray;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Sprites sample the array rather than their own texture, so none of them need a sampler slot.
+     */
+    @Override
+    protected Texture slotTexture(SpriteRenderer spr) {
+        return null;
+    }
+
+    /**
+     * Layer the shader should sample for the sprite.
+     *
+     * @param spr sprite being written
+     * @return 1 based layer, 0 if the sprite isn't in the array
+     */
+    @Override
+    protected int getTexId(SpriteRenderer spr) {
+        return spr.getTextureArray() == textureArray ? spr.getLayer() + 1 : 0;
+    }
+
+    @Override
+    protected float[] loadTexCoords(SpriteRenderer spr) {
+        if (spr.getTextureArray() != textureArray) {
+            return super.loadTexCoords(spr);
+        }
+        System.arraycopy(LAYER_TEX_COORDS, 0, texCoords, 0, LAYER_TEX_COORDS.length);
+        return texCoords;
+    }
+
+    @Override
+    protected int textureSetKey() {
+        return textureArray.getTextureId();
+    }
+
+    @Override
+    boolean drawsLike(RenderBatch other) {
+        return super.drawsLike(other) && ((ArrayRenderBatch) other).textureArray == textureArray;
+    }
+
+    @Override
+    protected void bindTextures(Shader shader) {
+        gl.glActiveTexture(GL_TEXTURE0);
+        textureArray.bind();
+        shader.uploadTexture("uTextureArray", 0);
+    }
+
+    @Override
+    protected void unbindTextures() {
+        textureArray.unbind();
+    }
+
+    /**
+     * Array batches hold no sampler slots, so sprites with their own texture never join them.
+     *
+     * @return false
+     */
+    @Override
+    public boolean hasSpriteRoom() {
+        return false;
+    }
+}
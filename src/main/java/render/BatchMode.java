@@ -0,0 +1,17 @@
+package render;
+
+/**
+ * Class: BatchMode
+ * Author: rapto
+ * CreatedDate: 3/9/2025 : 4:48 PM
+ * Project: GameEngine
+ * Description: Selects how a Renderer lays out and draws the sprites in its batches.
+ */
+public enum BatchMode {
+    // Four vertices and six indices per sprite, see RenderBatch
+    QUAD,
+    // Four compact 20 byte vertices per sprite with normalized color and texture coordinates, see PackedRenderBatch
+    PACKED,
+    // One instance record per sprite drawn against a shared unit quad, see InstancedRenderBatch
+    INSTANCED
+}
@@ -0,0 +1,69 @@
+package render;
+
+import graphics.GLWrapper;
+import org.joml.Matrix4f;
+import org.lwjgl.BufferUtils;
+import rubicon.Camera;
+import scene.Settings;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL31C.*;
+
+/**
+ * Class: CameraUniformBuffer
+ * Author: rapto
+ * CreatedDate: 3/21/2025 : 6:40 PM
+ * Project: GameEngine
+ * Description: std140 uniform buffer holding the camera's projection and view matrices.  Every shader declaring the
+ * Camera block reads it from the same binding point, so the matrices are written once per frame instead of uploaded
+ * to each shader before each draw.
+ */
+public class CameraUniformBuffer {
+    //Uniform block shaders declare to read the camera matrices
+    public static final  String     BLOCK_NAME = "Camera";
+    //Binding point the buffer is attached to
+    public static final  int        BINDING    = 0;
+    //A std140 mat4 is four vec4 columns
+    private static final int        MAT4_BYTES = 16 * Float.BYTES;
+    //uProjection followed by uView
+    private static final ByteBuffer data       = BufferUtils.createByteBuffer(2 * MAT4_BYTES);
+    //Uniform buffer Id, 0 until first update
+    private static       int        uboId;
+    //Camera and version last written to the buffer
+    private static       Camera     camera;
+    private static       int        version;
+
+    private CameraUniformBuffer() {
+        //Hidden private constructor
+    }
+
+    /**
+     * Write the camera's matrices to the buffer if the camera or its matrices changed since the last call.
+     *
+     * @param camera camera the frame is drawn from
+     */
+    public static void update(Camera camera) {
+        GLWrapper gl = Settings.graphicsImpl;
+        if (uboId == 0) {
+            uboId = gl.glGenBuffers();
+            gl.glBindBuffer(GL_UNIFORM_BUFFER, uboId);
+            gl.glBufferData(GL_UNIFORM_BUFFER, data.capacity(), GL_DYNAMIC_DRAW);
+            gl.glBindBufferBase(GL_UNIFORM_BUFFER, BINDING, uboId);
+        }
+
+        //Rebuilds the view matrix first if the camera moved, bumping its version
+        Matrix4f view = camera.getViewMatrix();
+        if (camera == CameraUniformBuffer.camera && camera.getVersion() == version) {
+            return;
+        }
+        camera.getProjectionMatrix()
+              .get(0, data);
+        view.get(MAT4_BYTES, data);
+        gl.glBindBuffer(GL_UNIFORM_BUFFER, uboId);
+        gl.glBufferSubData(GL_UNIFORM_BUFFER, 0, data);
+
+        CameraUniformBuffer.camera = camera;
+        version = camera.getVersion();
+    }
+}
@@ -5,14 +5,12 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
-import rubicon.Window;
+import org.lwjgl.BufferUtils;
 import scene.Settings;
 import util.AssetPool;
-import util.JMath;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
-import java.util.List;
 
 import static org.lwjgl.opengl.GL11.GL_FLOAT;
 import static org.lwjgl.opengl.GL11.GL_LINES;
@@ -24,28 +22,68 @@ import static org.lwjgl.opengl.GL15.GL_DYNAMIC_DRAW;
  * Author: rapto
  * CreatedDate: 2/8/2025 : 7:41 PM
  * Project: GameEngine
- * Description: Render Line2D components to the screen.
+ * Description: Immediate mode debug lines.  Every add writes the line's vertices straight into an off-heap buffer that
+ * grows as needed, so drawing debug shapes allocates nothing and no line is ever dropped.  Lines drawn for a single
+ * frame go into a transient buffer that is reset every frame.  Longer lived lines are filed in a timing wheel by the
+ * frame they expire on, so each frame only visits the lines expiring on it.
  */
 public class DebugDraw {
     // Default Lifetime duration
-    public static final  int          DEF_LIFETIME = 300;
+    public static final  int        DEF_LIFETIME    = 300;
     // Default Color to draw with
-    public static final  Vector3f     DEF_COLOR    = new Vector3f(1f, 0f, 1f);
-    private static final Logger       log          = LogManager.getLogger(DebugDraw.class);
-    // Max number of debug lines to render.
-    private static final int          MAX_LINES    = 500;
-    // Collection to hold all the lines we're rendering
-    private static final List<Line2D> lines        = new ArrayList<>();
-    // 6 floats per vertex, 2 vertices per line.
-    private static final float[]      vertexArray  = new float[MAX_LINES * 6 * 2];
+    public static final  Vector3f   DEF_COLOR       = new Vector3f(1f, 0f, 1f);
+    private static final Logger     log             = LogManager.getLogger(DebugDraw.class);
+    // X, Y, Z position and R, G, B color per vertex
+    private static final int        VERTEX_FLOATS   = 6;
+    private static final int        VERTEX_BYTES    = VERTEX_FLOATS * Float.BYTES;
+    // 2 vertices per line
+    private static final int        LINE_BYTES      = 2 * VERTEX_BYTES;
+    // Lines held before the buffers first grow
+    private static final int        INITIAL_LINES   = 500;
+    // Depth every line is drawn at
+    private static final float      LINE_Z          = 2;
+    // Segments making up a circle
+    private static final int        CIRCLE_SEGMENTS = 32;
+    // X and Y of each segment's start on the unit circle
+    private static final float[]    UNIT_CIRCLE     = unitCircle(CIRCLE_SEGMENTS);
+    // Frames covered by the wheel, a power of 2 above DEF_LIFETIME so default lines go straight into their slot
+    private static final int        WHEEL_SLOTS     = 512;
+    // Slot index marking a line in the overflow list
+    private static final int        OVERFLOW        = WHEEL_SLOTS;
+    // Drawn last, above every sprite
+    private static final long       SORT_KEY        = RenderQueue.reservedKey(RenderQueue.DEBUG_LAYER, 0, 0, 0);
     // Shader for rendering a 2D line.
-    private static final Shader       shader       = AssetPool.getShader("assets/shader/debugLine2D.glsl");
+    private static final Shader     shader          = AssetPool.getShader("assets/shader/debugLine2D.glsl");
+    // Lines drawn this frame only
+    private static final LineBuffer transientLines  = new LineBuffer(INITIAL_LINES);
+    // Lines drawn over several frames, uploaded again only when they change
+    private static final LineBuffer lines           = new LineBuffer(INITIAL_LINES);
+    // Indices of the lines expiring on each frame, by frame modulo WHEEL_SLOTS
+    private static final IntList[]  wheel           = new IntList[WHEEL_SLOTS];
+    // Indices of the lines expiring more than a turn of the wheel ahead
+    private static final IntList    overflow        = new IntList();
+    // Per line: frame it expires on, its wheel slot or OVERFLOW, and its position within that slot
+    private static       long[]     expiry          = new long[INITIAL_LINES];
+    private static       int[]      slotOf          = new int[INITIAL_LINES];
+    private static       int[]      slotPosition    = new int[INITIAL_LINES];
+    // Frames begun so far
+    private static       long       frame;
+    // True when lines changed since they were last uploaded
+    private static       boolean    linesDirty;
+    //Bytes allocated for the vbo, reallocated once the lines outgrow it
+    private static       long       bufferBytes;
     //Vertex Array Object Id
-    private static       int          vaoId;
+    private static       int        vaoId;
     //Vertex Buffer Object Id
-    private static       int          vboId;
+    private static       int        vboId;
     //State variable for managing lifecycle
-    private static       boolean      isStarted    = false;
+    private static       boolean    isStarted       = false;
+
+    static {
+        for (int i = 0; i < WHEEL_SLOTS; i++) {
+            wheel[i] = new IntList();
+        }
+    }
 
     private DebugDraw() {
         //Hidden private constructor
@@ -61,21 +99,24 @@ public class DebugDraw {
 
         vboId = gl.glGenBuffers();
         gl.glBindBuffer(GL_ARRAY_BUFFER, vboId);
-        gl.glBufferData(GL_ARRAY_BUFFER, (long) vertexArray.length * Float.BYTES, GL_DYNAMIC_DRAW);
+        bufferBytes = lines.capacityBytes() + transientLines.capacityBytes();
+        gl.glBufferData(GL_ARRAY_BUFFER, bufferBytes, GL_DYNAMIC_DRAW);
+        linesDirty = true;
 
         //X, Y, Z Positions
-        gl.glVertexAttribPointer(0, 3, GL_FLOAT, false, 6 * Float.BYTES, 0);
+        gl.glVertexAttribPointer(0, 3, GL_FLOAT, false, VERTEX_BYTES, 0);
         gl.glEnableVertexAttribArray(0);
 
         //R, G, B Color Bits
-        gl.glVertexAttribPointer(1, 3, GL_FLOAT, false, 6 * Float.BYTES, 3 * Float.BYTES);
+        gl.glVertexAttribPointer(1, 3, GL_FLOAT, false, VERTEX_BYTES, 3 * Float.BYTES);
         gl.glEnableVertexAttribArray(1);
 
         gl.glLineWidth(2f);
     }
 
     /**
-     * Ensures the DebugDraw has been started and clean out expired lines.
+     * Ensures the DebugDraw has been started, drops last frame's transient lines and removes the lines expiring on
+     * this frame.
      */
     public static void beginFrame() {
         if (!isStarted) {
@@ -83,8 +124,18 @@ public class DebugDraw {
             isStarted = true;
         }
 
-        //Remove Deadlines
-        lines.removeIf(line -> line.beginFrame() < 0);
+        transientLines.count = 0;
+        frame++;
+        int slot = (int) (frame & (WHEEL_SLOTS - 1));
+        if (slot == 0) {
+            //Once per turn, lines expiring within the next turn take their slot
+            refileOverflow();
+        }
+        IntList expiring = wheel[slot];
+        for (int i = 0; i < expiring.size; i++) {
+            removeLine(expiring.items[i]);
+        }
+        expiring.size = 0;
     }
 
     /**
@@ -92,45 +143,32 @@ public class DebugDraw {
      */
     public static void draw() {
         GLWrapper gl = Settings.graphicsImpl;
-        if (lines.isEmpty()) {
+        int lineCount = getLineCount();
+        if (lineCount == 0) {
             return;
         }
-
-        //Generate vertexArray of all lines.
-        int index = 0;
-        for (Line2D line : lines) {
-            for (int i = 0; i < 2; i++) {
-                Vector2f position = i == 0 ? line.getFrom() : line.getTo();
-                Vector3f color = line.getColor();
-
-                //Set Position
-                vertexArray[index] = position.x;
-                vertexArray[index + 1] = position.y;
-                vertexArray[index + 2] = 2;
-
-                //Set color
-                vertexArray[index + 3] = color.x;
-                vertexArray[index + 4] = color.y;
-                vertexArray[index + 5] = color.z;
-                index += 6;
-            }
-        }
-        //Populate the vbo
-        gl.glBindBuffer(GL_ARRAY_BUFFER, vboId);
-        gl.glBufferSubData(GL_ARRAY_BUFFER, 0, Arrays.copyOfRange(vertexArray, 0, lines.size() * 6 * 2));
-
         if (shader == null) {
             log.warn("Debug Shader is null, unable to draw.");
             return;
         }
-        // Enable the Shader
+
+        //Persistent lines go first and are only sent when they changed, this frame's lines follow them
+        gl.glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        if ((long) lineCount * LINE_BYTES > bufferBytes) {
+            bufferBytes = lines.capacityBytes() + transientLines.capacityBytes();
+            gl.glBufferData(GL_ARRAY_BUFFER, bufferBytes, GL_DYNAMIC_DRAW);
+            linesDirty = true;
+        }
+        if (linesDirty && lines.count > 0) {
+            gl.glBufferSubData(GL_ARRAY_BUFFER, 0, lines.slice());
+        }
+        linesDirty = false;
+        if (transientLines.count > 0) {
+            gl.glBufferSubData(GL_ARRAY_BUFFER, (long) lines.count * LINE_BYTES, transientLines.slice());
+        }
+
+        // Enable the Shader, camera matrices come from the shared CameraUniformBuffer
         shader.use();
-        shader.uploadMat4f("uProjection", Window.getScene()
-                                                .getCamera()
-                                                .getProjectionMatrix());
-        shader.uploadMat4f("uView", Window.getScene()
-                                          .getCamera()
-                                          .getViewMatrix());
 
         //Bind the vao
         gl.glBindVertexArray(vaoId);
@@ -138,15 +176,147 @@ public class DebugDraw {
         gl.glEnableVertexAttribArray(1);
 
         //Draw the batch
-        gl.glDrawArrays(GL_LINES, 0, lines.size() * 6 * 2);
+        gl.glDrawArrays(GL_LINES, 0, lineCount * 2);
 
-        //Release Resources
+        //Release Resources, the program is left bound for the RenderQueue to release
         gl.glDisableVertexAttribArray(0);
         gl.glDisableVertexAttribArray(1);
         gl.glBindVertexArray(0);
+    }
+
+    /**
+     * Queue the lines to be drawn above the scene's sprites.
+     */
+    public static void submit() {
+        RenderQueue.submit(SORT_KEY, DebugDraw::draw);
+    }
+
+    /**
+     * Drop every line, such as those of a scene being replaced.
+     */
+    public static void clear() {
+        transientLines.count = 0;
+        lines.count = 0;
+        for (IntList slot : wheel) {
+            slot.size = 0;
+        }
+        overflow.size = 0;
+        linesDirty = true;
+    }
+
+    /**
+     * Retrieve the number of live lines.
+     *
+     * @return line count
+     */
+    public static int getLineCount() {
+        return lines.count + transientLines.count;
+    }
 
-        //Unbind Shader
-        shader.detach();
+    /**
+     * Retrieve the number of lines drawn this frame only.
+     *
+     * @return transient line count
+     */
+    public static int getTransientLineCount() {
+        return transientLines.count;
+    }
+
+    /**
+     * Add a 2D line.
+     *
+     * @param x0       X of the source vertex
+     * @param y0       Y of the source vertex
+     * @param x1       X of the dest vertex
+     * @param y1       Y of the dest vertex
+     * @param r        red of the color
+     * @param g        green of the color
+     * @param b        blue of the color
+     * @param lifetime frames the line should be rendered for, the current one included
+     */
+    public static void addLine(float x0, float y0, float x1, float y1, float r, float g, float b, int lifetime) {
+        if (lifetime <= 1) {
+            transientLines.add(x0, y0, x1, y1, r, g, b);
+            return;
+        }
+
+        int line = lines.add(x0, y0, x1, y1, r, g, b);
+        if (line == expiry.length) {
+            int capacity = lines.capacity();
+            expiry = Arrays.copyOf(expiry, capacity);
+            slotOf = Arrays.copyOf(slotOf, capacity);
+            slotPosition = Arrays.copyOf(slotPosition, capacity);
+        }
+        expiry[line] = frame + lifetime;
+        file(line);
+        linesDirty = true;
+    }
+
+    /**
+     * Add a box that can rotate.
+     *
+     * @param centerX  X of the center point
+     * @param centerY  Y of the center point
+     * @param width    width of the box
+     * @param height   height of the box
+     * @param rotation rotation in degrees around the center
+     * @param r        red of the color
+     * @param g        green of the color
+     * @param b        blue of the color
+     * @param lifetime duration box should be rendered
+     */
+    public static void addBox(float centerX, float centerY, float width, float height, float rotation, float r,
+                              float g, float b, int lifetime) {
+        float halfX = width * 0.5f;
+        float halfY = height * 0.5f;
+        float cos = 1;
+        float sin = 0;
+        if (rotation != 0f) {
+            double radians = Math.toRadians(rotation);
+            cos = (float) Math.cos(radians);
+            sin = (float) Math.sin(radians);
+        }
+
+        //Corners min-min, min-max, max-max and max-min, rotated around the center
+        float x0 = centerX - halfX * cos + halfY * sin;
+        float y0 = centerY - halfX * sin - halfY * cos;
+        float x1 = centerX - halfX * cos - halfY * sin;
+        float y1 = centerY - halfX * sin + halfY * cos;
+        float x2 = centerX + halfX * cos - halfY * sin;
+        float y2 = centerY + halfX * sin + halfY * cos;
+        float x3 = centerX + halfX * cos + halfY * sin;
+        float y3 = centerY + halfX * sin - halfY * cos;
+
+        addLine(x0, y0, x1, y1, r, g, b, lifetime);
+        addLine(x0, y0, x3, y3, r, g, b, lifetime);
+        addLine(x1, y1, x2, y2, r, g, b, lifetime);
+        addLine(x2, y2, x3, y3, r, g, b, lifetime);
+    }
+
+    /**
+     * Add a circle.
+     *
+     * @param centerX  X of the center point
+     * @param centerY  Y of the center point
+     * @param radius   radius of circle
+     * @param r        red of the color
+     * @param g        green of the color
+     * @param b        blue of the color
+     * @param lifetime duration circle should be rendered
+     */
+    public static void addCircle(float centerX, float centerY, float radius, float r, float g, float b,
+                                 int lifetime) {
+        float prevX = centerX + UNIT_CIRCLE[0] * radius;
+        float prevY = centerY + UNIT_CIRCLE[1] * radius;
+        for (int i = 1; i <= CIRCLE_SEGMENTS; i++) {
+            //Wraps back to the first point to close the circle
+            int point = (i % CIRCLE_SEGMENTS) * 2;
+            float x = centerX + UNIT_CIRCLE[point] * radius;
+            float y = centerY + UNIT_CIRCLE[point + 1] * radius;
+            addLine(prevX, prevY, x, y, r, g, b, lifetime);
+            prevX = x;
+            prevY = y;
+        }
     }
 
     /**
@@ -179,10 +349,7 @@ public class DebugDraw {
      * @param lifetime duration line should be rendered
      */
     public static void addLine2D(Vector2f from, Vector2f to, Vector3f color, int lifetime) {
-        if (lines.size() >= MAX_LINES) {
-            return;
-        }
-        DebugDraw.lines.add(new Line2D(from, to, color, lifetime));
+        addLine(from.x, from.y, to.x, to.y, color.x, color.y, color.z, lifetime);
     }
 
     /**
@@ -228,24 +395,7 @@ public class DebugDraw {
      * @param lifetime duration box should be rendered
      */
     public static void addBox2D(Vector2f center, Vector2f dim, float rotation, Vector3f color, int lifetime) {
-        Vector2f min = new Vector2f(center).sub(new Vector2f(dim).mul(0.5f));
-        Vector2f max = new Vector2f(center).add(new Vector2f(dim).mul(0.5f));
-
-        Vector2f[] vertices = {
-                new Vector2f(min.x, min.y), new Vector2f(min.x, max.y), new Vector2f(max.x, max.y), new Vector2f(max.x,
-                                                                                                                 min.y)
-        };
-
-        if (rotation != 0f) {
-            for (Vector2f v : vertices) {
-                JMath.rotate(v, rotation, center);
-            }
-        }
-
-        addLine2D(vertices[0], vertices[1], color, lifetime);
-        addLine2D(vertices[0], vertices[3], color, lifetime);
-        addLine2D(vertices[1], vertices[2], color, lifetime);
-        addLine2D(vertices[2], vertices[3], color, lifetime);
+        addBox(center.x, center.y, dim.x, dim.y, rotation, color.x, color.y, color.z, lifetime);
     }
 
     /**
@@ -269,20 +419,170 @@ public class DebugDraw {
         addCircle(center, radius, color, 1);
     }
 
+    /**
+     * Render a circle
+     *
+     * @param center   Vector2f center point
+     * @param radius   radius of circle
+     * @param color    Vector3f color definition
+     * @param lifetime duration circle should be rendered
+     */
     public static void addCircle(Vector2f center, float radius, Vector3f color, int lifetime) {
-        Vector2f[] points = new Vector2f[32];
-        int increment = 360 / points.length;
-        int currentAngle = 0;
-        for (int i = 0; i < points.length; i++) {
-            Vector2f tmp = new Vector2f(radius, 0);
-            JMath.rotate(tmp, currentAngle, new Vector2f());
-            points[i] = new Vector2f(tmp).add(center);
-
-            if (i > 0) {
-                addLine2D(points[i - 1], points[i], color, lifetime);
+        addCircle(center.x, center.y, radius, color.x, color.y, color.z, lifetime);
+    }
+
+    /**
+     * Put a line in the wheel slot of the frame it expires on, or in the overflow list if that is a turn or more away.
+     *
+     * @param line index of the line
+     */
+    private static void file(int line) {
+        int slot = expiry[line] - frame < WHEEL_SLOTS ? (int) (expiry[line] & (WHEEL_SLOTS - 1)) : OVERFLOW;
+        slotOf[line] = slot;
+        slotPosition[line] = slotList(slot).add(line);
+    }
+
+    /**
+     * Move the overflow lines expiring within the next turn of the wheel into their slots.
+     */
+    private static void refileOverflow() {
+        //Backwards, so the line swapped into a freed position has already been looked at
+        for (int i = overflow.size - 1; i >= 0; i--) {
+            int line = overflow.items[i];
+            if (expiry[line] - frame < WHEEL_SLOTS) {
+                int moved = overflow.removeAt(i);
+                if (moved >= 0) {
+                    slotPosition[moved] = i;
+                }
+                file(line);
+            }
+        }
+    }
+
+    /**
+     * Remove an expired line, moving the last line into its place so the lines stay contiguous.
+     *
+     * @param line index of the line
+     */
+    private static void removeLine(int line) {
+        int last = --lines.count;
+        if (line != last) {
+            lines.move(last, line);
+            expiry[line] = expiry[last];
+            slotOf[line] = slotOf[last];
+            slotPosition[line] = slotPosition[last];
+            slotList(slotOf[line]).items[slotPosition[line]] = line;
+        }
+        linesDirty = true;
+    }
+
+    private static IntList slotList(int slot) {
+        return slot == OVERFLOW ? overflow : wheel[slot];
+    }
+
+    /**
+     * Build the points of a circle of radius 1 around the origin.
+     *
+     * @param segments number of points
+     * @return x and y of each point, counterclockwise from (1, 0)
+     */
+    private static float[] unitCircle(int segments) {
+        float[] points = new float[segments * 2];
+        for (int i = 0; i < segments; i++) {
+            double angle = 2 * Math.PI * i / segments;
+            points[2 * i] = (float) Math.cos(angle);
+            points[2 * i + 1] = (float) Math.sin(angle);
+        }
+        return points;
+    }
+
+    /**
+     * Growable off-heap buffer of lines laid out like the vbo.
+     */
+    private static final class LineBuffer {
+        private ByteBuffer vertices;
+        private int        count;
+
+        private LineBuffer(int capacity) {
+            vertices = BufferUtils.createByteBuffer(capacity * LINE_BYTES);
+        }
+
+        /**
+         * Append a line, doubling the capacity if full.
+         *
+         * @return index of the line
+         */
+        private int add(float x0, float y0, float x1, float y1, float r, float g, float b) {
+            if (count == capacity()) {
+                ByteBuffer grown = BufferUtils.createByteBuffer(vertices.capacity() * 2);
+                grown.put(0, vertices, 0, count * LINE_BYTES);
+                vertices = grown;
+                log.debug("Grew debug line capacity to {}", capacity());
+            }
+            int offset = count * LINE_BYTES;
+            putVertex(offset, x0, y0, r, g, b);
+            putVertex(offset + VERTEX_BYTES, x1, y1, r, g, b);
+            return count++;
+        }
+
+        private void putVertex(int offset, float x, float y, float r, float g, float b) {
+            vertices.putFloat(offset, x);
+            vertices.putFloat(offset + Float.BYTES, y);
+            vertices.putFloat(offset + 2 * Float.BYTES, LINE_Z);
+            vertices.putFloat(offset + 3 * Float.BYTES, r);
+            vertices.putFloat(offset + 4 * Float.BYTES, g);
+            vertices.putFloat(offset + 5 * Float.BYTES, b);
+        }
+
+        private void move(int from, int to) {
+            vertices.put(to * LINE_BYTES, vertices, from * LINE_BYTES, LINE_BYTES);
+        }
+
+        private ByteBuffer slice() {
+            return vertices.slice(0, count * LINE_BYTES);
+        }
+
+        private int capacity() {
+            return vertices.capacity() / LINE_BYTES;
+        }
+
+        private long capacityBytes() {
+            return vertices.capacity();
+        }
+    }
+
+    /**
+     * Growable list of ints, removing by swapping the last item in.
+     */
+    private static final class IntList {
+        private int[] items = new int[16];
+        private int   size;
+
+        /**
+         * Append a value.
+         *
+         * @return position of the value
+         */
+        private int add(int value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size] = value;
+            return size++;
+        }
+
+        /**
+         * Remove the value at position, moving the last value into it.
+         *
+         * @return value moved into position, -1 if position was the last
+         */
+        private int removeAt(int position) {
+            int last = --size;
+            if (position == last) {
+                return -1;
             }
-            currentAngle += increment;
+            items[position] = items[last];
+            return items[position];
         }
-        addLine2D(points[0], points[points.length - 1], color, lifetime);
     }
 }
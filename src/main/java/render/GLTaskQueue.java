@@ -0,0 +1,104 @@
+package render;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Class: GLTaskQueue
+ * Author: rapto
+ * CreatedDate: 3/27/2025 : 9:30 AM
+ * Project: GameEngine
+ * Description: Marshals work that touches GL onto the thread owning the context.  Work submitted from the GL thread
+ * runs right away, work submitted from any other thread waits for the next drain, which the Window runs once per
+ * frame.
+ */
+public final class GLTaskQueue {
+    private static final Logger          log   = LogManager.getLogger(GLTaskQueue.class);
+    private static final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    //Thread owning the GL context, null until the Window makes one current
+    private static volatile Thread       glThread;
+
+    private GLTaskQueue() {
+        //Hide Static Class Constructor
+    }
+
+    /**
+     * Mark the thread owning the GL context.
+     *
+     * @param thread GL thread, null to treat every thread as the GL thread as before a context exists
+     */
+    public static void setGLThread(Thread thread) {
+        glThread = thread;
+    }
+
+    /**
+     * Check if the calling thread may make GL calls.
+     *
+     * @return true on the GL thread, or on any thread while no GL thread is set
+     */
+    public static boolean isGLThread() {
+        Thread thread = glThread;
+        return thread == null || thread == Thread.currentThread();
+    }
+
+    /**
+     * Run a task on the GL thread.
+     *
+     * @param task Work touching GL
+     * @param <T>  Result type
+     * @return future completed with the task's result, or its failure, on the GL thread
+     */
+    public static <T> CompletableFuture<T> submit(Supplier<T> task) {
+        if (isGLThread()) {
+            try {
+                return CompletableFuture.completedFuture(task.get());
+            } catch (RuntimeException | AssertionError e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        tasks.add(() -> {
+            try {
+                future.complete(task.get());
+            } catch (RuntimeException | AssertionError e) {
+                //Failed assets still have to wake whoever is waiting on them
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Run the tasks queued so far.  Tasks queued while draining wait for the next call, so a task re-queueing itself
+     * can't stall the frame.
+     *
+     * @return number of tasks run
+     */
+    public static int drain() {
+        int count = tasks.size();
+        int run = 0;
+        Runnable task;
+        while (run < count && (task = tasks.poll()) != null) {
+            task.run();
+            run++;
+        }
+        if (run > 0) {
+            log.debug("Ran {} GL tasks", run);
+        }
+        return run;
+    }
+
+    /**
+     * Retrieve the number of tasks waiting for a drain.
+     *
+     * @return queued task count
+     */
+    public static int getPendingCount() {
+        return tasks.size();
+    }
+}
@@ -0,0 +1,87 @@
+package render;
+
+import graphics.GLWrapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import scene.Settings;
+import util.AssetPool;
+
+import static org.lwjgl.opengl.GL11.GL_TRIANGLE_STRIP;
+
+/**
+ * Class: GridRenderer
+ * Author: rapto
+ * CreatedDate: 3/31/2025 : 9:30 AM
+ * Project: GameEngine
+ * Description: Draws the editor grid as a single quad covering the viewport.  The fragment shader works out which
+ * pixels lie on a grid line from the camera matrices, so the cost on the CPU is one draw call at any zoom level.
+ */
+public class GridRenderer implements RenderCommand {
+    public static final  String   SHADER_PATH = "assets/shader/grid.glsl";
+    // Width of the grid lines in pixels
+    public static final  float    LINE_WIDTH  = 2f;
+    private static final Logger   log         = LogManager.getLogger(GridRenderer.class);
+    // Size of a grid cell in world units
+    private static final Vector2f GRID_SIZE   = new Vector2f(Settings.GRID_WIDTH, Settings.GRID_HEIGHT);
+    private final        Shader   shader;
+    // Color of the grid lines
+    private final        Vector3f color;
+    // Empty Vertex Array Object, the quad's corners come from the vertex index
+    private              int      vaoId;
+
+    /**
+     * Constructor, the GL resources are created on the first draw.
+     *
+     * @param color color of the grid lines
+     */
+    public GridRenderer(Vector3f color) {
+        this.shader = AssetPool.getShader(SHADER_PATH);
+        this.color = color;
+    }
+
+    /**
+     * Queue the grid to be drawn beneath the scene's sprites.
+     */
+    public void submit() {
+        RenderQueue.submit(RenderQueue.reservedKey(RenderQueue.GRID_LAYER, 0, 0, 0), this);
+    }
+
+    /**
+     * Draw the grid over the whole viewport.
+     */
+    @Override
+    public void render() {
+        if (shader == null) {
+            log.warn("Grid Shader is null, unable to draw.");
+            return;
+        }
+        GLWrapper gl = Settings.graphicsImpl;
+        if (vaoId == 0) {
+            //Core profile refuses to draw without a vao bound, even with no attributes
+            vaoId = gl.glGenVertexArrays();
+        }
+
+        // Camera matrices come from the shared CameraUniformBuffer
+        shader.use();
+        shader.uploadVec2f("uGridSize", GRID_SIZE);
+        shader.uploadVec3f("uColor", color);
+        shader.uploadFloat("uLineWidth", LINE_WIDTH);
+
+        gl.glBindVertexArray(vaoId);
+        gl.glDrawArrays(GL_TRIANGLE_STRIP, 0, 4);
+        //The program is left bound for the RenderQueue to release
+        gl.glBindVertexArray(0);
+    }
+
+    /**
+     * Delete the vertex array.  Drawing again creates a new one.
+     */
+    public void dispose() {
+        if (vaoId != 0) {
+            Settings.graphicsImpl.glDeleteVertexArrays(vaoId);
+            vaoId = 0;
+        }
+    }
+}
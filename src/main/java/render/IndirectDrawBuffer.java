@@ -0,0 +1,267 @@
+package render;
+
+import graphics.GLWrapper;
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.lwjgl.BufferUtils;
+import scene.Settings;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL15C.*;
+import static org.lwjgl.opengl.GL40C.GL_DRAW_INDIRECT_BUFFER;
+
+/**
+ * Class: IndirectDrawBuffer
+ * Author: rapto
+ * CreatedDate: 4/2/2025 : 10:15 AM
+ * Project: GameEngine
+ * Description: One vertex buffer, index buffer and vertex array shared by every QUAD batch of a Renderer.  Each batch
+ * writes its vertices into a region of the shared buffer, and each frame the CPU fills a draw command per batch so
+ * all the batches of a layer sharing a shader and textures are drawn by a single glMultiDrawElementsIndirect call.
+ */
+public class IndirectDrawBuffer {
+    private static final Logger            log             = LogManager.getLogger(IndirectDrawBuffer.class);
+    // count, instanceCount, firstIndex, baseVertex and baseInstance of a DrawElementsIndirectCommand
+    private static final int               COMMAND_BYTES   = 5 * Integer.BYTES;
+    // Regions allocated before the buffers first grow
+    private static final int               INITIAL_REGIONS = 16;
+    private final        GLWrapper         gl;
+    //Sprites per region, the batch size of every batch placed in the buffer
+    private final        int               maxBatchSize;
+    //Bytes of vertex data per region
+    private final        long              regionBytes;
+    //Draws submitted this frame, kept for reuse by later frames
+    private final        List<Draw>        draws           = new ArrayList<>();
+    //Batch occupying each region, null while free
+    private              RenderBatch[]     regions         = new RenderBatch[INITIAL_REGIONS];
+    //Draw commands filled this frame, one per non-empty batch
+    private              ByteBuffer        commands        = BufferUtils.createByteBuffer(INITIAL_REGIONS
+                                                                                          * COMMAND_BYTES);
+    private              int               commandCount;
+    private              int               drawCount;
+    //Multi-draw calls issued and batches they drew since the frame began
+    @Getter
+    private              int               drawCalls;
+    @Getter
+    private              int               batchesDrawn;
+    private              int               vaoId;
+    @Getter
+    private              int               vboId;
+    private              int               eboId;
+    private              int               commandBufferId;
+
+    /**
+     * Constructor, the GL resources are created once the first batch is placed.
+     *
+     * @param maxBatchSize max number of sprites per batch
+     */
+    public IndirectDrawBuffer(int maxBatchSize) {
+        this.gl = Settings.graphicsImpl;
+        this.maxBatchSize = maxBatchSize;
+        this.regionBytes = (long) maxBatchSize * RenderBatch.QUAD_SIZE_BYTES;
+    }
+
+    /**
+     * Claim a free region for the batch, growing the buffers if every region is taken.
+     *
+     * @param batch batch to place
+     * @return region index
+     */
+    int acquire(RenderBatch batch) {
+        if (vaoId == 0) {
+            start();
+        }
+        int region = 0;
+        while (region < regions.length && regions[region] != null) {
+            region++;
+        }
+        if (region == regions.length) {
+            grow();
+        }
+        regions[region] = batch;
+        return region;
+    }
+
+    /**
+     * Free the region of a disposed batch.
+     *
+     * @param region region index
+     */
+    void release(int region) {
+        regions[region] = null;
+    }
+
+    /**
+     * Retrieve the byte the given region starts at in the vertex buffer.
+     *
+     * @param region region index
+     * @return byte offset
+     */
+    long regionOffset(int region) {
+        return region * regionBytes;
+    }
+
+    /**
+     * Forget the draws of the last frame.
+     */
+    public void beginFrame() {
+        commandCount = 0;
+        drawCount = 0;
+        drawCalls = 0;
+        batchesDrawn = 0;
+    }
+
+    /**
+     * Group the batches of a layer by the state they draw with and queue one draw per group.
+     *
+     * @param batches batches of a single layer
+     */
+    public void submit(List<RenderBatch> batches) {
+        int first = drawCount;
+        for (RenderBatch batch : batches) {
+            Draw draw = null;
+            for (int i = first; i < drawCount && draw == null; i++) {
+                if (draws.get(i).batches.getFirst()
+                                        .drawsLike(batch)) {
+                    draw = draws.get(i);
+                }
+            }
+            if (draw == null) {
+                draw = nextDraw();
+            }
+            draw.batches.add(batch);
+        }
+        for (int i = first; i < drawCount; i++) {
+            Draw draw = draws.get(i);
+            RenderQueue.submit(draw.batches.getFirst()
+                                           .sortKey(i - first), draw);
+        }
+    }
+
+    /**
+     * Release the buffers and vertex array.
+     */
+    public void dispose() {
+        if (vaoId == 0) {
+            return;
+        }
+        gl.glDeleteBuffers(vboId);
+        gl.glDeleteBuffers(eboId);
+        gl.glDeleteBuffers(commandBufferId);
+        gl.glDeleteVertexArrays(vaoId);
+        vaoId = 0;
+    }
+
+    /**
+     * Create the shared vertex array with its vertex and index buffers, and the command buffer.
+     */
+    private void start() {
+        vaoId = gl.glGenVertexArrays();
+        gl.glBindVertexArray(vaoId);
+
+        vboId = gl.glGenBuffers();
+        gl.glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        gl.glBufferData(GL_ARRAY_BUFFER, regions.length * regionBytes, GL_DYNAMIC_DRAW);
+
+        //Every region holds the same quads, each command offsets the indices to its region with baseVertex
+        eboId = gl.glGenBuffers();
+        gl.glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboId);
+        gl.glBufferData(GL_ELEMENT_ARRAY_BUFFER, RenderBatch.quadIndices(maxBatchSize), GL_STATIC_DRAW);
+
+        RenderBatch.describeVertex(gl);
+        gl.glBindVertexArray(0);
+
+        commandBufferId = gl.glGenBuffers();
+        gl.glBindBuffer(GL_DRAW_INDIRECT_BUFFER, commandBufferId);
+        gl.glBufferData(GL_DRAW_INDIRECT_BUFFER, (long) commands.capacity(), GL_DYNAMIC_DRAW);
+    }
+
+    /**
+     * Double the number of regions.  The vertex buffer is reallocated in place, so every batch uploads its sprites
+     * again.
+     */
+    private void grow() {
+        int capacity = regions.length * 2;
+        regions = Arrays.copyOf(regions, capacity);
+        commands = BufferUtils.createByteBuffer(capacity * COMMAND_BYTES);
+
+        gl.glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        gl.glBufferData(GL_ARRAY_BUFFER, capacity * regionBytes, GL_DYNAMIC_DRAW);
+        gl.glBindBuffer(GL_DRAW_INDIRECT_BUFFER, commandBufferId);
+        gl.glBufferData(GL_DRAW_INDIRECT_BUFFER, (long) commands.capacity(), GL_DYNAMIC_DRAW);
+        for (RenderBatch batch : regions) {
+            if (batch != null) {
+                batch.markAllDirty();
+            }
+        }
+        log.debug("Grew indirect draw buffer to {} batches", capacity);
+    }
+
+    private Draw nextDraw() {
+        if (drawCount == draws.size()) {
+            draws.add(new Draw());
+        }
+        Draw draw = draws.get(drawCount++);
+        draw.batches.clear();
+        return draw;
+    }
+
+    /**
+     * Upload the batches, fill a command for each batch holding sprites and draw them all in one call.
+     *
+     * @param batches batches sharing a shader and textures
+     */
+    private void draw(List<RenderBatch> batches) {
+        int first = commandCount;
+        for (RenderBatch batch : batches) {
+            batch.upload();
+            if (batch.numSprites == 0) {
+                continue;
+            }
+            int offset = commandCount++ * COMMAND_BYTES;
+            commands.putInt(offset, batch.numSprites * 6);
+            commands.putInt(offset + Integer.BYTES, 1);
+            commands.putInt(offset + 2 * Integer.BYTES, 0);
+            //4 vertices per sprite
+            commands.putInt(offset + 3 * Integer.BYTES, batch.getRegion() * maxBatchSize * 4);
+            commands.putInt(offset + 4 * Integer.BYTES, 0);
+        }
+        int count = commandCount - first;
+        if (count == 0) {
+            return;
+        }
+
+        //Each draw of the frame fills its own range of the command buffer
+        long commandOffset = (long) first * COMMAND_BYTES;
+        gl.glBindBuffer(GL_DRAW_INDIRECT_BUFFER, commandBufferId);
+        gl.glBufferSubData(GL_DRAW_INDIRECT_BUFFER, commandOffset, commands.slice(first * COMMAND_BYTES,
+                                                                                  count * COMMAND_BYTES));
+
+        batches.getFirst()
+               .bindForDraw();
+        gl.glBindVertexArray(vaoId);
+        gl.glMultiDrawElementsIndirect(GL_TRIANGLES, GL_UNSIGNED_INT, commandOffset, count, 0);
+        gl.glBindVertexArray(0);
+        batches.getFirst()
+               .unbindAfterDraw();
+        drawCalls++;
+        batchesDrawn += count;
+    }
+
+    /**
+     * Batches of a layer drawn together, queued as a single RenderCommand.
+     */
+    private final class Draw implements RenderCommand {
+        private final List<RenderBatch> batches = new ArrayList<>();
+
+        @Override
+        public void render() {
+            draw(batches);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package render;
+
+import component.SpriteRenderer;
+import org.joml.Vector4f;
+import rubicon.Transform;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL15C.*;
+
+/**
+ * Class: InstancedRenderBatch
+ * Author: rapto
+ * CreatedDate: 3/9/2025 : 4:05 PM
+ * Project: GameEngine
+ * Description: RenderBatch that writes one instance record per sprite and draws every sprite as an instance of a
+ * shared unit quad, rather than generating four vertices and six indices per sprite.
+ */
+public class InstancedRenderBatch extends RenderBatch {
+
+    // Instance
+    // ========
+    // Pos              Scale           Color                           UV Rect (min, max)              TexId
+    // float, float,    float, float,   float, float, float, float,     float, float, float, float,     float
+    private static final int POS_SIZE     = 2;
+    private static final int SCALE_SIZE   = 2;
+    private static final int COLOR_SIZE   = 4;
+    private static final int UV_RECT_SIZE = 4;
+    private static final int TEX_ID_SIZE  = 1;
+
+    private static final int POS_OFFSET     = 0;
+    private static final int SCALE_OFFSET   = POS_OFFSET + POS_SIZE * Float.BYTES;
+    private static final int COLOR_OFFSET   = SCALE_OFFSET + SCALE_SIZE * Float.BYTES;
+    private static final int UV_RECT_OFFSET = COLOR_OFFSET + COLOR_SIZE * Float.BYTES;
+    private static final int TEX_ID_OFFSET  = UV_RECT_OFFSET + UV_RECT_SIZE * Float.BYTES;
+
+    private static final int INSTANCE_SIZE       = POS_SIZE + SCALE_SIZE + COLOR_SIZE + UV_RECT_SIZE + TEX_ID_SIZE;
+    private static final int INSTANCE_SIZE_BYTES = INSTANCE_SIZE * Float.BYTES;
+
+    // Corners of the unit quad drawn as a triangle strip
+    private static final float[] UNIT_QUAD = {
+            0f, 0f,
+            1f, 0f,
+            0f, 1f,
+            1f, 1f
+    };
+
+    //Unit quad buffer shared by every instanced batch
+    private static int quadVboId;
+
+    /**
+     * Constructor initializes an instanced renderBatch
+     *
+     * @param maxBatchSize max number of renders per batch
+     * @param zIndex       zIndex layer to render on
+     * @param streaming    true to write instances straight into a mapped, triple-buffered vertex buffer
+     */
+    public InstancedRenderBatch(int maxBatchSize, int zIndex, boolean streaming) {
+        super(maxBatchSize, zIndex, streaming, "assets/shader/instanced.glsl", INSTANCE_SIZE_BYTES);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Attribute 0 reads the shared unit quad per vertex, the rest read the instance buffer once per sprite.
+     */
+    @Override
+    protected void configureAttributes(int vertexBufferId) {
+        if (quadVboId == 0) {
+            quadVboId = gl.glGenBuffers();
+            gl.glBindBuffer(GL_ARRAY_BUFFER, quadVboId);
+            gl.glBufferData(GL_ARRAY_BUFFER, UNIT_QUAD, GL_STATIC_DRAW);
+        } else {
+            gl.glBindBuffer(GL_ARRAY_BUFFER, quadVboId);
+        }
+        gl.glVertexAttribPointer(0, 2, GL_FLOAT, false, 2 * Float.BYTES, 0);
+        gl.glEnableVertexAttribArray(0);
+
+        gl.glBindBuffer(GL_ARRAY_BUFFER, vertexBufferId);
+        instanceAttribute(1, POS_SIZE, POS_OFFSET);
+        instanceAttribute(2, SCALE_SIZE, SCALE_OFFSET);
+        instanceAttribute(3, COLOR_SIZE, COLOR_OFFSET);
+        instanceAttribute(4, UV_RECT_SIZE, UV_RECT_OFFSET);
+        instanceAttribute(5, TEX_ID_SIZE, TEX_ID_OFFSET);
+    }
+
+    /**
+     * Describe a float attribute that advances once per instance.
+     *
+     * @param index  attribute location
+     * @param size   number of floats
+     * @param offset byte offset within the instance record
+     */
+    private void instanceAttribute(int index, int size, int offset) {
+        gl.glVertexAttribPointer(index, size, GL_FLOAT, false, INSTANCE_SIZE_BYTES, offset);
+        gl.glVertexAttribDivisor(index, 1);
+        gl.glEnableVertexAttribArray(index);
+    }
+
+    @Override
+    protected void drawSprites() {
+        gl.glDrawArraysInstanced(GL_TRIANGLE_STRIP, 0, 4, this.numSprites);
+    }
+
+    @Override
+    protected void drawSprites(int firstSprite) {
+        gl.glDrawArraysInstancedBaseInstance(GL_TRIANGLE_STRIP, 0, 4, this.numSprites, firstSprite);
+    }
+
+    /**
+     * Writes the instance record for the sprite at index.
+     *
+     * @param index  Sprite we want to render
+     * @param target Buffer receiving the instance data
+     */
+    @Override
+    protected void loadVertexProperties(int index, ByteBuffer target) {
+        SpriteRenderer spr = this.sprites[index];
+        Transform transform = spr.getGameObject().transform;
+        Vector4f color = spr.getColor();
+        float[] texCoords = loadTexCoords(spr);
+        int offset = index * INSTANCE_SIZE_BYTES;
+
+        target.putFloat(offset + POS_OFFSET, transform.position.x);
+        target.putFloat(offset + POS_OFFSET + Float.BYTES, transform.position.y);
+        target.putFloat(offset + SCALE_OFFSET, transform.scale.x);
+        target.putFloat(offset + SCALE_OFFSET + Float.BYTES, transform.scale.y);
+
+        target.putFloat(offset + COLOR_OFFSET, color.x);
+        target.putFloat(offset + COLOR_OFFSET + Float.BYTES, color.y);
+        target.putFloat(offset + COLOR_OFFSET + 2 * Float.BYTES, color.z);
+        target.putFloat(offset + COLOR_OFFSET + 3 * Float.BYTES, color.w);
+
+        //Bottom left and top right texture coordinates
+        target.putFloat(offset + UV_RECT_OFFSET, texCoords[4]);
+        target.putFloat(offset + UV_RECT_OFFSET + Float.BYTES, texCoords[5]);
+        target.putFloat(offset + UV_RECT_OFFSET + 2 * Float.BYTES, texCoords[0]);
+        target.putFloat(offset + UV_RECT_OFFSET + 3 * Float.BYTES, texCoords[1]);
+
+        target.putFloat(offset + TEX_ID_OFFSET, getTexId(spr));
+    }
+}
@@ -0,0 +1,127 @@
+package render;
+
+import component.SpriteRenderer;
+import org.joml.Vector4f;
+import rubicon.Transform;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL15C.*;
+
+/**
+ * Class: PackedRenderBatch
+ * Author: rapto
+ * CreatedDate: 3/12/2025 : 10:21 PM
+ * Project: GameEngine
+ * Description: RenderBatch using a compact 20 byte vertex.  Color is stored as normalized bytes, texture coordinates
+ * as normalized shorts and the texture id as an integer attribute, so texture coordinates must stay within 0..1.
+ */
+public class PackedRenderBatch extends RenderBatch {
+
+    // Vertex
+    // ======
+    // Pos              Color                       TexCoords           TexId   Padding
+    // float, float,    ubyte, ubyte, ubyte, ubyte, ushort, ushort,     ubyte,  3 bytes
+    private static final int POS_SIZE        = 2;
+    private static final int COLOR_SIZE      = 4;
+    private static final int TEX_COORDS_SIZE = 2;
+    private static final int TEX_ID_SIZE     = 1;
+
+    private static final int POS_OFFSET        = 0;
+    private static final int COLOR_OFFSET      = POS_OFFSET + POS_SIZE * Float.BYTES;
+    private static final int TEX_COORDS_OFFSET = COLOR_OFFSET + COLOR_SIZE;
+    private static final int TEX_ID_OFFSET     = TEX_COORDS_OFFSET + TEX_COORDS_SIZE * Short.BYTES;
+
+    // Padded to keep every vertex 4 byte aligned
+    private static final int VERTEX_SIZE_BYTES = 20;
+    private static final int QUAD_SIZE_BYTES   = 4 * VERTEX_SIZE_BYTES;
+
+    // Corner offsets of each quad vertex, matching the order of Sprite texture coordinates
+    private static final float[][] CORNERS = {{1f, 1f}, {1f, 0f}, {0f, 0f}, {0f, 1f}};
+
+    /**
+     * Constructor initializes a packed renderBatch
+     *
+     * @param maxBatchSize max number of renders per batch
+     * @param zIndex       zIndex layer to render on
+     * @param streaming    true to write vertices straight into a mapped, triple-buffered vertex buffer
+     */
+    public PackedRenderBatch(int maxBatchSize, int zIndex, boolean streaming) {
+        super(maxBatchSize, zIndex, streaming, "assets/shader/packed.glsl", QUAD_SIZE_BYTES);
+    }
+
+    @Override
+    protected void configureAttributes(int vertexBufferId) {
+        createElementBuffer();
+
+        gl.glVertexAttribPointer(0, POS_SIZE, GL_FLOAT, false, VERTEX_SIZE_BYTES, POS_OFFSET);
+        gl.glEnableVertexAttribArray(0);
+
+        gl.glVertexAttribPointer(1, COLOR_SIZE, GL_UNSIGNED_BYTE, true, VERTEX_SIZE_BYTES, COLOR_OFFSET);
+        gl.glEnableVertexAttribArray(1);
+
+        gl.glVertexAttribPointer(2, TEX_COORDS_SIZE, GL_UNSIGNED_SHORT, true, VERTEX_SIZE_BYTES, TEX_COORDS_OFFSET);
+        gl.glEnableVertexAttribArray(2);
+
+        gl.glVertexAttribIPointer(3, TEX_ID_SIZE, GL_UNSIGNED_BYTE, VERTEX_SIZE_BYTES, TEX_ID_OFFSET);
+        gl.glEnableVertexAttribArray(3);
+    }
+
+    /**
+     * Loads packed vertex properties for the given sprite at index into the given buffer.
+     *
+     * @param index  Sprite we want to render
+     * @param target Buffer receiving the vertex data
+     */
+    @Override
+    protected void loadVertexProperties(int index, ByteBuffer target) {
+        SpriteRenderer spr = this.sprites[index];
+        Transform transform = spr.getGameObject().transform;
+        Vector4f color = spr.getColor();
+        float[] texCoords = loadTexCoords(spr);
+        byte texId = (byte) getTexId(spr);
+
+        //Color is identical for all 4 vertices so only convert it once
+        byte r = unorm8(color.x);
+        byte g = unorm8(color.y);
+        byte b = unorm8(color.z);
+        byte a = unorm8(color.w);
+
+        int offset = index * QUAD_SIZE_BYTES;
+        for (int i = 0; i < 4; i++) {
+            target.putFloat(offset + POS_OFFSET, transform.position.x + CORNERS[i][0] * transform.scale.x);
+            target.putFloat(offset + POS_OFFSET + Float.BYTES, transform.position.y + CORNERS[i][1] * transform.scale.y);
+
+            target.put(offset + COLOR_OFFSET, r);
+            target.put(offset + COLOR_OFFSET + 1, g);
+            target.put(offset + COLOR_OFFSET + 2, b);
+            target.put(offset + COLOR_OFFSET + 3, a);
+
+            target.putShort(offset + TEX_COORDS_OFFSET, unorm16(texCoords[2 * i]));
+            target.putShort(offset + TEX_COORDS_OFFSET + Short.BYTES, unorm16(texCoords[2 * i + 1]));
+
+            target.put(offset + TEX_ID_OFFSET, texId);
+            offset += VERTEX_SIZE_BYTES;
+        }
+    }
+
+    /**
+     * Convert a 0..1 float to an unsigned normalized byte.
+     *
+     * @param v value to convert
+     * @return byte holding round(v * 255)
+     */
+    static byte unorm8(float v) {
+        return (byte) Math.round(Math.max(0f, Math.min(1f, v)) * 255f);
+    }
+
+    /**
+     * Convert a 0..1 float to an unsigned normalized short.
+     *
+     * @param v value to convert
+     * @return short holding round(v * 65535)
+     */
+    static short unorm16(float v) {
+        return (short) Math.round(Math.max(0f, Math.min(1f, v)) * 65535f);
+    }
+}
@@ -0,0 +1,222 @@
+package render;
+
+import graphics.GLWrapper;
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import scene.Settings;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL44C.*;
+
+/**
+ * Class: PixelUploadRing
+ * Author: rapto
+ * CreatedDate: 3/23/2025 : 11:40 AM
+ * Project: GameEngine
+ * Description: Persistently mapped pixel unpack buffer handed out as a ring of slices.  Decode workers reserve a slice
+ * and copy their pixels into it, the GL thread then uploads textures from the slice's offset.  Slices uploaded during a
+ * frame share one fence, their space is handed out again once the GPU has read them.
+ */
+public class PixelUploadRing {
+    // Frames of uploads the ring holds, so workers can fill the next frames while the GPU reads the last one
+    public static final  int    FRAME_COUNT = 3;
+    private static final Logger log         = LogManager.getLogger(PixelUploadRing.class);
+    // Flags used both for the immutable storage and the persistent mapping
+    private static final int    MAP_FLAGS   = GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT;
+
+    private final GLWrapper         gl;
+    @Getter
+    private final int               capacity;
+    // Slices in reservation order, space is reclaimed from the front
+    private final Deque<Slice>      reserved = new ArrayDeque<>();
+    // Fences of frames the GPU may still be reading, only used on the GL thread
+    private final Deque<FrameFence> fences   = new ArrayDeque<>();
+    // Slices uploaded since the last fence, only used on the GL thread
+    private       List<Slice>       uploaded = new ArrayList<>();
+    private       ByteBuffer        mapped;
+    @Getter
+    private       int               bufferId;
+    // Ring positions in bytes, they only grow and a slice's offset is its position modulo the capacity
+    private       long              head;
+    private       long              tail;
+
+    /**
+     * Constructor sizing the ring.
+     *
+     * @param capacity bytes shared by every slice in flight
+     */
+    public PixelUploadRing(int capacity) {
+        this.gl = Settings.graphicsImpl;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Allocate immutable storage and map it persistently.  Must be called on the GL thread.
+     *
+     * @return true if the buffer was mapped, false if the driver refused and the buffer was deleted
+     */
+    public boolean start() {
+        bufferId = gl.glGenBuffers();
+        gl.glBindBuffer(GL_PIXEL_UNPACK_BUFFER, bufferId);
+        gl.glBufferStorage(GL_PIXEL_UNPACK_BUFFER, capacity, MAP_FLAGS);
+        mapped = gl.glMapBufferRange(GL_PIXEL_UNPACK_BUFFER, 0, capacity, MAP_FLAGS);
+        //Left bound, the unpack buffer would turn every other texture upload into an offset
+        gl.glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+        if (mapped == null) {
+            log.warn("Unable to persistently map pixel buffer {}, uploading textures from client memory.", bufferId);
+            gl.glDeleteBuffers(bufferId);
+            bufferId = 0;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reserve a contiguous slice, safe to call from any thread.
+     *
+     * @param size bytes needed
+     * @return slice to write into, null if the ring has no room for it right now
+     */
+    public synchronized Slice reserve(int size) {
+        if (size > capacity) {
+            return null;
+        }
+        long start = head;
+        int offset = (int) (start % capacity);
+        //Slices never wrap, the end of the ring is skipped instead
+        if (offset + size > capacity) {
+            start += capacity - offset;
+            offset = 0;
+        }
+        if (start + size - tail > capacity) {
+            return null;
+        }
+        head = start + size;
+        Slice slice = new Slice(offset, size, head);
+        reserved.add(slice);
+        return slice;
+    }
+
+    /**
+     * Copy pixels into a reserved slice, safe to call from any thread.
+     *
+     * @param slice  slice reserved for the pixels
+     * @param pixels pixels to copy, their position is left untouched
+     */
+    public void write(Slice slice, ByteBuffer pixels) {
+        //Absolute copy, slices never overlap so workers can write side by side
+        mapped.put(slice.offset, pixels, pixels.position(), slice.size);
+    }
+
+    /**
+     * Note that a texture was uploaded from the slice this frame.  Its space is reused once the frame's fence passes.
+     *
+     * @param slice uploaded slice
+     */
+    public void uploaded(Slice slice) {
+        uploaded.add(slice);
+    }
+
+    /**
+     * Give a slice back without the GPU reading it, such as when its image turned out to be a duplicate.
+     *
+     * @param slice slice to give back
+     */
+    public synchronized void discard(Slice slice) {
+        slice.released = true;
+        advanceTail();
+    }
+
+    /**
+     * Fence the uploads issued this frame.  Called on the GL thread once the frame's uploads are issued.
+     */
+    public void endFrame() {
+        if (!uploaded.isEmpty()) {
+            fences.add(new FrameFence(gl.glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0), uploaded));
+            uploaded = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Free the slices of frames the GPU has finished reading, without waiting on the ones it hasn't.  Called on the
+     * GL thread.
+     */
+    public void reclaim() {
+        List<Slice> read = new ArrayList<>();
+        while (!fences.isEmpty() && gl.glClientWaitSync(fences.peek().sync, 0, 0) != GL_TIMEOUT_EXPIRED) {
+            FrameFence fence = fences.poll();
+            gl.glDeleteSync(fence.sync);
+            read.addAll(fence.slices);
+        }
+        if (read.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            read.forEach(slice -> slice.released = true);
+            advanceTail();
+        }
+    }
+
+    /**
+     * Move the tail past the released slices at the front of the ring.
+     */
+    private void advanceTail() {
+        while (!reserved.isEmpty() && reserved.peek().released) {
+            tail = reserved.poll().end;
+        }
+    }
+
+    /**
+     * Release outstanding fences and the buffer itself, which also unmaps it.
+     */
+    public void dispose() {
+        for (FrameFence fence : fences) {
+            gl.glDeleteSync(fence.sync);
+        }
+        fences.clear();
+        if (bufferId != 0) {
+            gl.glDeleteBuffers(bufferId);
+            bufferId = 0;
+        }
+        mapped = null;
+    }
+
+    /**
+     * Range of the ring reserved for one image.
+     */
+    @Getter
+    public static final class Slice {
+        // Byte offset into the buffer
+        private final int     offset;
+        private final int     size;
+        // Ring position just past the slice
+        private final long    end;
+        // Set once nothing reads the slice anymore, guarded by the ring
+        private       boolean released;
+
+        private Slice(int offset, int size, long end) {
+            this.offset = offset;
+            this.size = size;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Fence guarding the slices uploaded during one frame.
+     */
+    private static final class FrameFence {
+        private final long        sync;
+        private final List<Slice> slices;
+
+        private FrameFence(long sync, List<Slice> slices) {
+            this.sync = sync;
+            this.slices = slices;
+        }
+    }
+}
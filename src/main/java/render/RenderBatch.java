@@ -1,17 +1,18 @@
 package render;
 
+import component.Sprite;
 import component.SpriteRenderer;
 import graphics.GLWrapper;
 import lombok.Getter;
 import org.jetbrains.annotations.NotNull;
-import org.joml.Vector2f;
 import org.joml.Vector4f;
-import rubicon.Window;
+import org.lwjgl.BufferUtils;
 import scene.Settings;
 import util.AssetPool;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Objects;
 
 import static org.lwjgl.opengl.GL15C.*;
@@ -23,7 +24,7 @@ import static org.lwjgl.opengl.GL15C.*;
  * Project: GameEngine
  * Description: Batches render calls to speed up performance.
  */
-public class RenderBatch implements Comparable<RenderBatch> {
+public class RenderBatch implements Comparable<RenderBatch>, RenderCommand {
 
     // Vertex
     // ======
@@ -39,21 +40,48 @@ public class RenderBatch implements Comparable<RenderBatch> {
     private static final int TEX_COORDS_OFFSET = COLOR_OFFSET + COLOR_SIZE * Float.BYTES;
     private static final int TEX_ID_OFFSET     = TEX_COORDS_OFFSET + TEX_COORDS_SIZE * Float.BYTES;
 
-    private static final int              VERTEX_SIZE       = POS_SIZE + COLOR_SIZE + TEX_COORDS_SIZE + TEX_ID_SIZE;
-    private static final int              VERTEX_SIZE_BYTES = VERTEX_SIZE * Float.BYTES;
-    private static final int[]            texSlots          = {0, 1, 2, 3, 4, 5, 6, 7};
-    private final        SpriteRenderer[] sprites;
-    private final        float[]          vertices;
-    private final        List<Texture>    textures;
-    private final        int              maxBatchSize;
-    private final        Shader           shader;
+    private static final int                   VERTEX_SIZE       = POS_SIZE + COLOR_SIZE + TEX_COORDS_SIZE + TEX_ID_SIZE;
+    private static final int                   VERTEX_SIZE_BYTES = VERTEX_SIZE * Float.BYTES;
+    protected static final int                 QUAD_SIZE_BYTES   = 4 * VERTEX_SIZE_BYTES;
+    // Clean sprites allowed between two dirty ranges before they are uploaded separately
+    private static final int                   MERGE_GAP         = 2;
+    private static final int[]                 texSlots          = {0, 1, 2, 3, 4, 5, 6, 7};
+    //Number of textures a single batch can sample from
+    public static final  int                   TEXTURE_SLOTS     = texSlots.length;
+    protected final      SpriteRenderer[]      sprites;
+    //Texture each sprite slot was registered with, used to release its texture slot on removal
+    private final        Texture[]             spriteTextures;
+    private final        ByteBuffer            vertices;
+    //Sprite slots whose vertices changed since the last upload
+    private final        BitSet                dirtySlots;
+    //Texture bound to each sampler slot, null while the slot is free
+    private final        Texture[]             textures;
+    //Texture coordinates of the sprite being written, u and v per corner
+    protected final      float[]               texCoords         = new float[Sprite.TEX_COORD_FLOATS];
+    //Number of sprites using the texture in each sampler slot
+    private final        int[]                 textureUsers;
+    protected final      int                   maxBatchSize;
+    //Bytes of vertex data written per sprite
+    protected final      int                   spriteBytes;
+    private final        Shader                shader;
     @Getter
-    private final        int              zIndex;
-    private final        GLWrapper        gl;
-    private              int              numSprites;
-    private              boolean          hasRoom;
-    private              int              vaoId;
-    private              int              vboId;
+    private final        int                   zIndex;
+    protected final      GLWrapper             gl;
+    protected            int                   numSprites;
+    private              boolean               hasRoom;
+    private              int                   vaoId;
+    private              int                   vboId;
+    private              int                   eboId;
+    //Persistently mapped ring buffer used instead of vertices when streaming.
+    private              StreamingVertexBuffer streamBuffer;
+    //Shared buffer holding the vertices when drawn indirectly, null while the batch owns its buffers
+    private              IndirectDrawBuffer    sharedBuffer;
+    //Region of the shared buffer holding the batch and the byte it starts at
+    private              int                   region;
+    private              long                  bufferOffset;
+    //Bytes sent to the GPU during the last render call
+    @Getter
+    private              long                  uploadedBytes;
 
     /**
      * Default Constructor initializes specific renderBatch
@@ -62,15 +90,47 @@ public class RenderBatch implements Comparable<RenderBatch> {
      * @param zIndex       zIndex layer to render on
      */
     public RenderBatch(int maxBatchSize, int zIndex) {
-        this.shader = AssetPool.getShader("assets/shader/default.glsl");
+        this(maxBatchSize, zIndex, Settings.streamVertexData);
+    }
+
+    /**
+     * Constructor that optionally streams vertices through a persistently mapped buffer rather than re-uploading
+     * the vertices buffer.
+     *
+     * @param maxBatchSize max number of renders per batch
+     * @param zIndex       zIndex layer to render on
+     * @param streaming    true to write vertices straight into a mapped, triple-buffered vertex buffer
+     */
+    public RenderBatch(int maxBatchSize, int zIndex, boolean streaming) {
+        this(maxBatchSize, zIndex, streaming, "assets/shader/default.glsl", QUAD_SIZE_BYTES);
+    }
+
+    /**
+     * Constructor for batches that lay their sprites out differently.
+     *
+     * @param maxBatchSize max number of renders per batch
+     * @param zIndex       zIndex layer to render on
+     * @param streaming    true to write vertices straight into a mapped, triple-buffered vertex buffer
+     * @param shaderPath   shader used to draw the batch
+     * @param spriteBytes  bytes of vertex data written per sprite
+     */
+    protected RenderBatch(int maxBatchSize, int zIndex, boolean streaming, String shaderPath, int spriteBytes) {
+        this.shader = AssetPool.getShader(shaderPath);
         this.sprites = new SpriteRenderer[maxBatchSize];
-        this.textures = new ArrayList<>();
+        this.spriteTextures = new Texture[maxBatchSize];
+        this.textures = new Texture[texSlots.length];
+        this.textureUsers = new int[texSlots.length];
         this.maxBatchSize = maxBatchSize;
-        this.vertices = new float[maxBatchSize * 4 * VERTEX_SIZE];
+        this.spriteBytes = spriteBytes;
+        this.vertices = BufferUtils.createByteBuffer(maxBatchSize * spriteBytes);
+        this.dirtySlots = new BitSet(maxBatchSize);
         this.numSprites = 0;
         this.hasRoom = true;
         this.zIndex = zIndex;
         this.gl = Settings.graphicsImpl;
+        if (streaming) {
+            this.streamBuffer = new StreamingVertexBuffer(vertices.capacity());
+        }
     }
 
     /**
@@ -82,17 +142,49 @@ public class RenderBatch implements Comparable<RenderBatch> {
         vaoId = gl.glGenVertexArrays();
         gl.glBindVertexArray(vaoId);
 
-        //Allocate space for vertices
-        vboId = gl.glGenBuffers();
-        gl.glBindBuffer(GL_ARRAY_BUFFER, vboId);
-        gl.glBufferData(GL_ARRAY_BUFFER, (long) vertices.length * Float.BYTES, GL_DYNAMIC_DRAW);
+        //Allocate space for vertices, falling back to a regular buffer if it can't be persistently mapped.
+        if (streamBuffer != null && streamBuffer.start()) {
+            vboId = streamBuffer.getBufferId();
+        } else {
+            streamBuffer = null;
+            vboId = gl.glGenBuffers();
+            gl.glBindBuffer(GL_ARRAY_BUFFER, vboId);
+            gl.glBufferData(GL_ARRAY_BUFFER, vertices.capacity(), GL_DYNAMIC_DRAW);
+        }
 
-        //Create and upload indices buffer
-        int eboId = gl.glGenBuffers();
-        int[] indices = generateIndices();
-        gl.glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboId);
-        gl.glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+        configureAttributes(vboId);
+    }
+
+    /**
+     * Place the vertices in a region of the shared buffer instead of allocating a vertex array and buffers of its own.
+     * The batch is then drawn by the IndirectDrawBuffer together with the other batches it shares state with.
+     *
+     * @param shared buffer holding the vertices of every batch drawn indirectly
+     */
+    public void start(IndirectDrawBuffer shared) {
+        streamBuffer = null;
+        sharedBuffer = shared;
+        region = shared.acquire(this);
+        vboId = shared.getVboId();
+        bufferOffset = shared.regionOffset(region);
+    }
 
+    /**
+     * Creates the index buffer and describes the vertex layout for the bound vertex array.
+     *
+     * @param vertexBufferId buffer holding the sprite data, currently bound to GL_ARRAY_BUFFER
+     */
+    protected void configureAttributes(int vertexBufferId) {
+        createElementBuffer();
+        describeVertex(gl);
+    }
+
+    /**
+     * Describe the quad vertex layout for the bound vertex array, reading from the buffer bound to GL_ARRAY_BUFFER.
+     *
+     * @param gl graphics implementation
+     */
+    static void describeVertex(GLWrapper gl) {
         gl.glVertexAttribPointer(0, POS_SIZE, GL_FLOAT, false, VERTEX_SIZE_BYTES, POS_OFFSET);
         gl.glEnableVertexAttribArray(0);
 
@@ -106,6 +198,16 @@ public class RenderBatch implements Comparable<RenderBatch> {
         gl.glEnableVertexAttribArray(3);
     }
 
+    /**
+     * Create and upload the quad indices buffer for the bound vertex array.
+     */
+    protected void createElementBuffer() {
+        eboId = gl.glGenBuffers();
+        int[] indices = generateIndices();
+        gl.glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboId);
+        gl.glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+    }
+
     /**
      * Adds a sprite to be rendered and generates it's vertex properties.
      *
@@ -116,25 +218,153 @@ public class RenderBatch implements Comparable<RenderBatch> {
 
         int index = this.numSprites;
         this.sprites[index] = spr;
+        this.spriteTextures[index] = slotTexture(spr);
         this.numSprites++;
 
-        if (spr.getTexture() != null && !textures.contains(spr.getTexture())) {
-            textures.add(spr.getTexture());
+        if (this.spriteTextures[index] != null) {
+            acquireTextureSlot(this.spriteTextures[index]);
         }
         //Add properties to local vertices array
         loadVertexProperties(index);
+        dirtySlots.set(index);
         this.hasRoom = numSprites < this.maxBatchSize;
     }
 
+    /**
+     * Removes a sprite from the batch.  The last sprite is moved into the freed slot so the batch stays contiguous,
+     * meaning only the moved sprite's vertices need to be rebuilt and re-uploaded.  If the removed sprite was the last
+     * user of a texture, its sampler slot is released.
+     *
+     * @param spr SpriteRenderer to be removed
+     * @return true if the sprite was in this batch
+     */
+    public boolean removeSprite(SpriteRenderer spr) {
+        int index = -1;
+        for (int i = 0; i < numSprites; i++) {
+            if (sprites[i] == spr) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            return false;
+        }
+
+        if (spriteTextures[index] != null) {
+            releaseTextureSlot(spriteTextures[index]);
+        }
+
+        //Swap the last sprite into the hole
+        int last = numSprites - 1;
+        if (index != last) {
+            sprites[index] = sprites[last];
+            spriteTextures[index] = spriteTextures[last];
+            loadVertexProperties(index);
+            dirtySlots.set(index);
+        }
+        sprites[last] = null;
+        spriteTextures[last] = null;
+        dirtySlots.clear(last);
+
+        numSprites--;
+        this.hasRoom = true;
+        return true;
+    }
+
+    /**
+     * Check if the batch no longer holds any sprites.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return numSprites == 0;
+    }
+
+    /**
+     * Release the vertex array and buffers owned by this batch.
+     */
+    public void dispose() {
+        if (sharedBuffer != null) {
+            sharedBuffer.release(region);
+            return;
+        }
+        if (streamBuffer != null) {
+            streamBuffer.dispose();
+        } else {
+            gl.glDeleteBuffers(vboId);
+        }
+        if (eboId != 0) {
+            gl.glDeleteBuffers(eboId);
+        }
+        gl.glDeleteVertexArrays(vaoId);
+    }
+
+    /**
+     * Find the sampler slot holding the given texture.
+     *
+     * @param t texture to find
+     * @return slot index or -1 if the texture isn't in this batch
+     */
+    private int textureSlot(Texture t) {
+        for (int i = 0; i < textures.length; i++) {
+            if (textures[i] != null && textures[i].equals(t)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Register a user of the texture, claiming a free sampler slot if it isn't already bound.
+     *
+     * @param t texture in use
+     */
+    private void acquireTextureSlot(Texture t) {
+        int slot = textureSlot(t);
+        if (slot < 0) {
+            for (int i = 0; i < textures.length; i++) {
+                if (textures[i] == null) {
+                    textures[i] = t;
+                    slot = i;
+                    break;
+                }
+            }
+        }
+        assert slot >= 0 : "Error: RenderBatch: No free texture slot for " + t.getFilePath();
+        textureUsers[slot]++;
+    }
+
+    /**
+     * Drop a user of the texture, freeing its sampler slot once nothing uses it.
+     *
+     * @param t texture no longer in use
+     */
+    private void releaseTextureSlot(Texture t) {
+        int slot = textureSlot(t);
+        if (slot >= 0 && --textureUsers[slot] == 0) {
+            textures[slot] = null;
+        }
+    }
+
     /**
      * For each sprite, generate the indices for each element.
      *
      * @return Array of indices for all sprites.
      */
     public int[] generateIndices() {
+        return quadIndices(maxBatchSize);
+    }
+
+    /**
+     * Generate the indices of the given number of quads.
+     *
+     * @param quads number of quads
+     * @return Array of indices for all quads.
+     */
+    static int[] quadIndices(int quads) {
         // 6 indices per quad (3 per triangle)
-        int[] elements = new int[6 * maxBatchSize];
-        for (int i = 0; i < maxBatchSize; i++) {
+        int[] elements = new int[6 * quads];
+        for (int i = 0; i < quads; i++) {
             loadElementIndices(elements, i);
         }
         return elements;
@@ -146,7 +376,7 @@ public class RenderBatch implements Comparable<RenderBatch> {
      * @param elements Indices Array that has been pre-sized for all elements
      * @param index    Index of the specific
      */
-    private void loadElementIndices(int[] elements, int index) {
+    private static void loadElementIndices(int[] elements, int index) {
         int offsetArrayIndex = 6 * index;
         int offset = 4 * index;
 
@@ -162,11 +392,168 @@ public class RenderBatch implements Comparable<RenderBatch> {
         elements[offsetArrayIndex] = offset + 1;
     }
 
+    /**
+     * Build the key ordering this batch in the RenderQueue, grouping batches on a layer by shader and textures.
+     *
+     * @param depth position of the batch within its layer, keeps batches drawing alike in creation order
+     * @return sort key
+     */
+    public long sortKey(int depth) {
+        return RenderQueue.key(zIndex, shader.getShaderProgramId(), textureSetKey(), depth);
+    }
+
+    /**
+     * Identify the textures the batch binds, batches binding the same textures to the same slots share an id.
+     *
+     * @return texture set id, only the low 16 bits are used
+     */
+    protected int textureSetKey() {
+        int key = 0;
+        for (Texture texture : textures) {
+            key = 31 * key + (texture != null ? texture.getTextureId() : 0);
+        }
+        return key ^ key >>> 16;
+    }
+
     /**
      * Populates, draws and frees shader resource.
      */
+    @Override
     public void render() {
-        boolean rebufferData = false;
+        upload();
+        bindForDraw();
+
+        //Attributes were enabled on the vertex array in configureAttributes, binding it restores them
+        gl.glBindVertexArray(vaoId);
+
+        if (streamBuffer != null) {
+            //Offset into the region we just wrote and fence it so it isn't overwritten while in use.
+            drawSprites(streamBuffer.getRegion() * maxBatchSize);
+            streamBuffer.releaseRegion();
+        } else {
+            drawSprites();
+        }
+
+        gl.glBindVertexArray(0);
+        unbindAfterDraw();
+    }
+
+    /**
+     * Send the sprites that changed since the last upload to the GPU.
+     */
+    void upload() {
+        uploadedBytes = 0;
+        if (streamBuffer != null) {
+            /*
+                The region we're about to write was last filled three frames ago, so every sprite is written
+                straight into the mapped memory rather than tracking dirty state.
+             */
+            ByteBuffer region = streamBuffer.acquireRegion();
+            for (int i = 0; i < this.numSprites; i++) {
+                loadVertexProperties(i, region);
+                sprites[i].setClean();
+            }
+            dirtySlots.clear();
+            uploadedBytes = (long) numSprites * spriteBytes;
+        } else {
+            uploadDirtySprites();
+        }
+    }
+
+    /**
+     * Use the batch's shader and bind its textures.
+     */
+    void bindForDraw() {
+        //Camera matrices come from the shared CameraUniformBuffer
+        shader.use();
+        bindTextures(shader);
+    }
+
+    /**
+     * Unbind the shader and textures bound by {@link #bindForDraw} unless GL state is cached.  With the cache they are
+     * left bound, so the next batch sharing them costs nothing and anything drawing afterwards binds its own.
+     */
+    void unbindAfterDraw() {
+        if (!gl.tracksState()) {
+            unbindTextures();
+            shader.detach();
+        }
+    }
+
+    /**
+     * Check if the batch can be drawn in the same call as another, needing the same shader and textures.
+     *
+     * @param other batch to compare against
+     * @return true if both draw with the same state
+     */
+    boolean drawsLike(RenderBatch other) {
+        return getClass() == other.getClass() && shader == other.shader && Arrays.equals(textures, other.textures);
+    }
+
+    /**
+     * Region of the shared buffer holding the batch's vertices.
+     *
+     * @return region index, only meaningful for batches started on an IndirectDrawBuffer
+     */
+    int getRegion() {
+        return region;
+    }
+
+    /**
+     * Mark every sprite as changed so the whole batch is uploaded again, such as after its buffer was reallocated.
+     */
+    void markAllDirty() {
+        dirtySlots.set(0, numSprites);
+    }
+
+    /**
+     * Bind the textures sampled by the batch and point the shader's samplers at them.
+     *
+     * @param shader shader in use for the draw
+     */
+    protected void bindTextures(Shader shader) {
+        for (int i = 0; i < textures.length; i++) {
+            if (textures[i] != null) {
+                gl.glActiveTexture(GL_TEXTURE0 + i + 1);
+                textures[i].bind();
+            }
+        }
+        shader.uploadIntArray("uTextures", texSlots);
+    }
+
+    /**
+     * Unbind the textures bound by {@link #bindTextures}.
+     */
+    protected void unbindTextures() {
+        for (Texture texture : textures) {
+            if (texture != null) {
+                texture.unbind();
+            }
+        }
+    }
+
+    /**
+     * Issue the draw call for all sprites in the batch.
+     */
+    protected void drawSprites() {
+        gl.glDrawElements(GL_TRIANGLES, this.numSprites * 6, GL_UNSIGNED_INT, 0);
+    }
+
+    /**
+     * Issue the draw call for all sprites in the batch, reading the sprite data from the given sprite offset.
+     *
+     * @param firstSprite sprite slot the batch data starts at in the vertex buffer
+     */
+    protected void drawSprites(int firstSprite) {
+        gl.glDrawElementsBaseVertex(GL_TRIANGLES, this.numSprites * 6, GL_UNSIGNED_INT, 0, firstSprite * 4);
+    }
+
+    /**
+     * Reloads dirty sprites into the vertices buffer and sends only the changed ranges to the GPU.  Ranges separated
+     * by at most MERGE_GAP clean sprites are merged, and once more than Settings.fullUploadDirtyRatio of the sprites
+     * are dirty the whole array is sent in one call instead.
+     */
+    private void uploadDirtySprites() {
         /*
             Loop over sprites and check if any are dirty and need
             re-rendered.
@@ -176,47 +563,45 @@ public class RenderBatch implements Comparable<RenderBatch> {
             if (spr.isDirty()) {
                 loadVertexProperties(i);
                 spr.setClean();
-                rebufferData = true;
+                dirtySlots.set(i);
             }
         }
-        //If rebuffered, send the data to the GPU
-        if (rebufferData) {
-            gl.glBindBuffer(GL_ARRAY_BUFFER, vboId);
-            gl.glBufferSubData(GL_ARRAY_BUFFER, 0, vertices);
-        }
-        shader.use();
-        shader.uploadMat4f("uProjection", Window.getScene()
-                                                .getCamera()
-                                                .getProjectionMatrix());
-        shader.uploadMat4f("uView", Window.getScene()
-                                          .getCamera()
-                                          .getViewMatrix());
-
-        for (int i = 0; i < textures.size(); i++) {
-            gl.glActiveTexture(GL_TEXTURE0 + i + 1);
-            textures.get(i)
-                    .bind();
+        int dirtyCount = dirtySlots.cardinality();
+        if (dirtyCount == 0) {
+            return;
         }
-        shader.uploadIntArray("uTextures", texSlots);
-
-        gl.glBindVertexArray(vaoId);
-        gl.glEnableVertexAttribArray(0);
-        gl.glEnableVertexAttribArray(1);
-        gl.glEnableVertexAttribArray(2);
-        gl.glEnableVertexAttribArray(3);
-
-        gl.glDrawElements(GL_TRIANGLES, this.numSprites * 6, GL_UNSIGNED_INT, 0);
 
-        gl.glDisableVertexAttribArray(0);
-        gl.glDisableVertexAttribArray(1);
-        gl.glDisableVertexAttribArray(2);
-        gl.glDisableVertexAttribArray(3);
-        gl.glBindVertexArray(0);
-
-        for (Texture texture : textures) {
-            texture.unbind();
+        gl.glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        if (dirtyCount > numSprites * Settings.fullUploadDirtyRatio) {
+            uploadRange(0, numSprites);
+        } else {
+            int start = dirtySlots.nextSetBit(0);
+            while (start >= 0 && start < numSprites) {
+                int end = dirtySlots.nextClearBit(start);
+                int next = dirtySlots.nextSetBit(end);
+                //Swallow small gaps of clean sprites to save a call
+                while (next >= 0 && next - end <= MERGE_GAP) {
+                    end = dirtySlots.nextClearBit(next);
+                    next = dirtySlots.nextSetBit(end);
+                }
+                uploadRange(start, Math.min(end, numSprites));
+                start = next;
+            }
         }
-        shader.detach();
+        dirtySlots.clear();
+    }
+
+    /**
+     * Sends the vertices of sprites [start, end) to the GPU.  Expects the vbo to be bound.
+     *
+     * @param start first sprite slot
+     * @param end   sprite slot after the last one to upload
+     */
+    private void uploadRange(int start, int end) {
+        int offset = start * spriteBytes;
+        int length = (end - start) * spriteBytes;
+        gl.glBufferSubData(GL_ARRAY_BUFFER, bufferOffset + offset, vertices.slice(offset, length));
+        uploadedBytes += length;
     }
 
     /**
@@ -225,22 +610,23 @@ public class RenderBatch implements Comparable<RenderBatch> {
      * @param index Sprite we want to render
      */
     public void loadVertexProperties(int index) {
+        loadVertexProperties(index, vertices);
+    }
+
+    /**
+     * Loads vertex properties for the given sprite at index into the given buffer.
+     *
+     * @param index  Sprite we want to render
+     * @param target Buffer receiving the vertex data, laid out like the vertices buffer
+     */
+    protected void loadVertexProperties(int index, ByteBuffer target) {
         SpriteRenderer spr = this.sprites[index];
-        //Find offset within array (4 vertices per sprite)
+        //Find byte offset within buffer (4 vertices per sprite)
 
-        int offset = index * 4 * VERTEX_SIZE;
+        int offset = index * QUAD_SIZE_BYTES;
         Vector4f color = spr.getColor();
-        int texId = 0;
-        Vector2f[] texCoords = spr.getTexCoords();
-        if (spr.getTexture() != null) {
-            for (int i = 0; i < textures.size(); i++) {
-                if (textures.get(i)
-                            .equals(spr.getTexture())) {
-                    texId = i + 1;
-                    break;
-                }
-            }
-        }
+        int texId = getTexId(spr);
+        float[] texCoords = loadTexCoords(spr);
 
         //Add vertices with the appropriate properties
         float xAdd = 1.0f;
@@ -260,26 +646,57 @@ public class RenderBatch implements Comparable<RenderBatch> {
             }
 
             //Set Position Data
-            vertices[offset] = spr.getGameObject().transform.position.x + (xAdd * spr.getGameObject().transform.scale.x);
-            vertices[offset + 1] = spr.getGameObject().transform.position.y + (yAdd * spr.getGameObject().transform.scale.y);
+            target.putFloat(offset + POS_OFFSET, spr.getGameObject().transform.position.x + (xAdd * spr.getGameObject().transform.scale.x));
+            target.putFloat(offset + POS_OFFSET + Float.BYTES, spr.getGameObject().transform.position.y + (yAdd * spr.getGameObject().transform.scale.y));
 
             //Set Color Data
-            vertices[offset + 2] = color.x;
-            vertices[offset + 3] = color.y;
-            vertices[offset + 4] = color.z;
-            vertices[offset + 5] = color.w;
+            target.putFloat(offset + COLOR_OFFSET, color.x);
+            target.putFloat(offset + COLOR_OFFSET + Float.BYTES, color.y);
+            target.putFloat(offset + COLOR_OFFSET + 2 * Float.BYTES, color.z);
+            target.putFloat(offset + COLOR_OFFSET + 3 * Float.BYTES, color.w);
 
             //Set Texture Coordinates
-            vertices[offset + 6] = texCoords[i].x;
-            vertices[offset + 7] = texCoords[i].y;
+            target.putFloat(offset + TEX_COORDS_OFFSET, texCoords[2 * i]);
+            target.putFloat(offset + TEX_COORDS_OFFSET + Float.BYTES, texCoords[2 * i + 1]);
             //Set Texture Id
-            vertices[offset + 8] = texId;
-            //Increment the offset for next sprite
-            offset += VERTEX_SIZE;
+            target.putFloat(offset + TEX_ID_OFFSET, texId);
+            //Increment the offset for next vertex
+            offset += VERTEX_SIZE_BYTES;
         }
 
     }
 
+    /**
+     * Texture id the shader should sample for the sprite.
+     *
+     * @param spr sprite being written
+     * @return 1 based sampler slot, 0 if the sprite has no texture
+     */
+    protected int getTexId(SpriteRenderer spr) {
+        return spr.getTexture() != null ? textureSlot(spr.getTexture()) + 1 : 0;
+    }
+
+    /**
+     * Copy the texture coordinates the shader should sample for the sprite into the texCoords scratch array.
+     *
+     * @param spr sprite being written
+     * @return texCoords, holding u and v of the 4 quad corners
+     */
+    protected float[] loadTexCoords(SpriteRenderer spr) {
+        spr.copyTexCoords(texCoords);
+        return texCoords;
+    }
+
+    /**
+     * Texture the sprite needs a sampler slot for.
+     *
+     * @param spr sprite being added
+     * @return texture to bind, null if the sprite needs no slot
+     */
+    protected Texture slotTexture(SpriteRenderer spr) {
+        return spr.getTexture();
+    }
+
     /**
      * Check if we have room for more sprites.
      *
@@ -290,11 +707,16 @@ public class RenderBatch implements Comparable<RenderBatch> {
     }
 
     public boolean hasSpriteRoom() {
-        return this.textures.size() < texSlots.length;
+        for (Texture texture : textures) {
+            if (texture == null) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public boolean hasSprite(Texture t) {
-        return this.textures.contains(t);
+        return textureSlot(t) >= 0;
     }
 
     @Override
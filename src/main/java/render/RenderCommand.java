@@ -0,0 +1,16 @@
+package render;
+
+/**
+ * Class: RenderCommand
+ * Author: rapto
+ * CreatedDate: 4/1/2025 : 9:10 AM
+ * Project: GameEngine
+ * Description: Anything submitted to the RenderQueue to be drawn once the frame's commands are sorted.
+ */
+@FunctionalInterface
+public interface RenderCommand {
+    /**
+     * Issue the command's draw calls.
+     */
+    void render();
+}
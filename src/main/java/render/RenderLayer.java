@@ -0,0 +1,212 @@
+package render;
+
+import component.SpriteRenderer;
+import lombok.Getter;
+import scene.Settings;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Class: RenderLayer
+ * Author: rapto
+ * CreatedDate: 3/6/2025 : 11:32 PM
+ * Project: GameEngine
+ * Description: Indexes the RenderBatches of a single zIndex so a sprite can find a batch to join without scanning
+ * every batch in the scene.
+ */
+class RenderLayer {
+    @Getter
+    private final int                            zIndex;
+    private final int                            maxBatchSize;
+    private final BatchMode                      mode;
+    //Buffer QUAD batches are placed in when drawn indirectly, null when each batch owns its buffers
+    private final IndirectDrawBuffer             shared;
+    //All batches on this layer in creation order
+    @Getter
+    private final List<RenderBatch>              batches         = new ArrayList<>();
+    //Last batch each texture was added to.  Texture equality follows its id and size, which eviction changes
+    private final Map<Texture, RenderBatch>      textureBatches  = new IdentityHashMap<>();
+    //Batch with room for each texture array
+    private final Map<TextureArray, RenderBatch> arrayBatches    = new HashMap<>();
+    //Batches that may still have room for a sprite
+    private final BatchQueue                     withRoom        = new BatchQueue();
+    //Batches that may still have room for a sprite and a new texture
+    private final BatchQueue                     withTextureRoom = new BatchQueue();
+
+    /**
+     * Constructor for an empty layer.
+     *
+     * @param maxBatchSize max number of sprites per batch
+     * @param zIndex       zIndex of every batch on the layer
+     * @param mode         layout of the batches created by the layer
+     */
+    RenderLayer(int maxBatchSize, int zIndex, BatchMode mode) {
+        this(maxBatchSize, zIndex, mode, null);
+    }
+
+    /**
+     * Constructor for an empty layer whose QUAD batches may live in a shared buffer.
+     *
+     * @param maxBatchSize max number of sprites per batch
+     * @param zIndex       zIndex of every batch on the layer
+     * @param mode         layout of the batches created by the layer
+     * @param shared       buffer to place QUAD batches in, null for each batch to own its buffers
+     */
+    RenderLayer(int maxBatchSize, int zIndex, BatchMode mode, IndirectDrawBuffer shared) {
+        this.maxBatchSize = maxBatchSize;
+        this.zIndex = zIndex;
+        this.mode = mode;
+        this.shared = shared;
+    }
+
+    /**
+     * Adds the sprite to a batch that has room for it, allocating a new batch if none do.
+     *
+     * @param spr Sprite Component to be registered
+     * @return batch the sprite was added to
+     */
+    RenderBatch add(SpriteRenderer spr) {
+        if (spr.getTextureArray() != null) {
+            return addToArray(spr);
+        }
+        Texture tex = spr.getTexture();
+        RenderBatch batch;
+        if (tex == null) {
+            batch = withRoom.first(RenderBatch::hasRoom);
+        } else {
+            batch = textureBatches.get(tex);
+            if (batch == null || !batch.hasRoom() || !batch.hasSprite(tex)) {
+                batch = withTextureRoom.first(b -> b.hasRoom() && b.hasSpriteRoom());
+            }
+        }
+
+        if (batch == null) {
+            switch (mode) {
+                case INSTANCED:
+                    batch = new InstancedRenderBatch(maxBatchSize, zIndex, Settings.streamVertexData);
+                    break;
+                case PACKED:
+                    batch = new PackedRenderBatch(maxBatchSize, zIndex, Settings.streamVertexData);
+                    break;
+                default:
+                    batch = new RenderBatch(maxBatchSize, zIndex, Settings.streamVertexData && shared == null);
+            }
+            start(batch);
+            batches.add(batch);
+            withRoom.offer(batch);
+            withTextureRoom.offer(batch);
+        }
+        batch.addSprite(spr);
+        if (tex != null) {
+            textureBatches.put(tex, batch);
+        }
+        return batch;
+    }
+
+    /**
+     * Adds a sprite that is a layer of a texture array to a batch sampling that array.
+     *
+     * @param spr Sprite Component to be registered
+     * @return batch the sprite was added to
+     */
+    private RenderBatch addToArray(SpriteRenderer spr) {
+        TextureArray array = spr.getTextureArray();
+        RenderBatch batch = arrayBatches.get(array);
+        if (batch == null || !batch.hasRoom()) {
+            batch = new ArrayRenderBatch(maxBatchSize, zIndex, array, Settings.streamVertexData && shared == null);
+            start(batch);
+            batches.add(batch);
+            //Untextured sprites may share the batch, sprites with their own texture may not
+            withRoom.offer(batch);
+            arrayBatches.put(array, batch);
+        }
+        batch.addSprite(spr);
+        return batch;
+    }
+
+    /**
+     * Allocate the batch's GPU resources, placing QUAD layout batches in the shared buffer if there is one.
+     *
+     * @param batch new batch
+     */
+    private void start(RenderBatch batch) {
+        if (shared != null && mode == BatchMode.QUAD) {
+            batch.start(shared);
+        } else {
+            batch.start();
+        }
+    }
+
+    /**
+     * Removes the sprite from its batch.  Batches that become empty are disposed and dropped from the layer, the rest
+     * are made available for new sprites again.
+     *
+     * @param spr   Sprite Component to be unregistered
+     * @param batch batch the sprite was added to
+     */
+    void remove(SpriteRenderer spr, RenderBatch batch) {
+        batch.removeSprite(spr);
+        if (batch.isEmpty()) {
+            batch.dispose();
+            //RenderBatch equality is by zIndex, so remove this exact instance
+            batches.removeIf(b -> b == batch);
+            textureBatches.values()
+                          .removeIf(b -> b == batch);
+            arrayBatches.values()
+                        .removeIf(b -> b == batch);
+            withRoom.remove(batch);
+            withTextureRoom.remove(batch);
+        } else {
+            withRoom.offer(batch);
+            if (batch.hasSpriteRoom()) {
+                withTextureRoom.offer(batch);
+            }
+            if (batch instanceof ArrayRenderBatch arrayBatch) {
+                arrayBatches.put(arrayBatch.getTextureArray(), batch);
+            }
+        }
+    }
+
+    /**
+     * Check if the layer no longer holds any batches.
+     *
+     * @return true if empty
+     */
+    boolean isEmpty() {
+        return batches.isEmpty();
+    }
+
+    /**
+     * FIFO of candidate batches.  Entries that no longer qualify are dropped lazily when they reach the head, so
+     * lookups are O(1) amortized.
+     */
+    private static final class BatchQueue {
+        private final Deque<RenderBatch> queue   = new ArrayDeque<>();
+        private final Set<RenderBatch>   members = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        void offer(RenderBatch batch) {
+            if (members.add(batch)) {
+                queue.addLast(batch);
+            }
+        }
+
+        RenderBatch first(Predicate<RenderBatch> usable) {
+            while (!queue.isEmpty()) {
+                RenderBatch batch = queue.peekFirst();
+                if (usable.test(batch)) {
+                    return batch;
+                }
+                queue.pollFirst();
+                members.remove(batch);
+            }
+            return null;
+        }
+
+        void remove(RenderBatch batch) {
+            if (members.remove(batch)) {
+                queue.removeIf(b -> b == batch);
+            }
+        }
+    }
+}
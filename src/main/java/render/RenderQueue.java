@@ -0,0 +1,209 @@
+package render;
+
+import graphics.GLWrapper;
+import lombok.Getter;
+import scene.Settings;
+
+import java.util.Arrays;
+
+/**
+ * Class: RenderQueue
+ * Author: rapto
+ * CreatedDate: 4/1/2025 : 9:25 AM
+ * Project: GameEngine
+ * Description: Every draw of a frame, submitted by any subsystem with a 64 bit sort key and executed together once the
+ * frame is built.  The key packs, from the most significant bits down, the layer, the shader, the set of textures and
+ * the depth, so sorting the keys puts the layers in order and, within a layer, brings together the draws sharing a
+ * shader and then textures.  Keys are sorted with a radix sort, which costs a few passes over the keys however many
+ * draws are queued.
+ */
+public final class RenderQueue {
+    //Bits per key field, the layer being the most significant
+    private static final int             FIELD_BITS      = 16;
+    private static final int             FIELD_MASK      = (1 << FIELD_BITS) - 1;
+    private static final int             DEPTH_SHIFT     = 0;
+    private static final int             TEXTURES_SHIFT  = DEPTH_SHIFT + FIELD_BITS;
+    private static final int             SHADER_SHIFT    = TEXTURES_SHIFT + FIELD_BITS;
+    private static final int             LAYER_SHIFT     = SHADER_SHIFT + FIELD_BITS;
+    //Layers reserved for the editor grid beneath every sprite and debug lines above them
+    public static final  int             GRID_LAYER      = Short.MIN_VALUE;
+    public static final  int             DEBUG_LAYER     = Short.MAX_VALUE;
+    //Range other layers are clamped to, so they never share a reserved layer
+    public static final  int             MIN_LAYER       = GRID_LAYER + 1;
+    public static final  int             MAX_LAYER       = DEBUG_LAYER - 1;
+    //Keys are sorted a byte at a time
+    private static final int             RADIX_BITS      = 8;
+    private static final int             RADIX           = 1 << RADIX_BITS;
+    private static final int             PASSES          = Long.SIZE / RADIX_BITS;
+    //Per pass count of keys with each byte value
+    private static final int[][]         counts          = new int[PASSES][RADIX];
+    //Submitted keys and commands, in submission order
+    private static       long[]          keys            = new long[256];
+    private static       RenderCommand[] commands        = new RenderCommand[256];
+    //Command indices in key order, and the scratch each radix pass writes into
+    private static       int[]           order           = new int[256];
+    private static       int[]           scratch         = new int[256];
+    private static       int             size;
+    //Draws executed and the shader changes between them during the last execute
+    @Getter
+    private static       int             lastCommandCount;
+    @Getter
+    private static       int             lastShaderChanges;
+
+    private RenderQueue() {
+        //Hide Static Class Constructor
+    }
+
+    /**
+     * Pack a sort key for a draw layer.  The layer is clamped to MIN_LAYER through MAX_LAYER, the other fields are
+     * truncated to 16 bits.
+     *
+     * @param layer    draw layer, lower layers are drawn first
+     * @param shader   shader program id
+     * @param textures id of the set of textures bound for the draw
+     * @param depth    order of the draw within draws sharing the rest of the key
+     * @return sort key
+     */
+    public static long key(int layer, int shader, int textures, int depth) {
+        return pack(Math.max(MIN_LAYER, Math.min(MAX_LAYER, layer)), shader, textures, depth);
+    }
+
+    /**
+     * Pack a sort key on the grid or debug layer, which key never hands out.
+     *
+     * @param layer    GRID_LAYER or DEBUG_LAYER
+     * @param shader   shader program id
+     * @param textures id of the set of textures bound for the draw
+     * @param depth    order of the draw within draws sharing the rest of the key
+     * @return sort key
+     */
+    public static long reservedKey(int layer, int shader, int textures, int depth) {
+        assert layer == GRID_LAYER || layer == DEBUG_LAYER : "ERROR : RenderQueue : " + layer + " is not reserved";
+        return pack(layer, shader, textures, depth);
+    }
+
+    /**
+     * Pack the key fields, the layer is offset so negative layers sort first.
+     *
+     * @param layer    layer within the short range
+     * @param shader   shader program id
+     * @param textures id of the set of textures bound for the draw
+     * @param depth    order of the draw within draws sharing the rest of the key
+     * @return sort key
+     */
+    private static long pack(int layer, int shader, int textures, int depth) {
+        int biasedLayer = layer - Short.MIN_VALUE;
+        return (long) biasedLayer << LAYER_SHIFT
+               | (long) (shader & FIELD_MASK) << SHADER_SHIFT
+               | (long) (textures & FIELD_MASK) << TEXTURES_SHIFT
+               | (long) (depth & FIELD_MASK) << DEPTH_SHIFT;
+    }
+
+    /**
+     * Queue a command for this frame.
+     *
+     * @param key     sort key built with key
+     * @param command command to run when the queue is executed
+     */
+    public static void submit(long key, RenderCommand command) {
+        if (size == keys.length) {
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            commands = Arrays.copyOf(commands, capacity);
+            order = new int[capacity];
+            scratch = new int[capacity];
+        }
+        keys[size] = key;
+        commands[size] = command;
+        size++;
+    }
+
+    /**
+     * Run every queued command in key order, commands with equal keys in submission order, then empty the queue.
+     */
+    public static void execute() {
+        sort();
+        int previousShader = -1;
+        int shaderChanges = 0;
+        for (int i = 0; i < size; i++) {
+            int index = order[i];
+            int shader = (int) (keys[index] >>> SHADER_SHIFT) & FIELD_MASK;
+            if (shader != previousShader) {
+                shaderChanges++;
+                previousShader = shader;
+            }
+            commands[index].render();
+            //Released so nothing drawn once is kept alive by the queue
+            commands[index] = null;
+        }
+        lastCommandCount = size;
+        lastShaderChanges = shaderChanges;
+        size = 0;
+
+        //Commands leave their program bound so the next one sharing it doesn't switch, unbind once at the end
+        if (lastCommandCount > 0) {
+            GLWrapper gl = Settings.graphicsImpl;
+            gl.glUseProgram(0);
+        }
+    }
+
+    /**
+     * Number of commands queued since the last execute.
+     *
+     * @return queued command count
+     */
+    public static int size() {
+        return size;
+    }
+
+    /**
+     * Drop every queued command without running it.
+     */
+    public static void clear() {
+        Arrays.fill(commands, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Fill order with the command indices sorted by key.  Least significant byte first, each pass a stable counting
+     * sort, and passes where every key has the same byte are skipped since they wouldn't move anything.
+     */
+    private static void sort() {
+        for (int[] count : counts) {
+            Arrays.fill(count, 0);
+        }
+        for (int i = 0; i < size; i++) {
+            long key = keys[i];
+            for (int pass = 0; pass < PASSES; pass++) {
+                counts[pass][(int) (key >>> (pass * RADIX_BITS)) & (RADIX - 1)]++;
+            }
+            order[i] = i;
+        }
+
+        int[] from = order;
+        int[] to = scratch;
+        for (int pass = 0; pass < PASSES; pass++) {
+            int[] count = counts[pass];
+            int shift = pass * RADIX_BITS;
+            if (count[(int) (keys[0] >>> shift) & (RADIX - 1)] == size) {
+                continue;
+            }
+            //Counts become the first position of each byte value
+            int position = 0;
+            for (int b = 0; b < RADIX; b++) {
+                int c = count[b];
+                count[b] = position;
+                position += c;
+            }
+            for (int i = 0; i < size; i++) {
+                int index = from[i];
+                to[count[(int) (keys[index] >>> shift) & (RADIX - 1)]++] = index;
+            }
+            int[] swap = from;
+            from = to;
+            to = swap;
+        }
+        order = from;
+        scratch = to;
+    }
+}
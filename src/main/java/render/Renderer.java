@@ -1,11 +1,15 @@
 package render;
 
 import component.SpriteRenderer;
+import lombok.Getter;
 import rubicon.GameObject;
+import rubicon.Window;
+import scene.Settings;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Class: Renderer
@@ -19,8 +23,62 @@ public class Renderer {
     // Max number of elements to batch together
     private static final int MAX_BATCH_SIZE = 1000;
 
-    //Stores references to all RenderBatch elements
-    private final List<RenderBatch> batches = new ArrayList<>();
+    //Stores all RenderBatch elements grouped by zIndex, iterated in draw order
+    private final TreeMap<Integer, RenderLayer> layers = new TreeMap<>();
+
+    //Tracks which batch each registered sprite lives in
+    private final Map<SpriteRenderer, RenderBatch> spriteBatches = new HashMap<>();
+
+    //How sprites are laid out and drawn by this Renderer's batches
+    @Getter
+    private final BatchMode batchMode;
+
+    //Tracks which sprites overlap the camera, null when every sprite is drawn
+    private final SpriteCuller culler;
+
+    //Shared buffers the batches are drawn from with multi-draw indirect calls, null when each batch draws itself
+    private final IndirectDrawBuffer indirect;
+
+    /**
+     * Default Constructor using the batch mode configured in Settings.
+     */
+    public Renderer() {
+        this(Settings.batchMode);
+    }
+
+    /**
+     * Constructor selecting how sprites are laid out and drawn.
+     *
+     * @param batchMode QUAD for four vertices per sprite, INSTANCED for one instance record per sprite
+     */
+    public Renderer(BatchMode batchMode) {
+        this(batchMode, Settings.frustumCulling);
+    }
+
+    /**
+     * Constructor selecting how sprites are laid out and whether sprites outside the camera are skipped.
+     *
+     * @param batchMode QUAD for four vertices per sprite, INSTANCED for one instance record per sprite
+     * @param culling   true to only batch sprites overlapping the camera's view
+     */
+    public Renderer(BatchMode batchMode, boolean culling) {
+        this(batchMode, culling, Settings.multiDrawIndirect);
+    }
+
+    /**
+     * Constructor also selecting whether batches are drawn indirectly from shared buffers.
+     *
+     * @param batchMode QUAD for four vertices per sprite, INSTANCED for one instance record per sprite
+     * @param culling   true to only batch sprites overlapping the camera's view
+     * @param multiDraw true to keep QUAD batches in one shared buffer and draw them with multi-draw indirect calls,
+     *                  ignored by the other modes
+     */
+    public Renderer(BatchMode batchMode, boolean culling, boolean multiDraw) {
+        this.batchMode = batchMode;
+        this.culler = culling ? new SpriteCuller(Settings.GRID_WIDTH, Settings.GRID_HEIGHT, this::addToBatch,
+                                                 this::removeFromBatch) : null;
+        this.indirect = multiDraw && batchMode == BatchMode.QUAD ? new IndirectDrawBuffer(MAX_BATCH_SIZE) : null;
+    }
 
     /**
      * Adds a GameObject to the Renderer.
@@ -35,37 +93,149 @@ public class Renderer {
     }
 
     /**
-     * Attempts to add give SpriteRenderer to an available RenderBatch or allocates a new one if necessary.
+     * Registers the SpriteRenderer, batching it right away unless the culler finds it outside the view.
      *
      * @param spr Sprite Component to be registered
      */
     private void add(SpriteRenderer spr) {
-        boolean isAdded = false;
-        for (RenderBatch batch : batches) {
-            if (batch.hasRoom() && batch.getZIndex() == spr.getGameObject()
-                                                           .getZIndex()) {
-                Texture tex = spr.getTexture();
-                if (tex == null || (batch.hasSprite(tex) || batch.hasSpriteRoom())) {
-                    batch.addSprite(spr);
-                    isAdded = true;
-                    break;
-                }
-            }
+        if (culler != null) {
+            culler.add(spr);
+        } else {
+            addToBatch(spr);
+        }
+    }
+
+    /**
+     * Adds the SpriteRenderer to an available RenderBatch on its zIndex layer, which allocates a new batch if
+     * necessary.
+     *
+     * @param spr Sprite Component to be batched
+     */
+    private void addToBatch(SpriteRenderer spr) {
+        int zIndex = spr.getGameObject()
+                        .getZIndex();
+        RenderLayer layer = layers.computeIfAbsent(zIndex, z -> new RenderLayer(MAX_BATCH_SIZE, z, batchMode,
+                                                                                  indirect));
+        spriteBatches.put(spr, layer.add(spr));
+    }
+
+    /**
+     * Removes a GameObject from the Renderer.
+     *
+     * @param go GameObject we no longer wish to render.
+     */
+    public void remove(GameObject go) {
+        SpriteRenderer spr = go.getComponent(SpriteRenderer.class);
+        if (spr != null) {
+            remove(spr);
+        }
+    }
+
+    /**
+     * Unregisters the SpriteRenderer, dropping it from its batch if it is visible.
+     *
+     * @param spr Sprite Component to be unregistered
+     */
+    private void remove(SpriteRenderer spr) {
+        if (culler != null) {
+            culler.remove(spr);
+        } else {
+            removeFromBatch(spr);
+        }
+    }
+
+    /**
+     * Removes the SpriteRenderer from its RenderBatch, releasing the batch and its GPU resources once it's empty.
+     *
+     * @param spr Sprite Component to be dropped from its batch
+     */
+    private void removeFromBatch(SpriteRenderer spr) {
+        RenderBatch batch = spriteBatches.remove(spr);
+        if (batch == null) {
+            return;
         }
-        if (!isAdded) {
-            RenderBatch rb = new RenderBatch(MAX_BATCH_SIZE, spr.getGameObject()
-                                                                .getZIndex());
-            rb.start();
-            batches.add(rb);
-            rb.addSprite(spr);
-            Collections.sort(batches);
+        RenderLayer layer = layers.get(batch.getZIndex());
+        layer.remove(spr, batch);
+        if (layer.isEmpty()) {
+            layers.remove(batch.getZIndex());
         }
     }
 
     /**
-     * Runs the render method on each RenderBatch Object
+     * Submits each RenderBatch to the RenderQueue, which draws them once the frame is built.  When drawing
+     * indirectly, the batches of each layer sharing a shader and textures are submitted as a single draw instead.
      */
     public void render() {
-        batches.forEach(RenderBatch::render);
+        if (culler != null) {
+            culler.update(Window.getScene()
+                                .getCamera());
+        }
+        if (indirect != null) {
+            indirect.beginFrame();
+            for (RenderLayer layer : layers.values()) {
+                indirect.submit(layer.getBatches());
+            }
+            return;
+        }
+        for (RenderLayer layer : layers.values()) {
+            List<RenderBatch> batches = layer.getBatches();
+            for (int i = 0; i < batches.size(); i++) {
+                RenderQueue.submit(batches.get(i)
+                                          .sortKey(i), batches.get(i));
+            }
+        }
+    }
+
+    /**
+     * Release every batch and the shared buffers they were drawn from.  The Renderer draws nothing afterwards.
+     */
+    public void dispose() {
+        for (RenderLayer layer : layers.values()) {
+            layer.getBatches()
+                 .forEach(RenderBatch::dispose);
+        }
+        layers.clear();
+        spriteBatches.clear();
+        if (indirect != null) {
+            indirect.dispose();
+        }
+    }
+
+    /**
+     * Total bytes of vertex data sent to the GPU by all batches during the last render.
+     *
+     * @return uploaded bytes for the frame
+     */
+    public long getUploadedBytes() {
+        long total = 0;
+        for (RenderLayer layer : layers.values()) {
+            for (RenderBatch batch : layer.getBatches()) {
+                total += batch.getUploadedBytes();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Number of sprites currently in a batch.
+     *
+     * @return batched sprite count
+     */
+    public int getBatchedSpriteCount() {
+        return spriteBatches.size();
+    }
+
+    /**
+     * Number of RenderBatches currently allocated.
+     *
+     * @return batch count
+     */
+    public int getBatchCount() {
+        int count = 0;
+        for (RenderLayer layer : layers.values()) {
+            count += layer.getBatches()
+                          .size();
+        }
+        return count;
     }
 }
@@ -9,11 +9,15 @@ import scene.Settings;
 
 import java.io.IOException;
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.lwjgl.opengl.GL11.GL_FALSE;
 import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL31.GL_INVALID_INDEX;
 
 /**
  * Class: Shader
@@ -24,10 +28,17 @@ import static org.lwjgl.opengl.GL20.*;
  */
 public class Shader {
     // Constant for parsing shader files used to key on type preprocessor
-    public static final  String TYPE_CONSTANT = "#type ";
-    private static final Logger log           = LogManager.getLogger(Shader.class);
+    public static final  String      TYPE_CONSTANT = "#type ";
+    private static final Logger      log           = LogManager.getLogger(Shader.class);
+    //Scratch buffers reused by every upload, all uploads happen on the GL thread
+    private static final FloatBuffer mat4Buffer    = BufferUtils.createFloatBuffer(16);
+    private static final FloatBuffer mat3Buffer    = BufferUtils.createFloatBuffer(9);
+    private static final IntBuffer   sizeBuffer    = BufferUtils.createIntBuffer(1);
+    private static final IntBuffer   typeBuffer    = BufferUtils.createIntBuffer(1);
     //Shader filepath
-    private final        String filePath;
+    private final        String      filePath;
+    //Uniform locations by name, filled when linking and by lookups of names the program didn't list
+    private final Map<String, Integer> uniformLocations = new HashMap<>();
     GLWrapper gl;
     //Shader programId registered on GPU
     private int     shaderProgramId;
@@ -44,53 +55,109 @@ public class Shader {
      * @param filePath Shader file combining vertex and fragment sources.
      */
     public Shader(String filePath) {
+        this(filePath, read(filePath));
+    }
+
+    /**
+     * Constructor that parses out the vertex and fragment sources of an already loaded shader file.
+     *
+     * @param filePath Path the shader is registered under.
+     * @param source   Shader file contents combining vertex and fragment sources, null if they couldn't be read.
+     */
+    public Shader(String filePath, String source) {
         gl = Settings.graphicsImpl;
         this.filePath = filePath;
+        if (source == null) {
+            return;
+        }
 
-        try {
-            //Load shader file
-            String source = new String(Files.readAllBytes(Paths.get(filePath)));
-
-            //split the source on the type pre-processor
-            String[] split = source.split("(#type)( )+([a-zA-Z]+)");
-
-            int i = 1;
-            int index;
-            int eol = 0;
-            String shaderType;
-            /*
-                Iterate through the source looking for type declarations, determine the appropriate type
-                and store the resulting regex parsed index in the appropriate source variable.
-             */
-            do {
-                index = source.indexOf(TYPE_CONSTANT, eol) + TYPE_CONSTANT.length();
-                eol = source.indexOf("\n", index);
-                if (index >= 6) {
-                    shaderType = source.substring(index, eol)
-                                       .trim();
-                    switch (shaderType) {
-                        case "vertex":
-                            this.vertexSource = split[i++];
-                            break;
-                        case "fragment":
-                            this.fragmentSource = split[i++];
-                            break;
-                        default:
-                            assert false : "Unsupported shader type detected " + shaderType;
-                    }
+        //split the source on the type pre-processor
+        String[] split = source.split("(#type)( )+([a-zA-Z]+)");
+
+        int i = 1;
+        int index;
+        int eol = 0;
+        String shaderType;
+        /*
+            Iterate through the source looking for type declarations, determine the appropriate type
+            and store the resulting regex parsed index in the appropriate source variable.
+         */
+        do {
+            index = source.indexOf(TYPE_CONSTANT, eol) + TYPE_CONSTANT.length();
+            eol = source.indexOf("\n", index);
+            if (index >= 6) {
+                shaderType = source.substring(index, eol)
+                                   .trim();
+                switch (shaderType) {
+                    case "vertex":
+                        this.vertexSource = split[i++];
+                        break;
+                    case "fragment":
+                        this.fragmentSource = split[i++];
+                        break;
+                    default:
+                        assert false : "Unsupported shader type detected " + shaderType;
                 }
-            } while (index >= TYPE_CONSTANT.length());
+            }
+        } while (index >= TYPE_CONSTANT.length());
+    }
 
+    /**
+     * Load a shader file.
+     *
+     * @param filePath Shader file to load
+     * @return file contents, null if it couldn't be read
+     */
+    private static String read(String filePath) {
+        try {
+            return new String(Files.readAllBytes(Paths.get(filePath)));
         } catch (IOException e) {
             log.error("Error: Could not open file for shader {}", filePath, e);
             assert false;
+            return null;
         }
     }
 
     /**
-     * Compile and Link the verted and fragment shader sources
+     * Compile and Link the vertex and fragment shader sources, restoring the program from the shared
+     * ShaderBinaryCache instead when it holds a binary built from the same sources.
      */
     public void compileAndLinkShader() {
+        compileAndLinkShader(ShaderBinaryCache.getDefault());
+    }
+
+    /**
+     * Compile and Link the vertex and fragment shader sources unless the cache can restore the program.
+     *
+     * @param cache Cache to restore the linked program from and store it in, null to always compile
+     */
+    public void compileAndLinkShader(ShaderBinaryCache cache) {
+        shaderProgramId = gl.glCreateProgram();
+        if (cache != null && cache.load(shaderProgramId, vertexSource, fragmentSource)) {
+            log.info("{} restored from shader binary cache, {} ms saved so far", filePath,
+                     cache.getSavedNanos() / 1_000_000);
+        } else {
+            long start = System.nanoTime();
+            if (compileAndLink(cache) && cache != null) {
+                cache.store(shaderProgramId, vertexSource, fragmentSource, System.nanoTime() - start);
+            }
+        }
+
+        loadUniformLocations();
+        //Read the camera matrices from the shared uniform buffer if the shader declares them
+        int cameraBlock = gl.glGetUniformBlockIndex(shaderProgramId, CameraUniformBuffer.BLOCK_NAME);
+        if (cameraBlock != GL_INVALID_INDEX) {
+            gl.glUniformBlockBinding(shaderProgramId, cameraBlock, CameraUniformBuffer.BINDING);
+        }
+    }
+
+    /**
+     * Compile the vertex and fragment sources and link them into the program.
+     *
+     * @param cache Cache the program will be stored in, null if it won't be
+     * @return true if the program linked
+     */
+    private boolean compileAndLink(ShaderBinaryCache cache) {
         // =========================================
         // Generate and Compile Shader and Fragments
         // =========================================
@@ -126,9 +193,11 @@ public class Shader {
         // ========================
         // Link Shader and Fragment
         // ========================
-        shaderProgramId = gl.glCreateProgram();
         gl.glAttachShader(shaderProgramId, vertexID);
         gl.glAttachShader(shaderProgramId, fragmentID);
+        if (cache != null) {
+            cache.prepare(shaderProgramId);
+        }
         gl.glLinkProgram(shaderProgramId);
 
         success = gl.glGetProgrami(shaderProgramId, GL_LINK_STATUS);
@@ -137,17 +206,63 @@ public class Shader {
             log.error("{} 'defaultShader.glsl'\n\tLinking of Shaders Failed.", filePath);
             log.error(gl.glGetProgramInfoLog(shaderProgramId, len));
             assert false;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Fill the location table with every active uniform of the linked program.  Arrays are listed by the driver as
+     * name[0], so they're registered under their plain name as well.
+     */
+    private void loadUniformLocations() {
+        uniformLocations.clear();
+        int count = gl.glGetProgrami(shaderProgramId, GL_ACTIVE_UNIFORMS);
+        for (int i = 0; i < count; i++) {
+            String name = gl.glGetActiveUniform(shaderProgramId, i, sizeBuffer, typeBuffer);
+            int location = gl.glGetUniformLocation(shaderProgramId, name);
+            //Members of uniform blocks have no location
+            if (name == null || location < 0) {
+                continue;
+            }
+            uniformLocations.put(name, location);
+            if (name.endsWith("[0]")) {
+                uniformLocations.put(name.substring(0, name.length() - 3), location);
+            }
         }
     }
 
+    /**
+     * Look up the location of a uniform, querying and remembering it if it wasn't found when linking.
+     *
+     * @param varName name of variable
+     * @return location of the uniform, -1 if the program doesn't use it
+     */
+    private int getUniformLocation(String varName) {
+        Integer location = uniformLocations.get(varName);
+        if (location == null) {
+            location = gl.glGetUniformLocation(shaderProgramId, varName);
+            uniformLocations.put(varName, location);
+        }
+        return location;
+    }
+
+    /**
+     * Retrieve the program id registered on the GPU, 0 until compiled.
+     *
+     * @return shader program id
+     */
+    public int getShaderProgramId() {
+        return shaderProgramId;
+    }
+
     /**
      * Responsible for telling the system to begin using the linked shader.
      */
     public void use() {
-        if (!inUse) {
-            gl.glUseProgram(shaderProgramId);
-            inUse = true;
-        }
+        //Always issued, another shader may have been bound since; the GL state cache drops it if redundant
+        gl.glUseProgram(shaderProgramId);
+        inUse = true;
     }
 
     /**
@@ -167,11 +282,10 @@ public class Shader {
      * @param mat     Matrix4f we wish to set
      */
     public void uploadMat4f(String varName, Matrix4f mat) {
-        int varLocation = gl.glGetUniformLocation(shaderProgramId, varName);
+        int varLocation = getUniformLocation(varName);
         use();
-        FloatBuffer matBuffer = BufferUtils.createFloatBuffer(16);
-        mat.get(matBuffer); // This converts the matrix into a 1D array, a 4f Matrix is 4x4 -> 16 1D long Array
-        gl.glUniformMatrix4fv(varLocation, false, matBuffer);
+        mat.get(mat4Buffer); // This converts the matrix into a 1D array, a 4f Matrix is 4x4 -> 16 1D long Array
+        gl.glUniformMatrix4fv(varLocation, false, mat4Buffer);
     }
 
     /**
@@ -181,11 +295,10 @@ public class Shader {
      * @param mat     Matrix3f we wish to set
      */
     public void uploadMat3f(String varName, Matrix3f mat) {
-        int varLocation = gl.glGetUniformLocation(shaderProgramId, varName);
+        int varLocation = getUniformLocation(varName);
         use();
-        FloatBuffer matBuffer = BufferUtils.createFloatBuffer(9);
-        mat.get(matBuffer); // This converts the matrix into a 1D array, a 4f Matrix is 4x4 -> 16 1D long Array
-        gl.glUniformMatrix3fv(varLocation, false, matBuffer);
+        mat.get(mat3Buffer); // This converts the matrix into a 1D array, a 3f Matrix is 3x3 -> 9 1D long Array
+        gl.glUniformMatrix3fv(varLocation, false, mat3Buffer);
     }
 
     /**
@@ -195,7 +308,7 @@ public class Shader {
      * @param vec     Vector4f we wish to set
      */
     public void uploadVec4f(String varName, Vector4f vec) {
-        int varLocation = gl.glGetUniformLocation(shaderProgramId, varName);
+        int varLocation = getUniformLocation(varName);
         use();
         gl.glUniform4f(varLocation, vec.x, vec.y, vec.z, vec.w);
     }
@@ -207,7 +320,7 @@ public class Shader {
      * @param vec     Vector3f we wish to set
      */
     public void uploadVec3f(String varName, Vector3f vec) {
-        int varLocation = gl.glGetUniformLocation(shaderProgramId, varName);
+        int varLocation = getUniformLocation(varName);
         use();
         gl.glUniform3f(varLocation, vec.x, vec.y, vec.z);
     }
@@ -219,7 +332,7 @@ public class Shader {
      * @param vec     Vector2f we wish to set
      */
     public void uploadVec2f(String varName, Vector2f vec) {
-        int varLocation = gl.glGetUniformLocation(shaderProgramId, varName);
+        int varLocation = getUniformLocation(varName);
         use();
         gl.glUniform2f(varLocation, vec.x, vec.y);
     }
@@ -231,7 +344,7 @@ public class Shader {
      * @param val     Vector4f we wish to set
      */
     public void uploadFloat(String varName, float val) {
-        int varLocation = gl.glGetUniformLocation(shaderProgramId, varName);
+        int varLocation = getUniformLocation(varName);
         use();
         gl.glUniform1f(varLocation, val);
     }
@@ -243,7 +356,7 @@ public class Shader {
      * @param val     int we wish to set
      */
     public void uploadInt(String varName, int val) {
-        int varLocation = gl.glGetUniformLocation(shaderProgramId, varName);
+        int varLocation = getUniformLocation(varName);
         use();
         gl.glUniform1i(varLocation, val);
     }
@@ -256,7 +369,7 @@ public class Shader {
      * @param slot    Texture slot we're forwarding.
      */
     public void uploadTexture(String varName, int slot) {
-        int varLocation = gl.glGetUniformLocation(shaderProgramId, varName);
+        int varLocation = getUniformLocation(varName);
         use();
         gl.glUniform1i(varLocation, slot);
     }
@@ -268,7 +381,7 @@ public class Shader {
      * @param slots   Texture slots we're forwarding.
      */
     public void uploadIntArray(String varName, int[] slots) {
-        int varLocation = gl.glGetUniformLocation(shaderProgramId, varName);
+        int varLocation = getUniformLocation(varName);
         use();
         gl.glUniform1iv(varLocation, slots);
     }
@@ -0,0 +1,259 @@
+package render;
+
+import graphics.GLWrapper;
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.lwjgl.BufferUtils;
+import scene.Settings;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import static org.lwjgl.opengl.GL41C.*;
+
+/**
+ * Class: ShaderBinaryCache
+ * Author: rapto
+ * CreatedDate: 3/22/2025 : 11:05 AM
+ * Project: GameEngine
+ * Description: Stores linked shader programs on disk with glGetProgramBinary and restores them with glProgramBinary,
+ * skipping compilation on later launches.  Entries are keyed by a hash of the shader source and the driver's vendor,
+ * renderer and version strings, so editing a shader or updating the driver simply misses and recompiles.
+ */
+public class ShaderBinaryCache {
+    private static final Logger            log            = LogManager.getLogger(ShaderBinaryCache.class);
+    //Marks a cache file, "RSBC"
+    private static final int               MAGIC          = 0x52534243;
+    //Bumped whenever the file layout changes
+    private static final int               FILE_VERSION   = 1;
+    //Size in bytes of the SHA-256 key
+    private static final int               KEY_SIZE       = 32;
+    //Magic, version, key, binary format, compile time and binary length
+    private static final int               HEADER_SIZE    = 2 * Integer.BYTES + KEY_SIZE + Integer.BYTES + Long.BYTES
+                                                            + Integer.BYTES;
+    //Cache used by Shaders loaded through the AssetPool, created on first use
+    private static       ShaderBinaryCache defaultCache;
+    //Directory holding one file per cached program
+    private final        Path              directory;
+    //Driver identification mixed into every key, read on first use
+    private              String            driver;
+    //True if the driver offers at least one program binary format, null until checked
+    private              Boolean           supported;
+    @Getter
+    private              int               hits;
+    @Getter
+    private              int               misses;
+    //Compile and link time avoided by cache hits, less the time spent loading them
+    @Getter
+    private              long              savedNanos;
+
+    /**
+     * Constructor for a cache stored in the given directory.  Nothing is touched until a program is loaded or stored.
+     *
+     * @param directory Directory for cache files, created on first store
+     */
+    public ShaderBinaryCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Retrieve the cache shared by all shaders, stored in Settings.shaderCacheDirectory.
+     *
+     * @return shared cache, null if Settings.cacheShaderBinaries is off
+     */
+    public static ShaderBinaryCache getDefault() {
+        if (!Settings.cacheShaderBinaries) {
+            return null;
+        }
+        if (defaultCache == null) {
+            defaultCache = new ShaderBinaryCache(Paths.get(Settings.shaderCacheDirectory));
+        }
+        return defaultCache;
+    }
+
+    /**
+     * Check whether the driver can save and restore program binaries.
+     *
+     * @return true if program binaries are supported
+     */
+    public boolean isSupported() {
+        if (supported == null) {
+            supported = Settings.graphicsImpl.glGetInteger(GL_NUM_PROGRAM_BINARY_FORMATS) > 0;
+        }
+        return supported;
+    }
+
+    /**
+     * Try to restore a previously stored program into the given, not yet linked, program.
+     *
+     * @param program        Program to load the binary into
+     * @param vertexSource   Vertex shader source the program is built from
+     * @param fragmentSource Fragment shader source the program is built from
+     * @return true if the program was restored and linked, false if it must be compiled from source.
+     */
+    public boolean load(int program, String vertexSource, String fragmentSource) {
+        if (!isSupported()) {
+            return false;
+        }
+        long start = System.nanoTime();
+        byte[] key = key(vertexSource, fragmentSource);
+        Path file = file(key);
+        if (!Files.exists(file)) {
+            misses++;
+            return false;
+        }
+
+        GLWrapper gl = Settings.graphicsImpl;
+        try {
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (data.getInt() != MAGIC || data.getInt() != FILE_VERSION) {
+                throw new IOException("Unrecognized header");
+            }
+            byte[] storedKey = new byte[KEY_SIZE];
+            data.get(storedKey);
+            if (!Arrays.equals(storedKey, key)) {
+                throw new IOException("Key mismatch");
+            }
+            int binaryFormat = data.getInt();
+            long compileNanos = data.getLong();
+            int length = data.getInt();
+            if (length <= 0 || length != data.remaining()) {
+                throw new IOException("Truncated binary");
+            }
+
+            //GL needs the binary in native memory
+            ByteBuffer binary = BufferUtils.createByteBuffer(length);
+            binary.put(data)
+                  .flip();
+            gl.glProgramBinary(program, binaryFormat, binary);
+            if (gl.glGetProgrami(program, GL_LINK_STATUS) == GL_FALSE) {
+                //Usually the driver changed in a way its version string didn't reflect
+                throw new IOException("Driver rejected binary");
+            }
+
+            hits++;
+            savedNanos += Math.max(0, compileNanos - (System.nanoTime() - start));
+            return true;
+        } catch (IOException | BufferUnderflowException e) {
+            log.warn("Discarding shader binary {}: {}", file, e.getMessage());
+            delete(file);
+            misses++;
+            return false;
+        }
+    }
+
+    /**
+     * Mark a program so the driver keeps its binary retrievable.  Must be called before linking.
+     *
+     * @param program Program about to be linked
+     */
+    public void prepare(int program) {
+        if (isSupported()) {
+            Settings.graphicsImpl.glProgramParameteri(program, GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL_TRUE);
+        }
+    }
+
+    /**
+     * Save a freshly linked program.  Failures are logged and otherwise ignored, the shader is compiled again next time.
+     *
+     * @param program        Linked program
+     * @param vertexSource   Vertex shader source the program was built from
+     * @param fragmentSource Fragment shader source the program was built from
+     * @param compileNanos   Time spent compiling and linking, reported as saved by later hits
+     */
+    public void store(int program, String vertexSource, String fragmentSource, long compileNanos) {
+        if (!isSupported()) {
+            return;
+        }
+        GLWrapper gl = Settings.graphicsImpl;
+        int length = gl.glGetProgrami(program, GL_PROGRAM_BINARY_LENGTH);
+        if (length <= 0) {
+            return;
+        }
+        IntBuffer lengthOut = BufferUtils.createIntBuffer(1);
+        IntBuffer formatOut = BufferUtils.createIntBuffer(1);
+        ByteBuffer binary = BufferUtils.createByteBuffer(length);
+        gl.glGetProgramBinary(program, lengthOut, formatOut, binary);
+        length = lengthOut.get(0);
+        if (length <= 0) {
+            return;
+        }
+        binary.limit(length);
+
+        byte[] key = key(vertexSource, fragmentSource);
+        ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE + length);
+        data.putInt(MAGIC)
+            .putInt(FILE_VERSION)
+            .put(key)
+            .putInt(formatOut.get(0))
+            .putLong(compileNanos)
+            .putInt(length)
+            .put(binary);
+
+        Path file = file(key);
+        try {
+            Files.createDirectories(directory);
+            //Write beside the final file and move it into place so a crash never leaves a partial entry
+            Path temp = Files.createTempFile(directory, "shader", ".tmp");
+            Files.write(temp, data.array());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Unable to store shader binary {}", file, e);
+        }
+    }
+
+    /**
+     * Hash the sources together with the driver identification.
+     *
+     * @param vertexSource   Vertex shader source
+     * @param fragmentSource Fragment shader source
+     * @return SHA-256 digest
+     */
+    byte[] key(String vertexSource, String fragmentSource) {
+        if (driver == null) {
+            GLWrapper gl = Settings.graphicsImpl;
+            driver = gl.glGetString(GL_VENDOR) + "\n" + gl.glGetString(GL_RENDERER) + "\n"
+                     + gl.glGetString(GL_VERSION);
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(driver.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(vertexSource)
+                                .getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(fragmentSource)
+                                .getBytes(StandardCharsets.UTF_8));
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            //Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Path file(byte[] key) {
+        return directory.resolve(HexFormat.of()
+                                          .formatHex(key) + ".bin");
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Unable to delete shader binary {}", file, e);
+        }
+    }
+}
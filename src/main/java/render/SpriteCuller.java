@@ -0,0 +1,294 @@
+package render;
+
+import component.SpriteRenderer;
+import lombok.Getter;
+import rubicon.Camera;
+import rubicon.Transform;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Class: SpriteCuller
+ * Author: rapto
+ * CreatedDate: 3/18/2025 : 8:47 PM
+ * Project: GameEngine
+ * Description: Keeps registered sprites in a uniform grid and tracks which of them overlap the camera's view.  Only
+ * sprites that reported turning dirty and grid cells that entered or left the view are visited each frame, sprites
+ * changing visibility are handed to the show and hide callbacks.
+ */
+class SpriteCuller {
+    private final int                             cellWidth;
+    private final int                             cellHeight;
+    //Sprites overlapping each cell, keyed by packed cell coordinates
+    private final Map<Long, List<SpriteRenderer>> cells   = new HashMap<>();
+    //Cell range and visibility of each registered sprite
+    private final Map<SpriteRenderer, Entry>      entries = new HashMap<>();
+    //Registered sprites that turned dirty since the last update
+    private final List<SpriteRenderer>            dirty   = new ArrayList<>();
+    private final Consumer<SpriteRenderer>        show;
+    private final Consumer<SpriteRenderer>        hide;
+    //Cell range covered by the camera, only valid once hasView is set
+    private final CellRange                       view    = new CellRange();
+    private       boolean                         hasView;
+    @Getter
+    private       int                             visibleCount;
+
+    /**
+     * Constructor for an empty grid.
+     *
+     * @param cellWidth  width of a grid cell in world units
+     * @param cellHeight height of a grid cell in world units
+     * @param show       called when a sprite enters the view
+     * @param hide       called when a sprite leaves the view
+     */
+    SpriteCuller(int cellWidth, int cellHeight, Consumer<SpriteRenderer> show, Consumer<SpriteRenderer> hide) {
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.show = show;
+        this.hide = hide;
+    }
+
+    /**
+     * Register a sprite.  Until the first view is known every sprite is treated as visible.
+     *
+     * @param spr Sprite Component to be registered
+     */
+    void add(SpriteRenderer spr) {
+        if (entries.containsKey(spr)) {
+            return;
+        }
+        Entry entry = new Entry(spr);
+        bounds(spr, entry.range);
+        insert(entry);
+        entries.put(spr, entry);
+        spr.setDirtyListener(dirty::add);
+        setVisible(entry, !hasView || entry.range.overlaps(view));
+        if (!entry.visible) {
+            //Clean so its next change is reported
+            spr.setClean();
+        } else if (spr.isDirty()) {
+            //Already dirty, so a move before its batch cleans it would go unreported
+            dirty.add(spr);
+        }
+    }
+
+    /**
+     * Unregister a sprite, hiding it first if it was visible.
+     *
+     * @param spr Sprite Component to be unregistered
+     */
+    void remove(SpriteRenderer spr) {
+        Entry entry = entries.remove(spr);
+        if (entry == null) {
+            return;
+        }
+        erase(entry);
+        spr.setDirtyListener(null);
+        setVisible(entry, false);
+    }
+
+    /**
+     * Move sprites that changed since the last frame and update visibility for the camera's current view.
+     *
+     * @param camera camera the frame is drawn from
+     */
+    void update(Camera camera) {
+        CellRange moved = new CellRange();
+        for (SpriteRenderer spr : dirty) {
+            Entry entry = entries.get(spr);
+            if (entry == null) {
+                continue;
+            }
+            bounds(spr, moved);
+            if (!moved.equals(entry.range)) {
+                erase(entry);
+                entry.range.set(moved);
+                insert(entry);
+                if (hasView) {
+                    setVisible(entry, entry.range.overlaps(view));
+                }
+            }
+            if (!entry.visible) {
+                //Hidden sprites aren't in a batch to clean them, a batch rebuilds their vertices on show anyway
+                spr.setClean();
+            }
+        }
+        dirty.clear();
+
+        CellRange next = new CellRange();
+        next.set(cellX(camera.getPosition().x), cellY(camera.getPosition().y),
+                 cellX(camera.getPosition().x + camera.getProjectionSize().x),
+                 cellY(camera.getPosition().y + camera.getProjectionSize().y));
+        if (!hasView) {
+            for (Entry entry : entries.values()) {
+                setVisible(entry, entry.range.overlaps(next));
+            }
+            view.set(next);
+            hasView = true;
+        } else if (!next.equals(view)) {
+            changeView(next);
+        }
+    }
+
+    /**
+     * Hide sprites in cells leaving the view and show sprites in cells entering it.
+     *
+     * @param next cell range of the new view
+     */
+    private void changeView(CellRange next) {
+        for (int x = view.minX; x <= view.maxX; x++) {
+            for (int y = view.minY; y <= view.maxY; y++) {
+                if (next.contains(x, y)) {
+                    continue;
+                }
+                for (SpriteRenderer spr : cellSprites(x, y)) {
+                    Entry entry = entries.get(spr);
+                    if (entry.visible && !entry.range.overlaps(next)) {
+                        setVisible(entry, false);
+                    }
+                }
+            }
+        }
+        for (int x = next.minX; x <= next.maxX; x++) {
+            for (int y = next.minY; y <= next.maxY; y++) {
+                if (view.contains(x, y)) {
+                    continue;
+                }
+                for (SpriteRenderer spr : cellSprites(x, y)) {
+                    setVisible(entries.get(spr), true);
+                }
+            }
+        }
+        view.set(next);
+    }
+
+    /**
+     * Show or hide the sprite if its visibility changed.
+     *
+     * @param entry   sprite state
+     * @param visible true if the sprite should be drawn
+     */
+    private void setVisible(Entry entry, boolean visible) {
+        if (entry.visible == visible) {
+            return;
+        }
+        entry.visible = visible;
+        if (visible) {
+            visibleCount++;
+            show.accept(entry.sprite);
+        } else {
+            visibleCount--;
+            hide.accept(entry.sprite);
+            //Out of its batch, so nothing else cleans it before it has to report its next change
+            entry.sprite.setClean();
+        }
+    }
+
+    private void insert(Entry entry) {
+        CellRange r = entry.range;
+        for (int x = r.minX; x <= r.maxX; x++) {
+            for (int y = r.minY; y <= r.maxY; y++) {
+                cells.computeIfAbsent(key(x, y), k -> new ArrayList<>())
+                     .add(entry.sprite);
+            }
+        }
+    }
+
+    private void erase(Entry entry) {
+        CellRange r = entry.range;
+        for (int x = r.minX; x <= r.maxX; x++) {
+            for (int y = r.minY; y <= r.maxY; y++) {
+                List<SpriteRenderer> sprites = cells.get(key(x, y));
+                //Sprite equality is identity, so this removes this exact sprite
+                sprites.remove(entry.sprite);
+                if (sprites.isEmpty()) {
+                    cells.remove(key(x, y));
+                }
+            }
+        }
+    }
+
+    private List<SpriteRenderer> cellSprites(int x, int y) {
+        return cells.getOrDefault(key(x, y), List.of());
+    }
+
+    /**
+     * Compute the cells covered by the sprite's transform.
+     *
+     * @param spr    sprite to measure
+     * @param target range receiving the cells
+     */
+    private void bounds(SpriteRenderer spr, CellRange target) {
+        Transform t = spr.getGameObject().transform;
+        target.set(cellX(t.position.x), cellY(t.position.y),
+                   cellX(t.position.x + t.scale.x), cellY(t.position.y + t.scale.y));
+    }
+
+    private int cellX(float x) {
+        return (int) Math.floor(x / cellWidth);
+    }
+
+    private int cellY(float y) {
+        return (int) Math.floor(y / cellHeight);
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Registered sprite with the cells it covers.
+     */
+    private static final class Entry {
+        private final SpriteRenderer sprite;
+        private final CellRange      range = new CellRange();
+        private       boolean        visible;
+
+        private Entry(SpriteRenderer sprite) {
+            this.sprite = sprite;
+        }
+    }
+
+    /**
+     * Inclusive rectangle of grid cells.
+     */
+    private static final class CellRange {
+        private int minX;
+        private int minY;
+        private int maxX;
+        private int maxY;
+
+        void set(int minX, int minY, int maxX, int maxY) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        void set(CellRange other) {
+            set(other.minX, other.minY, other.maxX, other.maxY);
+        }
+
+        boolean contains(int x, int y) {
+            return x >= minX && x <= maxX && y >= minY && y <= maxY;
+        }
+
+        boolean overlaps(CellRange other) {
+            return minX <= other.maxX && other.minX <= maxX && minY <= other.maxY && other.minY <= maxY;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CellRange r && r.minX == minX && r.minY == minY && r.maxX == maxX && r.maxY == maxY;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((minX * 31 + minY) * 31 + maxX) * 31 + maxY;
+        }
+    }
+}
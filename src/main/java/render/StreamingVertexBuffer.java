@@ -0,0 +1,127 @@
+package render;
+
+import graphics.GLWrapper;
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import scene.Settings;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.lwjgl.opengl.GL44C.*;
+
+/**
+ * Class: StreamingVertexBuffer
+ * Author: rapto
+ * CreatedDate: 3/2/2025 : 1:12 AM
+ * Project: GameEngine
+ * Description: Persistently mapped vertex buffer split into frame regions.  Each frame writes into the next region
+ * while the GPU is still free to read the previous ones, with a fence guarding reuse of a region.
+ */
+public class StreamingVertexBuffer {
+    // Number of frame regions the buffer is split into (triple buffering)
+    public static final  int    REGION_COUNT    = 3;
+    private static final Logger log             = LogManager.getLogger(StreamingVertexBuffer.class);
+    // Flags used both for the immutable storage and the persistent mapping
+    private static final int    MAP_FLAGS       = GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT;
+    // Time in nanoseconds to wait on a fence before counting a stall and trying again
+    private static final long   WAIT_TIMEOUT_NS = 1_000_000L;
+
+    private final GLWrapper     gl;
+    // Size of a single frame region in bytes
+    @Getter
+    private final int           regionBytes;
+    // Outstanding fence per region, 0 if the region is free.
+    private final long[]        fences      = new long[REGION_COUNT];
+    // Native ordered views over each region of the mapped buffer
+    private final ByteBuffer[]  regionViews = new ByteBuffer[REGION_COUNT];
+    // Region that is currently being written
+    @Getter
+    private       int           region;
+    // Number of times we had to wait on the GPU before reusing a region.
+    @Getter
+    private       long          stallCount;
+    @Getter
+    private       int           bufferId;
+    @Getter
+    private       boolean       mapped;
+
+    /**
+     * Constructor sizing each frame region.
+     *
+     * @param regionBytes bytes available to a single frame
+     */
+    public StreamingVertexBuffer(int regionBytes) {
+        this.gl = Settings.graphicsImpl;
+        this.regionBytes = regionBytes;
+    }
+
+    /**
+     * Allocates immutable storage for all regions and maps it persistently.  The buffer is left bound to
+     * GL_ARRAY_BUFFER so vertex attributes can be configured against it.
+     *
+     * @return true if the buffer was mapped, false if the driver refused, the buffer was deleted and the caller should
+     * fall back.
+     */
+    public boolean start() {
+        long totalBytes = (long) regionBytes * REGION_COUNT;
+        bufferId = gl.glGenBuffers();
+        gl.glBindBuffer(GL_ARRAY_BUFFER, bufferId);
+        gl.glBufferStorage(GL_ARRAY_BUFFER, totalBytes, MAP_FLAGS);
+
+        ByteBuffer buffer = gl.glMapBufferRange(GL_ARRAY_BUFFER, 0, totalBytes, MAP_FLAGS);
+        if (buffer == null) {
+            log.warn("Unable to persistently map vertex buffer {}, falling back to buffered uploads.", bufferId);
+            //The storage is immutable, so the caller can't reuse it for the fallback buffer
+            gl.glDeleteBuffers(bufferId);
+            bufferId = 0;
+            return false;
+        }
+        for (int i = 0; i < REGION_COUNT; i++) {
+            regionViews[i] = buffer.slice(i * regionBytes, regionBytes)
+                                   .order(ByteOrder.nativeOrder());
+        }
+        mapped = true;
+        return true;
+    }
+
+    /**
+     * Waits until the GPU has finished with the current region and returns a view to write into.
+     *
+     * @return view of the current region
+     */
+    public ByteBuffer acquireRegion() {
+        long fence = fences[region];
+        if (fence != 0) {
+            while (gl.glClientWaitSync(fence, GL_SYNC_FLUSH_COMMANDS_BIT, WAIT_TIMEOUT_NS) == GL_TIMEOUT_EXPIRED) {
+                stallCount++;
+            }
+            gl.glDeleteSync(fence);
+            fences[region] = 0;
+        }
+        return regionViews[region];
+    }
+
+    /**
+     * Fences the current region after its draw has been issued and rotates to the next region.
+     */
+    public void releaseRegion() {
+        fences[region] = gl.glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        region = (region + 1) % REGION_COUNT;
+    }
+
+    /**
+     * Release outstanding fences and the buffer itself, which also unmaps it.
+     */
+    public void dispose() {
+        for (int i = 0; i < REGION_COUNT; i++) {
+            if (fences[i] != 0) {
+                gl.glDeleteSync(fences[i]);
+                fences[i] = 0;
+            }
+        }
+        gl.glDeleteBuffers(bufferId);
+        mapped = false;
+    }
+}
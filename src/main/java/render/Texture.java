@@ -4,6 +4,7 @@ import graphics.GLWrapper;
 import lombok.Data;
 import org.lwjgl.BufferUtils;
 import scene.Settings;
+import util.AssetPool;
 
 import java.io.Serializable;
 import java.nio.ByteBuffer;
@@ -11,6 +12,8 @@ import java.nio.IntBuffer;
 import java.util.Objects;
 
 import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+import static org.lwjgl.opengl.GL12.GL_TEXTURE_MAX_LEVEL;
 
 /**
  * Class: Texture
@@ -34,6 +37,21 @@ public class Texture implements Serializable {
 
     private transient GLWrapper gl;
 
+    //Mip levels uploaded, counted in the texture's memory size
+    private transient int levels = 1;
+
+    //AssetPool frame this texture was last bound in, evictions start with the least recently used
+    private transient long lastUsedFrame;
+
+    //True once deleted under the texture memory budget, the next bind loads it again
+    private transient boolean evicted;
+
+    //Hash of the decoded pixels, 0 if the texture wasn't loaded through the TextureLoader
+    private transient long contentHash;
+
+    //Texture holding the same pixels this one draws from instead of owning a copy, null if it owns its image
+    private transient Texture duplicateOf;
+
     public Texture() {
         this.gl = Settings.graphicsImpl;
     }
@@ -60,10 +78,112 @@ public class Texture implements Serializable {
 
     }
 
+    /**
+     * Provisions an empty RGBA texture to be filled in with {@link #upload}.
+     *
+     * @param filePath Name the texture is registered under
+     * @param width    Width of texture to be generated
+     * @param height   Height of texture to be generated
+     */
+    public void initBlank(String filePath, int width, int height) {
+        this.filePath = filePath;
+        this.width = width;
+        this.height = height;
+        // Generate and bind texture
+        textureId = gl.glGenTextures();
+        gl.glBindTexture(GL_TEXTURE_2D, textureId);
+
+        //Clamp so neighbouring images in the texture never wrap into each other
+        gl.glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        gl.glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+
+        gl.glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+        gl.glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        gl.glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, null);
+    }
+
+    /**
+     * Copies RGBA pixels into a region of the texture.
+     *
+     * @param x      Left edge of the region
+     * @param y      Bottom edge of the region
+     * @param width  Width of the region
+     * @param height Height of the region
+     * @param pixels Tightly packed RGBA pixels
+     */
+    public void upload(int x, int y, int width, int height, ByteBuffer pixels) {
+        gl.glBindTexture(GL_TEXTURE_2D, textureId);
+        gl.glTexSubImage2D(GL_TEXTURE_2D, 0, x, y, width, height, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+    }
+
     public void init(String filePath) {
         this.filePath = filePath;
+        generateTexture();
+
+        //Load and provision the texture.
+        loadTexture();
+    }
+
+    /**
+     * Loads an encoded image already in memory, such as a blob of an asset bundle.
+     *
+     * @param filePath Path the texture is registered under
+     * @param encoded  Encoded image file, read in place by stbi
+     */
+    public void init(String filePath, ByteBuffer encoded) {
+        this.filePath = filePath;
+        generateTexture();
+
+        IntBuffer widthBuffer = BufferUtils.createIntBuffer(1);
+        IntBuffer heightBuffer = BufferUtils.createIntBuffer(1);
+        IntBuffer channels = BufferUtils.createIntBuffer(1);
+        gl.stbiSetFlipVerticallyOnLoad(true);
+        provision(gl.stbiLoadFromMemory(encoded, widthBuffer, heightBuffer, channels, 0), widthBuffer, heightBuffer,
+                  channels);
+    }
+
+    /**
+     * Loads pixels that were decoded ahead of time, the GL reads them straight from the given buffer.
+     *
+     * @param filePath Path the texture is registered under
+     * @param width    Width of the image
+     * @param height   Height of the image
+     * @param pixels   Tightly packed RGBA pixels, already flipped
+     */
+    public void initDecoded(String filePath, int width, int height, ByteBuffer pixels) {
+        this.filePath = filePath;
+        this.width = width;
+        this.height = height;
+        generateTexture();
+        gl.glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+    }
+
+    /**
+     * Provisions a single white pixel standing in for an image that is still loading.  Once the image is uploaded
+     * into the same texture id, everything already holding this Texture draws the real image.
+     *
+     * @param filePath Path of the image being loaded
+     */
+    public void initPlaceholder(String filePath) {
+        this.filePath = filePath;
+        this.width = 1;
+        this.height = 1;
+        generateTexture();
+
+        ByteBuffer white = BufferUtils.createByteBuffer(4);
+        white.put(new byte[]{-1, -1, -1, -1})
+             .flip();
+        gl.glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, 1, 1, 0, GL_RGBA, GL_UNSIGNED_BYTE, white);
+    }
+
+    /**
+     * Generate and bind a texture id configured for image files.
+     */
+    private void generateTexture() {
         // Generate and bind texture
         textureId = gl.glGenTextures();
+        levels = 1;
+        evicted = false;
         gl.glBindTexture(GL_TEXTURE_2D, textureId);
 
         //Implements Tile behavior across X and Y Axis
@@ -73,15 +193,19 @@ public class Texture implements Serializable {
         //Define resize behavior of individual pixels
         gl.glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
         gl.glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
-
-        //Load and provision the texture.
-        loadTexture();
     }
 
     /**
-     * Responsible for loading and provisioning the texture.
+     * Responsible for loading and provisioning the texture.  Images in the TextureCache are uploaded without decoding,
+     * others are decoded and stored in it for next time.
      */
     protected void loadTexture() {
+        TextureCache cache = TextureCache.getDefault();
+        TextureCache.Image cached = cache != null ? cache.load(filePath) : null;
+        if (cached != null) {
+            provision(cached);
+            return;
+        }
 
         //Provision Buffers
         IntBuffer widthBuffer = BufferUtils.createIntBuffer(1);
@@ -93,7 +217,43 @@ public class Texture implements Serializable {
 
         //Load the file and leverage the buffers to store relevant data.
         ByteBuffer image = gl.stbiLoad(filePath, widthBuffer, heightBuffer, channels, 0);
+        if (image != null && cache != null) {
+            cache.store(filePath, widthBuffer.get(0), heightBuffer.get(0), channels.get(0), image);
+        }
+        provision(image, widthBuffer, heightBuffer, channels);
+    }
 
+    /**
+     * Provision the bound texture from an image mapped from the TextureCache, with every mip level it holds.
+     *
+     * @param image Cached image
+     */
+    void provision(TextureCache.Image image) {
+        int colorType = image.getChannels() == 4 ? GL_RGBA : GL_RGB;
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        ByteBuffer[] pixels = image.getLevels();
+        this.levels = pixels.length;
+        if (levels > 1) {
+            //Blend between the nearest two levels so zoomed out sprites don't shimmer
+            gl.glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST_MIPMAP_LINEAR);
+            gl.glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL, levels - 1);
+        }
+        for (int level = 0; level < levels; level++) {
+            gl.glTexImage2D(GL_TEXTURE_2D, level, colorType, Math.max(1, width >> level),
+                            Math.max(1, height >> level), 0, colorType, GL_UNSIGNED_BYTE, pixels[level]);
+        }
+    }
+
+    /**
+     * Provision the bound texture from a decoded image and release the image.
+     *
+     * @param image        Image decoded by stbi, null if decoding failed
+     * @param widthBuffer  Width of the image
+     * @param heightBuffer Height of the image
+     * @param channels     Channels in the image
+     */
+    private void provision(ByteBuffer image, IntBuffer widthBuffer, IntBuffer heightBuffer, IntBuffer channels) {
         //If we loaded an image, ensure we select the appropriate color channel so we display it correctly.
         if (image != null) {
             int colorType = -1;
@@ -121,12 +281,82 @@ public class Texture implements Serializable {
     }
 
     /**
-     * Instruct the system to enable the texture.
+     * Instruct the system to enable the texture.  An evicted texture is loaded again first, a duplicate binds the
+     * texture it shares pixels with.
      */
     public void bind() {
+        if (duplicateOf != null) {
+            duplicateOf.bind();
+            return;
+        }
+        if (evicted) {
+            AssetPool.restore(this);
+        }
+        lastUsedFrame = AssetPool.getFrame();
         gl.glBindTexture(GL_TEXTURE_2D, textureId);
     }
 
+    /**
+     * Delete the GL texture to free its memory.  Size and file are kept, so the texture is loaded again into a new
+     * id the next time it is bound.
+     */
+    public void evict() {
+        if (duplicateOf == null && textureId != 0) {
+            gl.glDeleteTextures(textureId);
+            textureId = 0;
+            evicted = true;
+        }
+    }
+
+    /**
+     * Check whether the texture currently holds GL memory.
+     *
+     * @return true if the texture has a GL texture id
+     */
+    public boolean isResident() {
+        return duplicateOf != null ? duplicateOf.isResident() : textureId != 0;
+    }
+
+    /**
+     * Retrieve the GL texture id, that of the shared texture for a duplicate.
+     *
+     * @return texture id, 0 while evicted
+     */
+    public int getTextureId() {
+        return duplicateOf != null ? duplicateOf.getTextureId() : textureId;
+    }
+
+    /**
+     * Drop this texture's own image and draw from a texture holding identical pixels from now on.
+     *
+     * @param original Texture with the same image
+     */
+    void shareImage(Texture original) {
+        if (textureId != 0) {
+            gl.glDeleteTextures(textureId);
+            textureId = 0;
+        }
+        this.duplicateOf = original;
+        this.width = original.getWidth();
+        this.height = original.getHeight();
+        this.levels = original.getLevels();
+    }
+
+    /**
+     * Estimate the GL memory held by the texture, with every texel stored as RGBA.
+     *
+     * @return size in bytes, 0 if evicted or a duplicate
+     */
+    public long getMemorySize() {
+        //A duplicate's memory belongs to the texture it shares
+        if (duplicateOf != null || !isResident()) {
+            return 0;
+        }
+        long size = (long) width * height * 4;
+        //A full mip chain adds a third
+        return levels > 1 ? size * 4 / 3 : size;
+    }
+
     /**
      * Instruct the system to disable the texture.
      */
@@ -137,7 +367,7 @@ public class Texture implements Serializable {
     @Override
     public boolean equals(Object o) {
         if (o instanceof Texture tex) {
-            return tex.getWidth() == this.width && tex.getHeight() == this.height && tex.getTextureId() == this.textureId && tex.getFilePath()
+            return tex.getWidth() == this.width && tex.getHeight() == this.height && tex.getTextureId() == getTextureId() && tex.getFilePath()
                                                                                                                                 .equals(this.filePath);
         }
         return false;
@@ -145,6 +375,6 @@ public class Texture implements Serializable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(width, height, textureId, filePath);
+        return Objects.hash(width, height, getTextureId(), filePath);
     }
 }
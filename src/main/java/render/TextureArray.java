@@ -0,0 +1,145 @@
+package render;
+
+import graphics.GLWrapper;
+import lombok.Getter;
+import scene.Settings;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+import static org.lwjgl.opengl.GL30C.*;
+
+/**
+ * Class: TextureArray
+ * Author: rapto
+ * CreatedDate: 3/16/2025 : 2:18 PM
+ * Project: GameEngine
+ * Description: GL_TEXTURE_2D_ARRAY of same sized images.  Each image is a layer, so sprites from any number of sheets
+ * can be drawn through a single sampler.
+ */
+public class TextureArray {
+    @Getter
+    private final int       textureId;
+    //Width and Height of every layer
+    @Getter
+    private final int       layerWidth;
+    @Getter
+    private final int       layerHeight;
+    //Layers allocated up front
+    @Getter
+    private final int       capacity;
+    //Layers currently holding an image
+    private final BitSet    usedLayers;
+    private final GLWrapper gl;
+
+    /**
+     * Allocates storage for an array of empty RGBA layers.
+     *
+     * @param layerWidth  Width of each layer
+     * @param layerHeight Height of each layer
+     * @param capacity    Number of layers to allocate
+     */
+    public TextureArray(int layerWidth, int layerHeight, int capacity) {
+        this.gl = Settings.graphicsImpl;
+        this.layerWidth = layerWidth;
+        this.layerHeight = layerHeight;
+        this.capacity = capacity;
+        this.usedLayers = new BitSet(capacity);
+
+        textureId = gl.glGenTextures();
+        gl.glBindTexture(GL_TEXTURE_2D_ARRAY, textureId);
+
+        //Clamp so the edge of a layer never wraps into its opposite edge
+        gl.glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        gl.glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        gl.glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+        gl.glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+
+        gl.glTexImage3D(GL_TEXTURE_2D_ARRAY, 0, GL_RGBA8, layerWidth, layerHeight, capacity, 0, GL_RGBA,
+                        GL_UNSIGNED_BYTE, null);
+    }
+
+    /**
+     * Check whether the driver supports texture arrays.
+     *
+     * @return max layers per array, 0 if texture arrays are unavailable.
+     */
+    public static int maxLayers() {
+        return Settings.graphicsImpl.glGetInteger(GL_MAX_ARRAY_TEXTURE_LAYERS);
+    }
+
+    /**
+     * Copies an image into the lowest free layer.
+     *
+     * @param pixels Tightly packed RGBA pixels of layerWidth x layerHeight
+     * @return layer the image was written to, -1 if the array is full.
+     */
+    public int addLayer(ByteBuffer pixels) {
+        if (isFull()) {
+            return -1;
+        }
+        int layer = usedLayers.nextClearBit(0);
+        gl.glBindTexture(GL_TEXTURE_2D_ARRAY, textureId);
+        gl.glTexSubImage3D(GL_TEXTURE_2D_ARRAY, 0, 0, 0, layer, layerWidth, layerHeight, 1, GL_RGBA,
+                           GL_UNSIGNED_BYTE, pixels);
+        usedLayers.set(layer);
+        return layer;
+    }
+
+    /**
+     * Free a layer so a later image can be written to it.
+     *
+     * @param layer layer returned by addLayer
+     */
+    public void releaseLayer(int layer) {
+        usedLayers.clear(layer);
+    }
+
+    /**
+     * Retrieve the number of layers holding an image.
+     *
+     * @return used layer count
+     */
+    public int getLayerCount() {
+        return usedLayers.cardinality();
+    }
+
+    /**
+     * Check if every allocated layer has been filled.
+     *
+     * @return true if full
+     */
+    public boolean isFull() {
+        return getLayerCount() >= capacity;
+    }
+
+    /**
+     * Check if no layer holds an image.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return usedLayers.isEmpty();
+    }
+
+    /**
+     * Release the texture storage on the GPU.
+     */
+    public void dispose() {
+        gl.glDeleteTextures(textureId);
+    }
+
+    /**
+     * Instruct the system to enable the texture array.
+     */
+    public void bind() {
+        gl.glBindTexture(GL_TEXTURE_2D_ARRAY, textureId);
+    }
+
+    /**
+     * Instruct the system to disable the texture array.
+     */
+    public void unbind() {
+        gl.glBindTexture(GL_TEXTURE_2D_ARRAY, 0);
+    }
+}
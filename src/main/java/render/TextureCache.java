@@ -0,0 +1,362 @@
+package render;
+
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import scene.Settings;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class: TextureCache
+ * Author: rapto
+ * CreatedDate: 3/25/2025 : 9:40 AM
+ * Project: GameEngine
+ * Description: Stores decoded images on disk so later launches map the raw pixels and upload them without decoding.
+ * Each entry records the modified time, size and SHA-256 of its source file.  A changed time or size only costs a
+ * hash of the source, and the entry is kept if the contents are unchanged.  Entries may hold a precomputed mip chain.
+ * <p>
+ * Layout, big endian: a header (magic, version, source time, source size, source hash, width, height, channels,
+ * levels) followed by every level's pixels, largest first, tightly packed.
+ * <p>
+ * Safe to use from the texture decode threads, nothing here touches GL.
+ */
+public class TextureCache {
+    private static final Logger        log          = LogManager.getLogger(TextureCache.class);
+    //Marks a cache file, "RTXC"
+    private static final int           MAGIC        = 0x52545843;
+    //Bumped whenever the file layout changes
+    private static final int           FILE_VERSION = 1;
+    //Size in bytes of the SHA-256 source hash
+    private static final int           HASH_SIZE    = 32;
+    //Offset of the source time, rewritten when the source is touched without changing
+    private static final int           TIME_OFFSET  = 2 * Integer.BYTES;
+    //Magic, version, source time and size, source hash, width, height, channels and levels
+    private static final int           HEADER_SIZE  = 2 * Integer.BYTES + 2 * Long.BYTES + HASH_SIZE
+                                                      + 4 * Integer.BYTES;
+    //Cache used by Textures loaded from files, created on first use
+    private static       TextureCache  defaultCache;
+    //Directory holding one file per cached image
+    private final        Path          directory;
+    private final        AtomicInteger hits         = new AtomicInteger();
+    private final        AtomicInteger misses       = new AtomicInteger();
+    //Time spent validating and mapping cache hits
+    private final        AtomicLong    loadNanos    = new AtomicLong();
+
+    /**
+     * Constructor for a cache stored in the given directory.  Nothing is touched until an image is loaded or stored.
+     *
+     * @param directory Directory for cache files, created on first store
+     */
+    public TextureCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Retrieve the cache shared by all textures, stored in Settings.textureCacheDirectory.
+     *
+     * @return shared cache, null if Settings.cacheTextures is off
+     */
+    public static synchronized TextureCache getDefault() {
+        if (!Settings.cacheTextures) {
+            return null;
+        }
+        if (defaultCache == null) {
+            defaultCache = new TextureCache(Paths.get(Settings.textureCacheDirectory));
+        }
+        return defaultCache;
+    }
+
+    /**
+     * Map the cached pixels of an image file.
+     *
+     * @param filePath Image file the entry was stored for
+     * @return cached image, null if there is no up to date entry
+     */
+    public Image load(String filePath) {
+        long start = System.nanoTime();
+        Path source = Paths.get(filePath);
+        Path file = file(source);
+        if (!Files.exists(file) || !Files.exists(source)) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new IOException("Truncated header");
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != FILE_VERSION) {
+                throw new IOException("Unrecognized header");
+            }
+            long sourceTime = header.getLong();
+            long sourceSize = header.getLong();
+            byte[] sourceHash = new byte[HASH_SIZE];
+            header.get(sourceHash);
+            int width = header.getInt();
+            int height = header.getInt();
+            int channels = header.getInt();
+            int levels = header.getInt();
+            if (width <= 0 || height <= 0 || channels < 3 || channels > 4 || levels < 1
+                || levels > levelCount(width, height)) {
+                throw new IOException("Invalid dimensions");
+            }
+            if (Settings.textureMipmaps && channels == 4 && levels < levelCount(width, height)) {
+                //Stored before mipmaps were switched on, rebuild it with its mip chain
+                throw new IOException("Missing mip chain");
+            }
+
+            long time = Files.getLastModifiedTime(source)
+                             .toMillis();
+            if (time != sourceTime || Files.size(source) != sourceSize) {
+                if (!Arrays.equals(sourceHash, hash(source))) {
+                    misses.incrementAndGet();
+                    channel.close();
+                    delete(file);
+                    return null;
+                }
+                //Touched but unchanged, remember the new time so the next launch skips the hash
+                try (FileChannel writer = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    writer.write(ByteBuffer.allocate(Long.BYTES)
+                                           .putLong(0, time), TIME_OFFSET);
+                }
+            }
+
+            long size = HEADER_SIZE + mipChainSize(width, height, channels, levels);
+            if (channel.size() != size) {
+                throw new IOException("Truncated pixels");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            ByteBuffer[] pixels = new ByteBuffer[levels];
+            int offset = HEADER_SIZE;
+            for (int level = 0; level < levels; level++) {
+                int levelSize = levelWidth(width, level) * levelWidth(height, level) * channels;
+                pixels[level] = mapped.slice(offset, levelSize);
+                offset += levelSize;
+            }
+
+            hits.incrementAndGet();
+            loadNanos.addAndGet(System.nanoTime() - start);
+            return new Image(width, height, channels, pixels);
+        } catch (IOException | BufferUnderflowException e) {
+            log.warn("Discarding texture cache entry {}: {}", file, e.getMessage());
+            delete(file);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Save decoded pixels for an image file, RGBA images with a mip chain if Settings.textureMipmaps is on.  Failures are
+     * logged and otherwise ignored, the image is decoded again next time.
+     *
+     * @param filePath Image file the pixels were decoded from
+     * @param width    Width of the image
+     * @param height   Height of the image
+     * @param channels 3 for RGB, 4 for RGBA
+     * @param pixels   Tightly packed pixels, left untouched
+     */
+    public void store(String filePath, int width, int height, int channels, ByteBuffer pixels) {
+        if (channels < 3 || channels > 4) {
+            //Grey images are rare enough to simply decode every time
+            return;
+        }
+        Path source = Paths.get(filePath);
+        Path file = file(source);
+        try {
+            //RGB levels would break the GL's default 4 byte row alignment, so only RGBA images get a chain
+            int levels = Settings.textureMipmaps && channels == 4 ? levelCount(width, height) : 1;
+            ByteBuffer data = ByteBuffer.allocate(
+                    Math.toIntExact(HEADER_SIZE + mipChainSize(width, height, channels, levels)));
+            data.putInt(MAGIC)
+                .putInt(FILE_VERSION)
+                .putLong(Files.getLastModifiedTime(source)
+                              .toMillis())
+                .putLong(Files.size(source))
+                .put(hash(source))
+                .putInt(width)
+                .putInt(height)
+                .putInt(channels)
+                .putInt(levels);
+            data.put(pixels.duplicate());
+            for (int level = 1; level < levels; level++) {
+                downsample(data, width, height, channels, level);
+            }
+
+            Files.createDirectories(directory);
+            //Write beside the final file and move it into place so a crash never leaves a partial entry
+            Path temp = Files.createTempFile(directory, "texture", ".tmp");
+            Files.write(temp, data.array());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | ArithmeticException e) {
+            log.warn("Unable to store texture cache entry {}", file, e);
+        }
+    }
+
+    /**
+     * Box filter the previous level into the next one, appending it at the data's position.
+     *
+     * @param data     Header and levels written so far
+     * @param width    Width of level 0
+     * @param height   Height of level 0
+     * @param channels Bytes per pixel
+     * @param level    Level to produce
+     */
+    private static void downsample(ByteBuffer data, int width, int height, int channels, int level) {
+        int srcWidth = levelWidth(width, level - 1);
+        int srcHeight = levelWidth(height, level - 1);
+        int srcStart = data.position() - srcWidth * srcHeight * channels;
+        int dstWidth = levelWidth(width, level);
+        int dstHeight = levelWidth(height, level);
+        for (int y = 0; y < dstHeight; y++) {
+            //Odd sizes reuse the last row or column
+            int y0 = Math.min(y * 2, srcHeight - 1);
+            int y1 = Math.min(y * 2 + 1, srcHeight - 1);
+            for (int x = 0; x < dstWidth; x++) {
+                int x0 = Math.min(x * 2, srcWidth - 1);
+                int x1 = Math.min(x * 2 + 1, srcWidth - 1);
+                for (int c = 0; c < channels; c++) {
+                    int sum = (data.get(srcStart + (y0 * srcWidth + x0) * channels + c) & 0xFF)
+                              + (data.get(srcStart + (y0 * srcWidth + x1) * channels + c) & 0xFF)
+                              + (data.get(srcStart + (y1 * srcWidth + x0) * channels + c) & 0xFF)
+                              + (data.get(srcStart + (y1 * srcWidth + x1) * channels + c) & 0xFF);
+                    data.put((byte) ((sum + 2) / 4));
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of levels in a full mip chain, down to 1x1.
+     *
+     * @param width  Width of level 0
+     * @param height Height of level 0
+     * @return level count
+     */
+    static int levelCount(int width, int height) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+    }
+
+    private static int levelWidth(int size, int level) {
+        return Math.max(1, size >> level);
+    }
+
+    private static long mipChainSize(int width, int height, int channels, int levels) {
+        long size = 0;
+        for (int level = 0; level < levels; level++) {
+            size += (long) levelWidth(width, level) * levelWidth(height, level) * channels;
+        }
+        return size;
+    }
+
+    private static byte[] hash(Path source) throws IOException {
+        try (InputStream in = Files.newInputStream(source)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            //Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Cache file of an image, named after a hash of its absolute path.
+     *
+     * @param source Image file
+     * @return cache file
+     */
+    private Path file(Path source) {
+        try {
+            byte[] name = MessageDigest.getInstance("SHA-256")
+                                       .digest(source.toAbsolutePath()
+                                                     .normalize()
+                                                     .toString()
+                                                     .getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of()
+                                              .formatHex(name, 0, 16) + ".tex");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Unable to delete texture cache entry {}", file, e);
+        }
+    }
+
+    /**
+     * Retrieve the number of images loaded from the cache.
+     *
+     * @return cache hits
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Retrieve the number of images that had to be decoded.
+     *
+     * @return cache misses
+     */
+    public int getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Retrieve the time spent validating and mapping cache hits.
+     *
+     * @return load time in nanoseconds
+     */
+    public long getLoadNanos() {
+        return loadNanos.get();
+    }
+
+    /**
+     * Decoded image mapped from the cache.
+     */
+    @Getter
+    public static final class Image {
+        private final int          width;
+        private final int          height;
+        //3 for RGB, 4 for RGBA
+        private final int          channels;
+        //Slices of the mapped file, level 0 first
+        private final ByteBuffer[] levels;
+
+        private Image(int width, int height, int channels, ByteBuffer[] levels) {
+            this.width = width;
+            this.height = height;
+            this.channels = channels;
+            this.levels = levels;
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package render;
+
+import graphics.GLWrapper;
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.lwjgl.BufferUtils;
+import scene.Settings;
+import util.XXHash64;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.lwjgl.opengl.GL30C.*;
+
+/**
+ * Class: TextureLoader
+ * Author: rapto
+ * CreatedDate: 3/23/2025 : 10:12 AM
+ * Project: GameEngine
+ * Description: Loads images into placeholder Textures without blocking the GL thread.  Worker threads read and decode
+ * the files and copy the pixels into a persistently mapped pixel unpack buffer, the GL thread then uploads them from
+ * the buffer, a limited number of bytes per frame.  Images that don't fit in the buffer are uploaded from client
+ * memory.  Images found in the TextureCache are mapped instead of decoded and uploaded straight from the mapping.
+ * Workers also hash the pixels of every image, an image identical to one already uploaded shares that texture rather
+ * than being uploaded again.  Futures are always completed on the GL thread, so their callbacks may touch GL and
+ * engine state.
+ */
+public class TextureLoader {
+    private static final Logger             log               = LogManager.getLogger(TextureLoader.class);
+    //Decoded images and failures waiting for the GL thread
+    private final        Queue<Decoded>     decoded           = new ConcurrentLinkedQueue<>();
+    private final        ExecutorService    decoders;
+    //Loads submitted but not yet completed
+    private final        AtomicInteger      pending           = new AtomicInteger();
+    //I/O and decode stage metrics, updated by the worker threads
+    private final        AtomicInteger      decodedCount      = new AtomicInteger();
+    private final        AtomicLong         ioNanos           = new AtomicLong();
+    private final        AtomicLong         decodeNanos       = new AtomicLong();
+    //Textures uploaded so far by the hash of their pixels, only used on the GL thread
+    private final        Map<Long, Texture> uploadedByContent = new HashMap<>();
+    //Upload stage metrics
+    @Getter
+    private              int                uploadedCount;
+    @Getter
+    private              long               uploadedBytes;
+    @Getter
+    private              long               uploadNanos;
+    //Bytes uploaded during the last processUploads call
+    @Getter
+    private              long               lastFrameBytes;
+    //Images skipped because an identical one was already uploaded
+    @Getter
+    private              int                dedupedCount;
+    @Getter
+    private              long               dedupedBytes;
+    //Pixel unpack buffer workers copy decoded images into, null until started or if it could not be mapped
+    private volatile     PixelUploadRing    staging;
+    //True once starting the staging buffer was attempted, only used on the GL thread
+    private              boolean            stagingStarted;
+
+    /**
+     * Constructor starting the decode workers.
+     *
+     * @param threads Number of images decoded at once
+     */
+    public TextureLoader(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        decoders = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            //Daemon so pending decodes never keep the engine from exiting
+            Thread thread = new Thread(r, "texture-decoder-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Decode the placeholder's image in the background and upload it into the placeholder once decoded.
+     *
+     * @param placeholder Texture created with initPlaceholder, receives the image
+     * @return future completed with the placeholder once the image is uploaded
+     */
+    public CompletableFuture<Texture> load(Texture placeholder) {
+        return load(placeholder, null);
+    }
+
+    /**
+     * Decode an image already in memory in the background and upload it into the placeholder once decoded.
+     *
+     * @param placeholder Texture created with initPlaceholder, receives the image
+     * @param encoded     Encoded image file, read in place by the worker, null to read the placeholder's file
+     * @return future completed with the placeholder once the image is uploaded
+     */
+    public CompletableFuture<Texture> load(Texture placeholder, ByteBuffer encoded) {
+        GLWrapper gl = Settings.graphicsImpl;
+        CompletableFuture<Texture> future = new CompletableFuture<>();
+        pending.incrementAndGet();
+        if (GLTaskQueue.isGLThread()) {
+            startStaging();
+        }
+        //Flip is global to stbi so set it before any worker starts loading
+        gl.stbiSetFlipVerticallyOnLoad(true);
+        decoders.execute(() -> decoded.add(decode(gl, placeholder, encoded, future)));
+        return future;
+    }
+
+    /**
+     * Map the staging buffer the first time the GL thread needs it, sized for a few frames of the upload budget.
+     */
+    private void startStaging() {
+        if (stagingStarted) {
+            return;
+        }
+        stagingStarted = true;
+        long capacity = Math.min(Settings.textureUploadBudget * PixelUploadRing.FRAME_COUNT, Integer.MAX_VALUE);
+        PixelUploadRing ring = new PixelUploadRing((int) capacity);
+        if (ring.start()) {
+            staging = ring;
+        }
+    }
+
+    /**
+     * Read and decode an image to RGBA, runs on a worker thread.
+     *
+     * @param gl      graphics implementation providing stbi
+     * @param texture Texture the image is loaded for
+     * @param encoded Encoded image file, null to read the texture's file
+     * @param future  future completed once uploaded
+     * @return decoded image, or the failure to report
+     */
+    private Decoded decode(GLWrapper gl, Texture texture, ByteBuffer encoded, CompletableFuture<Texture> future) {
+        long start = System.nanoTime();
+        try {
+            TextureCache cache = encoded == null ? TextureCache.getDefault() : null;
+            if (cache != null) {
+                TextureCache.Image cached = cache.load(texture.getFilePath());
+                if (cached != null) {
+                    //Hashing reads the whole mapping in, so it counts as I/O here
+                    long hash = hash(cached.getLevels()[0]);
+                    ioNanos.addAndGet(System.nanoTime() - start);
+                    return new Decoded(texture, future, cached, null, null, cached.getWidth(), cached.getHeight(),
+                                       hash, null);
+                }
+            }
+
+            ByteBuffer file = encoded;
+            if (file == null) {
+                byte[] bytes = Files.readAllBytes(Paths.get(texture.getFilePath()));
+                //stbi reads from native memory
+                file = BufferUtils.createByteBuffer(bytes.length);
+                file.put(bytes)
+                    .flip();
+            }
+            long decodeStart = System.nanoTime();
+            ioNanos.addAndGet(decodeStart - start);
+
+            IntBuffer width = BufferUtils.createIntBuffer(1);
+            IntBuffer height = BufferUtils.createIntBuffer(1);
+            IntBuffer channels = BufferUtils.createIntBuffer(1);
+            ByteBuffer pixels = gl.stbiLoadFromMemory(file, width, height, channels, 4);
+            if (pixels == null) {
+                throw new IOException("Could not decode image " + texture.getFilePath());
+            }
+            long hash = hash(pixels);
+            decodedCount.incrementAndGet();
+            decodeNanos.addAndGet(System.nanoTime() - decodeStart);
+            if (cache != null) {
+                long storeStart = System.nanoTime();
+                cache.store(texture.getFilePath(), width.get(0), height.get(0), 4, pixels);
+                ioNanos.addAndGet(System.nanoTime() - storeStart);
+            }
+            PixelUploadRing ring = staging;
+            PixelUploadRing.Slice slice = ring != null ? ring.reserve(pixels.remaining()) : null;
+            if (slice != null) {
+                //The copy happens here rather than on the GL thread, which only points the upload at the slice
+                ring.write(slice, pixels);
+                gl.stbiImageFree(pixels);
+                return new Decoded(texture, future, null, null, slice, width.get(0), height.get(0), hash, null);
+            }
+            return new Decoded(texture, future, null, pixels, null, width.get(0), height.get(0), hash, null);
+        } catch (IOException | RuntimeException e) {
+            return new Decoded(texture, future, null, null, null, 0, 0, 0, e);
+        }
+    }
+
+    /**
+     * Hash decoded pixels so identical images can share a texture.
+     *
+     * @param pixels Pixels of the image, or of its first level
+     * @return hash of the pixels, 0 if Settings.deduplicateTextures is off
+     */
+    private static long hash(ByteBuffer pixels) {
+        return Settings.deduplicateTextures ? XXHash64.hash(pixels, 0) : 0;
+    }
+
+    /**
+     * Upload decoded images until the budget is used up.  Called once per frame on the GL thread.  At least one image
+     * is uploaded per call so images larger than the budget still arrive.
+     *
+     * @param budgetBytes Bytes of pixel data to upload this call
+     */
+    public void processUploads(long budgetBytes) {
+        GLWrapper gl = Settings.graphicsImpl;
+        startStaging();
+        PixelUploadRing ring = staging;
+        if (ring != null) {
+            ring.reclaim();
+        }
+        long uploaded = 0;
+        Decoded next;
+        while ((next = decoded.peek()) != null) {
+            if (next.error != null) {
+                decoded.poll();
+                pending.decrementAndGet();
+                log.error("ERROR : TextureLoader : Unable to load {}", next.texture.getFilePath(), next.error);
+                next.future.completeExceptionally(next.error);
+                continue;
+            }
+            Texture original = findOriginal(next);
+            if (original != null) {
+                //Costs no upload, so it doesn't count against the budget
+                decoded.poll();
+                share(gl, next, original);
+                continue;
+            }
+            long size = next.size();
+            if (uploaded > 0 && uploaded + size > budgetBytes) {
+                break;
+            }
+            decoded.poll();
+            if (next.cached != null) {
+                uploadCached(next);
+            } else {
+                upload(gl, next);
+            }
+            uploaded += size;
+        }
+        if (ring != null) {
+            ring.endFrame();
+        }
+        lastFrameBytes = uploaded;
+        if (uploaded > 0 && pending.get() == 0) {
+            log.info("Texture loads settled: I/O took {} ms, {} decoded in {} ms, {} uploaded ({} KB) in {} ms, {} "
+                     + "duplicates shared ({} KB)", getIoNanos() / 1_000_000, getDecodedCount(),
+                     getDecodeNanos() / 1_000_000, uploadedCount, uploadedBytes / 1024, uploadNanos / 1_000_000,
+                     dedupedCount, dedupedBytes / 1024);
+        }
+    }
+
+    /**
+     * Find an uploaded texture holding the same pixels as the image.
+     *
+     * @param image decoded image
+     * @return texture to share, null if the image has to be uploaded
+     */
+    private Texture findOriginal(Decoded image) {
+        if (image.hash == 0) {
+            return null;
+        }
+        Texture original = uploadedByContent.get(image.hash);
+        if (original == null || original == image.texture || original.getWidth() != image.width
+            || original.getHeight() != image.height) {
+            return null;
+        }
+        return original;
+    }
+
+    /**
+     * Point the image's texture at an identical texture instead of uploading it.  The load completes with the
+     * original, so everything looking it up from then on draws from the same texture and batch slot.
+     *
+     * @param gl       graphics implementation
+     * @param image    decoded image
+     * @param original texture holding the same pixels
+     */
+    private void share(GLWrapper gl, Decoded image, Texture original) {
+        long size = image.size();
+        if (image.pixels != null) {
+            gl.stbiImageFree(image.pixels);
+        }
+        if (image.staged != null) {
+            staging.discard(image.staged);
+        }
+        image.texture.shareImage(original);
+        dedupedCount++;
+        dedupedBytes += size;
+        pending.decrementAndGet();
+        log.debug("{} is identical to {}, sharing its texture", image.texture.getFilePath(), original.getFilePath());
+        image.future.complete(original);
+    }
+
+    /**
+     * Remember an uploaded image's texture so identical images loaded later share it.
+     *
+     * @param image uploaded image
+     */
+    private void register(Decoded image) {
+        if (image.hash != 0) {
+            image.texture.setContentHash(image.hash);
+            uploadedByContent.putIfAbsent(image.hash, image.texture);
+        }
+    }
+
+    /**
+     * Upload a decoded image into its texture, from its staging slice if the worker found room for it.
+     *
+     * @param gl    graphics implementation
+     * @param image decoded image
+     */
+    private void upload(GLWrapper gl, Decoded image) {
+        long start = System.nanoTime();
+        long size = image.size();
+        image.texture.bind();
+        if (image.staged != null) {
+            //Sizes the texture and fills it from the slice in one call, the driver copies without the CPU waiting
+            gl.glBindBuffer(GL_PIXEL_UNPACK_BUFFER, staging.getBufferId());
+            gl.glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, image.width, image.height, 0, GL_RGBA, GL_UNSIGNED_BYTE,
+                            image.staged.getOffset());
+            //Left bound, the unpack buffer would turn every other texture upload into an offset
+            gl.glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+            staging.uploaded(image.staged);
+        } else {
+            gl.glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, image.width, image.height, 0, GL_RGBA, GL_UNSIGNED_BYTE,
+                            image.pixels);
+            gl.stbiImageFree(image.pixels);
+        }
+
+        image.texture.setWidth(image.width);
+        image.texture.setHeight(image.height);
+        uploadedCount++;
+        uploadedBytes += size;
+        uploadNanos += System.nanoTime() - start;
+        pending.decrementAndGet();
+        register(image);
+        image.future.complete(image.texture);
+    }
+
+    /**
+     * Upload an image mapped from the TextureCache, the GL reads the levels straight from the mapping.
+     *
+     * @param image cached image
+     */
+    private void uploadCached(Decoded image) {
+        long start = System.nanoTime();
+        image.texture.bind();
+        image.texture.provision(image.cached);
+        uploadedCount++;
+        uploadedBytes += image.size();
+        uploadNanos += System.nanoTime() - start;
+        pending.decrementAndGet();
+        register(image);
+        image.future.complete(image.texture);
+    }
+
+    /**
+     * Retrieve the number of loads not yet uploaded.
+     *
+     * @return loads still decoding or waiting to upload
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * Retrieve the number of images decoded so far.
+     *
+     * @return decoded images
+     */
+    public int getDecodedCount() {
+        return decodedCount.get();
+    }
+
+    /**
+     * Retrieve the time spent reading files and reading or writing cache entries across all worker threads.
+     *
+     * @return I/O time in nanoseconds
+     */
+    public long getIoNanos() {
+        return ioNanos.get();
+    }
+
+    /**
+     * Retrieve the time spent decoding across all worker threads.
+     *
+     * @return decode time in nanoseconds
+     */
+    public long getDecodeNanos() {
+        return decodeNanos.get();
+    }
+
+    /**
+     * Image decoded by a worker or mapped from the cache, or the reason it could not be.
+     */
+    private static final class Decoded {
+        private final Texture                    texture;
+        private final CompletableFuture<Texture> future;
+        //Set for cache hits, pixels is null then
+        private final TextureCache.Image         cached;
+        //Decoded pixels still in stbi's memory, null if they were copied into a staging slice
+        private final ByteBuffer                 pixels;
+        private final PixelUploadRing.Slice      staged;
+        private final int                        width;
+        private final int                        height;
+        //Hash of the pixels, 0 if not hashed
+        private final long                       hash;
+        private final Exception                  error;
+
+        private Decoded(Texture texture, CompletableFuture<Texture> future, TextureCache.Image cached,
+                        ByteBuffer pixels, PixelUploadRing.Slice staged, int width, int height, long hash,
+                        Exception error) {
+            this.texture = texture;
+            this.future = future;
+            this.cached = cached;
+            this.pixels = pixels;
+            this.staged = staged;
+            this.width = width;
+            this.height = height;
+            this.hash = hash;
+            this.error = error;
+        }
+
+        /**
+         * Bytes of pixel data to upload, every mip level included.
+         *
+         * @return upload size
+         */
+        private long size() {
+            if (staged != null) {
+                return staged.getSize();
+            }
+            if (cached == null) {
+                return pixels.remaining();
+            }
+            long size = 0;
+            for (ByteBuffer level : cached.getLevels()) {
+                size += level.remaining();
+            }
+            return size;
+        }
+    }
+}
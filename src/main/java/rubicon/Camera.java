@@ -1,10 +1,11 @@
 package rubicon;
 
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.Getter;
+import lombok.Setter;
 import org.joml.Matrix4f;
 import org.joml.Vector2f;
-import org.joml.Vector3f;
 
 /**
  * Class: Camera
@@ -38,6 +39,14 @@ public class Camera {
     @Getter
     private final Vector2f projectionSize = new Vector2f(RIGHT_LENGTH, TOP_LENGTH);
 
+    //Position the view matrix was last built for, NaN until it has been built
+    @Getter(AccessLevel.NONE)
+    private final Vector2f viewPosition = new Vector2f(Float.NaN);
+
+    //Incremented whenever the projection or view matrix changes, lets consumers skip re-uploading them
+    @Setter(AccessLevel.NONE)
+    private int version;
+
     /**
      * Constructor responsible for initializing relevant camera matrices and adjusting the projection to the
      * given position.
@@ -62,20 +71,24 @@ public class Camera {
         //Configured the Projection matrix to be an orthogonal plane.
         projectionMatrix.ortho(0.0f, projectionSize.x, 0.0f, projectionSize.y, NEAR_DIST, FAR_DIST);
         projectionMatrix.invert(inverseProjection);
+        version++;
     }
 
     /**
-     * Defines how the Camera is looking.
+     * Defines how the Camera is looking.  Only rebuilt when the position changed since the last call.
      *
      * @return View Matrix after lookAt cameraFront/Position
      */
     public Matrix4f getViewMatrix() {
-        Vector3f cameraFront = new Vector3f(0.0f, 0.0f, -1.0f);
-        Vector3f cameraUp = new Vector3f(0.0f, 1.0f, 0.0f);
-        this.viewMatrix.identity();
-        viewMatrix.lookAt(new Vector3f(position.x, position.y, 20.0f), cameraFront.add(position.x, position.y, 0.0f),
-                          cameraUp);
-        this.viewMatrix.invert(inverseView);
+        if (!viewPosition.equals(position)) {
+            //Looking down -z from 20 units in front of the position, with +y up
+            viewMatrix.setLookAt(position.x, position.y, 20.0f,
+                                 position.x, position.y, -1.0f,
+                                 0.0f, 1.0f, 0.0f);
+            viewMatrix.invert(inverseView);
+            viewPosition.set(position);
+            version++;
+        }
         return this.viewMatrix;
     }
 }
@@ -80,6 +80,7 @@ public class GameObject {
         for (Component c : this.components) {
             if (cClass.isAssignableFrom(c.getClass())) {
                 this.components.remove(c);
+                c.destroy();
                 return;
             }
         }
@@ -112,6 +113,13 @@ public class GameObject {
         this.components.forEach(Component::start);
     }
 
+    /**
+     * Iterate all the registered components and run their destroy method.
+     */
+    public void destroy() {
+        this.components.forEach(Component::destroy);
+    }
+
     /**
      * Render all the component ImGui management overlays.
      */
@@ -1,5 +1,6 @@
 package rubicon;
 
+import editor.AssetPoolWindow;
 import editor.GameViewWindow;
 import imgui.*;
 import imgui.flag.ImGuiCond;
@@ -166,6 +167,7 @@ public class IMGuiLayer {
         setupDockspace();
         scene.sceneImgui();
         GameViewWindow.imgui();
+        AssetPoolWindow.imgui();
         ImGui.end();
         endFrame();
     }
@@ -1,5 +1,6 @@
 package rubicon;
 
+import graphics.CachingGLWrapper;
 import graphics.GLWrapper;
 import imgui.app.Color;
 import imgui.app.Configuration;
@@ -11,12 +12,16 @@ import org.lwjgl.opengl.GL11;
 import org.lwjgl.system.Callback;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.system.MemoryUtil;
+import render.CameraUniformBuffer;
 import render.DebugDraw;
 import render.FrameBuffer;
+import render.GLTaskQueue;
+import render.RenderQueue;
 import scene.LevelEditorScene;
 import scene.LevelScene;
 import scene.Scene;
 import scene.Settings;
+import util.AssetPool;
 
 import java.nio.IntBuffer;
 import java.util.ArrayList;
@@ -44,7 +49,7 @@ public class Window {
     private final   Configuration  config;
     //ImGui Layer used to render overlays.
     private final   IMGuiLayer     guiLayer;
-    private final   GLWrapper      gl;
+    private         GLWrapper      gl;
     Logger log = LogManager.getLogger(Window.class);
     float  dt  = -1.0f;
     //Actual resolution values for the window.
@@ -123,6 +128,9 @@ public class Window {
             default:
                 throw new IllegalArgumentException(String.format("Unrecognized scene: %d", sceneId));
         }
+        //Debug lines and draws queued by the previous scene don't carry over
+        DebugDraw.clear();
+        RenderQueue.clear();
         w.currentScene.load();
         w.currentScene.init();
         w.currentScene.start();
@@ -231,6 +239,11 @@ public class Window {
      * Initialize and configure the Window
      */
     protected void initWindow() {
+        //Every GL call has to go through the cache once it tracks state, so wrap before anything is created
+        if (Settings.cacheGLState && !(gl instanceof CachingGLWrapper)) {
+            gl = new CachingGLWrapper(gl);
+            Settings.graphicsImpl = gl;
+        }
         gl.enableErrors();
 
         if (!gl.glfwInit()) {
@@ -266,6 +279,8 @@ public class Window {
         gl.glfwMakeContextCurrent(glfwWindow);
 
         gl.createCapabilities();
+        //GL objects requested from other threads are created here from now on
+        GLTaskQueue.setGLThread(Thread.currentThread());
 
         gl.glfwSwapInterval(GLFW_TRUE);
 
@@ -367,6 +382,9 @@ public class Window {
         process(dt);
         postProcess(dt);
         renderBuffer();
+        if (gl instanceof CachingGLWrapper cache) {
+            cache.endFrame();
+        }
     }
 
     /**
@@ -375,7 +393,12 @@ public class Window {
      * @param dt delta time of frame
      */
     protected void preProcess(float dt) {
-        //Not implemented
+        //Create GL objects other threads asked for, then land textures loaded in the background before anything
+        //draws with them
+        GLTaskQueue.drain();
+        AssetPool.getTextureLoader()
+                 .processUploads(Settings.textureUploadBudget);
+        AssetPool.update();
     }
 
     /**
@@ -386,8 +409,12 @@ public class Window {
     private void process(float dt) {
         //If dt isn't 0, we call update on the scene.
         if (dt >= 0) {
-            DebugDraw.draw();
+            DebugDraw.submit();
             currentScene.update(dt);
+            //Uploaded after the scene moved the camera, so this frame draws from where it is now
+            CameraUniformBuffer.update(currentScene.getCamera());
+            //Everything the scene queued is drawn in sort key order
+            RenderQueue.execute();
         }
         this.frameBuffer.unbind();
         this.guiLayer.update(dt, currentScene);
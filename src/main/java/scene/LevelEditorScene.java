@@ -8,6 +8,7 @@ import org.joml.Vector3f;
 import physics.physics_2d.PhysicsSystem2D;
 import physics.physics_2d.rigidbody.Rigidbody2D;
 import render.DebugDraw;
+import render.GridRenderer;
 import rubicon.Camera;
 import rubicon.GameObject;
 import rubicon.Prefabs;
@@ -28,6 +29,8 @@ public class LevelEditorScene extends Scene {
     private final SpriteSheet spriteSheet = new SpriteSheet(
             Objects.requireNonNull(AssetPool.getTexture("assets/images/spritesheets/decorationsAndBlocks.png")),
             16, 16, 81, 0);
+    //Texture coordinates of the palette button being drawn
+    private final float[] paletteUVs = new float[Sprite.TEX_COORD_FLOATS];
     GameObject levelEditorStuff = new GameObject("levelEditor", new Transform(new Vector2f()), 0);
     PhysicsSystem2D physics = new PhysicsSystem2D(1.0f / 60.0f, new Vector2f(0, -10f));
     Transform obj1;
@@ -66,21 +69,36 @@ public class LevelEditorScene extends Scene {
     }
 
     /**
-     * Pre-Load necessary assets to prevent runtime allocations.
+     * {@inheritDoc}
      */
-    private void loadResources() {
-        AssetPool.getShader("assets/shader/default.glsl");
+    @Override
+    protected void collectAssets(LevelManifest manifest) {
+        manifest.addShader("assets/shader/default.glsl");
+        manifest.addShader(GridRenderer.SHADER_PATH);
+        manifest.addTexture("assets/images/spritesheets/decorationsAndBlocks.png");
+    }
 
+    /**
+     * Register the scene's SpriteSheet, the level's textures and shaders were preloaded by load.
+     */
+    private void loadResources() {
         AssetPool.addSpriteSheet("assets/images/spritesheets/decorationsAndBlocks.png",
                                  spriteSheet);
-        //Fix texture Ids to prevent race condition issues with textureIds
-        gameObjects
-                .stream()
-                .filter(g -> g.getComponent(SpriteRenderer.class) != null)
-                .map(g -> g.getComponent(SpriteRenderer.class))
-                .filter(s -> s.getTexture() != null)
-                .forEach(s -> s.setTexture(AssetPool.getTexture(s.getTexture()
-                                                                 .getFilePath())));
+        if (Settings.buildTextureAtlas) {
+            AssetPool.buildAtlas(Settings.atlasPageSize);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void dispose() {
+        //Let the sheet's texture be evicted once the next scene needs the memory
+        AssetPool.removeSpriteSheet("assets/images/spritesheets/decorationsAndBlocks.png");
+        //Not part of the scene's GameObjects, so its components are torn down here
+        levelEditorStuff.destroy();
+        super.dispose();
     }
 
     /**
@@ -120,11 +138,10 @@ public class LevelEditorScene extends Scene {
             float sWidth = sprite.getWidth() * 4;
             float sHeight = sprite.getHeight() * 4;
             int id = sprite.getTexId();
-            Vector2f[] texCoords = sprite.getTexCoords();
+            sprite.copyTexCoords(paletteUVs);
 
             ImGui.pushID(i);
-            if (ImGui.imageButton(id, sWidth, sHeight, texCoords[2].x, texCoords[0].y, texCoords[0].x,
-                                  texCoords[2].y)) {
+            if (ImGui.imageButton(id, sWidth, sHeight, paletteUVs[4], paletteUVs[1], paletteUVs[0], paletteUVs[5])) {
                 GameObject block = Prefabs.generateSpriteObject(sprite, 32, 32);
                 //Attach to the mouse cursor
                 levelEditorStuff.getComponent(MouseControls.class)
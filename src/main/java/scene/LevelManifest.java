@@ -0,0 +1,167 @@
+package scene;
+
+import component.SpriteRenderer;
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import render.GLTaskQueue;
+import render.Texture;
+import render.TextureLoader;
+import rubicon.GameObject;
+import util.AssetPool;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class: LevelManifest
+ * Author: rapto
+ * CreatedDate: 3/28/2025 : 10:20 AM
+ * Project: GameEngine
+ * Description: Every asset a level references, gathered once after the level is deserialized.  The textures are
+ * loaded together, read and decoded on the TextureLoader's bounded pool while shaders compile, and the components are
+ * then linked to the loaded assets in a single pass.
+ */
+public class LevelManifest {
+    private static final Logger               log       = LogManager.getLogger(LevelManifest.class);
+    //Unique asset paths, in the order first referenced
+    @Getter
+    private final        Set<String>          textures  = new LinkedHashSet<>();
+    @Getter
+    private final        Set<String>          shaders   = new LinkedHashSet<>();
+    //Renderers to point at the loaded textures
+    private final        List<SpriteRenderer> renderers = new ArrayList<>();
+    //Textures loaded by preload, keyed by path
+    private final        Map<String, Texture> loaded    = new HashMap<>();
+    //Load time by stage, I/O and decode summed across the worker threads
+    @Getter
+    private              long                 ioNanos;
+    @Getter
+    private              long                 decodeNanos;
+    @Getter
+    private              long                 uploadNanos;
+    @Getter
+    private              long                 shaderNanos;
+    @Getter
+    private              long                 linkNanos;
+    //Time from the start of preload to the end of link
+    @Getter
+    private              long                 totalNanos;
+
+    /**
+     * Gather the assets referenced by the given GameObjects.
+     *
+     * @param gameObjects GameObjects of the level
+     * @return manifest of the level
+     */
+    public static LevelManifest collect(List<GameObject> gameObjects) {
+        LevelManifest manifest = new LevelManifest();
+        for (GameObject go : gameObjects) {
+            SpriteRenderer spr = go.getComponent(SpriteRenderer.class);
+            if (spr != null && spr.getTexture() != null && spr.getTexture()
+                                                              .getFilePath() != null) {
+                manifest.renderers.add(spr);
+                manifest.addTexture(spr.getTexture()
+                                       .getFilePath());
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Include a texture the level uses without any GameObject referencing it yet.
+     *
+     * @param filePath Relative Texture path
+     */
+    public void addTexture(String filePath) {
+        textures.add(filePath);
+    }
+
+    /**
+     * Include a shader the level uses.
+     *
+     * @param filePath Relative Shader path
+     */
+    public void addShader(String filePath) {
+        shaders.add(filePath);
+    }
+
+    /**
+     * Load every asset of the manifest and wait for them.  Textures are requested all at once and decoded in the
+     * background, shaders compile meanwhile, then uploads are pumped until every texture has landed.  Must run on the
+     * GL thread.
+     */
+    public void preload() {
+        assert GLTaskQueue.isGLThread() : "ERROR : LevelManifest : preload must run on the GL thread";
+        long start = System.nanoTime();
+        TextureLoader loader = AssetPool.getTextureLoader();
+        long ioBefore = loader.getIoNanos();
+        long decodeBefore = loader.getDecodeNanos();
+        long uploadBefore = loader.getUploadNanos();
+
+        Map<String, CompletableFuture<Texture>> pending = new LinkedHashMap<>();
+        for (String filePath : textures) {
+            pending.put(filePath, AssetPool.getTextureAsync(filePath));
+        }
+
+        long shaderStart = System.nanoTime();
+        for (String filePath : shaders) {
+            AssetPool.getShader(filePath);
+        }
+        shaderNanos = System.nanoTime() - shaderStart;
+
+        CompletableFuture<Void> all = CompletableFuture.allOf(pending.values()
+                                                                     .toArray(CompletableFuture[]::new));
+        while (!all.isDone()) {
+            GLTaskQueue.drain();
+            //Nothing is drawn while loading, so there is no frame to spread the uploads over
+            loader.processUploads(Long.MAX_VALUE);
+            if (!all.isDone()) {
+                LockSupport.parkNanos(1_000_000);
+            }
+        }
+
+        for (Map.Entry<String, CompletableFuture<Texture>> entry : pending.entrySet()) {
+            CompletableFuture<Texture> future = entry.getValue();
+            if (future.isCompletedExceptionally()) {
+                log.error("ERROR : LevelManifest : Unable to preload {}", entry.getKey());
+            } else {
+                loaded.put(entry.getKey(), future.join());
+            }
+        }
+        ioNanos = loader.getIoNanos() - ioBefore;
+        decodeNanos = loader.getDecodeNanos() - decodeBefore;
+        uploadNanos = loader.getUploadNanos() - uploadBefore;
+        totalNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Point every collected SpriteRenderer at its preloaded texture, replacing the Texture deserialized from the level.
+     */
+    public void link() {
+        long start = System.nanoTime();
+        for (SpriteRenderer spr : renderers) {
+            Texture texture = loaded.get(spr.getTexture()
+                                            .getFilePath());
+            if (texture != null) {
+                spr.setTexture(texture);
+            }
+        }
+        linkNanos = System.nanoTime() - start;
+        totalNanos += linkNanos;
+        log.info("Loaded {} textures and {} shaders in {} ms: I/O {} ms, decode {} ms across workers, upload {} ms, "
+                 + "shaders {} ms, linking {} ms", loaded.size(), shaders.size(), millis(totalNanos), millis(ioNanos),
+                 millis(decodeNanos), millis(uploadNanos), millis(shaderNanos), millis(linkNanos));
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1_000_000.0);
+    }
+}
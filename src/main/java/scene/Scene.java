@@ -62,7 +62,9 @@ public abstract class Scene {
      * Lifecycle hook called to dispose of any resources held by the scene.
      */
     public void dispose() {
-        //Optional Lifecycle hook for disposing of resources.
+        this.gameObjects.forEach(GameObject::destroy);
+        //Batches hold GPU buffers that outlive the scene unless released
+        this.renderer.dispose();
     }
 
     /**
@@ -89,6 +91,21 @@ public abstract class Scene {
         }
     }
 
+    /**
+     * Removes a given GameObject from the scene and stops rendering it.
+     *
+     * @param go GameObject to remove
+     */
+    public void removeGameObjectFromScene(GameObject go) {
+        if (gameObjects.remove(go)) {
+            this.renderer.remove(go);
+            go.destroy();
+            if (activeGameObject == go) {
+                activeGameObject = null;
+            }
+        }
+    }
+
     /**
      * Render the ImGui overlay for a scene.  If we currently have an active game object
      * render those controls as well.
@@ -127,7 +144,16 @@ public abstract class Scene {
     }
 
     /**
-     * Loads a Scenes GameObjets from a level json file.
+     * Hook for assets the scene uses beyond those referenced by its level, preloaded along with them.
+     *
+     * @param manifest Manifest of the level being loaded
+     */
+    protected void collectAssets(LevelManifest manifest) {
+        //Used to declare scene specific assets
+    }
+
+    /**
+     * Loads a Scenes GameObjets from a level json file, then preloads every asset they reference.
      */
     public void load() {
         Gson gson = new GsonBuilder()
@@ -163,5 +189,10 @@ public abstract class Scene {
 
             this.levelLoaded = true;
         }
+
+        LevelManifest manifest = LevelManifest.collect(gameObjects);
+        collectAssets(manifest);
+        manifest.preload();
+        manifest.link();
     }
 }
@@ -2,6 +2,7 @@ package scene;
 
 import graphics.GLWrapper;
 import graphics.LWJGLWrapper;
+import render.BatchMode;
 
 /**
  * Class: Settings
@@ -14,8 +15,70 @@ public class Settings {
     public static final int GRID_WIDTH  = 32;
     public static final int GRID_HEIGHT = 32;
 
+    //Drop GL calls that would not change the bound program, buffers, textures or attributes.  Read by the Window when
+    //it creates the GL context, changing it afterwards has no effect.
+    public static boolean cacheGLState = true;
+
     public static GLWrapper graphicsImpl = new LWJGLWrapper();
 
+    //Stream sprite vertices through a persistently mapped, triple-buffered vertex buffer.
+    public static boolean streamVertexData = false;
+
+    //Fraction of dirty sprites in a RenderBatch past which the whole batch is re-uploaded instead of dirty ranges.
+    public static float fullUploadDirtyRatio = 0.5f;
+
+    //How Renderers lay out and draw sprites unless one is given explicitly.
+    public static BatchMode batchMode = BatchMode.QUAD;
+
+    //Keep every QUAD batch in one shared vertex buffer and draw batches sharing state with one multi-draw indirect call.
+    public static boolean multiDrawIndirect = false;
+
+    //Only batch sprites overlapping the camera's view, tracked with a grid of GRID_WIDTH x GRID_HEIGHT cells.
+    public static boolean frustumCulling = true;
+
+    //Draw SpriteSheet tiles from texture arrays when the driver supports them.
+    public static boolean useTextureArrays = true;
+
+    //Layers allocated per texture array, capped by the driver's limit.
+    public static int textureArrayLayers = 256;
+
+    //Pack registered textures and SpriteSheets into atlas pages once a scene has loaded its resources.
+    public static boolean buildTextureAtlas = false;
+
+    //Width and height in pixels of each texture atlas page.
+    public static int atlasPageSize = 2048;
+
+    //Store linked shader programs on disk and restore them on later launches instead of compiling.
+    public static boolean cacheShaderBinaries = true;
+
+    //Directory holding cached shader program binaries.
+    public static String shaderCacheDirectory = "cache/shaders";
+
+    //Worker threads decoding images requested through AssetPool.getTextureAsync.
+    public static int textureDecodeThreads = Math.max(1, Runtime.getRuntime()
+                                                                .availableProcessors() - 1);
+
+    //Bytes of decoded texture data uploaded per frame, at least one texture is always uploaded.
+    public static long textureUploadBudget = 8L * 1024 * 1024;
+
+    //Store decoded images on disk and map them on later launches instead of decoding.
+    public static boolean cacheTextures = true;
+
+    //Share one texture between images with identical pixels loaded through AssetPool.getTextureAsync.
+    public static boolean deduplicateTextures = true;
+
+    //Directory holding cached decoded images.
+    public static String textureCacheDirectory = "cache/textures";
+
+    //Precompute a mip chain for cached images so zoomed out sprites don't shimmer.
+    public static boolean textureMipmaps = false;
+
+    //Bytes of texture memory kept resident, least recently used unreferenced textures are evicted past it.
+    public static long textureMemoryBudget = 512L * 1024 * 1024;
+
+    //Pack file built by the buildAssetBundle Gradle task, AssetPool resolves resources from it before loose files.
+    public static String assetBundle = "assets.pack";
+
     private Settings() {
 
     }
@@ -0,0 +1,325 @@
+package util;
+
+import graphics.GLWrapper;
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.lwjgl.BufferUtils;
+import scene.Settings;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Class: AssetBundle
+ * Author: rapto
+ * CreatedDate: 3/24/2025 : 9:18 AM
+ * Project: GameEngine
+ * Description: Read-only pack of asset files memory mapped in one piece.  An open addressed hash index maps resource
+ * names to blobs, so a lookup costs one hash and usually one probe, and blobs are handed out as slices of the mapping
+ * without copying.  Images are stored either as their encoded file or pre-decoded to RGBA.
+ * <p>
+ * Layout, little endian: a header (magic, version, entry count, slot count), the slots, the names, then the blobs
+ * aligned to BLOB_ALIGNMENT.
+ */
+public class AssetBundle {
+    //Marks a bundle file
+    static final         int    MAGIC          = 0x524E4442;
+    //Bumped whenever the layout changes
+    static final         int    VERSION        = 1;
+    //Blob holds the file as is
+    public static final  int    KIND_RAW       = 0;
+    //Blob holds RGBA pixels, flipped like every texture the engine loads
+    public static final  int    KIND_RGBA      = 1;
+    private static final Logger log            = LogManager.getLogger(AssetBundle.class);
+    private static final int    HEADER_SIZE    = 4 * Integer.BYTES;
+    // Slot
+    // ====
+    // Hash     NameOffset  NameLength  DataOffset  DataLength  Kind    Width   Height
+    // long,    int,        int,        long,       int,        int,    int,    int
+    private static final int    SLOT_SIZE      = 40;
+    private static final int    BLOB_ALIGNMENT = 16;
+
+    //The whole bundle
+    private final ByteBuffer data;
+    //Number of slots, a power of two
+    private final int        slots;
+    @Getter
+    private final int        entryCount;
+
+    private AssetBundle(ByteBuffer data) throws IOException {
+        this.data = data.order(ByteOrder.LITTLE_ENDIAN);
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IOException("Not an asset bundle");
+        }
+        this.entryCount = data.getInt(8);
+        this.slots = data.getInt(12);
+        if (Integer.bitCount(slots) != 1 || HEADER_SIZE + (long) slots * SLOT_SIZE > data.capacity()) {
+            throw new IOException("Corrupt asset bundle index");
+        }
+    }
+
+    /**
+     * Map a bundle file.  The mapping stays valid after the channel is closed.
+     *
+     * @param file Bundle to open
+     * @return opened bundle
+     * @throws IOException if the file can't be read or isn't a bundle
+     */
+    public static AssetBundle open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new AssetBundle(mapped);
+        }
+    }
+
+    /**
+     * Find the blob stored under a resource name.
+     *
+     * @param resourceName Relative resource path, as passed to the AssetPool
+     * @return entry, null if the bundle doesn't hold the resource
+     */
+    public Entry find(String resourceName) {
+        byte[] name = normalize(resourceName).getBytes(StandardCharsets.UTF_8);
+        long hash = hash(name);
+        int mask = slots - 1;
+        for (int i = 0; i < slots; i++) {
+            int slot = HEADER_SIZE + (((int) hash + i) & mask) * SLOT_SIZE;
+            int nameLength = data.getInt(slot + 12);
+            if (nameLength == 0) {
+                //Empty slot ends the probe
+                return null;
+            }
+            if (data.getLong(slot) == hash && nameLength == name.length && nameEquals(data.getInt(slot + 8), name)) {
+                ByteBuffer blob = data.slice((int) data.getLong(slot + 16), data.getInt(slot + 24));
+                return new Entry(data.getInt(slot + 28), data.getInt(slot + 32), data.getInt(slot + 36), blob);
+            }
+        }
+        return null;
+    }
+
+    private boolean nameEquals(int offset, byte[] name) {
+        for (int i = 0; i < name.length; i++) {
+            if (data.get(offset + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Convert a resource name to the form stored in the index, forward slashes without a leading "./".
+     *
+     * @param resourceName Relative resource path
+     * @return normalized name
+     */
+    static String normalize(String resourceName) {
+        String name = resourceName.replace('\\', '/');
+        while (name.startsWith("./")) {
+            name = name.substring(2);
+        }
+        return name;
+    }
+
+    /**
+     * 64 bit FNV-1a hash.
+     *
+     * @param bytes bytes to hash
+     * @return hash
+     */
+    static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Pack every file below a directory into a bundle.  Resource names are the file paths as reached from the
+     * directory, so packing "assets" stores "assets/shader/default.glsl" under that name.
+     *
+     * @param root         Directory to pack
+     * @param out          Bundle file to write
+     * @param decodeImages true to store images pre-decoded to RGBA instead of encoded
+     * @throws IOException if a file can't be read or the bundle can't be written
+     */
+    public static void write(Path root, Path out, boolean decodeImages) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile)
+                        .sorted()
+                        .toList();
+        }
+
+        //Half full at most so probes stay short
+        int slots = Integer.highestOneBit(Math.max(1, files.size() * 2 - 1)) << 1;
+        List<byte[]> names = new ArrayList<>();
+        int namesSize = 0;
+        for (Path file : files) {
+            byte[] name = normalize(file.toString()).getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            namesSize += name.length;
+        }
+
+        ByteBuffer index = ByteBuffer.allocate(HEADER_SIZE + slots * SLOT_SIZE + namesSize)
+                                     .order(ByteOrder.LITTLE_ENDIAN);
+        index.putInt(MAGIC)
+             .putInt(VERSION)
+             .putInt(files.size())
+             .putInt(slots);
+
+        int nameOffset = HEADER_SIZE + slots * SLOT_SIZE;
+        long dataOffset = align(index.capacity());
+        List<Blob> blobs = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            Blob blob = Blob.read(files.get(i), decodeImages);
+            blobs.add(blob);
+            byte[] name = names.get(i);
+            long hash = hash(name);
+            int slot = (int) hash & (slots - 1);
+            while (index.getInt(HEADER_SIZE + slot * SLOT_SIZE + 12) != 0) {
+                slot = (slot + 1) & (slots - 1);
+            }
+            int at = HEADER_SIZE + slot * SLOT_SIZE;
+            index.putLong(at, hash)
+                 .putInt(at + 8, nameOffset)
+                 .putInt(at + 12, name.length)
+                 .putLong(at + 16, dataOffset)
+                 .putInt(at + 24, blob.bytes.remaining())
+                 .putInt(at + 28, blob.kind)
+                 .putInt(at + 32, blob.width)
+                 .putInt(at + 36, blob.height);
+            index.put(nameOffset, name);
+            nameOffset += name.length;
+            dataOffset = align(dataOffset + blob.bytes.remaining());
+        }
+
+        try (FileChannel channel = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            index.rewind();
+            while (index.hasRemaining()) {
+                channel.write(index);
+            }
+            for (Blob blob : blobs) {
+                channel.position(align(channel.position()));
+                while (blob.bytes.hasRemaining()) {
+                    channel.write(blob.bytes);
+                }
+            }
+        }
+        log.info("Packed {} assets from {} into {} ({} KB)", files.size(), root, out, Files.size(out) / 1024);
+    }
+
+    private static long align(long offset) {
+        return (offset + BLOB_ALIGNMENT - 1) & -BLOB_ALIGNMENT;
+    }
+
+    /**
+     * Entry point of the buildAssetBundle Gradle task.
+     *
+     * @param args source directory, bundle file and optionally --decode to pre-decode images
+     * @throws IOException if the bundle can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            log.error("Usage: AssetBundle <assetDirectory> <bundleFile> [--decode]");
+            return;
+        }
+        write(Paths.get(args[0]), Paths.get(args[1]), args.length > 2 && "--decode".equals(args[2]));
+    }
+
+    /**
+     * Blob stored in the bundle.
+     */
+    @Getter
+    public static final class Entry {
+        private final int        kind;
+        //Dimensions of KIND_RGBA blobs, 0 otherwise
+        private final int        width;
+        private final int        height;
+        //Slice of the mapped bundle, valid for as long as the bundle is referenced
+        private final ByteBuffer data;
+
+        private Entry(int kind, int width, int height, ByteBuffer data) {
+            this.kind = kind;
+            this.width = width;
+            this.height = height;
+            this.data = data;
+        }
+
+        /**
+         * Check if the blob holds decoded pixels.
+         *
+         * @return true for KIND_RGBA
+         */
+        public boolean isDecoded() {
+            return kind == KIND_RGBA;
+        }
+
+        /**
+         * Decode the blob as UTF-8 text.
+         *
+         * @return text of the blob
+         */
+        public String asString() {
+            return StandardCharsets.UTF_8.decode(data.duplicate())
+                                         .toString();
+        }
+    }
+
+    /**
+     * File contents on their way into a bundle.
+     */
+    private static final class Blob {
+        private final int        kind;
+        private final int        width;
+        private final int        height;
+        private final ByteBuffer bytes;
+
+        private Blob(int kind, int width, int height, ByteBuffer bytes) {
+            this.kind = kind;
+            this.width = width;
+            this.height = height;
+            this.bytes = bytes;
+        }
+
+        private static Blob read(Path file, boolean decodeImages) throws IOException {
+            String name = file.getFileName()
+                              .toString()
+                              .toLowerCase(Locale.ROOT);
+            if (decodeImages && (name.endsWith(".png") || name.endsWith(".jpg"))) {
+                GLWrapper gl = Settings.graphicsImpl;
+                IntBuffer width = BufferUtils.createIntBuffer(1);
+                IntBuffer height = BufferUtils.createIntBuffer(1);
+                IntBuffer channels = BufferUtils.createIntBuffer(1);
+                //Textures are always loaded flipped
+                gl.stbiSetFlipVerticallyOnLoad(true);
+                ByteBuffer pixels = gl.stbiLoad(file.toString(), width, height, channels, 4);
+                if (pixels != null) {
+                    ByteBuffer copy = ByteBuffer.allocate(pixels.remaining());
+                    copy.put(pixels.duplicate())
+                        .flip();
+                    gl.stbiImageFree(pixels);
+                    return new Blob(KIND_RGBA, width.get(0), height.get(0), copy);
+                }
+                log.warn("Could not decode {}, storing it encoded", file);
+            }
+            return new Blob(KIND_RAW, 0, 0, ByteBuffer.wrap(Files.readAllBytes(file)));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package util;
+
+import java.util.Map;
+
+/**
+ * Class: AssetHandle
+ * Author: rapto
+ * CreatedDate: 3/26/2025 : 10:05 AM
+ * Project: GameEngine
+ * Description: Counted reference to an asset of the AssetPool.  The pool never evicts an asset while a handle to it
+ * is held, so hold a handle for as long as the asset is in use and release it once done.
+ *
+ * @param <T> Type of the asset
+ */
+public final class AssetHandle<T> implements AutoCloseable {
+    //Key of the asset within the pool
+    private final String               key;
+    private final T                    asset;
+    //Reference counts of the pool the asset belongs to
+    private final Map<String, Integer> refs;
+    private       boolean              released;
+
+    AssetHandle(String key, T asset, Map<String, Integer> refs) {
+        this.key = key;
+        this.asset = asset;
+        this.refs = refs;
+        refs.merge(key, 1, Integer::sum);
+    }
+
+    /**
+     * Retrieve the asset.
+     *
+     * @return referenced asset
+     */
+    public T get() {
+        assert !released : "ERROR : AssetHandle : Asset used after release " + key;
+        return asset;
+    }
+
+    /**
+     * Drop this handle's reference.  Further calls do nothing.
+     */
+    public void release() {
+        if (!released) {
+            released = true;
+            refs.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+}
@@ -1,29 +1,73 @@
 package util;
 
+import component.Sprite;
 import component.SpriteSheet;
+import graphics.GLWrapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.joml.Vector2f;
+import org.lwjgl.BufferUtils;
+import render.GLTaskQueue;
+import render.RenderBatch;
 import render.Shader;
 import render.Texture;
+import render.TextureArray;
+import render.TextureLoader;
+import scene.Settings;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class: AssetPool
  * Author: rapto
  * CreatedDate: 1/22/2025 : 11:13 AM
  * Project: GameEngine
- * Description: Manages Asset resources from filesystem
+ * Description: Manages Asset resources from filesystem.  Safe to call from any thread: GL objects are only ever
+ * created on the GL thread, through the GLTaskQueue, and concurrent requests for one texture share a single load.
  */
 public class AssetPool {
-    static final         Map<String, Shader>      shaderMap      = new HashMap<>();
+    static final         Map<String, Shader>                         shaderMap       = new ConcurrentHashMap<>();
     //Map  of Texture assets
-    static final         Map<String, Texture>     textureMap     = new HashMap<>();
+    static final         Map<String, Texture>                        textureMap      = new ConcurrentHashMap<>();
     //Map  of SpriteSheet assets
-    static final         Map<String, SpriteSheet> spriteSheetMap = new HashMap<>();
-    private static final Logger                   log            = LogManager.getLogger(AssetPool.class);
+    static final         Map<String, SpriteSheet>                    spriteSheetMap  = new ConcurrentHashMap<>();
+    private static final Logger                                      log             = LogManager.getLogger(AssetPool.class);
+    //Empty pixels kept between images packed into an atlas page
+    private static final int                                         ATLAS_PADDING   = 1;
+    //Texture arrays holding SpriteSheet tiles, one or more per tile size
+    static final         List<TextureArray>                          textureArrays   = new ArrayList<>();
+    //Layers each SpriteSheet holds in the texture arrays, only touched on the GL thread
+    static final         Map<SpriteSheet, Map<TextureArray, BitSet>> sheetLayers     = new IdentityHashMap<>();
+    //Atlas built from the registered textures, null until buildAtlas is called
+    static               TextureAtlas                                atlas;
+    //Sprites handed out by getSprite that sample an atlas page, pointed at the new pages when the atlas is rebuilt
+    static final         List<AtlasSprite>                           atlasSprites    = new ArrayList<>();
+    //Textures requested through getTextureAsync that are still loading, keyed like textureMap
+    static final         Map<String, CompletableFuture<Texture>>     pendingTextures = new ConcurrentHashMap<>();
+    //Decodes and uploads textures for getTextureAsync, created on first use
+    private static       TextureLoader                               textureLoader;
+    //Map key of each resource name seen so far
+    private static final Map<String, String>                         keys            = new ConcurrentHashMap<>();
+    //Pack resources are resolved from before the filesystem, null if there is none
+    private static       AssetBundle                                 bundle;
+    private static       boolean                                     bundleOpened;
+    //References held through AssetHandles and SpriteSheets, keyed like textureMap.  Absent means unreferenced.
+    static final         Map<String, Integer>                        textureRefs     = new ConcurrentHashMap<>();
+    //Frames counted by update, stamped on textures as they are bound
+    private static       long                                        frame;
+    //Textures evicted under the memory budget so far
+    private static       int                                         evictionCount;
 
     /**
      * Hide default constructor as this is a static util class.
@@ -34,47 +78,64 @@ public class AssetPool {
 
     /**
      * Attempts to retrieve a shader with given resourceName.  If not found will go to filesystem and attempt to load it.
-     * If resources does not exist, will return null or terminate if assertions are enabled.
+     * If resources does not exist, will return null or terminate if assertions are enabled.  Off the GL thread the
+     * call blocks until the GL thread has compiled the shader.
      *
      * @param resourceName Relative Shader path
      * @return Shader if file exists, null if not.
      */
     public static Shader getShader(String resourceName) {
-        File file = new File(resourceName);
-        if (file.exists()) {
-            if (shaderMap.containsKey(file.getAbsolutePath())) {
-                return shaderMap.get(file.getAbsolutePath());
-            } else {
-                Shader shader = new Shader(resourceName);
-                shader.compileAndLinkShader();
-                AssetPool.shaderMap.put(file.getAbsolutePath(), shader);
-                return shader;
-            }
+        String key = key(resourceName);
+        Shader shader = shaderMap.get(key);
+        if (shader != null) {
+            return shader;
+        }
+        if (!GLTaskQueue.isGLThread()) {
+            return GLTaskQueue.submit(() -> getShader(resourceName))
+                              .join();
+        }
+        //Only the GL thread creates shaders, so nothing can register this one between the check and the put
+        AssetBundle.Entry entry = findInBundle(resourceName);
+        if (entry != null) {
+            shader = new Shader(resourceName, entry.asString());
+        } else if (new File(resourceName).exists()) {
+            shader = new Shader(resourceName);
         } else {
             log.error("ERROR : AssetPool : Shader with given resourceName not found.");
             assert false;
             return null;
         }
+        shader.compileAndLinkShader();
+        AssetPool.shaderMap.put(key, shader);
+        return shader;
     }
 
     /**
      * Attempts to retrieve a texture with given resourceName.  If not found will go to filesystem and attempt to load it.
-     * If resources does not exist, will return null or terminate if assertions are enabled.
+     * If resources does not exist, will return null or terminate if assertions are enabled.  Off the GL thread the
+     * call blocks until the GL thread has loaded the texture, prefer getTextureAsync there.
      *
      * @param resourceName Relative Texture path
      * @return Texture if file exists, null if not.
      */
     public static Texture getTexture(String resourceName) {
-        File file = new File(resourceName);
-        if (file.exists()) {
-            if (textureMap.containsKey(file.getAbsolutePath())) {
-                return textureMap.get(file.getAbsolutePath());
-            } else {
-                Texture texture = new Texture();
-                texture.init(resourceName);
-                AssetPool.textureMap.put(file.getAbsolutePath(), texture);
-                return texture;
-            }
+        String key = key(resourceName);
+        //Generated textures such as atlas pages have no file behind them
+        Texture texture = textureMap.get(key);
+        if (texture != null) {
+            return texture;
+        }
+        if (!GLTaskQueue.isGLThread()) {
+            return GLTaskQueue.submit(() -> getTexture(resourceName))
+                              .join();
+        }
+        //Only the GL thread creates textures, so nothing can register this one between the check and the put
+        AssetBundle.Entry entry = findInBundle(resourceName);
+        if (entry != null || new File(resourceName).exists()) {
+            texture = new Texture();
+            load(texture, resourceName, entry);
+            AssetPool.textureMap.put(key, texture);
+            return texture;
         } else {
             log.error("ERROR : AssetPool : Texture with given resourceName not found.");
             assert false;
@@ -82,6 +143,328 @@ public class AssetPool {
         }
     }
 
+    /**
+     * Load an image into a texture from the bundle entry if there is one, otherwise from the file.
+     *
+     * @param texture      Texture to load into
+     * @param resourceName Relative Texture path
+     * @param entry        Bundle entry of the image, null to read the file
+     */
+    private static void load(Texture texture, String resourceName, AssetBundle.Entry entry) {
+        if (entry == null) {
+            texture.init(resourceName);
+        } else if (entry.isDecoded()) {
+            texture.initDecoded(resourceName, entry.getWidth(), entry.getHeight(), entry.getData());
+        } else {
+            texture.init(resourceName, entry.getData());
+        }
+    }
+
+    /**
+     * Retrieve a texture like getTexture and hold a reference to it, keeping it from being evicted until the handle is
+     * released.
+     *
+     * @param resourceName Relative Texture path
+     * @return handle to the Texture, null if the file does not exist.
+     */
+    public static AssetHandle<Texture> acquireTexture(String resourceName) {
+        Texture texture = getTexture(resourceName);
+        return texture != null ? new AssetHandle<>(key(resourceName), texture, textureRefs) : null;
+    }
+
+    /**
+     * Load an evicted texture again, into a new texture id.  Called by Texture.bind, so holders of the texture never
+     * notice it was evicted.
+     *
+     * @param texture Evicted texture
+     */
+    public static void restore(Texture texture) {
+        String filePath = texture.getFilePath();
+        log.debug("Restoring evicted texture {}", filePath);
+        load(texture, filePath, findInBundle(filePath));
+    }
+
+    /**
+     * Advance the frame counter and evict textures over Settings.textureMemoryBudget.  Called once per frame on the GL
+     * thread.
+     */
+    public static void update() {
+        frame++;
+        enforceTextureBudget(Settings.textureMemoryBudget);
+    }
+
+    /**
+     * Evict the least recently used textures until the resident ones fit the budget.  Textures that are referenced,
+     * still loading, drawn during the last frame or can't be loaded again are kept, even past the budget.
+     *
+     * @param budget Bytes of texture memory to stay within
+     */
+    static void enforceTextureBudget(long budget) {
+        long resident = getResidentTextureBytes();
+        if (resident <= budget) {
+            return;
+        }
+
+        //A texture shared by identical images is kept while any of their paths is in use
+        Set<Texture> inUse = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<String, Texture> entry : textureMap.entrySet()) {
+            if (textureRefs.containsKey(entry.getKey()) || pendingTextures.containsKey(entry.getKey())) {
+                inUse.add(entry.getValue());
+            }
+        }
+        List<Texture> candidates = new ArrayList<>();
+        for (Texture texture : distinctTextures()) {
+            if (texture.isResident() && texture.getLastUsedFrame() < frame - 1 && !inUse.contains(texture)
+                && isRestorable(texture)) {
+                candidates.add(texture);
+            }
+        }
+        candidates.sort(Comparator.comparingLong(Texture::getLastUsedFrame));
+        for (Texture texture : candidates) {
+            if (resident <= budget) {
+                break;
+            }
+            resident -= texture.getMemorySize();
+            texture.evict();
+            evictionCount++;
+            log.debug("Evicted texture {}", texture.getFilePath());
+        }
+        if (resident > budget) {
+            log.warn("Texture memory {} KB is over the budget of {} KB with nothing left to evict", resident / 1024,
+                     budget / 1024);
+        }
+    }
+
+    /**
+     * Check if an evicted texture could be loaded again.  Generated textures such as atlas pages can't.
+     *
+     * @param texture Texture to check
+     * @return true if the texture's image is in the bundle or on disk
+     */
+    private static boolean isRestorable(Texture texture) {
+        String filePath = texture.getFilePath();
+        return filePath != null && (findInBundle(filePath) != null || new File(filePath).exists());
+    }
+
+    /**
+     * Sum the memory held by resident textures.
+     *
+     * @return size in bytes
+     */
+    public static long getResidentTextureBytes() {
+        long bytes = 0;
+        for (Texture texture : distinctTextures()) {
+            bytes += texture.getMemorySize();
+        }
+        return bytes;
+    }
+
+    /**
+     * Collect the registered textures, counting a texture shared by identical images once.
+     *
+     * @return each texture of the textureMap once
+     */
+    private static Set<Texture> distinctTextures() {
+        Set<Texture> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        distinct.addAll(textureMap.values());
+        return distinct;
+    }
+
+    /**
+     * Retrieve every registered texture by key, for inspection.
+     *
+     * @return read only view of the textures
+     */
+    public static Map<String, Texture> getTextures() {
+        return Collections.unmodifiableMap(textureMap);
+    }
+
+    /**
+     * Retrieve the number of references held to a texture.
+     *
+     * @param key Key of the texture, as in getTextures
+     * @return reference count, 0 if unreferenced
+     */
+    public static int getReferenceCount(String key) {
+        return textureRefs.getOrDefault(key, 0);
+    }
+
+    /**
+     * Retrieve the frame counter advanced by update.
+     *
+     * @return current frame
+     */
+    public static long getFrame() {
+        return frame;
+    }
+
+    /**
+     * Retrieve the number of textures evicted under the memory budget so far.
+     *
+     * @return eviction count
+     */
+    public static int getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Retrieve the number of loaded shaders.
+     *
+     * @return shader count
+     */
+    public static int getShaderCount() {
+        return shaderMap.size();
+    }
+
+    /**
+     * Retrieve the number of registered SpriteSheets.
+     *
+     * @return SpriteSheet count
+     */
+    public static int getSpriteSheetCount() {
+        return spriteSheetMap.size();
+    }
+
+    /**
+     * Attempts to retrieve a texture with given resourceName without blocking on the file.  Unknown textures are
+     * registered right away as a placeholder, which getTexture returns as well, and the image is decoded in the
+     * background and uploaded into it over the following frames.  An image identical to one loaded before resolves to
+     * that image's texture, which the textureMap then holds under both paths.
+     *
+     * @param resourceName Relative Texture path
+     * @return future completed on the GL thread once the image is uploaded, failed if it could not be loaded.
+     */
+    public static CompletableFuture<Texture> getTextureAsync(String resourceName) {
+        String key = key(resourceName);
+        //Pending first, a loading texture's placeholder is already in the textureMap
+        CompletableFuture<Texture> pending = pendingTextures.get(key);
+        if (pending != null) {
+            return pending;
+        }
+        Texture texture = textureMap.get(key);
+        if (texture != null) {
+            return CompletableFuture.completedFuture(texture);
+        }
+
+        //The first caller to claim the key starts the load, every other caller shares its future
+        CompletableFuture<Texture> claimed = new CompletableFuture<>();
+        CompletableFuture<Texture> future = pendingTextures.computeIfAbsent(key, k -> claimed);
+        if (future != claimed) {
+            return future;
+        }
+        startLoad(resourceName, key).whenComplete((tex, error) -> {
+            pendingTextures.remove(key, claimed);
+            if (error != null) {
+                claimed.completeExceptionally(error);
+            } else {
+                claimed.complete(tex);
+            }
+        });
+        return claimed;
+    }
+
+    /**
+     * Start loading a texture for getTextureAsync.  The placeholder is created on the GL thread, right away when
+     * called there.
+     *
+     * @param resourceName Relative Texture path
+     * @param key          Map key of the texture
+     * @return future completed once the image is uploaded
+     */
+    private static CompletableFuture<Texture> startLoad(String resourceName, String key) {
+        AssetBundle.Entry entry = findInBundle(resourceName);
+        if (entry == null && !new File(resourceName).exists()) {
+            log.error("ERROR : AssetPool : Texture with given resourceName not found.");
+            return CompletableFuture.failedFuture(new FileNotFoundException(resourceName));
+        }
+
+        CompletableFuture<CompletableFuture<Texture>> upload = GLTaskQueue.submit(() -> {
+            Texture loaded = textureMap.get(key);
+            if (loaded != null) {
+                //Another load of the texture finished after our caller looked
+                return CompletableFuture.completedFuture(loaded);
+            }
+            if (entry != null && entry.isDecoded()) {
+                //Nothing left to decode, hand the pixels straight to GL
+                return CompletableFuture.completedFuture(getTexture(resourceName));
+            }
+            Texture texture = new Texture();
+            texture.initPlaceholder(resourceName);
+            textureMap.put(key, texture);
+            return getTextureLoader().load(texture, entry != null ? entry.getData() : null);
+        });
+        return upload.thenCompose(future -> future)
+                     .thenApply(texture -> {
+                         //Identical images load into the texture already holding them, replacing the placeholder
+                         textureMap.put(key, texture);
+                         return texture;
+                     });
+    }
+
+    /**
+     * Retrieve the loader behind getTextureAsync, its uploads must be processed once per frame.
+     *
+     * @return shared texture loader
+     */
+    public static synchronized TextureLoader getTextureLoader() {
+        if (textureLoader == null) {
+            textureLoader = new TextureLoader(Settings.textureDecodeThreads);
+        }
+        return textureLoader;
+    }
+
+    /**
+     * Use the given bundle to resolve resources before the filesystem, replacing Settings.assetBundle.
+     *
+     * @param bundle Bundle to load from, null to only load loose files
+     */
+    public static synchronized void setBundle(AssetBundle bundle) {
+        AssetPool.bundle = bundle;
+        bundleOpened = true;
+    }
+
+    /**
+     * Look up a resource in the asset bundle, opening Settings.assetBundle on first use if it exists.
+     *
+     * @param resourceName Relative resource path
+     * @return bundle entry, null if there is no bundle or it doesn't hold the resource
+     */
+    static AssetBundle.Entry findInBundle(String resourceName) {
+        AssetBundle opened = openBundle();
+        return opened != null ? opened.find(resourceName) : null;
+    }
+
+    /**
+     * Retrieve the asset bundle, opening Settings.assetBundle on first use if it exists.
+     *
+     * @return bundle, null if there is none
+     */
+    private static synchronized AssetBundle openBundle() {
+        if (!bundleOpened) {
+            bundleOpened = true;
+            Path path = Paths.get(Settings.assetBundle);
+            if (Files.exists(path)) {
+                try {
+                    bundle = AssetBundle.open(path);
+                    log.info("Loading assets from {} ({} entries)", path, bundle.getEntryCount());
+                } catch (IOException e) {
+                    log.error("ERROR : AssetPool : Unable to open asset bundle {}, using loose files.", path, e);
+                }
+            }
+        }
+        return bundle;
+    }
+
+    /**
+     * Map key of a resource.  Resolved once per name so repeated lookups never touch the filesystem.
+     *
+     * @param resourceName Relative resource path
+     * @return absolute path of the resource
+     */
+    static String key(String resourceName) {
+        return keys.computeIfAbsent(resourceName, name -> new File(name).getAbsolutePath());
+    }
+
     /**
      * Attempts to store a SpriteSheet with given resourceName.
      *
@@ -89,15 +472,190 @@ public class AssetPool {
      * @param spriteSheet  SpriteSheet to store
      */
     public static void addSpriteSheet(String resourceName, SpriteSheet spriteSheet) {
-        File file = new File(resourceName);
-        if (!spriteSheetMap.containsKey(file.getAbsolutePath())) {
-            AssetPool.spriteSheetMap.put(file.getAbsolutePath(), spriteSheet);
+        String key = key(resourceName);
+        if (spriteSheetMap.putIfAbsent(key, spriteSheet) == null) {
+            //The sheet's sprites draw from its texture for as long as it is registered
+            if (spriteSheet.getTexture() != null) {
+                textureRefs.merge(key(spriteSheet.getTexture()
+                                                 .getFilePath()), 1, Integer::sum);
+            }
+            if (Settings.useTextureArrays) {
+                CompletableFuture<Void> arrays = GLTaskQueue.submit(() -> {
+                    //Skipped if the sheet was removed again before the GL thread got to it
+                    if (spriteSheetMap.get(key) == spriteSheet) {
+                        addToTextureArrays(spriteSheet);
+                    }
+                    return null;
+                });
+                arrays.exceptionally(e -> {
+                    log.error("ERROR : AssetPool : Unable to add SpriteSheet {} to texture arrays.", resourceName, e);
+                    return null;
+                });
+            }
         } else {
             log.error("ERROR : AssetPool : SpriteSheet with given resourceName not found.");
             assert false;
         }
     }
 
+    /**
+     * Unregister a SpriteSheet, release its reference to its texture and free its texture array layers.
+     *
+     * @param resourceName Relative Texture path the SpriteSheet was added under
+     */
+    public static void removeSpriteSheet(String resourceName) {
+        SpriteSheet spriteSheet = spriteSheetMap.remove(key(resourceName));
+        if (spriteSheet == null) {
+            return;
+        }
+        if (spriteSheet.getTexture() != null) {
+            textureRefs.computeIfPresent(key(spriteSheet.getTexture()
+                                                        .getFilePath()), (k, count) -> count > 1 ? count - 1 : null);
+        }
+        CompletableFuture<Void> arrays = GLTaskQueue.submit(() -> {
+            removeFromTextureArrays(spriteSheet);
+            return null;
+        });
+        arrays.exceptionally(e -> {
+            log.error("ERROR : AssetPool : Unable to release texture array layers of SpriteSheet {}.", resourceName,
+                      e);
+            return null;
+        });
+    }
+
+    /**
+     * Free the texture array layers the SpriteSheet's tiles were copied into, deleting arrays left empty.  The
+     * sheet's sprites go back to drawing from the sheet's texture.
+     *
+     * @param spriteSheet SpriteSheet being removed
+     */
+    static void removeFromTextureArrays(SpriteSheet spriteSheet) {
+        Map<TextureArray, BitSet> owned = sheetLayers.remove(spriteSheet);
+        if (owned == null) {
+            return;
+        }
+        for (Map.Entry<TextureArray, BitSet> entry : owned.entrySet()) {
+            TextureArray array = entry.getKey();
+            BitSet layers = entry.getValue();
+            for (int layer = layers.nextSetBit(0); layer >= 0; layer = layers.nextSetBit(layer + 1)) {
+                array.releaseLayer(layer);
+            }
+            if (array.isEmpty()) {
+                textureArrays.remove(array);
+                array.dispose();
+            }
+        }
+        //The freed layers may be handed to another sheet
+        for (int i = 0; i < spriteSheet.size(); i++) {
+            Sprite sprite = spriteSheet.getSprite(i);
+            if (owned.containsKey(sprite.getTextureArray())) {
+                sprite.setTextureArray(null);
+                sprite.setLayer(-1);
+            }
+        }
+    }
+
+    /**
+     * Copy every tile of the SpriteSheet into a layer of a texture array of the tile's size, so sheets sharing a tile
+     * size can be drawn by a single batch.  Does nothing if the driver has no texture arrays.
+     *
+     * @param spriteSheet SpriteSheet whose sprites should be drawn from texture arrays
+     */
+    static void addToTextureArrays(SpriteSheet spriteSheet) {
+        int maxLayers = TextureArray.maxLayers();
+        Texture texture = spriteSheet.getTexture();
+        if (maxLayers <= 0 || texture == null || spriteSheet.size() == 0) {
+            return;
+        }
+
+        GLWrapper gl = Settings.graphicsImpl;
+        IntBuffer width = BufferUtils.createIntBuffer(1);
+        IntBuffer height = BufferUtils.createIntBuffer(1);
+        IntBuffer channels = BufferUtils.createIntBuffer(1);
+        gl.stbiSetFlipVerticallyOnLoad(true);
+        AssetBundle.Entry entry = findInBundle(texture.getFilePath());
+        ByteBuffer pixels;
+        if (entry == null) {
+            pixels = gl.stbiLoad(texture.getFilePath(), width, height, channels, 4);
+        } else if (entry.isDecoded()) {
+            //Read in place, the bundle owns the memory
+            pixels = entry.getData();
+            width.put(0, entry.getWidth());
+            height.put(0, entry.getHeight());
+        } else {
+            pixels = gl.stbiLoadFromMemory(entry.getData(), width, height, channels, 4);
+        }
+        if (pixels == null) {
+            log.error("ERROR : AssetPool : Could not load SpriteSheet image {} into a texture array.",
+                      texture.getFilePath());
+            return;
+        }
+
+        ByteBuffer tile = null;
+        float[] texCoords = new float[Sprite.TEX_COORD_FLOATS];
+        for (int i = 0; i < spriteSheet.size(); i++) {
+            Sprite sprite = spriteSheet.getSprite(i);
+            int tileWidth = (int) sprite.getWidth();
+            int tileHeight = (int) sprite.getHeight();
+            TextureArray array = textureArray(tileWidth, tileHeight, Math.min(maxLayers, Settings.textureArrayLayers));
+            if (tile == null || tile.capacity() != tileWidth * tileHeight * 4) {
+                tile = BufferUtils.createByteBuffer(tileWidth * tileHeight * 4);
+            }
+
+            //Bottom left corner of the tile within the sheet
+            sprite.copyTexCoords(texCoords);
+            copyTile(pixels, width.get(0), Math.round(texCoords[4] * width.get(0)),
+                     Math.round(texCoords[5] * height.get(0)), tile, tileWidth, tileHeight);
+            int layer = array.addLayer(tile);
+            sprite.setTextureArray(array);
+            sprite.setLayer(layer);
+            sheetLayers.computeIfAbsent(spriteSheet, s -> new HashMap<>())
+                       .computeIfAbsent(array, a -> new BitSet())
+                       .set(layer);
+        }
+        if (entry == null || !entry.isDecoded()) {
+            gl.stbiImageFree(pixels);
+        }
+    }
+
+    /**
+     * Find a texture array of the given layer size with a free layer, allocating a new one if they are all full.
+     *
+     * @param layerWidth  width of each layer
+     * @param layerHeight height of each layer
+     * @param capacity    layers to allocate for a new array
+     * @return array with room for a layer
+     */
+    private static TextureArray textureArray(int layerWidth, int layerHeight, int capacity) {
+        for (TextureArray array : textureArrays) {
+            if (array.getLayerWidth() == layerWidth && array.getLayerHeight() == layerHeight && !array.isFull()) {
+                return array;
+            }
+        }
+        TextureArray array = new TextureArray(layerWidth, layerHeight, capacity);
+        textureArrays.add(array);
+        return array;
+    }
+
+    /**
+     * Copy a rectangle of RGBA pixels out of a larger image.
+     *
+     * @param image      source pixels
+     * @param imageWidth width of the source image
+     * @param x          left edge of the rectangle
+     * @param y          bottom edge of the rectangle
+     * @param tile       destination, tightly packed
+     * @param tileWidth  width of the rectangle
+     * @param tileHeight height of the rectangle
+     */
+    static void copyTile(ByteBuffer image, int imageWidth, int x, int y, ByteBuffer tile, int tileWidth,
+                         int tileHeight) {
+        int rowBytes = tileWidth * 4;
+        for (int row = 0; row < tileHeight; row++) {
+            tile.put(row * rowBytes, image, ((y + row) * imageWidth + x) * 4, rowBytes);
+        }
+    }
+
     /**
      * Attempts to retrieve a SpriteSheet with given resourceName.
      *
@@ -105,9 +663,154 @@ public class AssetPool {
      * @return SpriteSheet found at resourceName, null otherwise.
      */
     public static SpriteSheet getSpriteSheet(String resourceName) {
-        File file = new File(resourceName);
-        assert spriteSheetMap.containsKey(
-                file.getAbsolutePath()) : "ERROR : AssetPool : SpriteSheet with given resourceName not found.";
-        return AssetPool.spriteSheetMap.getOrDefault(file.getAbsolutePath(), null);
+        String key = key(resourceName);
+        assert spriteSheetMap.containsKey(key) : "ERROR : AssetPool : SpriteSheet with given resourceName not found.";
+        return AssetPool.spriteSheetMap.getOrDefault(key, null);
+    }
+
+    /**
+     * Retrieve a Sprite covering the whole image at resourceName.  If the image was packed into the atlas the Sprite
+     * samples the atlas page, otherwise it samples the image's own Texture.
+     *
+     * @param resourceName Relative Texture path
+     * @return Sprite of the image, null if the image does not exist.
+     */
+    public static Sprite getSprite(String resourceName) {
+        Texture texture = getTexture(resourceName);
+        if (texture == null) {
+            return null;
+        }
+        Sprite sprite = new Sprite();
+        sprite.setWidth(texture.getWidth());
+        sprite.setHeight(texture.getHeight());
+        TextureAtlas.Region region = atlas != null ? atlas.getRegion(texture.getFilePath()) : null;
+        if (region != null) {
+            sprite.setTexture(region.getPage());
+            sprite.setTexCoords(region.remap(sprite.getTexCoords()));
+            atlasSprites.add(new AtlasSprite(sprite, texture.getFilePath()));
+        } else {
+            sprite.setTexture(texture);
+        }
+        return sprite;
+    }
+
+    /**
+     * Pack every registered texture and SpriteSheet image into atlas pages, then point the sprites of registered
+     * SpriteSheets at the pages.  Textures keep their own entries, so lookups by the original path keep working.
+     * Calling it again replaces the previous atlas and deletes its pages once every SpriteSheet and getSprite Sprite
+     * has been pointed at the new ones.
+     *
+     * @param pageSize width and height of each atlas page in pixels
+     * @return the built atlas
+     */
+    public static TextureAtlas buildAtlas(int pageSize) {
+        //Old pages are generated, dropping them first keeps them out of the new atlas
+        TextureAtlas previous = atlas;
+        if (previous != null) {
+            for (Texture page : previous.getPages()) {
+                textureMap.remove(key(page.getFilePath()));
+            }
+        }
+
+        //Sorted so the atlas layout is identical between runs
+        Set<String> filePaths = new TreeSet<>();
+        for (Texture texture : textureMap.values()) {
+            //Loose files and images only in the bundle, generated textures have nothing to decode
+            if (isRestorable(texture)) {
+                filePaths.add(texture.getFilePath());
+            }
+        }
+        for (SpriteSheet spriteSheet : spriteSheetMap.values()) {
+            if (spriteSheet.getTexture() != null) {
+                filePaths.add(spriteSheet.getTexture()
+                                         .getFilePath());
+            }
+        }
+
+        atlas = TextureAtlas.build(filePaths, pageSize, ATLAS_PADDING);
+        for (Texture page : atlas.getPages()) {
+            textureMap.put(key(page.getFilePath()), page);
+        }
+        for (SpriteSheet spriteSheet : spriteSheetMap.values()) {
+            TextureAtlas.Region region = spriteSheet.getTexture() != null
+                                         ? atlas.getRegion(spriteSheet.getTexture()
+                                                                      .getFilePath())
+                                         : null;
+            //Always derived from the sheet's own coordinates, so building again never remaps twice
+            float[] uvs = spriteSheet.getUVs();
+            System.arraycopy(spriteSheet.getSourceUVs(), 0, uvs, 0, uvs.length);
+            if (region != null) {
+                region.remap(uvs);
+            }
+            Texture texture = region != null ? region.getPage() : spriteSheet.getTexture();
+            for (int i = 0; i < spriteSheet.size(); i++) {
+                spriteSheet.getSprite(i)
+                           .setTexture(texture);
+            }
+        }
+        //Sprites whose image no longer fits go back to their own texture and stop being tracked
+        atlasSprites.removeIf(atlasSprite -> !atlasSprite.repoint(atlas));
+        if (previous != null) {
+            previous.dispose();
+        }
+
+        //Every batch can sample TEXTURE_SLOTS textures, so this is the fewest batches a layer needs for the images
+        int texturesBefore = filePaths.size();
+        int texturesAfter = filePaths.size() - atlas.getRegionCount() + atlas.getPages()
+                                                                              .size();
+        log.info("Packed {} of {} images into {} atlas pages at {}% efficiency, minimum batches per layer {} -> {}",
+                 atlas.getRegionCount(), filePaths.size(), atlas.getPages()
+                                                                .size(),
+                 String.format("%.1f", atlas.getEfficiency() * 100), minBatches(texturesBefore),
+                 minBatches(texturesAfter));
+        return atlas;
+    }
+
+    /**
+     * Fewest batches needed to draw sprites using the given number of distinct textures.
+     *
+     * @param textures distinct texture count
+     * @return batch count
+     */
+    static int minBatches(int textures) {
+        return (textures + RenderBatch.TEXTURE_SLOTS - 1) / RenderBatch.TEXTURE_SLOTS;
+    }
+
+    /**
+     * Sprite from getSprite sampling an atlas page.  Only weakly held, so tracking never keeps a Sprite alive.
+     */
+    private static final class AtlasSprite {
+        private final WeakReference<Sprite> sprite;
+        //Image the sprite covers, keys its region in the atlas
+        private final String                filePath;
+
+        private AtlasSprite(Sprite sprite, String filePath) {
+            this.sprite = new WeakReference<>(sprite);
+            this.filePath = filePath;
+        }
+
+        /**
+         * Point the sprite at its image's region of the atlas, or back at the image's own texture if it wasn't packed.
+         *
+         * @param atlas atlas just built
+         * @return true if the sprite still samples the atlas and should stay tracked
+         */
+        private boolean repoint(TextureAtlas atlas) {
+            Sprite tracked = sprite.get();
+            if (tracked == null) {
+                return false;
+            }
+            //Coordinates are rebuilt from the whole image, as getSprite hands them out
+            Vector2f[] whole = new Sprite().getTexCoords();
+            TextureAtlas.Region region = atlas.getRegion(filePath);
+            if (region == null) {
+                tracked.setTexture(getTexture(filePath));
+                tracked.setTexCoords(whole);
+                return false;
+            }
+            tracked.setTexture(region.getPage());
+            tracked.setTexCoords(region.remap(whole));
+            return true;
+        }
     }
 }
@@ -0,0 +1,154 @@
+package util;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class: SkylinePacker
+ * Author: rapto
+ * CreatedDate: 3/14/2025 : 9:02 PM
+ * Project: GameEngine
+ * Description: Packs rectangles into a fixed size page using the skyline bottom-left heuristic.  The skyline is the
+ * upper outline of everything placed so far, each rectangle is dropped onto the segment where its top ends lowest.
+ */
+public class SkylinePacker {
+    @Getter
+    private final int         width;
+    @Getter
+    private final int         height;
+    //Empty pixels kept to the right of and above every rectangle
+    private final int         padding;
+    //Skyline segments ordered left to right, each {x, y, width}
+    private final List<int[]> skyline = new ArrayList<>();
+    //Pixels covered by placed rectangles, excluding padding
+    @Getter
+    private       long        usedArea;
+
+    /**
+     * Constructor for an empty page.
+     *
+     * @param width   page width in pixels
+     * @param height  page height in pixels
+     * @param padding empty pixels kept between rectangles
+     */
+    public SkylinePacker(int width, int height, int padding) {
+        this.width = width;
+        this.height = height;
+        this.padding = padding;
+        skyline.add(new int[]{0, 0, width});
+    }
+
+    /**
+     * Place a rectangle on the page.
+     *
+     * @param rectWidth  rectangle width in pixels
+     * @param rectHeight rectangle height in pixels
+     * @return {x, y} of the bottom left corner, or null if the rectangle no longer fits.
+     */
+    public int[] insert(int rectWidth, int rectHeight) {
+        int w = rectWidth + padding;
+        int h = rectHeight + padding;
+
+        int bestIndex = -1;
+        int bestTop = Integer.MAX_VALUE;
+        int bestWidth = Integer.MAX_VALUE;
+        int bestY = 0;
+        for (int i = 0; i < skyline.size(); i++) {
+            int y = fit(i, w, h);
+            if (y < 0) {
+                continue;
+            }
+            //Lowest top wins, ties go to the narrowest segment to leave wide ones for wide rectangles
+            int segmentWidth = skyline.get(i)[2];
+            if (y + h < bestTop || (y + h == bestTop && segmentWidth < bestWidth)) {
+                bestIndex = i;
+                bestTop = y + h;
+                bestWidth = segmentWidth;
+                bestY = y;
+            }
+        }
+        if (bestIndex < 0) {
+            return null;
+        }
+
+        int x = skyline.get(bestIndex)[0];
+        addLevel(bestIndex, x, bestY + h, w);
+        usedArea += (long) rectWidth * rectHeight;
+        return new int[]{x, bestY};
+    }
+
+    /**
+     * Fraction of the page covered by placed rectangles.
+     *
+     * @return occupancy between 0 and 1
+     */
+    public float getOccupancy() {
+        return usedArea / (float) ((long) width * height);
+    }
+
+    /**
+     * Find the height a rectangle would rest at if its left edge is placed on the given segment.
+     *
+     * @param index first skyline segment under the rectangle
+     * @param w     padded rectangle width
+     * @param h     padded rectangle height
+     * @return y the rectangle would rest at, -1 if it does not fit.
+     */
+    private int fit(int index, int w, int h) {
+        int x = skyline.get(index)[0];
+        if (x + w > width) {
+            return -1;
+        }
+        int remaining = w;
+        int y = 0;
+        for (int i = index; remaining > 0; i++) {
+            int[] segment = skyline.get(i);
+            y = Math.max(y, segment[1]);
+            if (y + h > height) {
+                return -1;
+            }
+            remaining -= segment[2];
+        }
+        return y;
+    }
+
+    /**
+     * Raise the skyline under a newly placed rectangle, trimming or removing the segments it covers.
+     *
+     * @param index first skyline segment under the rectangle
+     * @param x     left edge of the rectangle
+     * @param y     new skyline height
+     * @param w     padded rectangle width
+     */
+    private void addLevel(int index, int x, int y, int w) {
+        skyline.add(index, new int[]{x, y, w});
+        int right = x + w;
+        for (int i = index + 1; i < skyline.size(); ) {
+            int[] segment = skyline.get(i);
+            if (segment[0] >= right) {
+                break;
+            }
+            int overlap = right - segment[0];
+            if (overlap >= segment[2]) {
+                skyline.remove(i);
+            } else {
+                segment[0] += overlap;
+                segment[2] -= overlap;
+                break;
+            }
+        }
+        //Join neighbouring segments at the same height
+        for (int i = 0; i < skyline.size() - 1; ) {
+            int[] a = skyline.get(i);
+            int[] b = skyline.get(i + 1);
+            if (a[1] == b[1]) {
+                a[2] += b[2];
+                skyline.remove(i + 1);
+            } else {
+                i++;
+            }
+        }
+    }
+}
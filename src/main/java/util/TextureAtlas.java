@@ -0,0 +1,282 @@
+package util;
+
+import graphics.GLWrapper;
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.joml.Vector2f;
+import org.lwjgl.BufferUtils;
+import render.Texture;
+import scene.Settings;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class: TextureAtlas
+ * Author: rapto
+ * CreatedDate: 3/14/2025 : 10:40 PM
+ * Project: GameEngine
+ * Description: Set of large texture pages holding many smaller images, so sprites using different images can share
+ * one texture slot.  Images are decoded on worker threads and packed with a {@link SkylinePacker}.
+ */
+public class TextureAtlas {
+    //Name prefix of generated atlas pages
+    public static final  String              PAGE_PREFIX = "atlas/page";
+    private static final Logger              log         = LogManager.getLogger(TextureAtlas.class);
+
+    @Getter
+    private final        List<Texture>       pages       = new ArrayList<>();
+    //Placement of each packed image keyed by its file path
+    private final        Map<String, Region> regions     = new HashMap<>();
+    //Pixels covered by images across all pages
+    private              long                usedArea;
+
+    /**
+     * Hide constructor, atlases are created through {@link #build}.
+     */
+    private TextureAtlas() {
+    }
+
+    /**
+     * Decode and pack the given images into as few pages as possible.  Must be called on the thread owning the GL
+     * context, only the decoding is spread across worker threads.
+     *
+     * @param filePaths images to pack
+     * @param pageSize  width and height of each page in pixels
+     * @param padding   empty pixels kept between images
+     * @return atlas holding every image that could be decoded and fits on a page
+     */
+    public static TextureAtlas build(Collection<String> filePaths, int pageSize, int padding) {
+        TextureAtlas atlas = new TextureAtlas();
+        List<Image> images = decode(filePaths);
+
+        //Tallest first keeps the skyline flat, path breaks ties so the layout is the same on every run
+        images.sort(Comparator.comparingInt((Image i) -> i.height)
+                              .thenComparingInt(i -> i.width)
+                              .reversed()
+                              .thenComparing(i -> i.filePath));
+
+        List<SkylinePacker> packers = new ArrayList<>();
+        for (Image image : images) {
+            if (image.width + padding > pageSize || image.height + padding > pageSize) {
+                log.warn("Image {} is too large for a {}px atlas page, leaving it unpacked.", image.filePath, pageSize);
+                image.free();
+                continue;
+            }
+            //First page with room, opening a new page once every existing one is full
+            int page = 0;
+            int[] position = null;
+            while (position == null) {
+                if (page == packers.size()) {
+                    packers.add(new SkylinePacker(pageSize, pageSize, padding));
+                    Texture texture = new Texture();
+                    texture.initBlank(PAGE_PREFIX + page, pageSize, pageSize);
+                    atlas.pages.add(texture);
+                }
+                position = packers.get(page)
+                                  .insert(image.width, image.height);
+                if (position == null) {
+                    page++;
+                }
+            }
+
+            Texture texture = atlas.pages.get(page);
+            texture.upload(position[0], position[1], image.width, image.height, image.pixels);
+            image.free();
+            atlas.regions.put(image.filePath,
+                              new Region(texture, position[0], position[1], image.width, image.height));
+            atlas.usedArea += (long) image.width * image.height;
+        }
+        return atlas;
+    }
+
+    /**
+     * Decode every image to RGBA on a pool of worker threads.
+     *
+     * @param filePaths images to decode
+     * @return decoded images, images that failed to load are logged and left out
+     */
+    private static List<Image> decode(Collection<String> filePaths) {
+        GLWrapper gl = Settings.graphicsImpl;
+        //Flip is global to stbi so set it once before any worker starts loading
+        gl.stbiSetFlipVerticallyOnLoad(true);
+
+        int threads = Math.max(1, Math.min(filePaths.size(), Runtime.getRuntime()
+                                                                    .availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Image>> pending = new ArrayList<>();
+            for (String filePath : filePaths) {
+                pending.add(pool.submit(() -> decode(gl, filePath)));
+            }
+            List<Image> images = new ArrayList<>();
+            for (Future<Image> future : pending) {
+                Image image = future.get();
+                if (image != null) {
+                    images.add(image);
+                }
+            }
+            return images;
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+            log.error("ERROR : TextureAtlas : Interrupted while decoding images.", e);
+            return new ArrayList<>();
+        } catch (ExecutionException e) {
+            log.error("ERROR : TextureAtlas : Unable to decode images.", e.getCause());
+            assert false;
+            return new ArrayList<>();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Decode a single image to RGBA, from the asset bundle if it holds the image, otherwise from the file.
+     *
+     * @param gl       graphics implementation providing stbi
+     * @param filePath image to decode
+     * @return decoded image, or null if it could not be loaded
+     */
+    private static Image decode(GLWrapper gl, String filePath) {
+        AssetBundle.Entry entry = AssetPool.findInBundle(filePath);
+        if (entry != null && entry.isDecoded()) {
+            //Already RGBA, packed straight from the mapped bundle
+            return new Image(filePath, entry.getWidth(), entry.getHeight(), entry.getData(), false);
+        }
+        IntBuffer width = BufferUtils.createIntBuffer(1);
+        IntBuffer height = BufferUtils.createIntBuffer(1);
+        IntBuffer channels = BufferUtils.createIntBuffer(1);
+        //Always ask for 4 channels so every image shares the page format
+        ByteBuffer pixels = entry != null ? gl.stbiLoadFromMemory(entry.getData(), width, height, channels, 4)
+                                          : gl.stbiLoad(filePath, width, height, channels, 4);
+        if (pixels == null) {
+            log.error("ERROR : TextureAtlas : Could not load Image: {}", filePath);
+            return null;
+        }
+        return new Image(filePath, width.get(0), height.get(0), pixels, true);
+    }
+
+    /**
+     * Retrieve where an image was packed.
+     *
+     * @param filePath path the image was packed from
+     * @return region of the image, null if it was not packed
+     */
+    public Region getRegion(String filePath) {
+        return regions.get(filePath);
+    }
+
+    /**
+     * Number of images packed into the atlas.
+     *
+     * @return packed image count
+     */
+    public int getRegionCount() {
+        return regions.size();
+    }
+
+    /**
+     * Fraction of the page area covered by images.
+     *
+     * @return packing efficiency between 0 and 1
+     */
+    public float getEfficiency() {
+        if (pages.isEmpty()) {
+            return 0;
+        }
+        Texture page = pages.getFirst();
+        return usedArea / (float) ((long) page.getWidth() * page.getHeight() * pages.size());
+    }
+
+    /**
+     * Delete the GL textures of every page.  Sprites still sampling a page must be pointed elsewhere first.
+     */
+    public void dispose() {
+        for (Texture page : pages) {
+            page.evict();
+        }
+    }
+
+    /**
+     * Placement of a single image within an atlas page.
+     */
+    @Getter
+    public static class Region {
+        private final Texture page;
+        private final int     x;
+        private final int     y;
+        private final int     width;
+        private final int     height;
+
+        Region(Texture page, int x, int y, int width, int height) {
+            this.page = page;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * Convert texture coordinates within the original image to coordinates within the atlas page.
+         *
+         * @param texCoords coordinates relative to the original image
+         * @return new coordinates relative to the page
+         */
+        public Vector2f[] remap(Vector2f[] texCoords) {
+            Vector2f[] mapped = new Vector2f[texCoords.length];
+            for (int i = 0; i < texCoords.length; i++) {
+                mapped[i] = new Vector2f((x + texCoords[i].x * width) / page.getWidth(),
+                                         (y + texCoords[i].y * height) / page.getHeight());
+            }
+            return mapped;
+        }
+
+        /**
+         * Convert a table of u, v pairs within the original image to coordinates within the atlas page, in place.
+         *
+         * @param uvs coordinates relative to the original image, replaced by coordinates relative to the page
+         */
+        public void remap(float[] uvs) {
+            for (int i = 0; i + 1 < uvs.length; i += 2) {
+                uvs[i] = (x + uvs[i] * width) / page.getWidth();
+                uvs[i + 1] = (y + uvs[i + 1] * height) / page.getHeight();
+            }
+        }
+    }
+
+    /**
+     * Decoded image waiting to be packed.
+     */
+    private static final class Image {
+        private final String     filePath;
+        private final int        width;
+        private final int        height;
+        private final ByteBuffer pixels;
+        //True if stbi allocated the pixels, false if they belong to the asset bundle
+        private final boolean    decoded;
+
+        private Image(String filePath, int width, int height, ByteBuffer pixels, boolean decoded) {
+            this.filePath = filePath;
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+            this.decoded = decoded;
+        }
+
+        /**
+         * Release the pixels once packed, leaving pixels owned by the bundle alone.
+         */
+        private void free() {
+            if (decoded) {
+                Settings.graphicsImpl.stbiImageFree(pixels);
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Class: XXHash64
+ * Author: rapto
+ * CreatedDate: 3/29/2025 : 2:10 PM
+ * Project: GameEngine
+ * Description: 64 bit xxHash of a buffer's contents.  Fast enough to fingerprint every decoded image, and spread well
+ * enough that images with equal hashes can be treated as identical.
+ */
+public class XXHash64 {
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+    private static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME_5 = 0x27D4EB2F165667C5L;
+
+    private XXHash64() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Hash the bytes between the buffer's position and limit.  The buffer itself is left untouched.
+     *
+     * @param buffer Data to hash
+     * @param seed   Seed, hashes are only comparable under the same seed
+     * @return 64 bit hash
+     */
+    public static long hash(ByteBuffer buffer, long seed) {
+        //The algorithm reads little endian lanes regardless of the buffer's order
+        ByteBuffer data = buffer.slice()
+                                .order(ByteOrder.LITTLE_ENDIAN);
+        int length = data.remaining();
+        int offset = 0;
+        long hash;
+
+        if (length >= 32) {
+            long v1 = seed + PRIME_1 + PRIME_2;
+            long v2 = seed + PRIME_2;
+            long v3 = seed;
+            long v4 = seed - PRIME_1;
+            //Four independent lanes of 8 bytes per stripe
+            for (int limit = length - 32; offset <= limit; offset += 32) {
+                v1 = round(v1, data.getLong(offset));
+                v2 = round(v2, data.getLong(offset + 8));
+                v3 = round(v3, data.getLong(offset + 16));
+                v4 = round(v4, data.getLong(offset + 24));
+            }
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12)
+                   + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = seed + PRIME_5;
+        }
+        hash += length;
+
+        //Tail shorter than a stripe
+        for (; offset + 8 <= length; offset += 8) {
+            hash ^= round(0, data.getLong(offset));
+            hash = Long.rotateLeft(hash, 27) * PRIME_1 + PRIME_4;
+        }
+        if (offset + 4 <= length) {
+            hash ^= (data.getInt(offset) & 0xFFFFFFFFL) * PRIME_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME_2 + PRIME_3;
+            offset += 4;
+        }
+        for (; offset < length; offset++) {
+            hash ^= (data.get(offset) & 0xFFL) * PRIME_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME_1;
+        }
+
+        //Avalanche so every input bit affects every output bit
+        hash ^= hash >>> 33;
+        hash *= PRIME_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME_2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME_1;
+    }
+
+    private static long mergeRound(long acc, long value) {
+        acc ^= round(0, value);
+        return acc * PRIME_1 + PRIME_4;
+    }
+}
@@ -1,5 +1,6 @@
 package component;
 
+import org.joml.Vector2f;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import render.Texture;
@@ -25,4 +26,37 @@ class SpriteSheetTest {
         }
         assertThrows(IndexOutOfBoundsException.class, () -> sheet.getSprite(20));
     }
+
+    @Test
+    void spritesShareTheSheetTable() {
+        Texture t = Mockito.mock(Texture.class);
+        when(t.getWidth()).thenReturn(32);
+        when(t.getHeight()).thenReturn(16);
+        SpriteSheet sheet = new SpriteSheet(t, 16, 16, 2, 0);
+        assertEquals(2 * Sprite.TEX_COORD_FLOATS, sheet.getUVs().length);
+
+        float[] uvs = new float[Sprite.TEX_COORD_FLOATS];
+        Sprite second = sheet.getSprite(1);
+        assertEquals(1, second.getUvIndex());
+        second.copyTexCoords(uvs);
+        assertArrayEquals(new float[]{1, 1, 1, 0, 0.5f, 0, 0.5f, 1}, uvs);
+        Vector2f[] texCoords = second.getTexCoords();
+        for (int i = 0; i < 4; i++) {
+            assertEquals(uvs[2 * i], texCoords[i].x);
+            assertEquals(uvs[2 * i + 1], texCoords[i].y);
+        }
+
+        //Writes to the table are seen by the sprites
+        sheet.getUVs()[Sprite.TEX_COORD_FLOATS] = 0.75f;
+        second.copyTexCoords(uvs);
+        assertEquals(0.75f, uvs[0]);
+        assertNotEquals(sheet.getSprite(0), second);
+
+        //Own coordinates detach the sprite from the table
+        second.setTexCoords(new Vector2f[]{new Vector2f(), new Vector2f(), new Vector2f(), new Vector2f()});
+        assertEquals(-1, second.getUvIndex());
+        second.copyTexCoords(uvs);
+        assertArrayEquals(new float[Sprite.TEX_COORD_FLOATS], uvs);
+        assertEquals(0.75f, sheet.getUVs()[Sprite.TEX_COORD_FLOATS]);
+    }
 }
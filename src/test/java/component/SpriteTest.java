@@ -1,13 +1,16 @@
 package component;
 
 
+import com.google.gson.Gson;
 import org.joml.Vector2f;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import render.Texture;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.when;
 
 /**
  * Class: SpriteTest
@@ -55,4 +58,18 @@ class SpriteTest {
         assertEquals(t, s.getTexture());
         assertEquals(coords, s.getTexCoords());
     }
+
+    @Test
+    void sheetSpriteSerializesItsCoordinates() {
+        Texture t = Mockito.mock(Texture.class);
+        when(t.getWidth()).thenReturn(32);
+        when(t.getHeight()).thenReturn(16);
+        Sprite sheetSprite = new SpriteSheet(t, 16, 16, 2, 0).getSprite(1);
+        sheetSprite.setTexture(null);
+
+        Sprite loaded = new Gson().fromJson(new Gson().toJson(sheetSprite), Sprite.class);
+        assertEquals(16, loaded.getWidth());
+        assertEquals(-1, loaded.getUvIndex());
+        assertArrayEquals(sheetSprite.getTexCoords(), loaded.getTexCoords());
+    }
 }
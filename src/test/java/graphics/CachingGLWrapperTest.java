@@ -0,0 +1,131 @@
+package graphics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.lwjgl.opengl.GL15C.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class: CachingGLWrapperTest
+ * Author: rapto
+ * CreatedDate: 3/20/2025 : 8:02 PM
+ * Project: GameEngine
+ * Description: CachingGLWrapper Unit Tests
+ */
+class CachingGLWrapperTest {
+    private GLWrapper        delegate;
+    private CachingGLWrapper gl;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(GLWrapper.class);
+        gl = new CachingGLWrapper(delegate);
+    }
+
+    @Test
+    void testUseProgram_ElidesRepeats() {
+        gl.glUseProgram(3);
+        gl.glUseProgram(3);
+        gl.glUseProgram(4);
+        gl.glUseProgram(3);
+        verify(delegate, times(2)).glUseProgram(3);
+        verify(delegate).glUseProgram(4);
+
+        gl.endFrame();
+        assertEquals(3, gl.getLastIssuedCalls());
+        assertEquals(1, gl.getLastElidedCalls());
+
+        //State is forgotten between frames
+        gl.glUseProgram(3);
+        verify(delegate, times(3)).glUseProgram(3);
+    }
+
+    @Test
+    void testBindTexture_TrackedPerUnit() {
+        gl.glActiveTexture(GL_TEXTURE1);
+        gl.glBindTexture(GL_TEXTURE_2D, 5);
+        gl.glActiveTexture(GL_TEXTURE2);
+        gl.glBindTexture(GL_TEXTURE_2D, 5);
+        gl.glActiveTexture(GL_TEXTURE1);
+        gl.glBindTexture(GL_TEXTURE_2D, 5);
+
+        verify(delegate, times(2)).glBindTexture(GL_TEXTURE_2D, 5);
+        verify(delegate, times(3)).glActiveTexture(anyInt());
+    }
+
+    @Test
+    void testBindTexture_IssuedWhileUnitUnknown() {
+        gl.glBindTexture(GL_TEXTURE_2D, 5);
+        gl.glBindTexture(GL_TEXTURE_2D, 5);
+        verify(delegate, times(2)).glBindTexture(GL_TEXTURE_2D, 5);
+    }
+
+    @Test
+    void testVertexArray_ResetsElementBufferAndTracksAttributes() {
+        when(delegate.glGenVertexArrays()).thenReturn(1, 2);
+        int first = gl.glGenVertexArrays();
+        int second = gl.glGenVertexArrays();
+
+        gl.glBindVertexArray(first);
+        gl.glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 9);
+        gl.glBindBuffer(GL_ARRAY_BUFFER, 8);
+        gl.glEnableVertexAttribArray(0);
+        gl.glEnableVertexAttribArray(0);
+        verify(delegate).glEnableVertexAttribArray(0);
+
+        //Element buffer binding is part of the vertex array, array buffer binding is not
+        gl.glBindVertexArray(second);
+        gl.glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 9);
+        gl.glBindBuffer(GL_ARRAY_BUFFER, 8);
+        verify(delegate, times(2)).glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 9);
+        verify(delegate).glBindBuffer(GL_ARRAY_BUFFER, 8);
+        gl.glEnableVertexAttribArray(0);
+        verify(delegate, times(2)).glEnableVertexAttribArray(0);
+
+        //Attribute state survives frames as it belongs to the vertex array
+        gl.endFrame();
+        gl.glBindVertexArray(first);
+        gl.glEnableVertexAttribArray(0);
+        gl.glDisableVertexAttribArray(1);
+        verify(delegate, times(2)).glEnableVertexAttribArray(0);
+        verify(delegate, never()).glDisableVertexAttribArray(1);
+    }
+
+    @Test
+    void testDeleteBuffers_ClearsBinding() {
+        gl.glBindBuffer(GL_ARRAY_BUFFER, 8);
+        gl.glDeleteBuffers(8);
+        gl.glBindBuffer(GL_ARRAY_BUFFER, 0);
+        gl.glBindBuffer(GL_ARRAY_BUFFER, 8);
+        verify(delegate, never()).glBindBuffer(GL_ARRAY_BUFFER, 0);
+        verify(delegate, times(2)).glBindBuffer(GL_ARRAY_BUFFER, 8);
+    }
+
+    @Test
+    void testDeleteTextures_ForgetsBinding() {
+        gl.glActiveTexture(GL_TEXTURE0);
+        gl.glBindTexture(GL_TEXTURE_2D, 5);
+        gl.glDeleteTextures(5);
+        //The id may be handed out again, so binding it must reach the driver
+        gl.glBindTexture(GL_TEXTURE_2D, 5);
+        verify(delegate).glDeleteTextures(5);
+        verify(delegate, times(2)).glBindTexture(GL_TEXTURE_2D, 5);
+    }
+
+    @Test
+    void testUncachedCalls_PassThrough() {
+        when(delegate.glGenBuffers()).thenReturn(12);
+        assertEquals(12, gl.glGenBuffers());
+        gl.glDrawElements(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0);
+        verify(delegate).glDrawElements(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0);
+    }
+
+    @Test
+    void testTracksState_EvenInFrontOfAnUncachedDelegate() {
+        assertTrue(gl.tracksState());
+        verify(delegate, never()).tracksState();
+    }
+}
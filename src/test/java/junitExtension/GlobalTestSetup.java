@@ -22,6 +22,10 @@ public class GlobalTestSetup implements BeforeAllCallback {
             System.out.println("Global setup running...");
             //Ensure the GraphicsImpl has been mocked rather than going to native impl.
             Settings.graphicsImpl = Mockito.mock(GLWrapper.class);
+            //Keep mocked pixels out of the project's texture cache
+            Settings.cacheTextures = false;
+            //Mocked images are all blank, tests opt in to sharing them
+            Settings.deduplicateTextures = false;
             initialized = true;
         }
     }
@@ -0,0 +1,59 @@
+package render;
+
+import graphics.GLWrapper;
+import junitExtension.GlobalTestSetup;
+import org.joml.Vector2f;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import rubicon.Camera;
+import scene.Settings;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL31C.GL_UNIFORM_BUFFER;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class: CameraUniformBufferTest
+ * Author: rapto
+ * CreatedDate: 3/21/2025 : 8:20 PM
+ * Project: GameEngine
+ * Description: CameraUniformBuffer Unit Tests
+ */
+@ExtendWith(GlobalTestSetup.class)
+class CameraUniformBufferTest {
+    private GLWrapper gl;
+    private GLWrapper previousGl;
+
+    @BeforeEach
+    void setUp() {
+        previousGl = Settings.graphicsImpl;
+        gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+    }
+
+    @AfterEach
+    void tearDown() {
+        Settings.graphicsImpl = previousGl;
+    }
+
+    @Test
+    void matricesOnlyWrittenWhenCameraChanges() {
+        Camera camera = new Camera(new Vector2f());
+        CameraUniformBuffer.update(camera);
+        CameraUniformBuffer.update(camera);
+        verify(gl, times(1)).glBufferSubData(eq(GL_UNIFORM_BUFFER), eq(0L), any(ByteBuffer.class));
+
+        camera.getPosition()
+              .add(5f, 0f);
+        CameraUniformBuffer.update(camera);
+        verify(gl, times(2)).glBufferSubData(eq(GL_UNIFORM_BUFFER), eq(0L), any(ByteBuffer.class));
+
+        //A different camera is always written
+        CameraUniformBuffer.update(new Camera(new Vector2f()));
+        verify(gl, times(3)).glBufferSubData(eq(GL_UNIFORM_BUFFER), eq(0L), any(ByteBuffer.class));
+    }
+}
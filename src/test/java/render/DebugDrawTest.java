@@ -0,0 +1,246 @@
+package render;
+
+import graphics.GLWrapper;
+import junitExtension.GlobalTestSetup;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+import scene.Settings;
+import util.AssetPool;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.lwjgl.opengl.GL15C.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class: DebugDrawTest
+ * Author: rapto
+ * CreatedDate: 3/30/2025 : 11:15 AM
+ * Project: GameEngine
+ * Description: DebugDraw Unit Tests
+ */
+@ExtendWith(GlobalTestSetup.class)
+class DebugDrawTest {
+    // 2 vertices of 6 floats per line
+    private static final int   LINE_FLOATS = 12;
+    private static final float DELTA       = 1e-4f;
+
+    private GLWrapper               gl;
+    private GLWrapper               previousGl;
+    private MockedStatic<AssetPool> assetPool;
+
+    @BeforeEach
+    void setUp() {
+        previousGl = Settings.graphicsImpl;
+        gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+        assetPool = mockStatic(AssetPool.class);
+        assetPool.when(() -> AssetPool.getShader(anyString()))
+                 .thenReturn(mock(Shader.class));
+        DebugDraw.beginFrame();
+        DebugDraw.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        DebugDraw.clear();
+        assetPool.close();
+        Settings.graphicsImpl = previousGl;
+    }
+
+    /**
+     * Draw and capture the uploaded vertices.
+     *
+     * @return vertices sent to the vbo
+     */
+    private ByteBuffer drawVertices() {
+        DebugDraw.draw();
+        ArgumentCaptor<ByteBuffer> data = ArgumentCaptor.forClass(ByteBuffer.class);
+        verify(gl).glBufferSubData(eq(GL_ARRAY_BUFFER), eq(0L), data.capture());
+        return data.getValue()
+                   .order(ByteOrder.nativeOrder());
+    }
+
+    private float vertexFloat(ByteBuffer vertices, int line, int vertex, int component) {
+        return vertices.getFloat((line * LINE_FLOATS + vertex * 6 + component) * Float.BYTES);
+    }
+
+    @Test
+    void lineIsWrittenStraightIntoTheVertexBuffer() {
+        DebugDraw.addLine(1, 2, 3, 4, 0.25f, 0.5f, 0.75f, 1);
+        ByteBuffer vertices = drawVertices();
+
+        assertEquals(LINE_FLOATS * Float.BYTES, vertices.remaining());
+        assertEquals(1f, vertexFloat(vertices, 0, 0, 0));
+        assertEquals(2f, vertexFloat(vertices, 0, 0, 1));
+        assertEquals(3f, vertexFloat(vertices, 0, 1, 0));
+        assertEquals(4f, vertexFloat(vertices, 0, 1, 1));
+        assertEquals(0.25f, vertexFloat(vertices, 0, 1, 3));
+        assertEquals(0.75f, vertexFloat(vertices, 0, 1, 5));
+        verify(gl).glDrawArrays(GL_LINES, 0, 2);
+    }
+
+    @Test
+    void buffersGrowInsteadOfDroppingLines() {
+        int count = 1200;
+        for (int i = 0; i < count; i++) {
+            DebugDraw.addLine(i, 0, i, 1, 1, 1, 1, 1);
+        }
+        assertEquals(count, DebugDraw.getLineCount());
+
+        ByteBuffer vertices = drawVertices();
+        //The vbo is reallocated to fit every line before they are sent
+        ArgumentCaptor<Long> size = ArgumentCaptor.forClass(Long.class);
+        verify(gl).glBufferData(eq(GL_ARRAY_BUFFER), size.capture(), eq(GL_DYNAMIC_DRAW));
+        assertTrue(size.getValue() >= (long) count * LINE_FLOATS * Float.BYTES);
+        verify(gl).glDrawArrays(GL_LINES, 0, count * 2);
+        assertEquals(0f, vertexFloat(vertices, 0, 0, 0));
+        assertEquals(count - 1f, vertexFloat(vertices, count - 1, 0, 0));
+    }
+
+    @Test
+    void transientLinesAreDroppedEachFrame() {
+        DebugDraw.addLine(0, 0, 1, 1, 1, 1, 1, 1);
+        DebugDraw.addLine(0, 0, 1, 1, 1, 1, 1, 0);
+        assertEquals(2, DebugDraw.getTransientLineCount());
+
+        DebugDraw.beginFrame();
+        assertEquals(0, DebugDraw.getLineCount());
+    }
+
+    @Test
+    void expiredLinesAreRemovedAndLiveOnesCompacted() {
+        DebugDraw.addLine(0, 0, 0, 0, 1, 1, 1, 2);
+        DebugDraw.addLine(1, 1, 1, 1, 1, 1, 1, 5);
+        DebugDraw.addLine(2, 2, 2, 2, 1, 1, 1, 2);
+        DebugDraw.addLine(3, 3, 3, 3, 1, 1, 1, 3);
+
+        //Lines are drawn for as many frames as their lifetime
+        DebugDraw.beginFrame();
+        assertEquals(4, DebugDraw.getLineCount());
+        DebugDraw.beginFrame();
+        assertEquals(2, DebugDraw.getLineCount());
+        ByteBuffer vertices = drawVertices();
+        assertEquals(3f, vertexFloat(vertices, 0, 0, 0));
+        assertEquals(1f, vertexFloat(vertices, 1, 0, 0));
+
+        DebugDraw.beginFrame();
+        assertEquals(1, DebugDraw.getLineCount());
+        DebugDraw.beginFrame();
+        DebugDraw.beginFrame();
+        assertEquals(0, DebugDraw.getLineCount());
+    }
+
+    @Test
+    void linesOutlivingTheWheelExpireOnTime() {
+        int lifetime = 1500;
+        DebugDraw.addLine(0, 0, 1, 1, 1, 1, 1, lifetime);
+        DebugDraw.addLine(0, 0, 1, 1, 1, 1, 1, 20);
+        for (int i = 1; i < lifetime; i++) {
+            DebugDraw.beginFrame();
+        }
+        assertEquals(1, DebugDraw.getLineCount());
+
+        DebugDraw.beginFrame();
+        assertEquals(0, DebugDraw.getLineCount());
+    }
+
+    @Test
+    void unchangedLinesAreNotUploadedAgain() {
+        DebugDraw.addLine(1, 1, 2, 2, 1, 1, 1, 10);
+        DebugDraw.draw();
+        DebugDraw.beginFrame();
+        DebugDraw.addLine(3, 3, 4, 4, 1, 1, 1, 1);
+        DebugDraw.draw();
+
+        verify(gl, times(1)).glBufferSubData(eq(GL_ARRAY_BUFFER), eq(0L), any(ByteBuffer.class));
+        //This frame's lines follow the persistent ones
+        verify(gl).glBufferSubData(eq(GL_ARRAY_BUFFER), eq((long) LINE_FLOATS * Float.BYTES), any(ByteBuffer.class));
+        verify(gl).glDrawArrays(GL_LINES, 0, 4);
+    }
+
+    @Test
+    void circleIsClosedFromTheUnitCircleTable() {
+        DebugDraw.addCircle(new Vector2f(10, 20), 5, new Vector3f(1, 0, 0));
+        assertEquals(32, DebugDraw.getLineCount());
+        ByteBuffer vertices = drawVertices();
+
+        assertEquals(15f, vertexFloat(vertices, 0, 0, 0), DELTA);
+        assertEquals(20f, vertexFloat(vertices, 0, 0, 1), DELTA);
+        //A quarter of the way round
+        assertEquals(10f, vertexFloat(vertices, 8, 0, 0), DELTA);
+        assertEquals(25f, vertexFloat(vertices, 8, 0, 1), DELTA);
+        //The last segment ends where the first began
+        assertEquals(15f, vertexFloat(vertices, 31, 1, 0), DELTA);
+        assertEquals(20f, vertexFloat(vertices, 31, 1, 1), DELTA);
+    }
+
+    @Test
+    void boxIsRotatedAroundItsCenter() {
+        DebugDraw.addBox2D(new Vector2f(), new Vector2f(2, 4), 90, DebugDraw.DEF_COLOR);
+        assertEquals(4, DebugDraw.getLineCount());
+        ByteBuffer vertices = drawVertices();
+
+        //The min corner (-1, -2) turns a quarter counterclockwise to (2, -1)
+        assertEquals(2f, vertexFloat(vertices, 0, 0, 0), DELTA);
+        assertEquals(-1f, vertexFloat(vertices, 0, 0, 1), DELTA);
+        //And the max corner (1, 2) to (-2, 1)
+        assertEquals(-2f, vertexFloat(vertices, 2, 1, 0), DELTA);
+        assertEquals(1f, vertexFloat(vertices, 2, 1, 1), DELTA);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkPersistentAndTransientLines() {
+        int count = 100_000;
+        int frames = 120;
+        for (int i = 0; i < count; i++) {
+            //Spread over the wheel and beyond it so some expire every frame
+            DebugDraw.addLine(i, 0, i, 1, 0, 1, 0, 2 + i % 1000);
+        }
+        long start = System.nanoTime();
+        for (int frame = 0; frame < frames; frame++) {
+            DebugDraw.beginFrame();
+            for (int i = 0; i < count; i++) {
+                DebugDraw.addLine(i, 2, i, 3, 1, 0, 0, 1);
+            }
+            DebugDraw.draw();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%d persistent and %d transient lines: %.3f ms per frame%n",
+                          DebugDraw.getLineCount() - count, count, elapsed / 1_000_000.0 / frames);
+        assertEquals(count, DebugDraw.getTransientLineCount());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkPhysicsBodies() {
+        int bodies = 5000;
+        int frames = 120;
+        long start = System.nanoTime();
+        for (int frame = 0; frame < frames; frame++) {
+            DebugDraw.beginFrame();
+            for (int i = 0; i < bodies; i++) {
+                float x = i % 100 * 32;
+                float y = i / 100f * 32;
+                DebugDraw.addBox(x, y, 16, 16, frame, 0, 1, 0, 0);
+                DebugDraw.addCircle(x, y, 8, 1, 0, 0, 0);
+            }
+            DebugDraw.draw();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%d bodies: %d lines, %.3f ms per frame%n", bodies, DebugDraw.getLineCount(),
+                          elapsed / 1_000_000.0 / frames);
+        assertEquals(bodies * 36, DebugDraw.getLineCount());
+    }
+}
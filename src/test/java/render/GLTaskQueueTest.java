@@ -0,0 +1,86 @@
+package render;
+
+import junitExtension.GlobalTestSetup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class: GLTaskQueueTest
+ * Author: rapto
+ * CreatedDate: 3/27/2025 : 1:15 PM
+ * Project: GameEngine
+ * Description: GLTaskQueue Unit Tests
+ */
+@ExtendWith(GlobalTestSetup.class)
+class GLTaskQueueTest {
+
+    @AfterEach
+    void tearDown() {
+        GLTaskQueue.drain();
+        GLTaskQueue.setGLThread(null);
+    }
+
+    @Test
+    void tasksOnGLThreadRunImmediately() {
+        GLTaskQueue.setGLThread(Thread.currentThread());
+        CompletableFuture<String> future = GLTaskQueue.submit(() -> "done");
+        assertEquals("done", future.getNow(null));
+        assertEquals(0, GLTaskQueue.getPendingCount());
+    }
+
+    @Test
+    void tasksFromOtherThreadsWaitForDrain() throws InterruptedException {
+        GLTaskQueue.setGLThread(Thread.currentThread());
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+        AtomicReference<CompletableFuture<Integer>> submitted = new AtomicReference<>();
+        Thread worker = new Thread(() -> submitted.set(GLTaskQueue.submit(() -> {
+            ranOn.set(Thread.currentThread());
+            return 42;
+        })));
+        worker.start();
+        worker.join();
+
+        assertFalse(submitted.get()
+                             .isDone());
+        assertEquals(1, GLTaskQueue.drain());
+        assertEquals(42, submitted.get()
+                                  .getNow(null));
+        assertSame(Thread.currentThread(), ranOn.get());
+    }
+
+    @Test
+    void failuresCompleteTheFuture() throws InterruptedException {
+        GLTaskQueue.setGLThread(Thread.currentThread());
+        AtomicReference<CompletableFuture<Object>> submitted = new AtomicReference<>();
+        Thread worker = new Thread(() -> submitted.set(GLTaskQueue.submit(() -> {
+            throw new IllegalStateException("broken");
+        })));
+        worker.start();
+        worker.join();
+
+        GLTaskQueue.drain();
+        CompletionException error = assertThrows(CompletionException.class, () -> submitted.get()
+                                                                                           .join());
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+    }
+
+    @Test
+    void tasksQueuedWhileDrainingWaitForNextDrain() throws InterruptedException {
+        GLTaskQueue.setGLThread(Thread.currentThread());
+        Thread worker = new Thread(() -> GLTaskQueue.submit(() -> {
+            //Queued from the GL thread, so it runs right away rather than being queued
+            return GLTaskQueue.submit(() -> 1);
+        }));
+        worker.start();
+        worker.join();
+        assertEquals(1, GLTaskQueue.drain());
+        assertEquals(0, GLTaskQueue.drain());
+    }
+}
@@ -0,0 +1,89 @@
+package render;
+
+import graphics.GLWrapper;
+import junitExtension.GlobalTestSetup;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.MockedStatic;
+import scene.Settings;
+import util.AssetPool;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL11.GL_TRIANGLE_STRIP;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class: GridRendererTest
+ * Author: rapto
+ * CreatedDate: 3/31/2025 : 10:05 AM
+ * Project: GameEngine
+ * Description: GridRenderer Unit Tests
+ */
+@ExtendWith(GlobalTestSetup.class)
+class GridRendererTest {
+    private GLWrapper               gl;
+    private GLWrapper               previousGl;
+    private Shader                  shader;
+    private MockedStatic<AssetPool> assetPool;
+
+    @BeforeEach
+    void setUp() {
+        previousGl = Settings.graphicsImpl;
+        gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+        when(gl.glGenVertexArrays()).thenReturn(7);
+        shader = mock(Shader.class);
+        assetPool = mockStatic(AssetPool.class);
+        assetPool.when(() -> AssetPool.getShader(GridRenderer.SHADER_PATH))
+                 .thenReturn(shader);
+    }
+
+    @AfterEach
+    void tearDown() {
+        assetPool.close();
+        Settings.graphicsImpl = previousGl;
+    }
+
+    @Test
+    void gridIsOneQuadEveryFrame() {
+        Vector3f color = new Vector3f(.2f, .2f, .2f);
+        GridRenderer grid = new GridRenderer(color);
+        for (int i = 0; i < 3; i++) {
+            grid.render();
+        }
+
+        //The vao is created once and nothing is streamed to the GPU
+        verify(gl, times(1)).glGenVertexArrays();
+        verify(gl, never()).glBufferSubData(anyInt(), anyLong(), any(ByteBuffer.class));
+        verify(gl, times(3)).glDrawArrays(GL_TRIANGLE_STRIP, 0, 4);
+        verify(shader, times(3)).uploadVec2f("uGridSize", new Vector2f(Settings.GRID_WIDTH, Settings.GRID_HEIGHT));
+        verify(shader, times(3)).uploadVec3f("uColor", color);
+    }
+
+    @Test
+    void disposeDeletesTheVertexArrayOnce() {
+        GridRenderer grid = new GridRenderer(new Vector3f());
+        //Nothing to delete before the first draw
+        grid.dispose();
+        verify(gl, never()).glDeleteVertexArrays(anyInt());
+
+        grid.render();
+        grid.dispose();
+        grid.dispose();
+        verify(gl, times(1)).glDeleteVertexArrays(7);
+    }
+
+    @Test
+    void missingShaderDrawsNothing() {
+        assetPool.when(() -> AssetPool.getShader(GridRenderer.SHADER_PATH))
+                 .thenReturn(null);
+        new GridRenderer(new Vector3f()).render();
+        verify(gl, never()).glDrawArrays(anyInt(), anyInt(), anyInt());
+    }
+}
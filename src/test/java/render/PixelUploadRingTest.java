@@ -0,0 +1,115 @@
+package render;
+
+import graphics.GLWrapper;
+import junitExtension.GlobalTestSetup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.lwjgl.BufferUtils;
+import scene.Settings;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.lwjgl.opengl.GL44C.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class: PixelUploadRingTest
+ * Author: rapto
+ * CreatedDate: 3/23/2025 : 3:10 PM
+ * Project: GameEngine
+ * Description: PixelUploadRing Unit Tests
+ */
+@ExtendWith(GlobalTestSetup.class)
+class PixelUploadRingTest {
+    private static final int CAPACITY = 100;
+
+    private GLWrapper       gl;
+    private GLWrapper       previousGl;
+    private ByteBuffer      mapped;
+    private PixelUploadRing ring;
+
+    @BeforeEach
+    void setUp() {
+        previousGl = Settings.graphicsImpl;
+        gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+        mapped = BufferUtils.createByteBuffer(CAPACITY);
+        when(gl.glGenBuffers()).thenReturn(3);
+        when(gl.glMapBufferRange(eq(GL_PIXEL_UNPACK_BUFFER), eq(0L), eq((long) CAPACITY), anyInt())).thenReturn(mapped);
+        ring = new PixelUploadRing(CAPACITY);
+        assertTrue(ring.start());
+    }
+
+    @AfterEach
+    void tearDown() {
+        Settings.graphicsImpl = previousGl;
+    }
+
+    @Test
+    void startLeavesTheUnpackBufferUnbound() {
+        verify(gl).glBufferStorage(GL_PIXEL_UNPACK_BUFFER, CAPACITY,
+                                   GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT);
+        verify(gl).glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+    }
+
+    @Test
+    void slicesAreReusedOnlyOnceTheirFencePasses() {
+        when(gl.glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0)).thenReturn(11L);
+        when(gl.glClientWaitSync(11L, 0, 0)).thenReturn(GL_TIMEOUT_EXPIRED, GL_ALREADY_SIGNALED);
+
+        PixelUploadRing.Slice first = ring.reserve(60);
+        assertEquals(0, first.getOffset());
+        //Doesn't fit in what's left, and wrapping would overwrite the first slice
+        assertNull(ring.reserve(60));
+        ring.uploaded(first);
+        ring.endFrame();
+
+        //Still being read
+        ring.reclaim();
+        assertNull(ring.reserve(60));
+        verify(gl, never()).glDeleteSync(anyLong());
+
+        //Read, the end of the ring is skipped and the slice starts over at the front
+        ring.reclaim();
+        verify(gl).glDeleteSync(11L);
+        PixelUploadRing.Slice second = ring.reserve(60);
+        assertEquals(0, second.getOffset());
+    }
+
+    @Test
+    void discardedSlicesFreeWithoutAFence() {
+        PixelUploadRing.Slice first = ring.reserve(50);
+        PixelUploadRing.Slice second = ring.reserve(50);
+        assertEquals(50, second.getOffset());
+        assertNull(ring.reserve(1));
+
+        //Out of order, space only comes back once the front slice is free too
+        ring.discard(second);
+        assertNull(ring.reserve(1));
+        ring.discard(first);
+        assertNotNull(ring.reserve(100));
+        verify(gl, never()).glFenceSync(anyInt(), anyInt());
+    }
+
+    @Test
+    void writeCopiesWithoutMovingTheSource() {
+        ByteBuffer pixels = BufferUtils.createByteBuffer(4)
+                                       .put(new byte[]{1, 2, 3, 4})
+                                       .flip();
+        ring.reserve(10);
+        PixelUploadRing.Slice slice = ring.reserve(4);
+        ring.write(slice, pixels);
+        assertEquals(0, pixels.position());
+        assertEquals(1, mapped.get(10));
+        assertEquals(4, mapped.get(13));
+    }
+
+    @Test
+    void oversizedSlicesAreRefused() {
+        assertNull(ring.reserve(CAPACITY + 1));
+    }
+}
@@ -1,4 +1,426 @@
 package render;
 
-public class RenderBatchTest {
+import component.Sprite;
+import component.SpriteRenderer;
+import graphics.GLWrapper;
+import junitExtension.GlobalTestSetup;
+import org.joml.Vector2f;
+import org.joml.Vector4f;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.lwjgl.BufferUtils;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.MockedStatic;
+import rubicon.Camera;
+import rubicon.GameObject;
+import rubicon.Transform;
+import rubicon.Window;
+import scene.Scene;
+import scene.Settings;
+import util.AssetPool;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.lwjgl.opengl.GL44C.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class: RenderBatchTest
+ * Author: rapto
+ * CreatedDate: 3/2/2025 : 2:40 AM
+ * Project: GameEngine
+ * Description: RenderBatch Unit Tests
+ */
+@ExtendWith(GlobalTestSetup.class)
+class RenderBatchTest {
+    private static final int BATCH_SIZE  = 10;
+    // 4 vertices of 9 floats per sprite
+    private static final int QUAD_FLOATS = 4 * 9;
+    private static final int QUAD_BYTES  = QUAD_FLOATS * Float.BYTES;
+
+    private GLWrapper               gl;
+    private GLWrapper               previousGl;
+    private MockedStatic<AssetPool> assetPool;
+    private MockedStatic<Window>    window;
+
+    @BeforeEach
+    void setUp() {
+        previousGl = Settings.graphicsImpl;
+        gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+
+        assetPool = mockStatic(AssetPool.class);
+        assetPool.when(() -> AssetPool.getShader(anyString()))
+                 .thenReturn(mock(Shader.class));
+
+        Scene scene = mock(Scene.class);
+        when(scene.getCamera()).thenReturn(new Camera(new Vector2f()));
+        window = mockStatic(Window.class);
+        window.when(Window::getScene)
+              .thenReturn(scene);
+    }
+
+    @AfterEach
+    void tearDown() {
+        window.close();
+        assetPool.close();
+        Settings.graphicsImpl = previousGl;
+    }
+
+    private SpriteRenderer addSprite(RenderBatch batch, float x, float y) {
+        return addSprite(batch, x, y, null);
+    }
+
+    private SpriteRenderer addSprite(RenderBatch batch, float x, float y, Texture texture) {
+        GameObject go = new GameObject("Test", new Transform(new Vector2f(x, y), new Vector2f(32, 32)), 0);
+        SpriteRenderer spr = new SpriteRenderer();
+        spr.setTexture(texture);
+        go.addComponent(spr);
+        batch.addSprite(spr);
+        return spr;
+    }
+
+    @Test
+    void streamingRotatesRegionsAndFences() {
+        long regionBytes = (long) BATCH_SIZE * QUAD_FLOATS * Float.BYTES;
+        ByteBuffer mapped = BufferUtils.createByteBuffer((int) regionBytes * StreamingVertexBuffer.REGION_COUNT);
+        when(gl.glMapBufferRange(eq(GL_ARRAY_BUFFER), eq(0L), anyLong(), anyInt())).thenReturn(mapped);
+        when(gl.glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0)).thenReturn(11L, 12L, 13L, 14L);
+        when(gl.glClientWaitSync(anyLong(), anyInt(), anyLong())).thenReturn(GL_ALREADY_SIGNALED);
+
+        RenderBatch batch = new RenderBatch(BATCH_SIZE, 0, true);
+        batch.start();
+        verify(gl).glBufferStorage(GL_ARRAY_BUFFER, regionBytes * StreamingVertexBuffer.REGION_COUNT,
+                                   GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT);
+        verify(gl, never()).glBufferData(eq(GL_ARRAY_BUFFER), anyLong(), anyInt());
+
+        addSprite(batch, 100, 200);
+        for (int frame = 0; frame < 4; frame++) {
+            batch.render();
+        }
+
+        //Each region is drawn with its own base vertex, and the first region is only reused once its fence is waited on.
+        InOrder order = inOrder(gl);
+        order.verify(gl).glDrawElementsBaseVertex(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0, 0);
+        order.verify(gl).glDrawElementsBaseVertex(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0, BATCH_SIZE * 4);
+        order.verify(gl).glDrawElementsBaseVertex(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0, BATCH_SIZE * 8);
+        order.verify(gl).glClientWaitSync(eq(11L), anyInt(), anyLong());
+        order.verify(gl).glDeleteSync(11L);
+        order.verify(gl).glDrawElementsBaseVertex(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0, 0);
+        verify(gl, never()).glBufferSubData(anyInt(), anyLong(), any(ByteBuffer.class));
+
+        //Vertex data was written straight into every mapped region.
+        mapped.order(ByteOrder.nativeOrder());
+        for (int region = 0; region < 3; region++) {
+            assertEquals(132f, mapped.getFloat((int) (region * regionBytes)));
+            assertEquals(232f, mapped.getFloat((int) (region * regionBytes) + Float.BYTES));
+        }
+    }
+
+    @Test
+    void streamingFallsBackWhenMappingFails() {
+        when(gl.glMapBufferRange(anyInt(), anyLong(), anyLong(), anyInt())).thenReturn(null);
+
+        RenderBatch batch = new RenderBatch(BATCH_SIZE, 0, true);
+        batch.start();
+        addSprite(batch, 0, 0);
+        batch.render();
+
+        verify(gl).glBufferData(GL_ARRAY_BUFFER, (long) BATCH_SIZE * QUAD_BYTES, GL_DYNAMIC_DRAW);
+        verify(gl).glDrawElements(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0);
+        verify(gl, never()).glFenceSync(anyInt(), anyInt());
+    }
+
+    @Test
+    void streamingFallbackDeletesTheUnmappedBuffer() {
+        when(gl.glGenBuffers()).thenReturn(21, 22, 23);
+        when(gl.glMapBufferRange(anyInt(), anyLong(), anyLong(), anyInt())).thenReturn(null);
+
+        RenderBatch batch = new RenderBatch(BATCH_SIZE, 0, true);
+        batch.start();
+        verify(gl).glDeleteBuffers(21);
+
+        //Only the fallback buffer is left for dispose
+        clearInvocations(gl);
+        batch.dispose();
+        verify(gl, never()).glDeleteBuffers(21);
+        verify(gl).glDeleteBuffers(22);
+    }
+
+    private static ByteBuffer floats(int count) {
+        return argThat(b -> b != null && b.remaining() == count * Float.BYTES);
+    }
+
+    @Test
+    void dirtySpritesUploadCoalescedRanges() {
+        RenderBatch batch = new RenderBatch(BATCH_SIZE, 0, false);
+        batch.start();
+        SpriteRenderer[] sprites = new SpriteRenderer[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            sprites[i] = addSprite(batch, i * 32f, 0);
+        }
+
+        //Everything is dirty on the first frame so it goes up in one call.
+        batch.render();
+        verify(gl).glBufferSubData(eq(GL_ARRAY_BUFFER), eq(0L), floats(BATCH_SIZE * QUAD_FLOATS));
+        assertEquals((long) BATCH_SIZE * QUAD_BYTES, batch.getUploadedBytes());
+
+        //Nothing changed, nothing is sent.
+        clearInvocations(gl);
+        batch.render();
+        verify(gl, never()).glBufferSubData(anyInt(), anyLong(), any(ByteBuffer.class));
+        assertEquals(0, batch.getUploadedBytes());
+
+        //Two separate ranges: [1, 3) and [7, 8)
+        clearInvocations(gl);
+        sprites[1].setColor(new Vector4f(0.5f));
+        sprites[2].setColor(new Vector4f(0.5f));
+        sprites[7].setColor(new Vector4f(0.5f));
+        batch.render();
+        verify(gl).glBufferSubData(eq(GL_ARRAY_BUFFER), eq((long) QUAD_BYTES), floats(2 * QUAD_FLOATS));
+        verify(gl).glBufferSubData(eq(GL_ARRAY_BUFFER), eq(7L * QUAD_BYTES), floats(QUAD_FLOATS));
+        verify(gl, times(2)).glBufferSubData(anyInt(), anyLong(), any(ByteBuffer.class));
+        assertEquals(3L * QUAD_BYTES, batch.getUploadedBytes());
+
+        //A gap of two clean sprites is merged into a single range [1, 5)
+        clearInvocations(gl);
+        sprites[1].setColor(new Vector4f(0.25f));
+        sprites[4].setColor(new Vector4f(0.25f));
+        batch.render();
+        verify(gl).glBufferSubData(eq(GL_ARRAY_BUFFER), eq((long) QUAD_BYTES), floats(4 * QUAD_FLOATS));
+        verify(gl, times(1)).glBufferSubData(anyInt(), anyLong(), any(ByteBuffer.class));
+    }
+
+    @Test
+    void dirtyRatioFallsBackToFullUpload() {
+        RenderBatch batch = new RenderBatch(BATCH_SIZE, 0, false);
+        batch.start();
+        SpriteRenderer[] sprites = new SpriteRenderer[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            sprites[i] = addSprite(batch, i * 32f, 0);
+        }
+        batch.render();
+
+        clearInvocations(gl);
+        for (int i = 0; i < BATCH_SIZE; i += 3) {
+            sprites[i].setColor(new Vector4f(0.5f));
+        }
+        float previousRatio = Settings.fullUploadDirtyRatio;
+        Settings.fullUploadDirtyRatio = 0.3f;
+        try {
+            batch.render();
+        } finally {
+            Settings.fullUploadDirtyRatio = previousRatio;
+        }
+        verify(gl).glBufferSubData(eq(GL_ARRAY_BUFFER), eq(0L), floats(BATCH_SIZE * QUAD_FLOATS));
+        verify(gl, times(1)).glBufferSubData(anyInt(), anyLong(), any(ByteBuffer.class));
+    }
+
+    @Test
+    void removeSpriteCompactsAndReleasesTextures() {
+        Texture first = mock(Texture.class);
+        Texture second = mock(Texture.class);
+        RenderBatch batch = new RenderBatch(BATCH_SIZE, 0, false);
+        batch.start();
+        SpriteRenderer a = addSprite(batch, 0, 0, first);
+        SpriteRenderer b = addSprite(batch, 100, 0, second);
+        SpriteRenderer c = addSprite(batch, 200, 0, second);
+        batch.render();
+        clearInvocations(gl);
+
+        //Removing the first sprite moves the last one into its slot, and only that slot is re-uploaded.
+        assertTrue(batch.removeSprite(a));
+        assertFalse(batch.hasSprite(first));
+        assertTrue(batch.hasSprite(second));
+        batch.render();
+
+        ArgumentCaptor<ByteBuffer> data = ArgumentCaptor.forClass(ByteBuffer.class);
+        verify(gl).glBufferSubData(eq(GL_ARRAY_BUFFER), eq(0L), data.capture());
+        assertEquals(QUAD_BYTES, data.getValue()
+                                     .remaining());
+        assertEquals(232f, data.getValue()
+                               .order(ByteOrder.nativeOrder())
+                               .getFloat(0));
+        verify(gl).glDrawElements(GL_TRIANGLES, 2 * 6, GL_UNSIGNED_INT, 0);
+
+        //The texture slot is only freed once its last user leaves.
+        assertTrue(batch.removeSprite(b));
+        assertTrue(batch.hasSprite(second));
+        assertTrue(batch.removeSprite(c));
+        assertFalse(batch.hasSprite(second));
+        assertFalse(batch.removeSprite(c));
+        assertTrue(batch.isEmpty());
+        assertTrue(batch.hasRoom());
+    }
+
+    @Test
+    void instancedBatchWritesOneRecordPerSprite() {
+        RenderBatch batch = new InstancedRenderBatch(BATCH_SIZE, 0, false);
+        batch.start();
+        verify(gl, never()).glBufferData(eq(GL_ELEMENT_ARRAY_BUFFER), any(int[].class), anyInt());
+        verify(gl).glVertexAttribDivisor(1, 1);
+        verify(gl).glVertexAttribDivisor(5, 1);
+        verify(gl, never()).glVertexAttribDivisor(eq(0), anyInt());
+
+        addSprite(batch, 100, 200);
+        addSprite(batch, 300, 400);
+        batch.render();
+
+        //13 floats per sprite instead of 36
+        ArgumentCaptor<ByteBuffer> data = ArgumentCaptor.forClass(ByteBuffer.class);
+        verify(gl).glBufferSubData(eq(GL_ARRAY_BUFFER), eq(0L), data.capture());
+        ByteBuffer instances = data.getValue()
+                                   .order(ByteOrder.nativeOrder());
+        assertEquals(2 * 13 * Float.BYTES, instances.remaining());
+        assertEquals(300f, instances.getFloat(13 * Float.BYTES));
+        assertEquals(400f, instances.getFloat(14 * Float.BYTES));
+        assertEquals(32f, instances.getFloat(15 * Float.BYTES));
+        assertEquals(26L * Float.BYTES, batch.getUploadedBytes());
+
+        verify(gl).glDrawArraysInstanced(GL_TRIANGLE_STRIP, 0, 4, 2);
+        verify(gl, never()).glDrawElements(anyInt(), anyInt(), anyInt(), anyLong());
+    }
+
+    @Test
+    void packedBatchWritesCompactVertices() {
+        RenderBatch batch = new PackedRenderBatch(BATCH_SIZE, 0, false);
+        batch.start();
+        verify(gl).glVertexAttribPointer(1, 4, GL_UNSIGNED_BYTE, true, 20, 8);
+        verify(gl).glVertexAttribPointer(2, 2, GL_UNSIGNED_SHORT, true, 20, 12);
+        verify(gl).glVertexAttribIPointer(3, 1, GL_UNSIGNED_BYTE, 20, 16);
+
+        SpriteRenderer spr = addSprite(batch, 100, 200);
+        spr.setColor(new Vector4f(1f, 0.5f, 0f, 1f));
+        batch.render();
+
+        //80 bytes per sprite instead of 144
+        ArgumentCaptor<ByteBuffer> data = ArgumentCaptor.forClass(ByteBuffer.class);
+        verify(gl).glBufferSubData(eq(GL_ARRAY_BUFFER), eq(0L), data.capture());
+        ByteBuffer vertices = data.getValue()
+                                  .order(ByteOrder.nativeOrder());
+        assertEquals(80, vertices.remaining());
+        assertEquals(80L, batch.getUploadedBytes());
+
+        //First vertex is the top right corner
+        assertEquals(132f, vertices.getFloat(0));
+        assertEquals(232f, vertices.getFloat(4));
+        assertEquals(255, Byte.toUnsignedInt(vertices.get(8)));
+        assertEquals(128, Byte.toUnsignedInt(vertices.get(9)));
+        assertEquals(0, Byte.toUnsignedInt(vertices.get(10)));
+        assertEquals(65535, Short.toUnsignedInt(vertices.getShort(12)));
+        assertEquals(65535, Short.toUnsignedInt(vertices.getShort(14)));
+        assertEquals(0, vertices.get(16));
+
+        //Third vertex is the bottom left corner
+        assertEquals(100f, vertices.getFloat(40));
+        assertEquals(200f, vertices.getFloat(44));
+        assertEquals(0, vertices.getShort(52));
+        assertEquals(0, vertices.getShort(54));
+    }
+
+    @Test
+    void onlyUncachedStateIsReleasedAfterDrawing() {
+        Shader shader = mock(Shader.class);
+        assetPool.when(() -> AssetPool.getShader(anyString()))
+                 .thenReturn(shader);
+        RenderBatch uncached = new RenderBatch(BATCH_SIZE, 0, false);
+        uncached.start();
+        addSprite(uncached, 0, 0);
+        uncached.render();
+        verify(shader).detach();
+
+        //Behind a wrapper tracking state the program is left bound for the next batch sharing it
+        when(gl.tracksState()).thenReturn(true);
+        RenderBatch cached = new RenderBatch(BATCH_SIZE, 0, false);
+        cached.start();
+        addSprite(cached, 0, 0);
+        clearInvocations(shader);
+        cached.render();
+        verify(shader).use();
+        verify(shader, never()).detach();
+    }
+
+    @Test
+    void arrayBatchWritesLayerAndBindsArray() {
+        when(gl.glGenTextures()).thenReturn(42);
+        TextureArray array = new TextureArray(16, 16, 4);
+        verify(gl).glTexImage3D(GL_TEXTURE_2D_ARRAY, 0, GL_RGBA8, 16, 16, 4, 0, GL_RGBA, GL_UNSIGNED_BYTE, null);
+
+        RenderBatch batch = new ArrayRenderBatch(BATCH_SIZE, 0, array, false);
+        batch.start();
+        Sprite sprite = new Sprite();
+        sprite.setTexture(mock(Texture.class));
+        //Sheet coordinates are ignored, the whole layer is sampled
+        sprite.setTexCoords(new Vector2f[]{new Vector2f(0.5f, 0.5f), new Vector2f(0.5f, 0.25f),
+                                           new Vector2f(0.25f, 0.25f), new Vector2f(0.25f, 0.5f)});
+        sprite.setTextureArray(array);
+        sprite.setLayer(3);
+        SpriteRenderer spr = addSprite(batch, 0, 0);
+        spr.setSprite(sprite);
+        batch.loadVertexProperties(0);
+        assertFalse(batch.hasSpriteRoom());
+        clearInvocations(gl);
+        batch.render();
+
+        ArgumentCaptor<ByteBuffer> data = ArgumentCaptor.forClass(ByteBuffer.class);
+        verify(gl).glBufferSubData(eq(GL_ARRAY_BUFFER), eq(0L), data.capture());
+        ByteBuffer vertices = data.getValue()
+                                  .order(ByteOrder.nativeOrder());
+        assertEquals(1f, vertices.getFloat(6 * Float.BYTES));
+        assertEquals(1f, vertices.getFloat(7 * Float.BYTES));
+        assertEquals(4f, vertices.getFloat(8 * Float.BYTES));
+
+        verify(gl).glBindTexture(GL_TEXTURE_2D_ARRAY, 42);
+        verify(gl).glBindTexture(GL_TEXTURE_2D_ARRAY, 0);
+        verify(gl, never()).glActiveTexture(GL_TEXTURE0 + 1);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void vertexFormatBenchmark() {
+        Settings.graphicsImpl = mock(GLWrapper.class, withSettings().stubOnly());
+        int sprites = 1000;
+        int frames = 2000;
+        Vector4f[] colors = {new Vector4f(1f), new Vector4f(0.5f)};
+
+        for (BatchMode mode : BatchMode.values()) {
+            RenderBatch batch;
+            switch (mode) {
+                case INSTANCED:
+                    batch = new InstancedRenderBatch(sprites, 0, false);
+                    break;
+                case PACKED:
+                    batch = new PackedRenderBatch(sprites, 0, false);
+                    break;
+                default:
+                    batch = new RenderBatch(sprites, 0, false);
+            }
+            batch.start();
+            SpriteRenderer[] renderers = new SpriteRenderer[sprites];
+            for (int i = 0; i < sprites; i++) {
+                renderers[i] = addSprite(batch, i, i);
+            }
+
+            long uploaded = 0;
+            long start = System.nanoTime();
+            for (int frame = 0; frame < frames; frame++) {
+                //Touch every sprite so each frame rewrites and uploads the whole batch
+                for (SpriteRenderer spr : renderers) {
+                    spr.setColor(colors[frame & 1]);
+                }
+                batch.render();
+                uploaded += batch.getUploadedBytes();
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("%s: %,d frames of %,d sprites took %.1f ms, %,d bytes/frame%n", mode, frames, sprites,
+                              elapsed / 1_000_000.0, uploaded / frames);
+        }
+    }
 }
@@ -0,0 +1,130 @@
+package render;
+
+import graphics.GLWrapper;
+import junitExtension.GlobalTestSetup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import scene.Settings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class: RenderQueueTest
+ * Author: rapto
+ * CreatedDate: 4/1/2025 : 11:40 AM
+ * Project: GameEngine
+ * Description: RenderQueue Unit Tests
+ */
+@ExtendWith(GlobalTestSetup.class)
+class RenderQueueTest {
+    private GLWrapper gl;
+    private GLWrapper previousGl;
+
+    @BeforeEach
+    void setUp() {
+        previousGl = Settings.graphicsImpl;
+        gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+        RenderQueue.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        RenderQueue.clear();
+        Settings.graphicsImpl = previousGl;
+    }
+
+    @Test
+    void layersComeFirstThenShadersThenTextures() {
+        List<String> drawn = new ArrayList<>();
+        RenderQueue.submit(RenderQueue.reservedKey(RenderQueue.DEBUG_LAYER, 1, 0, 0), () -> drawn.add("debug"));
+        RenderQueue.submit(RenderQueue.key(1, 2, 0, 0), () -> drawn.add("layer 1"));
+        RenderQueue.submit(RenderQueue.key(0, 9, 5, 0), () -> drawn.add("shader 9 textures 5"));
+        RenderQueue.submit(RenderQueue.key(0, 3, 7, 0), () -> drawn.add("shader 3 textures 7"));
+        RenderQueue.submit(RenderQueue.key(-1, 9, 0, 0), () -> drawn.add("layer -1"));
+        RenderQueue.submit(RenderQueue.key(0, 3, 2, 0), () -> drawn.add("shader 3 textures 2"));
+        RenderQueue.submit(RenderQueue.reservedKey(RenderQueue.GRID_LAYER, 4, 0, 0), () -> drawn.add("grid"));
+        RenderQueue.execute();
+
+        assertEquals(List.of("grid", "layer -1", "shader 3 textures 2", "shader 3 textures 7", "shader 9 textures 5",
+                             "layer 1", "debug"), drawn);
+        assertEquals(7, RenderQueue.getLastCommandCount());
+        //Sharing shader 3 saves a switch
+        assertEquals(6, RenderQueue.getLastShaderChanges());
+        assertEquals(0, RenderQueue.size());
+        //The program commands leave bound is released once
+        verify(gl, times(1)).glUseProgram(0);
+    }
+
+    @Test
+    void equalKeysKeepSubmissionOrder() {
+        List<Integer> drawn = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int id = i;
+            RenderQueue.submit(RenderQueue.key(0, 1, 1, 0), () -> drawn.add(id));
+        }
+        RenderQueue.execute();
+        assertEquals(List.of(0, 1, 2, 3, 4), drawn);
+    }
+
+    @Test
+    void extremeLayersStayBetweenGridAndDebug() {
+        List<String> drawn = new ArrayList<>();
+        RenderQueue.submit(RenderQueue.reservedKey(RenderQueue.DEBUG_LAYER, 0, 0, 0), () -> drawn.add("debug"));
+        RenderQueue.submit(RenderQueue.key(40000, 0, 0, 0), () -> drawn.add("top"));
+        RenderQueue.submit(RenderQueue.key(-40000, 0, 0, 0), () -> drawn.add("bottom"));
+        RenderQueue.submit(RenderQueue.reservedKey(RenderQueue.GRID_LAYER, 0, 0, 0), () -> drawn.add("grid"));
+        RenderQueue.execute();
+
+        assertEquals(List.of("grid", "bottom", "top", "debug"), drawn);
+        assertEquals(RenderQueue.key(RenderQueue.MAX_LAYER, 0, 0, 0), RenderQueue.key(Short.MAX_VALUE, 0, 0, 0));
+        assertEquals(RenderQueue.key(RenderQueue.MIN_LAYER, 0, 0, 0), RenderQueue.key(Short.MIN_VALUE, 0, 0, 0));
+    }
+
+    @Test
+    void depthOrdersDrawsSharingState() {
+        List<Integer> drawn = new ArrayList<>();
+        for (int depth = 4; depth >= 0; depth--) {
+            int id = depth;
+            RenderQueue.submit(RenderQueue.key(0, 1, 1, depth), () -> drawn.add(id));
+        }
+        RenderQueue.submit(RenderQueue.key(0, 1, 0, 9), () -> drawn.add(-1));
+        RenderQueue.execute();
+
+        //Depth only breaks ties, the textures still group first
+        assertEquals(List.of(-1, 0, 1, 2, 3, 4), drawn);
+    }
+
+    @Test
+    void radixSortMatchesComparisonSort() {
+        Random random = new Random(42);
+        int count = 5000;
+        Long[] submitted = new Long[count];
+        List<Long> drawn = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long key = RenderQueue.key(random.nextInt(64) - 32, random.nextInt(), random.nextInt(), random.nextInt());
+            submitted[i] = key;
+            RenderQueue.submit(key, () -> drawn.add(key));
+        }
+        RenderQueue.execute();
+
+        //Negative layers are biased below the sign bit, so keys order as unsigned numbers
+        Arrays.sort(submitted, Long::compareUnsigned);
+        assertEquals(Arrays.asList(submitted), drawn);
+    }
+
+    @Test
+    void emptyQueueDrawsNothing() {
+        RenderQueue.execute();
+        assertEquals(0, RenderQueue.getLastCommandCount());
+        verifyNoInteractions(gl);
+    }
+}
@@ -1,4 +1,425 @@
 package render;
 
-public class RendererTest {
+import component.Sprite;
+import component.SpriteRenderer;
+import graphics.GLWrapper;
+import junitExtension.GlobalTestSetup;
+import org.joml.Vector2f;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+import rubicon.Camera;
+import rubicon.GameObject;
+import rubicon.Transform;
+import rubicon.Window;
+import scene.Scene;
+import scene.Settings;
+import util.AssetPool;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.lwjgl.opengl.GL15C.*;
+import static org.lwjgl.opengl.GL13C.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL40C.GL_DRAW_INDIRECT_BUFFER;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class: RendererTest
+ * Author: rapto
+ * CreatedDate: 3/4/2025 : 9:15 PM
+ * Project: GameEngine
+ * Description: Renderer Unit Tests
+ */
+@ExtendWith(GlobalTestSetup.class)
+class RendererTest {
+    private GLWrapper               gl;
+    private GLWrapper               previousGl;
+    private MockedStatic<AssetPool> assetPool;
+    private MockedStatic<Window>    window;
+
+    @BeforeEach
+    void setUp() {
+        previousGl = Settings.graphicsImpl;
+        gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+
+        assetPool = mockStatic(AssetPool.class);
+        assetPool.when(() -> AssetPool.getShader(anyString()))
+                 .thenReturn(mock(Shader.class));
+
+        Scene scene = mock(Scene.class);
+        when(scene.getCamera()).thenReturn(new Camera(new Vector2f()));
+        window = mockStatic(Window.class);
+        window.when(Window::getScene)
+              .thenReturn(scene);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RenderQueue.clear();
+        window.close();
+        assetPool.close();
+        Settings.graphicsImpl = previousGl;
+    }
+
+    private GameObject spriteObject(float x, float y, int zIndex) {
+        return spriteObject(x, y, zIndex, null);
+    }
+
+    private GameObject spriteObject(float x, float y, int zIndex, Texture texture) {
+        GameObject go = new GameObject("Test", new Transform(new Vector2f(x, y), new Vector2f(32, 32)), zIndex);
+        SpriteRenderer spr = new SpriteRenderer();
+        spr.setTexture(texture);
+        go.addComponent(spr);
+        return go;
+    }
+
+    @Test
+    void removeReleasesEmptyBatch() {
+        when(gl.glGenVertexArrays()).thenReturn(7);
+        Renderer renderer = new Renderer();
+        GameObject go = spriteObject(0, 0, 0);
+        renderer.add(go);
+        renderer.render();
+        RenderQueue.execute();
+        verify(gl).glDrawElements(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0);
+
+        clearInvocations(gl);
+        renderer.remove(go);
+        verify(gl).glDeleteVertexArrays(7);
+        renderer.render();
+        RenderQueue.execute();
+        verify(gl, never()).glDrawElements(anyInt(), anyInt(), anyInt(), anyLong());
+
+        //Removing twice is a no-op
+        clearInvocations(gl);
+        renderer.remove(go);
+        verify(gl, never()).glDeleteVertexArrays(anyInt());
+    }
+
+    @Test
+    void removeKeepsSharedBatch() {
+        Renderer renderer = new Renderer();
+        GameObject first = spriteObject(0, 0, 0);
+        GameObject second = spriteObject(64, 0, 0);
+        renderer.add(first);
+        renderer.add(second);
+
+        renderer.remove(first);
+        verify(gl, never()).glDeleteVertexArrays(anyInt());
+        renderer.render();
+        RenderQueue.execute();
+        verify(gl).glDrawElements(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0);
+    }
+
+    @Test
+    void addGroupsByZIndexAndTexture() {
+        Renderer renderer = new Renderer();
+        //Untextured sprites fill batches of 1000 before a new one is allocated.
+        for (int i = 0; i < 2500; i++) {
+            renderer.add(spriteObject(i, 0, 0));
+        }
+        assertEquals(3, renderer.getBatchCount());
+
+        //A different zIndex never shares a batch.
+        renderer.add(spriteObject(0, 0, 1));
+        assertEquals(4, renderer.getBatchCount());
+
+        //A batch holds 8 textures, the 9th texture needs a new batch, and reused textures stay in their batch.
+        Texture[] textures = new Texture[9];
+        for (int i = 0; i < textures.length; i++) {
+            textures[i] = mock(Texture.class);
+            renderer.add(spriteObject(i, 0, 2, textures[i]));
+        }
+        assertEquals(6, renderer.getBatchCount());
+        for (Texture texture : textures) {
+            renderer.add(spriteObject(0, 0, 2, texture));
+        }
+        assertEquals(6, renderer.getBatchCount());
+    }
+
+    @Test
+    void evictedTextureStillFindsItsBatch() {
+        when(gl.glGenTextures()).thenReturn(1, 2, 3, 4, 5, 6, 7, 8);
+        Renderer renderer = new Renderer();
+        //Fill every sampler slot of one batch
+        Texture[] textures = new Texture[RenderBatch.TEXTURE_SLOTS];
+        for (int i = 0; i < textures.length; i++) {
+            textures[i] = new Texture(16, 16);
+            renderer.add(spriteObject(i, 0, 0, textures[i]));
+        }
+        assertEquals(1, renderer.getBatchCount());
+
+        //Eviction changes the texture's hash, the batch already sampling it must still be found
+        textures[0].evict();
+        renderer.add(spriteObject(0, 0, 0, textures[0]));
+        assertEquals(1, renderer.getBatchCount());
+    }
+
+    @Test
+    void arraySpritesShareOneBatchAcrossSheets() {
+        Renderer renderer = new Renderer();
+        TextureArray array = new TextureArray(16, 16, 64);
+        //Tiles of 20 different sheets would need 3 sampler slot batches, as layers they fit in one
+        for (int i = 0; i < 20; i++) {
+            Sprite sprite = new Sprite();
+            sprite.setTexture(mock(Texture.class));
+            sprite.setTextureArray(array);
+            sprite.setLayer(i);
+            GameObject go = spriteObject(i, 0, 0);
+            go.getComponent(SpriteRenderer.class)
+              .setSprite(sprite);
+            renderer.add(go);
+        }
+        renderer.add(spriteObject(0, 0, 0));
+        assertEquals(1, renderer.getBatchCount());
+
+        renderer.render();
+        RenderQueue.execute();
+        verify(gl).glDrawElements(GL_TRIANGLES, 6 * 21, GL_UNSIGNED_INT, 0);
+        verify(gl, never()).glActiveTexture(GL_TEXTURE0 + 1);
+    }
+
+    @Test
+    void cullingBatchesOnlySpritesInView() {
+        Camera camera = Window.getScene()
+                              .getCamera();
+        Renderer renderer = new Renderer(BatchMode.QUAD, true);
+        GameObject near = spriteObject(0, 0, 0);
+        GameObject far = spriteObject(5000, 0, 0);
+        renderer.add(near);
+        renderer.add(far);
+        //Nothing is culled until the first view is known
+        assertEquals(2, renderer.getBatchedSpriteCount());
+
+        renderer.render();
+        RenderQueue.execute();
+        assertEquals(1, renderer.getBatchedSpriteCount());
+        verify(gl).glDrawElements(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0);
+
+        //Panning the camera swaps which sprite is batched
+        camera.getPosition()
+              .set(4800, 0);
+        renderer.render();
+        RenderQueue.execute();
+        assertEquals(1, renderer.getBatchedSpriteCount());
+        renderer.remove(far);
+        assertEquals(0, renderer.getBatchedSpriteCount());
+        renderer.remove(near);
+        assertEquals(0, renderer.getBatchCount());
+    }
+
+    @Test
+    void cullingFollowsMovingSprites() {
+        Renderer renderer = new Renderer(BatchMode.QUAD, true);
+        GameObject go = spriteObject(5000, 0, 0);
+        go.start();
+        renderer.add(go);
+        renderer.render();
+        RenderQueue.execute();
+        assertEquals(0, renderer.getBatchedSpriteCount());
+
+        go.transform.position.set(64, 64);
+        go.update(0);
+        renderer.render();
+        RenderQueue.execute();
+        assertEquals(1, renderer.getBatchedSpriteCount());
+        verify(gl).glDrawElements(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0);
+
+        go.transform.position.set(-5000, 64);
+        go.update(0);
+        renderer.render();
+        RenderQueue.execute();
+        assertEquals(0, renderer.getBatchedSpriteCount());
+        assertEquals(0, renderer.getBatchCount());
+    }
+
+    @Test
+    void cullingSeesMovesOfSpritesAddedDirty() {
+        Renderer renderer = new Renderer(BatchMode.QUAD, true);
+        renderer.render();
+        RenderQueue.execute();
+
+        //Added in view and still dirty from creation, then moved out before its batch ever cleaned it
+        GameObject go = spriteObject(0, 0, 0);
+        go.start();
+        renderer.add(go);
+        assertEquals(1, renderer.getBatchedSpriteCount());
+        go.transform.position.set(5000, 0);
+        go.update(0);
+        renderer.render();
+        RenderQueue.execute();
+        assertEquals(0, renderer.getBatchedSpriteCount());
+
+        //Hidden sprites are clean, so moving back is reported
+        go.transform.position.set(0, 0);
+        go.update(0);
+        renderer.render();
+        RenderQueue.execute();
+        assertEquals(1, renderer.getBatchedSpriteCount());
+    }
+
+    @Test
+    void cullingDisabledBatchesEverything() {
+        Renderer renderer = new Renderer(BatchMode.QUAD, false);
+        renderer.add(spriteObject(0, 0, 0));
+        renderer.add(spriteObject(5000, 0, 0));
+        renderer.render();
+        RenderQueue.execute();
+        assertEquals(2, renderer.getBatchedSpriteCount());
+    }
+
+    /**
+     * Capture the indirect commands uploaded at the given offset.
+     *
+     * @param offset byte offset into the command buffer
+     * @return count, instanceCount, firstIndex, baseVertex and baseInstance of each command
+     */
+    private int[] indirectCommands(long offset) {
+        ArgumentCaptor<ByteBuffer> data = ArgumentCaptor.forClass(ByteBuffer.class);
+        verify(gl).glBufferSubData(eq(GL_DRAW_INDIRECT_BUFFER), eq(offset), data.capture());
+        ByteBuffer commands = data.getValue()
+                                  .order(ByteOrder.nativeOrder());
+        int[] ints = new int[commands.remaining() / Integer.BYTES];
+        commands.asIntBuffer()
+                .get(ints);
+        return ints;
+    }
+
+    @Test
+    void multiDrawIndirectDrawsALayerInOneCall() {
+        Renderer renderer = new Renderer(BatchMode.QUAD, false, true);
+        for (int i = 0; i < 2500; i++) {
+            renderer.add(spriteObject(i, 0, 0));
+        }
+        renderer.add(spriteObject(0, 0, 1));
+        assertEquals(4, renderer.getBatchCount());
+        //Only the shared vertex array is created
+        verify(gl, times(1)).glGenVertexArrays();
+
+        renderer.render();
+        RenderQueue.execute();
+        verify(gl, never()).glDrawElements(anyInt(), anyInt(), anyInt(), anyLong());
+        verify(gl).glMultiDrawElementsIndirect(GL_TRIANGLES, GL_UNSIGNED_INT, 0L, 3, 0);
+        verify(gl).glMultiDrawElementsIndirect(GL_TRIANGLES, GL_UNSIGNED_INT, 60L, 1, 0);
+
+        //Each batch draws its sprites from its own region of the shared buffer
+        assertArrayEquals(new int[]{6000, 1, 0, 0, 0, 6000, 1, 0, 4000, 0, 3000, 1, 0, 8000, 0},
+                          indirectCommands(0L));
+        //The next layer's commands follow in the command buffer
+        assertArrayEquals(new int[]{6, 1, 0, 12000, 0}, indirectCommands(60L));
+        verify(gl).glBufferSubData(eq(GL_ARRAY_BUFFER), eq(2000L * RenderBatch.QUAD_SIZE_BYTES),
+                                   any(ByteBuffer.class));
+    }
+
+    @Test
+    void multiDrawIndirectSplitsBatchesBoundToDifferentTextures() {
+        Renderer renderer = new Renderer(BatchMode.QUAD, false, true);
+        //A batch holds 8 textures, the 9th lands in a second batch that can't share the draw
+        for (int i = 0; i < 9; i++) {
+            renderer.add(spriteObject(i, 0, 0, mock(Texture.class)));
+        }
+        assertEquals(2, renderer.getBatchCount());
+
+        renderer.render();
+        RenderQueue.execute();
+        verify(gl, times(2)).glMultiDrawElementsIndirect(eq(GL_TRIANGLES), eq(GL_UNSIGNED_INT), anyLong(), eq(1),
+                                                         eq(0));
+    }
+
+    @Test
+    void multiDrawIndirectBufferGrowsAndReuploads() {
+        Renderer renderer = new Renderer(BatchMode.QUAD, false, true);
+        //Each zIndex gets its own batch, filling the 16 initial regions
+        GameObject[] objects = new GameObject[16];
+        for (int z = 0; z < objects.length; z++) {
+            objects[z] = spriteObject(0, 0, z);
+            renderer.add(objects[z]);
+        }
+        renderer.render();
+        RenderQueue.execute();
+
+        clearInvocations(gl);
+        renderer.add(spriteObject(0, 0, 16));
+        verify(gl).glBufferData(GL_ARRAY_BUFFER, 32L * 1000 * RenderBatch.QUAD_SIZE_BYTES, GL_DYNAMIC_DRAW);
+        renderer.render();
+        RenderQueue.execute();
+        //The reallocated buffer lost every batch, so the first one is sent again
+        verify(gl).glBufferSubData(eq(GL_ARRAY_BUFFER), eq(0L), any(ByteBuffer.class));
+        verify(gl, times(17)).glMultiDrawElementsIndirect(eq(GL_TRIANGLES), eq(GL_UNSIGNED_INT), anyLong(), eq(1),
+                                                          eq(0));
+
+        //An emptied batch hands its region back instead of deleting buffers, and the next batch takes it
+        clearInvocations(gl);
+        renderer.remove(objects[3]);
+        verify(gl, never()).glDeleteBuffers(anyInt());
+        verify(gl, never()).glDeleteVertexArrays(anyInt());
+        renderer.add(spriteObject(0, 0, 20));
+        renderer.render();
+        RenderQueue.execute();
+        verify(gl).glBufferSubData(eq(GL_ARRAY_BUFFER), eq(3000L * RenderBatch.QUAD_SIZE_BYTES), any(ByteBuffer.class));
+    }
+
+    @Test
+    void disposeReleasesEveryBatch() {
+        when(gl.glGenVertexArrays()).thenReturn(7, 8);
+        Renderer renderer = new Renderer(BatchMode.QUAD, false, false);
+        renderer.add(spriteObject(0, 0, 0));
+        renderer.add(spriteObject(0, 0, 1));
+
+        renderer.dispose();
+        verify(gl).glDeleteVertexArrays(7);
+        verify(gl).glDeleteVertexArrays(8);
+        assertEquals(0, renderer.getBatchCount());
+    }
+
+    @Test
+    void disposeReleasesTheSharedIndirectBuffers() {
+        when(gl.glGenVertexArrays()).thenReturn(7);
+        when(gl.glGenBuffers()).thenReturn(11, 12, 13);
+        Renderer renderer = new Renderer(BatchMode.QUAD, false, true);
+        renderer.add(spriteObject(0, 0, 0));
+        renderer.add(spriteObject(0, 0, 1));
+
+        renderer.dispose();
+        verify(gl).glDeleteVertexArrays(7);
+        verify(gl).glDeleteBuffers(11);
+        verify(gl).glDeleteBuffers(12);
+        verify(gl).glDeleteBuffers(13);
+        assertEquals(0, renderer.getBatchCount());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void loadBenchmark() {
+        Settings.graphicsImpl = mock(GLWrapper.class, withSettings().stubOnly());
+        Texture[] textures = new Texture[64];
+        for (int i = 0; i < textures.length; i++) {
+            textures[i] = mock(Texture.class, withSettings().stubOnly());
+        }
+
+        for (int count : new int[]{10_000, 100_000, 1_000_000}) {
+            GameObject[] objects = new GameObject[count];
+            for (int i = 0; i < count; i++) {
+                objects[i] = spriteObject(i, i, i % 4, textures[i % textures.length]);
+            }
+
+            Renderer renderer = new Renderer();
+            long start = System.nanoTime();
+            for (GameObject go : objects) {
+                renderer.add(go);
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("Renderer.add: %,d sprites in %,d batches took %.1f ms%n", count,
+                              renderer.getBatchCount(), elapsed / 1_000_000.0);
+        }
+    }
 }
@@ -0,0 +1,152 @@
+package render;
+
+import graphics.GLWrapper;
+import junitExtension.GlobalTestSetup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import scene.Settings;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.lwjgl.opengl.GL41C.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class: ShaderBinaryCacheTest
+ * Author: rapto
+ * CreatedDate: 3/22/2025 : 1:30 PM
+ * Project: GameEngine
+ * Description: ShaderBinaryCache Unit Tests
+ */
+@ExtendWith(GlobalTestSetup.class)
+class ShaderBinaryCacheTest {
+    private static final int    PROGRAM  = 3;
+    private static final int    FORMAT   = 0x1234;
+    private static final byte[] BINARY   = {1, 2, 3, 4, 5};
+    private static final String VERTEX   = "vertex source";
+    private static final String FRAGMENT = "fragment source";
+
+    @TempDir
+    Path directory;
+
+    private GLWrapper gl;
+    private GLWrapper previousGl;
+
+    @BeforeEach
+    void setUp() {
+        previousGl = Settings.graphicsImpl;
+        gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+
+        when(gl.glGetInteger(GL_NUM_PROGRAM_BINARY_FORMATS)).thenReturn(1);
+        when(gl.glGetString(GL_VENDOR)).thenReturn("Vendor");
+        when(gl.glGetString(GL_RENDERER)).thenReturn("Renderer");
+        when(gl.glGetString(GL_VERSION)).thenReturn("4.6.0 1.0");
+        when(gl.glGetProgrami(PROGRAM, GL_PROGRAM_BINARY_LENGTH)).thenReturn(BINARY.length);
+        when(gl.glGetProgrami(PROGRAM, GL_LINK_STATUS)).thenReturn(GL_TRUE);
+        doAnswer(invocation -> {
+            invocation.<IntBuffer>getArgument(1)
+                      .put(0, BINARY.length);
+            invocation.<IntBuffer>getArgument(2)
+                      .put(0, FORMAT);
+            invocation.<ByteBuffer>getArgument(3)
+                      .put(0, BINARY);
+            return null;
+        }).when(gl)
+          .glGetProgramBinary(eq(PROGRAM), any(), any(), any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        Settings.graphicsImpl = previousGl;
+    }
+
+    private List<Path> cacheFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+
+    @Test
+    void storedProgramIsRestored() {
+        ShaderBinaryCache cache = new ShaderBinaryCache(directory);
+        assertFalse(cache.load(PROGRAM, VERTEX, FRAGMENT));
+        cache.store(PROGRAM, VERTEX, FRAGMENT, 1_000_000_000L);
+
+        //A new cache, as on the next launch
+        cache = new ShaderBinaryCache(directory);
+        assertTrue(cache.load(PROGRAM, VERTEX, FRAGMENT));
+        verify(gl).glProgramBinary(eq(PROGRAM), eq(FORMAT), argThat(binary -> {
+            byte[] bytes = new byte[binary.remaining()];
+            binary.get(binary.position(), bytes);
+            return Arrays.equals(BINARY, bytes);
+        }));
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getMisses());
+        assertTrue(cache.getSavedNanos() > 0);
+    }
+
+    @Test
+    void changedSourceOrDriverMisses() {
+        ShaderBinaryCache cache = new ShaderBinaryCache(directory);
+        cache.store(PROGRAM, VERTEX, FRAGMENT, 0);
+
+        assertFalse(cache.load(PROGRAM, VERTEX, FRAGMENT + " edited"));
+
+        when(gl.glGetString(GL_VERSION)).thenReturn("4.6.0 2.0");
+        cache = new ShaderBinaryCache(directory);
+        assertFalse(cache.load(PROGRAM, VERTEX, FRAGMENT));
+        assertEquals(1, cache.getMisses());
+        verify(gl, never()).glProgramBinary(anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void rejectedBinaryIsDiscarded() throws IOException {
+        ShaderBinaryCache cache = new ShaderBinaryCache(directory);
+        cache.store(PROGRAM, VERTEX, FRAGMENT, 0);
+        assertEquals(1, cacheFiles().size());
+
+        when(gl.glGetProgrami(PROGRAM, GL_LINK_STATUS)).thenReturn(GL_FALSE);
+        assertFalse(cache.load(PROGRAM, VERTEX, FRAGMENT));
+        assertEquals(1, cache.getMisses());
+        assertTrue(cacheFiles().isEmpty());
+    }
+
+    @Test
+    void corruptFileIsDiscarded() throws IOException {
+        ShaderBinaryCache cache = new ShaderBinaryCache(directory);
+        cache.store(PROGRAM, VERTEX, FRAGMENT, 0);
+        Path file = cacheFiles().get(0);
+        byte[] data = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(data, data.length - 2));
+
+        assertFalse(cache.load(PROGRAM, VERTEX, FRAGMENT));
+        assertTrue(cacheFiles().isEmpty());
+        verify(gl, never()).glProgramBinary(anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void unsupportedDriverSkipsCache() throws IOException {
+        when(gl.glGetInteger(GL_NUM_PROGRAM_BINARY_FORMATS)).thenReturn(0);
+        ShaderBinaryCache cache = new ShaderBinaryCache(directory);
+        cache.prepare(PROGRAM);
+        cache.store(PROGRAM, VERTEX, FRAGMENT, 0);
+
+        assertFalse(cache.load(PROGRAM, VERTEX, FRAGMENT));
+        assertTrue(cacheFiles().isEmpty());
+        verify(gl, never()).glProgramParameteri(anyInt(), anyInt(), anyInt());
+        verify(gl, never()).glGetProgramBinary(anyInt(), any(), any(), any());
+    }
+}
@@ -1,4 +1,115 @@
 package render;
 
+import graphics.GLWrapper;
+import junitExtension.GlobalTestSetup;
+import org.joml.Matrix4f;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import scene.Settings;
+
+import static org.lwjgl.opengl.GL31C.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class: ShaderTest
+ * Author: rapto
+ * CreatedDate: 3/21/2025 : 7:55 PM
+ * Project: GameEngine
+ * Description: Shader Unit Tests
+ */
+@ExtendWith(GlobalTestSetup.class)
 public class ShaderTest {
+    private static final int PROGRAM = 7;
+
+    private GLWrapper gl;
+    private GLWrapper previousGl;
+
+    @BeforeEach
+    void setUp() {
+        previousGl = Settings.graphicsImpl;
+        gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+
+        when(gl.glGetShaderi(anyInt(), eq(GL_COMPILE_STATUS))).thenReturn(GL_TRUE);
+        when(gl.glCreateProgram()).thenReturn(PROGRAM);
+        when(gl.glGetProgrami(PROGRAM, GL_LINK_STATUS)).thenReturn(GL_TRUE);
+        when(gl.glGetProgrami(PROGRAM, GL_ACTIVE_UNIFORMS)).thenReturn(2);
+        when(gl.glGetActiveUniform(eq(PROGRAM), eq(0), any(), any())).thenReturn("uTextures[0]");
+        when(gl.glGetActiveUniform(eq(PROGRAM), eq(1), any(), any())).thenReturn("uProjection");
+        when(gl.glGetUniformLocation(PROGRAM, "uTextures[0]")).thenReturn(4);
+        //Camera block members have no location
+        when(gl.glGetUniformLocation(PROGRAM, "uProjection")).thenReturn(-1);
+        when(gl.glGetUniformBlockIndex(PROGRAM, CameraUniformBuffer.BLOCK_NAME)).thenReturn(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Settings.graphicsImpl = previousGl;
+    }
+
+    @Test
+    void linkingFillsUniformLocations() {
+        Shader shader = new Shader("assets/shader/default.glsl");
+        shader.compileAndLinkShader();
+        verify(gl).glUniformBlockBinding(PROGRAM, 2, CameraUniformBuffer.BINDING);
+
+        int[] slots = {0, 1, 2};
+        shader.uploadIntArray("uTextures", slots);
+        shader.uploadIntArray("uTextures", slots);
+        verify(gl, times(2)).glUniform1iv(4, slots);
+        verify(gl, never()).glGetUniformLocation(PROGRAM, "uTextures");
+    }
+
+    @Test
+    void unlistedUniformsAreQueriedOnce() {
+        Shader shader = new Shader("assets/shader/default.glsl");
+        shader.compileAndLinkShader();
+        when(gl.glGetUniformLocation(PROGRAM, "uTransform")).thenReturn(9);
+
+        shader.uploadMat4f("uTransform", new Matrix4f());
+        shader.uploadMat4f("uTransform", new Matrix4f());
+        verify(gl, times(1)).glGetUniformLocation(PROGRAM, "uTransform");
+        verify(gl, times(2)).glUniformMatrix4fv(eq(9), eq(false), any());
+    }
+
+    @Test
+    void missingCameraBlockIsNotBound() {
+        when(gl.glGetUniformBlockIndex(PROGRAM, CameraUniformBuffer.BLOCK_NAME)).thenReturn(GL_INVALID_INDEX);
+        Shader shader = new Shader("assets/shader/default.glsl");
+        shader.compileAndLinkShader();
+        verify(gl, never()).glUniformBlockBinding(anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    void cachedProgramSkipsCompilation() {
+        ShaderBinaryCache cache = mock(ShaderBinaryCache.class);
+        when(cache.load(eq(PROGRAM), anyString(), anyString())).thenReturn(true);
+        Shader shader = new Shader("assets/shader/default.glsl");
+        shader.compileAndLinkShader(cache);
+
+        verify(gl, never()).glCreateShader(anyInt());
+        verify(gl, never()).glLinkProgram(anyInt());
+        verify(cache, never()).store(anyInt(), anyString(), anyString(), anyLong());
+        //Locations and the camera block are still set up for the restored program
+        verify(gl).glUniformBlockBinding(PROGRAM, 2, CameraUniformBuffer.BINDING);
+    }
+
+    @Test
+    void compiledProgramIsStored() {
+        ShaderBinaryCache cache = mock(ShaderBinaryCache.class);
+        Shader shader = new Shader("assets/shader/default.glsl");
+        shader.compileAndLinkShader(cache);
+
+        InOrder order = inOrder(cache, gl);
+        order.verify(cache)
+             .prepare(PROGRAM);
+        order.verify(gl)
+             .glLinkProgram(PROGRAM);
+        order.verify(cache)
+             .store(eq(PROGRAM), anyString(), anyString(), anyLong());
+    }
 }
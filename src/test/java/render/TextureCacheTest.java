@@ -0,0 +1,218 @@
+package render;
+
+import graphics.GLWrapper;
+import graphics.LWJGLWrapper;
+import junitExtension.GlobalTestSetup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.lwjgl.BufferUtils;
+import scene.Settings;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class: TextureCacheTest
+ * Author: rapto
+ * CreatedDate: 3/25/2025 : 2:10 PM
+ * Project: GameEngine
+ * Description: TextureCache Unit Tests
+ */
+@ExtendWith(GlobalTestSetup.class)
+class TextureCacheTest {
+    private static final String[] SPRITE_SHEETS = {"assets/images/spritesheets/decorationsAndBlocks.png",
+                                                   "assets/images/spritesheets/icons.png",
+                                                   "assets/images/spritesheets/pipes.png"};
+
+    @TempDir
+    Path directory;
+
+    private final boolean previousMipmaps = Settings.textureMipmaps;
+
+    @AfterEach
+    void tearDown() {
+        Settings.textureMipmaps = previousMipmaps;
+    }
+
+    private Path source(String contents) throws IOException {
+        Path source = directory.resolve("image.png");
+        Files.writeString(source, contents);
+        return source;
+    }
+
+    private List<Path> cacheFiles(Path cacheDirectory) throws IOException {
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            return files.toList();
+        }
+    }
+
+    private static ByteBuffer pixels(int... values) {
+        ByteBuffer pixels = BufferUtils.createByteBuffer(values.length);
+        for (int value : values) {
+            pixels.put((byte) value);
+        }
+        return pixels.flip();
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(buffer.position(), bytes);
+        return bytes;
+    }
+
+    @Test
+    void storedImageIsMapped() throws IOException {
+        Settings.textureMipmaps = false;
+        Path source = source("png");
+        ByteBuffer pixels = pixels(1, 2, 3, 4, 5, 6, 7, 8);
+        new TextureCache(directory.resolve("cache")).store(source.toString(), 2, 1, 4, pixels);
+        //Stored pixels are left for the caller to free
+        assertEquals(8, pixels.remaining());
+
+        //A new cache, as on the next launch
+        TextureCache cache = new TextureCache(directory.resolve("cache"));
+        TextureCache.Image image = cache.load(source.toString());
+        assertNotNull(image);
+        assertEquals(2, image.getWidth());
+        assertEquals(1, image.getHeight());
+        assertEquals(4, image.getChannels());
+        assertEquals(1, image.getLevels().length);
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}, bytes(image.getLevels()[0]));
+        assertEquals(1, cache.getHits());
+        assertNull(cache.load(directory.resolve("other.png")
+                                       .toString()));
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void mipChainIsBoxFiltered() throws IOException {
+        Settings.textureMipmaps = true;
+        Path source = source("png");
+        //4x2 RGBA
+        ByteBuffer pixels = pixels(0, 0, 0, 0, 4, 4, 4, 4, 8, 8, 8, 8, 100, 100, 100, 100,
+                                   0, 0, 0, 0, 4, 4, 4, 4, 8, 8, 8, 8, 200, 200, 200, 200);
+        TextureCache cache = new TextureCache(directory.resolve("cache"));
+        cache.store(source.toString(), 4, 2, 4, pixels);
+
+        TextureCache.Image image = cache.load(source.toString());
+        assertNotNull(image);
+        ByteBuffer[] levels = image.getLevels();
+        assertEquals(TextureCache.levelCount(4, 2), levels.length);
+        assertArrayEquals(new byte[]{2, 2, 2, 2, 79, 79, 79, 79}, bytes(levels[1]));
+        assertArrayEquals(new byte[]{41, 41, 41, 41}, bytes(levels[2]));
+    }
+
+    @Test
+    void rgbImagesHaveNoMipChain() throws IOException {
+        Settings.textureMipmaps = true;
+        Path source = source("png");
+        TextureCache cache = new TextureCache(directory.resolve("cache"));
+        cache.store(source.toString(), 2, 2, 3, BufferUtils.createByteBuffer(12));
+
+        TextureCache.Image image = cache.load(source.toString());
+        assertNotNull(image);
+        assertEquals(1, image.getLevels().length);
+    }
+
+    @Test
+    void entriesWithoutMipChainMissOnceMipmapsAreOn() throws IOException {
+        Settings.textureMipmaps = false;
+        Path source = source("png");
+        TextureCache cache = new TextureCache(directory.resolve("cache"));
+        cache.store(source.toString(), 2, 2, 4, BufferUtils.createByteBuffer(16));
+
+        Settings.textureMipmaps = true;
+        assertNull(cache.load(source.toString()));
+        assertTrue(cacheFiles(directory.resolve("cache")).isEmpty());
+    }
+
+    @Test
+    void touchedSourceIsKept() throws IOException {
+        Path source = source("png");
+        TextureCache cache = new TextureCache(directory.resolve("cache"));
+        cache.store(source.toString(), 1, 1, 4, pixels(1, 2, 3, 4));
+
+        Files.setLastModifiedTime(source, FileTime.fromMillis(Files.getLastModifiedTime(source)
+                                                                   .toMillis() + 60_000));
+        assertNotNull(cache.load(source.toString()));
+        assertNotNull(cache.load(source.toString()));
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    void changedSourceMisses() throws IOException {
+        Path source = source("png");
+        TextureCache cache = new TextureCache(directory.resolve("cache"));
+        cache.store(source.toString(), 1, 1, 4, pixels(1, 2, 3, 4));
+
+        Files.writeString(source, "edited png");
+        assertNull(cache.load(source.toString()));
+        assertEquals(1, cache.getMisses());
+        assertTrue(cacheFiles(directory.resolve("cache")).isEmpty());
+    }
+
+    @Test
+    void corruptEntryIsDiscarded() throws IOException {
+        Path source = source("png");
+        TextureCache cache = new TextureCache(directory.resolve("cache"));
+        cache.store(source.toString(), 2, 2, 4, BufferUtils.createByteBuffer(16));
+        Path file = cacheFiles(directory.resolve("cache")).get(0);
+        byte[] data = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(data, data.length - 3));
+
+        assertNull(cache.load(source.toString()));
+        assertTrue(cacheFiles(directory.resolve("cache")).isEmpty());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void decodeVersusCachedBenchmark() {
+        //Only stbi is used, so no GL context is needed
+        GLWrapper stbi = new LWJGLWrapper();
+        TextureCache cache = new TextureCache(directory.resolve("cache"));
+        int iterations = 50;
+        for (String sheet : SPRITE_SHEETS) {
+            IntBuffer width = BufferUtils.createIntBuffer(1);
+            IntBuffer height = BufferUtils.createIntBuffer(1);
+            IntBuffer channels = BufferUtils.createIntBuffer(1);
+            stbi.stbiSetFlipVerticallyOnLoad(true);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                ByteBuffer image = stbi.stbiLoad(sheet, width, height, channels, 0);
+                assertNotNull(image);
+                if (i == 0) {
+                    cache.store(sheet, width.get(0), height.get(0), channels.get(0), image);
+                }
+                stbi.stbiImageFree(image);
+            }
+            long decodeNanos = (System.nanoTime() - start) / iterations;
+
+            //Copy the pixels out as the upload would, a mapping alone reads nothing
+            ByteBuffer upload = BufferUtils.createByteBuffer(width.get(0) * height.get(0) * channels.get(0));
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                TextureCache.Image image = cache.load(sheet);
+                assertNotNull(image);
+                upload.clear();
+                upload.put(image.getLevels()[0]);
+            }
+            long cachedNanos = (System.nanoTime() - start) / iterations;
+
+            System.out.printf("%s (%dx%d): decode %.2f ms, cached %.2f ms%n", sheet, width.get(0), height.get(0),
+                              decodeNanos / 1_000_000.0, cachedNanos / 1_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package render;
+
+import graphics.GLWrapper;
+import junitExtension.GlobalTestSetup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.lwjgl.BufferUtils;
+import scene.Settings;
+import util.XXHash64;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.lwjgl.opengl.GL44C.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class: TextureLoaderTest
+ * Author: rapto
+ * CreatedDate: 3/23/2025 : 2:45 PM
+ * Project: GameEngine
+ * Description: TextureLoader Unit Tests
+ */
+@ExtendWith(GlobalTestSetup.class)
+class TextureLoaderTest {
+    private static final String IMAGE = "assets/images/spritesheets/decorationsAndBlocks.png";
+    private static final int    SIZE  = 2;
+    //2x2 RGBA image
+    private static final int    BYTES = SIZE * SIZE * 4;
+
+    private GLWrapper     gl;
+    private GLWrapper     previousGl;
+    private TextureLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        previousGl = Settings.graphicsImpl;
+        gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+
+        when(gl.stbiLoadFromMemory(any(), any(), any(), any(), eq(4))).thenAnswer(invocation -> {
+            invocation.<IntBuffer>getArgument(1)
+                      .put(0, SIZE);
+            invocation.<IntBuffer>getArgument(2)
+                      .put(0, SIZE);
+            return BufferUtils.createByteBuffer(BYTES);
+        });
+        loader = new TextureLoader(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Settings.graphicsImpl = previousGl;
+    }
+
+    private Texture placeholder(String filePath) {
+        Texture texture = new Texture();
+        texture.initPlaceholder(filePath);
+        return texture;
+    }
+
+    private void awaitDecoded(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (loader.getDecodedCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, loader.getDecodedCount());
+    }
+
+    @Test
+    void decodedImageIsUploadedFromDecodedPixels() throws InterruptedException {
+        Texture texture = placeholder(IMAGE);
+        assertEquals(1, texture.getWidth());
+        CompletableFuture<Texture> future = loader.load(texture);
+        assertFalse(future.isDone());
+
+        awaitDecoded(1);
+        //Nothing lands until the GL thread processes uploads
+        assertFalse(future.isDone());
+        loader.processUploads(Long.MAX_VALUE);
+
+        assertSame(texture, future.getNow(null));
+        assertEquals(SIZE, texture.getWidth());
+        assertEquals(SIZE, texture.getHeight());
+        verify(gl).glTexImage2D(eq(GL_TEXTURE_2D), eq(0), eq(GL_RGBA), eq(SIZE), eq(SIZE), eq(0), eq(GL_RGBA),
+                                eq(GL_UNSIGNED_BYTE), any(ByteBuffer.class));
+        //Nothing could be mapped, so the pixels went up from client memory
+        verify(gl, never()).glTexImage2D(anyInt(), anyInt(), anyInt(), anyInt(), anyInt(), anyInt(), anyInt(),
+                                         anyInt(), anyLong());
+        verify(gl).stbiImageFree(any());
+        assertEquals(1, loader.getUploadedCount());
+        assertEquals(BYTES, loader.getUploadedBytes());
+        assertEquals(0, loader.getPendingCount());
+    }
+
+    @Test
+    void workersStageDecodedPixelsInThePixelBuffer() throws InterruptedException {
+        long previousBudget = Settings.textureUploadBudget;
+        Settings.textureUploadBudget = 64;
+        try {
+            int capacity = 64 * PixelUploadRing.FRAME_COUNT;
+            ByteBuffer mapped = BufferUtils.createByteBuffer(capacity);
+            when(gl.glGenBuffers()).thenReturn(5);
+            when(gl.glMapBufferRange(GL_PIXEL_UNPACK_BUFFER, 0, capacity,
+                                     GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT))
+                    .thenReturn(mapped);
+            when(gl.glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0)).thenReturn(9L);
+            when(gl.glClientWaitSync(9L, 0, 0)).thenReturn(GL_ALREADY_SIGNALED);
+            when(gl.stbiLoadFromMemory(any(), any(), any(), any(), eq(4))).thenAnswer(invocation -> {
+                invocation.<IntBuffer>getArgument(1)
+                          .put(0, SIZE);
+                invocation.<IntBuffer>getArgument(2)
+                          .put(0, SIZE);
+                ByteBuffer pixels = BufferUtils.createByteBuffer(BYTES);
+                while (pixels.hasRemaining()) {
+                    pixels.put((byte) 7);
+                }
+                return pixels.flip();
+            });
+
+            CompletableFuture<Texture> future = loader.load(placeholder(IMAGE));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!future.isDone() && System.currentTimeMillis() < deadline) {
+                loader.processUploads(Long.MAX_VALUE);
+                Thread.sleep(5);
+            }
+            assertTrue(future.isDone());
+
+            //The worker copied the pixels and freed stbi's memory, the GL thread only read from the buffer offset
+            assertEquals(7, mapped.get(0));
+            assertEquals(7, mapped.get(BYTES - 1));
+            verify(gl).stbiImageFree(any());
+            verify(gl).glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, SIZE, SIZE, 0, GL_RGBA, GL_UNSIGNED_BYTE, 0L);
+            verify(gl, never()).glTexImage2D(anyInt(), anyInt(), anyInt(), anyInt(), anyInt(), anyInt(), anyInt(),
+                                             anyInt(), any(ByteBuffer.class));
+            verify(gl).glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+            assertEquals(BYTES, loader.getUploadedBytes());
+
+            //The next frame finds the fence passed and frees it
+            loader.processUploads(Long.MAX_VALUE);
+            verify(gl).glDeleteSync(9L);
+        } finally {
+            Settings.textureUploadBudget = previousBudget;
+        }
+    }
+
+    @Test
+    void uploadsRespectFrameBudget() throws InterruptedException {
+        CompletableFuture<Texture> first = loader.load(placeholder(IMAGE));
+        CompletableFuture<Texture> second = loader.load(placeholder(IMAGE));
+        awaitDecoded(2);
+
+        //Budget below a single image still uploads one per frame
+        loader.processUploads(1);
+        assertEquals(1, loader.getUploadedCount());
+        assertEquals(BYTES, loader.getLastFrameBytes());
+        assertTrue(first.isDone() ^ second.isDone());
+
+        loader.processUploads(1);
+        assertTrue(first.isDone() && second.isDone());
+        assertEquals(2, loader.getUploadedCount());
+    }
+
+    @Test
+    void identicalImagesShareOneTexture() throws InterruptedException {
+        Settings.deduplicateTextures = true;
+        try {
+            when(gl.glGenTextures()).thenReturn(1, 2);
+            //One worker so the first image always lands first
+            loader = new TextureLoader(1);
+            Texture original = placeholder(IMAGE);
+            Texture duplicate = placeholder(IMAGE);
+            CompletableFuture<Texture> first = loader.load(original);
+            CompletableFuture<Texture> second = loader.load(duplicate);
+            awaitDecoded(2);
+            loader.processUploads(Long.MAX_VALUE);
+
+            assertSame(original, first.getNow(null));
+            assertSame(original, second.getNow(null));
+            assertEquals(1, loader.getUploadedCount());
+            assertEquals(1, loader.getDedupedCount());
+            assertEquals(BYTES, loader.getDedupedBytes());
+            verify(gl, times(2)).stbiImageFree(any());
+            verify(gl).glDeleteTextures(2);
+            assertEquals(original.getContentHash(), XXHash64.hash(BufferUtils.createByteBuffer(BYTES), 0));
+
+            //The duplicate draws the original's texture without holding memory of its own
+            assertSame(original, duplicate.getDuplicateOf());
+            assertEquals(1, duplicate.getTextureId());
+            assertEquals(SIZE, duplicate.getWidth());
+            assertEquals(0, duplicate.getMemorySize());
+            clearInvocations(gl);
+            duplicate.bind();
+            verify(gl).glBindTexture(GL_TEXTURE_2D, 1);
+        } finally {
+            Settings.deduplicateTextures = false;
+        }
+    }
+
+    @Test
+    void unreadableImageFailsFuture() throws InterruptedException {
+        CompletableFuture<Texture> future = loader.load(placeholder("assets/images/missing.png"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!future.isDone() && System.currentTimeMillis() < deadline) {
+            loader.processUploads(Long.MAX_VALUE);
+            Thread.sleep(5);
+        }
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(0, loader.getPendingCount());
+        verify(gl, never()).glTexImage2D(anyInt(), anyInt(), anyInt(), anyInt(), anyInt(), anyInt(), anyInt(),
+                                         anyInt(), any(ByteBuffer.class));
+    }
+}
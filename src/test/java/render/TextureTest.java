@@ -1,4 +1,69 @@
 package render;
 
+import graphics.GLWrapper;
+import junitExtension.GlobalTestSetup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.lwjgl.BufferUtils;
+import scene.Settings;
+
+import java.nio.IntBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.lwjgl.opengl.GL11.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(GlobalTestSetup.class)
 public class TextureTest {
+    private static final String IMAGE = "assets/images/testImage.png";
+
+    private GLWrapper gl;
+    private GLWrapper previousGl;
+
+    @BeforeEach
+    void setUp() {
+        previousGl = Settings.graphicsImpl;
+        gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+
+        when(gl.glGenTextures()).thenReturn(3, 4);
+        when(gl.stbiLoad(eq(IMAGE), any(), any(), any(), eq(0))).thenAnswer(invocation -> {
+            invocation.<IntBuffer>getArgument(1)
+                      .put(0, 8);
+            invocation.<IntBuffer>getArgument(2)
+                      .put(0, 4);
+            invocation.<IntBuffer>getArgument(3)
+                      .put(0, 4);
+            return BufferUtils.createByteBuffer(8 * 4 * 4);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        Settings.graphicsImpl = previousGl;
+    }
+
+    @Test
+    void evictedTextureIsRestoredOnBind() {
+        Texture texture = new Texture();
+        texture.init(IMAGE);
+        assertEquals(8 * 4 * 4, texture.getMemorySize());
+
+        texture.evict();
+        verify(gl).glDeleteTextures(3);
+        assertFalse(texture.isResident());
+        assertEquals(0, texture.getMemorySize());
+        //Size is kept for layout while evicted
+        assertEquals(8, texture.getWidth());
+
+        texture.bind();
+        assertTrue(texture.isResident());
+        assertEquals(4, texture.getTextureId());
+        verify(gl, times(2)).stbiLoad(eq(IMAGE), any(), any(), any(), eq(0));
+        //Once to provision the new id, once for the bind itself
+        verify(gl, times(2)).glBindTexture(GL_TEXTURE_2D, 4);
+    }
 }
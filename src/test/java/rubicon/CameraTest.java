@@ -5,6 +5,7 @@ import org.joml.Vector2f;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 class CameraTest {
@@ -27,4 +28,21 @@ class CameraTest {
         Matrix4f cProj = c.getProjectionMatrix();
         assertEquals(proj, cProj);
     }
+
+    @Test
+    void viewMatrixOnlyRebuiltWhenMoved() {
+        Camera c = new Camera(new Vector2f(1f, 1f));
+        Matrix4f view = new Matrix4f(c.getViewMatrix());
+        int version = c.getVersion();
+
+        c.getViewMatrix();
+        assertEquals(version, c.getVersion());
+
+        c.getPosition()
+         .add(3f, 4f);
+        assertNotEquals(view, c.getViewMatrix());
+        assertEquals(version + 1, c.getVersion());
+        assertEquals(-4f, c.getViewMatrix()
+                           .m30());
+    }
 }
@@ -69,6 +69,8 @@ class GameObjectTest {
             t.imgui();
             verify(s).imgui();
         }
+        t.destroy();
+        verify(s).destroy();
     }
 
     @Test
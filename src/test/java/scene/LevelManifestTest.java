@@ -0,0 +1,110 @@
+package scene;
+
+import component.SpriteRenderer;
+import graphics.GLWrapper;
+import junitExtension.GlobalTestSetup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.lwjgl.BufferUtils;
+import render.Texture;
+import rubicon.GameObject;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class: LevelManifestTest
+ * Author: rapto
+ * CreatedDate: 3/28/2025 : 2:40 PM
+ * Project: GameEngine
+ * Description: LevelManifest Unit Tests
+ */
+@ExtendWith(GlobalTestSetup.class)
+class LevelManifestTest {
+    @TempDir
+    Path directory;
+
+    private GLWrapper gl;
+    private GLWrapper previousGl;
+
+    @BeforeEach
+    void setUp() {
+        previousGl = Settings.graphicsImpl;
+        gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+        when(gl.stbiLoadFromMemory(any(), any(), any(), any(), eq(4))).thenAnswer(invocation -> {
+            invocation.<IntBuffer>getArgument(1)
+                      .put(0, 2);
+            invocation.<IntBuffer>getArgument(2)
+                      .put(0, 2);
+            return BufferUtils.createByteBuffer(16);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        Settings.graphicsImpl = previousGl;
+    }
+
+    private GameObject spriteObject(String filePath) {
+        //Stands in for a Texture deserialized from the level, it has a path but no GL texture
+        Texture texture = new Texture();
+        texture.setFilePath(filePath);
+        SpriteRenderer spr = new SpriteRenderer();
+        spr.setTexture(texture);
+        GameObject go = new GameObject(filePath);
+        go.addComponent(spr);
+        return go;
+    }
+
+    @Test
+    void preloadedTexturesAreLinked() throws IOException {
+        String first = Files.write(directory.resolve("first.png"), new byte[]{1})
+                            .toString();
+        String second = Files.write(directory.resolve("second.png"), new byte[]{2})
+                             .toString();
+        List<GameObject> gameObjects = List.of(spriteObject(first), spriteObject(second), spriteObject(first),
+                                               new GameObject("empty"));
+
+        LevelManifest manifest = LevelManifest.collect(gameObjects);
+        assertEquals(List.of(first, second), List.copyOf(manifest.getTextures()));
+
+        manifest.preload();
+        manifest.link();
+        Texture firstTexture = gameObjects.get(0)
+                                          .getComponent(SpriteRenderer.class)
+                                          .getTexture();
+        //Both objects share the single pool texture, fully uploaded
+        assertSame(firstTexture, gameObjects.get(2)
+                                            .getComponent(SpriteRenderer.class)
+                                            .getTexture());
+        assertNotSame(firstTexture, gameObjects.get(1)
+                                               .getComponent(SpriteRenderer.class)
+                                               .getTexture());
+        assertEquals(2, firstTexture.getWidth());
+        assertTrue(manifest.getTotalNanos() >= manifest.getLinkNanos());
+    }
+
+    @Test
+    void missingTexturesKeepTheirDeserializedTexture() {
+        GameObject go = spriteObject(directory.resolve("missing.png")
+                                              .toString());
+        Texture deserialized = go.getComponent(SpriteRenderer.class)
+                                 .getTexture();
+        LevelManifest manifest = LevelManifest.collect(List.of(go));
+        manifest.preload();
+        manifest.link();
+        assertSame(deserialized, go.getComponent(SpriteRenderer.class)
+                                   .getTexture());
+    }
+}
@@ -0,0 +1,124 @@
+package util;
+
+import graphics.GLWrapper;
+import junitExtension.GlobalTestSetup;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.lwjgl.BufferUtils;
+import scene.Settings;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class: AssetBundleTest
+ * Author: rapto
+ * CreatedDate: 3/24/2025 : 1:40 PM
+ * Project: GameEngine
+ * Description: AssetBundle Unit Tests
+ */
+@ExtendWith(GlobalTestSetup.class)
+class AssetBundleTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path writeAssets(int count) throws IOException {
+        Path root = tempDir.resolve("assets");
+        Files.createDirectories(root.resolve("shader"));
+        for (int i = 0; i < count; i++) {
+            Files.writeString(root.resolve("shader/shader" + i + ".glsl"), "#type vertex " + i);
+        }
+        return root;
+    }
+
+    @Test
+    void testWriteAndFind() throws IOException {
+        Path root = writeAssets(50);
+        Path pack = tempDir.resolve("assets.pack");
+        AssetBundle.write(root, pack, false);
+
+        AssetBundle bundle = AssetBundle.open(pack);
+        assertEquals(50, bundle.getEntryCount());
+        for (int i = 0; i < 50; i++) {
+            AssetBundle.Entry entry = bundle.find(root.resolve("shader/shader" + i + ".glsl")
+                                                      .toString());
+            assertNotNull(entry);
+            assertEquals(AssetBundle.KIND_RAW, entry.getKind());
+            assertEquals("#type vertex " + i, entry.asString());
+            //Blobs are slices of the mapping, not copies
+            assertTrue(entry.getData()
+                            .isDirect());
+        }
+        assertNull(bundle.find(root.resolve("shader/missing.glsl")
+                                   .toString()));
+    }
+
+    @Test
+    void testFind_NormalizesNames() throws IOException {
+        Path root = writeAssets(1);
+        Path pack = tempDir.resolve("assets.pack");
+        AssetBundle.write(root, pack, false);
+        AssetBundle bundle = AssetBundle.open(pack);
+
+        String name = AssetBundle.normalize(root.resolve("shader/shader0.glsl")
+                                                .toString());
+        assertNotNull(bundle.find(name.replace('/', '\\')));
+        if (!name.startsWith("/")) {
+            assertNotNull(bundle.find("./" + name));
+        }
+    }
+
+    @Test
+    void testWrite_DecodesImages() throws IOException {
+        GLWrapper previousGl = Settings.graphicsImpl;
+        GLWrapper gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+        try {
+            Path root = tempDir.resolve("images");
+            Files.createDirectories(root);
+            Files.write(root.resolve("tile.png"), new byte[]{1, 2, 3});
+            when(gl.stbiLoad(anyString(), any(), any(), any(), eq(4))).thenAnswer(invocation -> {
+                invocation.<IntBuffer>getArgument(1)
+                          .put(0, 2);
+                invocation.<IntBuffer>getArgument(2)
+                          .put(0, 1);
+                ByteBuffer pixels = BufferUtils.createByteBuffer(8);
+                pixels.put(new byte[]{9, 9, 9, 9, 8, 8, 8, 8})
+                      .flip();
+                return pixels;
+            });
+
+            Path pack = tempDir.resolve("images.pack");
+            AssetBundle.write(root, pack, true);
+            AssetBundle.Entry entry = AssetBundle.open(pack)
+                                                 .find(root.resolve("tile.png")
+                                                           .toString());
+            assertTrue(entry.isDecoded());
+            assertEquals(2, entry.getWidth());
+            assertEquals(1, entry.getHeight());
+            assertEquals(8, entry.getData()
+                                 .remaining());
+            assertEquals(8, entry.getData()
+                                 .get(4));
+            verify(gl).stbiImageFree(any());
+        } finally {
+            Settings.graphicsImpl = previousGl;
+        }
+    }
+
+    @Test
+    void testOpen_RejectsOtherFiles() throws IOException {
+        Path file = tempDir.resolve("notABundle.pack");
+        Files.write(file, new byte[64]);
+        assertThrows(IOException.class, () -> AssetBundle.open(file));
+    }
+}
@@ -1,20 +1,41 @@
 package util;
 
+import component.Sprite;
 import component.SpriteSheet;
+import graphics.GLWrapper;
 import junitExtension.GlobalTestSetup;
+import org.joml.Vector2f;
+import org.lwjgl.BufferUtils;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.MockedConstruction;
+import render.GLTaskQueue;
 import render.Shader;
 import render.Texture;
+import render.TextureArray;
+import scene.Settings;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.lwjgl.opengl.GL30C.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 /**
@@ -121,6 +142,284 @@ class AssetPoolTest {
         assertNull(AssetPool.textureMap.get(new File(resourceName).getAbsolutePath()));
     }
 
+    @Test
+    void testGetTextureAsync_RegistersPlaceholder() {
+        String resourceName = "assets/images/testImage2.png";
+        String key = new File(resourceName).getAbsolutePath();
+        try {
+            CompletableFuture<Texture> future = AssetPool.getTextureAsync(resourceName);
+            //Repeated requests share the load
+            assertSame(future, AssetPool.getTextureAsync(resourceName));
+            //The placeholder is handed out until the image lands in it
+            Texture placeholder = AssetPool.getTexture(resourceName);
+            assertNotNull(placeholder);
+            assertEquals(resourceName, placeholder.getFilePath());
+            assertEquals(1, placeholder.getWidth());
+        } finally {
+            AssetPool.textureMap.remove(key);
+            AssetPool.pendingTextures.remove(key);
+        }
+    }
+
+    @Test
+    void testGetTextureAsync_ConcurrentRequestsShareOneLoad() throws Exception {
+        String resourceName = "assets/images/blendImage1.png";
+        String key = AssetPool.key(resourceName);
+        GLWrapper previousGl = Settings.graphicsImpl;
+        GLWrapper gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+        GLTaskQueue.setGLThread(Thread.currentThread());
+        ExecutorService workers = Executors.newFixedThreadPool(16);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<CompletableFuture<Texture>>> requests = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                requests.add(workers.submit(() -> {
+                    start.await();
+                    return AssetPool.getTextureAsync(resourceName);
+                }));
+            }
+            start.countDown();
+            CompletableFuture<Texture> shared = requests.get(0)
+                                                        .get();
+            for (Future<CompletableFuture<Texture>> request : requests) {
+                assertSame(shared, request.get());
+            }
+
+            //Nothing touches GL until the GL thread drains the queue
+            verify(gl, never()).glGenTextures();
+            assertEquals(1, GLTaskQueue.drain());
+            verify(gl, times(1)).glGenTextures();
+            assertNotNull(AssetPool.textureMap.get(key));
+        } finally {
+            workers.shutdownNow();
+            GLTaskQueue.setGLThread(null);
+            AssetPool.textureMap.remove(key);
+            AssetPool.pendingTextures.remove(key);
+            Settings.graphicsImpl = previousGl;
+        }
+    }
+
+    @Test
+    void testGetTextureAsync_IdenticalImagesShareOneTexture() throws Exception {
+        String firstName = "assets/images/blendImage1.png";
+        String secondName = "assets/images/blendImage2.png";
+        String firstKey = AssetPool.key(firstName);
+        String secondKey = AssetPool.key(secondName);
+        GLWrapper previousGl = Settings.graphicsImpl;
+        GLWrapper gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+        Settings.deduplicateTextures = true;
+        when(gl.glGenTextures()).thenReturn(11, 12);
+        //Both files decode to the same blank 2x2 image
+        when(gl.stbiLoadFromMemory(any(), any(), any(), any(), eq(4))).thenAnswer(invocation -> {
+            invocation.<IntBuffer>getArgument(1)
+                      .put(0, 2);
+            invocation.<IntBuffer>getArgument(2)
+                      .put(0, 2);
+            return BufferUtils.createByteBuffer(2 * 2 * 4);
+        });
+        try {
+            long residentBefore = AssetPool.getResidentTextureBytes();
+            int dedupedBefore = AssetPool.getTextureLoader()
+                                         .getDedupedCount();
+            CompletableFuture<Texture> first = AssetPool.getTextureAsync(firstName);
+            CompletableFuture<Texture> second = AssetPool.getTextureAsync(secondName);
+            Texture firstPlaceholder = AssetPool.textureMap.get(firstKey);
+            Texture secondPlaceholder = AssetPool.textureMap.get(secondKey);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!(first.isDone() && second.isDone()) && System.currentTimeMillis() < deadline) {
+                AssetPool.getTextureLoader()
+                         .processUploads(Long.MAX_VALUE);
+                Thread.sleep(5);
+            }
+
+            //Whichever landed first is shared under both paths
+            Texture shared = first.get();
+            assertSame(shared, second.get());
+            assertSame(shared, AssetPool.textureMap.get(firstKey));
+            assertSame(shared, AssetPool.textureMap.get(secondKey));
+            verify(gl, times(1)).glTexImage2D(eq(GL_TEXTURE_2D), eq(0), eq(GL_RGBA), eq(2), eq(2), eq(0), eq(GL_RGBA),
+                                              eq(GL_UNSIGNED_BYTE), any(ByteBuffer.class));
+            assertEquals(dedupedBefore + 1, AssetPool.getTextureLoader()
+                                                     .getDedupedCount());
+
+            //The other placeholder gave up its own texture and draws the shared one
+            Texture duplicate = shared == firstPlaceholder ? secondPlaceholder : firstPlaceholder;
+            verify(gl).glDeleteTextures(shared == firstPlaceholder ? 12 : 11);
+            assertEquals(shared.getTextureId(), duplicate.getTextureId());
+            assertEquals(0, duplicate.getMemorySize());
+            assertEquals(residentBefore + 2 * 2 * 4, AssetPool.getResidentTextureBytes());
+        } finally {
+            Settings.deduplicateTextures = false;
+            AssetPool.textureMap.remove(firstKey);
+            AssetPool.textureMap.remove(secondKey);
+            AssetPool.pendingTextures.remove(firstKey);
+            AssetPool.pendingTextures.remove(secondKey);
+            Settings.graphicsImpl = previousGl;
+        }
+    }
+
+    @Test
+    void testGetTexture_OffGLThreadWaitsForGLThread() throws Exception {
+        String resourceName = "assets/images/blendImage2.png";
+        String key = AssetPool.key(resourceName);
+        GLTaskQueue.setGLThread(Thread.currentThread());
+        try (MockedConstruction<Texture> mockedConstruction = mockConstruction(Texture.class)) {
+            CompletableFuture<Texture> request = CompletableFuture.supplyAsync(
+                    () -> AssetPool.getTexture(resourceName));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (GLTaskQueue.getPendingCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertFalse(request.isDone());
+            GLTaskQueue.drain();
+            Texture texture = request.get(5, TimeUnit.SECONDS);
+            assertSame(mockedConstruction.constructed()
+                                         .getFirst(), texture);
+            verify(texture).init(resourceName);
+        } finally {
+            GLTaskQueue.setGLThread(null);
+            AssetPool.textureMap.remove(key);
+        }
+    }
+
+    @Test
+    void testGetTextureAsync_FileNotFound() {
+        CompletableFuture<Texture> future = AssetPool.getTextureAsync("nonexistent.png");
+        assertTrue(future.isCompletedExceptionally());
+        assertFalse(AssetPool.textureMap.containsKey(new File("nonexistent.png").getAbsolutePath()));
+    }
+
+    @Test
+    void testAcquireTexture_CountsReferences() {
+        String resourceName = "counted.png";
+        String key = AssetPool.key(resourceName);
+        Texture texture = mock(Texture.class);
+        AssetPool.textureMap.put(key, texture);
+        try {
+            AssetHandle<Texture> first = AssetPool.acquireTexture(resourceName);
+            AssetHandle<Texture> second = AssetPool.acquireTexture(resourceName);
+            assertSame(texture, first.get());
+            assertEquals(2, AssetPool.getReferenceCount(key));
+
+            first.release();
+            //Releasing a handle again must not drop another holder's reference
+            first.release();
+            assertEquals(1, AssetPool.getReferenceCount(key));
+            second.close();
+            assertEquals(0, AssetPool.getReferenceCount(key));
+            assertFalse(AssetPool.textureRefs.containsKey(key));
+        } finally {
+            AssetPool.textureMap.remove(key);
+            AssetPool.textureRefs.remove(key);
+        }
+    }
+
+    private static Texture residentTexture(String filePath, long lastUsedFrame) {
+        Texture texture = mock(Texture.class);
+        when(texture.getFilePath()).thenReturn(filePath);
+        when(texture.isResident()).thenReturn(true);
+        when(texture.getMemorySize()).thenReturn(100L);
+        when(texture.getLastUsedFrame()).thenReturn(lastUsedFrame);
+        return texture;
+    }
+
+    @Test
+    void testEnforceTextureBudget_EvictsLeastRecentlyUsed() {
+        for (int i = 0; i < 5; i++) {
+            AssetPool.update();
+        }
+        long frame = AssetPool.getFrame();
+        String[] names = {"assets/images/testImage.png", "assets/images/testImage2.png", "assets/images/blendImage1.png",
+                          "assets/images/blendImage2.png"};
+        Texture oldest = residentTexture(names[0], frame - 4);
+        Texture older = residentTexture(names[1], frame - 3);
+        Texture referenced = residentTexture(names[2], 0);
+        Texture drawnLastFrame = residentTexture(names[3], frame - 1);
+        Texture[] textures = {oldest, older, referenced, drawnLastFrame};
+        for (int i = 0; i < names.length; i++) {
+            AssetPool.textureMap.put(AssetPool.key(names[i]), textures[i]);
+        }
+        AssetHandle<Texture> handle = AssetPool.acquireTexture(names[2]);
+        int evictions = AssetPool.getEvictionCount();
+        try {
+            AssetPool.enforceTextureBudget(300);
+            verify(oldest).evict();
+            verify(older, never()).evict();
+            when(oldest.isResident()).thenReturn(false);
+            when(oldest.getMemorySize()).thenReturn(0L);
+
+            AssetPool.enforceTextureBudget(0);
+            verify(older).evict();
+            verify(referenced, never()).evict();
+            verify(drawnLastFrame, never()).evict();
+            assertEquals(evictions + 2, AssetPool.getEvictionCount());
+        } finally {
+            handle.release();
+            for (String name : names) {
+                AssetPool.textureMap.remove(AssetPool.key(name));
+            }
+        }
+    }
+
+    @Test
+    void testRemoveSpriteSheet_ReleasesTexture() {
+        String resourceName = "assets/images/spritesheets/pipes.png";
+        String key = AssetPool.key(resourceName);
+        Texture texture = mock(Texture.class);
+        when(texture.getFilePath()).thenReturn(resourceName);
+        SpriteSheet spriteSheet = mock(SpriteSheet.class);
+        when(spriteSheet.getTexture()).thenReturn(texture);
+        boolean useTextureArrays = Settings.useTextureArrays;
+        Settings.useTextureArrays = false;
+        try {
+            AssetPool.addSpriteSheet(resourceName, spriteSheet);
+            assertEquals(1, AssetPool.getReferenceCount(key));
+            AssetPool.removeSpriteSheet(resourceName);
+            assertEquals(0, AssetPool.getReferenceCount(key));
+            assertFalse(AssetPool.spriteSheetMap.containsKey(key));
+        } finally {
+            Settings.useTextureArrays = useTextureArrays;
+            AssetPool.spriteSheetMap.remove(key);
+            AssetPool.textureRefs.remove(key);
+        }
+    }
+
+    @Test
+    void testGetTexture_ResolvesThroughBundle() throws Exception {
+        GLWrapper previousGl = Settings.graphicsImpl;
+        GLWrapper gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+        Path root = tempDir.resolve("bundled");
+        Files.createDirectories(root);
+        Path image = root.resolve("onlyInBundle.png");
+        Files.write(image, new byte[]{1, 2, 3, 4});
+        Path pack = tempDir.resolve("bundled.pack");
+        AssetBundle.write(root, pack, false);
+        //Only the bundle holds the image from here on
+        Files.delete(image);
+        String key = AssetPool.key(image.toString());
+        when(gl.stbiLoadFromMemory(any(), any(), any(), any(), eq(0))).thenAnswer(invocation -> {
+            invocation.<IntBuffer>getArgument(3)
+                      .put(0, 4);
+            return BufferUtils.createByteBuffer(4);
+        });
+        try {
+            AssetPool.setBundle(AssetBundle.open(pack));
+            Texture texture = AssetPool.getTexture(image.toString());
+            assertNotNull(texture);
+            assertSame(texture, AssetPool.textureMap.get(key));
+            //Decoded in place from the mapped blob
+            verify(gl).stbiLoadFromMemory(argThat(blob -> blob.isDirect() && blob.remaining() == 4), any(), any(),
+                                          any(), eq(0));
+        } finally {
+            AssetPool.setBundle(null);
+            AssetPool.textureMap.remove(key);
+            Settings.graphicsImpl = previousGl;
+        }
+    }
+
     @Test
     void testGetShader_ExistingShader() {
         try (MockedConstruction<Shader> mockedConstruction = mockConstruction(Shader.class,
@@ -153,4 +452,325 @@ class AssetPoolTest {
 
         assertNull(AssetPool.shaderMap.get(new File(resourceName).getAbsolutePath()));
     }
+
+    @Test
+    void testBuildAtlas_RemapsSpriteSheetAndKeepsPathLookups() {
+        GLWrapper previousGl = Settings.graphicsImpl;
+        GLWrapper gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+        //Every image decodes as 32x16 RGBA
+        when(gl.stbiLoad(anyString(), any(IntBuffer.class), any(IntBuffer.class), any(IntBuffer.class), eq(4)))
+                .thenAnswer(invocation -> {
+                    ((IntBuffer) invocation.getArgument(1)).put(0, 32);
+                    ((IntBuffer) invocation.getArgument(2)).put(0, 16);
+                    ((IntBuffer) invocation.getArgument(3)).put(0, 4);
+                    return BufferUtils.createByteBuffer(32 * 16 * 4);
+                });
+        when(gl.glGenTextures()).thenReturn(7, 8, 9);
+
+        String sheetPath = "assets/images/spritesheets/pipes.png";
+        String imagePath = "assets/images/testImage.png";
+        try {
+            Texture sheetTexture = new Texture();
+            sheetTexture.setFilePath(sheetPath);
+            sheetTexture.setWidth(32);
+            sheetTexture.setHeight(16);
+            Texture imageTexture = new Texture();
+            imageTexture.setFilePath(imagePath);
+            imageTexture.setWidth(32);
+            imageTexture.setHeight(16);
+            AssetPool.textureMap.put(new File(sheetPath).getAbsolutePath(), sheetTexture);
+            AssetPool.textureMap.put(new File(imagePath).getAbsolutePath(), imageTexture);
+            SpriteSheet sheet = new SpriteSheet(sheetTexture, 16, 16, 2, 0);
+            AssetPool.addSpriteSheet(sheetPath, sheet);
+
+            TextureAtlas atlas = AssetPool.buildAtlas(64);
+
+            //Both images share a single page
+            assertEquals(1, atlas.getPages()
+                                 .size());
+            assertEquals(2, atlas.getRegionCount());
+            assertEquals(0.25f, atlas.getEfficiency(), 1e-6f);
+            verify(gl, times(2)).glTexSubImage2D(anyInt(), eq(0), anyInt(), anyInt(), eq(32), eq(16), anyInt(),
+                                                 anyInt(), any());
+            verify(gl, times(2)).stbiImageFree(any());
+
+            //Sheet sprites sample the page within the sheet's region
+            Texture page = atlas.getPages()
+                                .getFirst();
+            TextureAtlas.Region region = atlas.getRegion(sheetPath);
+            Sprite second = sheet.getSprite(1);
+            assertSame(page, second.getTexture());
+            Vector2f[] texCoords = second.getTexCoords();
+            assertEquals((region.getX() + 32) / 64f, texCoords[0].x, 1e-6f);
+            assertEquals((region.getX() + 16) / 64f, texCoords[2].x, 1e-6f);
+            assertEquals((region.getY() + 16) / 64f, texCoords[0].y, 1e-6f);
+
+            //Path lookups still return the original texture, sprites by path sample the page
+            assertSame(imageTexture, AssetPool.getTexture(imagePath));
+            Sprite image = AssetPool.getSprite(imagePath);
+            assertSame(page, image.getTexture());
+            assertEquals(32f, image.getWidth());
+            assertSame(page, AssetPool.getTexture(page.getFilePath()));
+        } finally {
+            AssetPool.atlas = null;
+            AssetPool.atlasSprites.clear();
+            AssetPool.textureMap.clear();
+            AssetPool.spriteSheetMap.remove(new File(sheetPath).getAbsolutePath());
+            Settings.graphicsImpl = previousGl;
+        }
+    }
+
+    @Test
+    void testBuildAtlas_RebuildReplacesPagesWithoutRemappingTwice() {
+        GLWrapper previousGl = Settings.graphicsImpl;
+        GLWrapper gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+        when(gl.stbiLoad(anyString(), any(IntBuffer.class), any(IntBuffer.class), any(IntBuffer.class), eq(4)))
+                .thenAnswer(invocation -> {
+                    ((IntBuffer) invocation.getArgument(1)).put(0, 32);
+                    ((IntBuffer) invocation.getArgument(2)).put(0, 16);
+                    ((IntBuffer) invocation.getArgument(3)).put(0, 4);
+                    return BufferUtils.createByteBuffer(32 * 16 * 4);
+                });
+        when(gl.glGenTextures()).thenReturn(7, 8, 9);
+
+        String sheetPath = "assets/images/spritesheets/pipes.png";
+        try {
+            Texture sheetTexture = new Texture();
+            sheetTexture.setFilePath(sheetPath);
+            sheetTexture.setWidth(32);
+            sheetTexture.setHeight(16);
+            AssetPool.textureMap.put(new File(sheetPath).getAbsolutePath(), sheetTexture);
+            SpriteSheet sheet = new SpriteSheet(sheetTexture, 16, 16, 2, 0);
+            AssetPool.addSpriteSheet(sheetPath, sheet);
+
+            TextureAtlas first = AssetPool.buildAtlas(64);
+            Vector2f[] firstCoords = sheet.getSprite(1)
+                                          .getTexCoords();
+            Texture firstPage = first.getPages()
+                                     .getFirst();
+            Sprite whole = AssetPool.getSprite(sheetPath);
+            assertSame(firstPage, whole.getTexture());
+
+            TextureAtlas second = AssetPool.buildAtlas(64);
+            Texture secondPage = second.getPages()
+                                       .getFirst();
+
+            //Only the sheet was packed again, the old page was not treated as an image
+            assertEquals(1, second.getRegionCount());
+            assertSame(second, AssetPool.atlas);
+
+            //Same layout, so the sprites land on the same coordinates of the new page
+            Sprite sprite = sheet.getSprite(1);
+            assertSame(secondPage, sprite.getTexture());
+            Vector2f[] secondCoords = sprite.getTexCoords();
+            for (int i = 0; i < firstCoords.length; i++) {
+                assertEquals(firstCoords[i].x, secondCoords[i].x, 1e-6f);
+                assertEquals(firstCoords[i].y, secondCoords[i].y, 1e-6f);
+            }
+
+            //Sprites handed out by getSprite moved to the new page too
+            assertSame(secondPage, whole.getTexture());
+            TextureAtlas.Region region = second.getRegion(sheetPath);
+            assertEquals((region.getX() + 32) / 64f, whole.getTexCoords()[0].x, 1e-6f);
+            assertEquals(region.getX() / 64f, whole.getTexCoords()[2].x, 1e-6f);
+
+            //The old page was deleted and its lookup now finds the new page
+            verify(gl).glDeleteTextures(7);
+            assertFalse(firstPage.isResident());
+            assertSame(secondPage, AssetPool.getTexture(secondPage.getFilePath()));
+        } finally {
+            AssetPool.atlas = null;
+            AssetPool.atlasSprites.clear();
+            AssetPool.textureMap.clear();
+            AssetPool.spriteSheetMap.remove(new File(sheetPath).getAbsolutePath());
+            Settings.graphicsImpl = previousGl;
+        }
+    }
+
+    @Test
+    void testBuildAtlas_PacksImagesOnlyInTheBundle() throws IOException {
+        GLWrapper previousGl = Settings.graphicsImpl;
+        GLWrapper gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+        //Decoded while writing the bundle as 4x2 RGBA
+        when(gl.stbiLoad(anyString(), any(IntBuffer.class), any(IntBuffer.class), any(IntBuffer.class), eq(4)))
+                .thenAnswer(invocation -> {
+                    ((IntBuffer) invocation.getArgument(1)).put(0, 4);
+                    ((IntBuffer) invocation.getArgument(2)).put(0, 2);
+                    return BufferUtils.createByteBuffer(4 * 2 * 4);
+                });
+        when(gl.glGenTextures()).thenReturn(7);
+
+        Path root = tempDir.resolve("packed");
+        Files.createDirectories(root);
+        Path image = root.resolve("tile.png");
+        Files.write(image, new byte[]{1, 2, 3});
+        Path pack = tempDir.resolve("packed.pack");
+        AssetBundle.write(root, pack, true);
+        //Only the bundle has the image from here on
+        Files.delete(image);
+        AssetPool.setBundle(AssetBundle.open(pack));
+        try {
+            Texture texture = new Texture();
+            texture.setFilePath(image.toString());
+            texture.setWidth(4);
+            texture.setHeight(2);
+            AssetPool.textureMap.put(image.toAbsolutePath()
+                                          .toString(), texture);
+            clearInvocations(gl);
+
+            TextureAtlas atlas = AssetPool.buildAtlas(64);
+
+            assertEquals(1, atlas.getRegionCount());
+            assertNotNull(atlas.getRegion(image.toString()));
+            //Packed from the bundle's pixels, which stbi neither loads nor frees
+            verify(gl).glTexSubImage2D(anyInt(), eq(0), anyInt(), anyInt(), eq(4), eq(2), anyInt(), anyInt(),
+                                       any());
+            verify(gl, never()).stbiLoad(anyString(), any(), any(), any(), anyInt());
+            verify(gl, never()).stbiImageFree(any());
+        } finally {
+            AssetPool.setBundle(null);
+            AssetPool.atlas = null;
+            AssetPool.textureMap.clear();
+            Settings.graphicsImpl = previousGl;
+        }
+    }
+
+    @Test
+    void testMinBatches() {
+        assertEquals(0, AssetPool.minBatches(0));
+        assertEquals(1, AssetPool.minBatches(8));
+        assertEquals(2, AssetPool.minBatches(9));
+    }
+
+    @Test
+    void testAddSpriteSheet_SlicesTilesIntoTextureArray() {
+        GLWrapper previousGl = Settings.graphicsImpl;
+        GLWrapper gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+        when(gl.glGetInteger(GL_MAX_ARRAY_TEXTURE_LAYERS)).thenReturn(2048);
+        ByteBuffer image = BufferUtils.createByteBuffer(32 * 16 * 4);
+        when(gl.stbiLoad(anyString(), any(IntBuffer.class), any(IntBuffer.class), any(IntBuffer.class), eq(4)))
+                .thenAnswer(invocation -> {
+                    ((IntBuffer) invocation.getArgument(1)).put(0, 32);
+                    ((IntBuffer) invocation.getArgument(2)).put(0, 16);
+                    return image;
+                });
+
+        String sheetPath = "assets/images/spritesheets/icons.png";
+        try {
+            Texture sheetTexture = new Texture();
+            sheetTexture.setFilePath(sheetPath);
+            sheetTexture.setWidth(32);
+            sheetTexture.setHeight(16);
+            SpriteSheet sheet = new SpriteSheet(sheetTexture, 16, 16, 2, 0);
+            AssetPool.addSpriteSheet(sheetPath, sheet);
+
+            TextureArray array = sheet.getSprite(0)
+                                      .getTextureArray();
+            assertNotNull(array);
+            assertSame(array, sheet.getSprite(1)
+                                   .getTextureArray());
+            assertEquals(0, sheet.getSprite(0)
+                                 .getLayer());
+            assertEquals(1, sheet.getSprite(1)
+                                 .getLayer());
+            assertEquals(2, array.getLayerCount());
+            verify(gl).glTexImage3D(eq(GL_TEXTURE_2D_ARRAY), eq(0), eq(GL_RGBA8), eq(16), eq(16), eq(256), eq(0),
+                                    eq(GL_RGBA), eq(GL_UNSIGNED_BYTE), isNull());
+            verify(gl).glTexSubImage3D(eq(GL_TEXTURE_2D_ARRAY), eq(0), eq(0), eq(0), eq(1), eq(16), eq(16), eq(1),
+                                       eq(GL_RGBA), eq(GL_UNSIGNED_BYTE), any(ByteBuffer.class));
+            verify(gl).stbiImageFree(image);
+        } finally {
+            AssetPool.textureArrays.clear();
+            AssetPool.sheetLayers.clear();
+            AssetPool.spriteSheetMap.remove(new File(sheetPath).getAbsolutePath());
+            Settings.graphicsImpl = previousGl;
+        }
+    }
+
+    @Test
+    void testRemoveSpriteSheet_FreesTextureArrayLayers() {
+        GLWrapper previousGl = Settings.graphicsImpl;
+        GLWrapper gl = mock(GLWrapper.class);
+        Settings.graphicsImpl = gl;
+        when(gl.glGetInteger(GL_MAX_ARRAY_TEXTURE_LAYERS)).thenReturn(2048);
+        when(gl.glGenTextures()).thenReturn(5, 6);
+        when(gl.stbiLoad(anyString(), any(IntBuffer.class), any(IntBuffer.class), any(IntBuffer.class), eq(4)))
+                .thenAnswer(invocation -> {
+                    ((IntBuffer) invocation.getArgument(1)).put(0, 32);
+                    ((IntBuffer) invocation.getArgument(2)).put(0, 16);
+                    return BufferUtils.createByteBuffer(32 * 16 * 4);
+                });
+
+        String firstPath = "assets/images/spritesheets/icons.png";
+        String secondPath = "assets/images/spritesheets/pipes.png";
+        try {
+            SpriteSheet first = new SpriteSheet(sheetTexture(firstPath), 16, 16, 2, 0);
+            SpriteSheet second = new SpriteSheet(sheetTexture(secondPath), 16, 16, 2, 0);
+            AssetPool.addSpriteSheet(firstPath, first);
+            AssetPool.addSpriteSheet(secondPath, second);
+            TextureArray array = first.getSprite(0)
+                                      .getTextureArray();
+            assertEquals(4, array.getLayerCount());
+
+            //Removing a sheet gives its layers back, its sprites draw from the sheet's texture again
+            AssetPool.removeSpriteSheet(firstPath);
+            assertEquals(2, array.getLayerCount());
+            assertNull(first.getSprite(0)
+                            .getTextureArray());
+            verify(gl, never()).glDeleteTextures(anyInt());
+
+            //Adding it back reuses the freed layers instead of filling the array
+            AssetPool.addSpriteSheet(firstPath, first);
+            assertSame(array, first.getSprite(0)
+                                   .getTextureArray());
+            assertEquals(0, first.getSprite(0)
+                                 .getLayer());
+            assertEquals(1, first.getSprite(1)
+                                 .getLayer());
+            assertEquals(4, array.getLayerCount());
+            assertEquals(1, AssetPool.textureArrays.size());
+
+            //The array is deleted once no sheet uses it
+            AssetPool.removeSpriteSheet(firstPath);
+            AssetPool.removeSpriteSheet(secondPath);
+            verify(gl).glDeleteTextures(5);
+            assertTrue(AssetPool.textureArrays.isEmpty());
+            assertTrue(AssetPool.sheetLayers.isEmpty());
+        } finally {
+            AssetPool.textureArrays.clear();
+            AssetPool.sheetLayers.clear();
+            AssetPool.spriteSheetMap.remove(AssetPool.key(firstPath));
+            AssetPool.spriteSheetMap.remove(AssetPool.key(secondPath));
+            AssetPool.textureRefs.remove(AssetPool.key(firstPath));
+            AssetPool.textureRefs.remove(AssetPool.key(secondPath));
+            Settings.graphicsImpl = previousGl;
+        }
+    }
+
+    private static Texture sheetTexture(String filePath) {
+        Texture texture = new Texture();
+        texture.setFilePath(filePath);
+        texture.setWidth(32);
+        texture.setHeight(16);
+        return texture;
+    }
+
+    @Test
+    void testCopyTile() {
+        //4x2 image where every byte holds its pixel index
+        ByteBuffer image = BufferUtils.createByteBuffer(4 * 2 * 4);
+        for (int i = 0; i < image.capacity(); i++) {
+            image.put(i, (byte) (i / 4));
+        }
+        ByteBuffer tile = BufferUtils.createByteBuffer(2 * 2 * 4);
+        AssetPool.copyTile(image, 4, 2, 0, tile, 2, 2);
+        assertEquals(2, tile.get(0));
+        assertEquals(3, tile.get(4));
+        assertEquals(6, tile.get(8));
+        assertEquals(7, tile.get(12));
+    }
 }
@@ -0,0 +1,69 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class: SkylinePackerTest
+ * Author: rapto
+ * CreatedDate: 3/14/2025 : 11:35 PM
+ * Project: GameEngine
+ * Description: SkylinePacker Unit Tests
+ */
+class SkylinePackerTest {
+
+    @Test
+    void testInsert_FillsRowBeforeStacking() {
+        SkylinePacker packer = new SkylinePacker(64, 64, 0);
+        assertArrayEquals(new int[]{0, 0}, packer.insert(32, 16));
+        assertArrayEquals(new int[]{32, 0}, packer.insert(32, 16));
+        assertArrayEquals(new int[]{0, 16}, packer.insert(64, 16));
+    }
+
+    @Test
+    void testInsert_DropsIntoLowestGap() {
+        SkylinePacker packer = new SkylinePacker(64, 64, 0);
+        packer.insert(32, 32);
+        packer.insert(16, 8);
+        //The 16px gap to the right is lower than the top of the first rectangle
+        assertArrayEquals(new int[]{48, 0}, packer.insert(16, 16));
+        assertArrayEquals(new int[]{32, 8}, packer.insert(16, 16));
+    }
+
+    @Test
+    void testInsert_RespectsPadding() {
+        SkylinePacker packer = new SkylinePacker(64, 64, 2);
+        assertArrayEquals(new int[]{0, 0}, packer.insert(16, 16));
+        assertArrayEquals(new int[]{18, 0}, packer.insert(16, 16));
+    }
+
+    @Test
+    void testInsert_ReturnsNullWhenFull() {
+        SkylinePacker packer = new SkylinePacker(32, 32, 0);
+        assertNotNull(packer.insert(32, 32));
+        assertNull(packer.insert(1, 1));
+        assertNull(new SkylinePacker(32, 32, 0).insert(33, 1));
+    }
+
+    @Test
+    void testInsert_NoOverlapAndFullOccupancy() {
+        SkylinePacker packer = new SkylinePacker(128, 128, 0);
+        List<int[]> placed = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            int[] position = packer.insert(16, 16);
+            assertNotNull(position);
+            for (int[] other : placed) {
+                boolean apart = position[0] >= other[0] + 16 || other[0] >= position[0] + 16
+                                || position[1] >= other[1] + 16 || other[1] >= position[1] + 16;
+                assertTrue(apart);
+            }
+            placed.add(position);
+        }
+        assertNull(packer.insert(16, 16));
+        assertEquals(1f, packer.getOccupancy(), 1e-6f);
+    }
+}
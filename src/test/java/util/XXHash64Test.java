@@ -0,0 +1,63 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+import org.lwjgl.BufferUtils;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class: XXHash64Test
+ * Author: rapto
+ * CreatedDate: 3/29/2025 : 3:05 PM
+ * Project: GameEngine
+ * Description: Unit Tests for XXHash64 against the reference implementation's outputs
+ */
+class XXHash64Test {
+
+    private static ByteBuffer bytes(String text) {
+        byte[] data = text.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer buffer = BufferUtils.createByteBuffer(data.length);
+        buffer.put(data)
+              .flip();
+        return buffer;
+    }
+
+    @Test
+    void testPrivateConstructor() throws Exception {
+        Constructor<XXHash64> constructor = XXHash64.class.getDeclaredConstructor();
+        constructor.setAccessible(true); // Allow access to private constructor
+        assertThrows(InvocationTargetException.class, constructor::newInstance);
+    }
+
+    @Test
+    void testHash_ReferenceValues() {
+        assertEquals(0xEF46DB3751D8E999L, XXHash64.hash(bytes(""), 0));
+        assertEquals(0xD24EC4F1A98C6E5BL, XXHash64.hash(bytes("a"), 0));
+        assertEquals(0x44BC2CF5AD770999L, XXHash64.hash(bytes("abc"), 0));
+        //Longer than a stripe
+        assertEquals(0xFBCEA83C8A378BF1L, XXHash64.hash(bytes("Nobody inspects the spammish repetition"), 0));
+    }
+
+    @Test
+    void testHash_ReadsPositionToLimitWithoutMovingIt() {
+        ByteBuffer buffer = bytes("xxabcxx");
+        buffer.position(2)
+              .limit(5);
+        //Lanes are read little endian whatever the buffer's order
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        assertEquals(0x44BC2CF5AD770999L, XXHash64.hash(buffer, 0));
+        assertEquals(2, buffer.position());
+        assertEquals(5, buffer.limit());
+    }
+
+    @Test
+    void testHash_SeedChangesHash() {
+        assertNotEquals(XXHash64.hash(bytes("abc"), 0), XXHash64.hash(bytes("abc"), 1));
+    }
+}